@@ -16,27 +16,28 @@
 
 package fr.cs.ikats.operators;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.util.stream.Collectors;
+import org.apache.log4j.Logger;
 
 import fr.cs.ikats.common.dao.exception.IkatsDaoMissingResource;
 import fr.cs.ikats.table.TableEntity;
+import fr.cs.ikats.temporaldata.business.table.TableCsvWriter;
 import fr.cs.ikats.temporaldata.business.table.TableManager;
 import fr.cs.ikats.temporaldata.exception.IkatsException;
 
-import org.apache.log4j.Logger;
-
-import java.util.*;
-
 
 /**
  * Class for ExportTable functionality
  * Get IKATS table content and export it as a csv file
+ * <p>
+ * The CSV is streamed from the stored table to the output: see {@link TableCsvWriter}
  */
 public class ExportTable {
 
+    /**
+     * Default delimiter of the CSV fields
+     */
+    public static final String DEFAULT_DELIMITER = ",";
+
     /**
      * First step :
      * Define information to be provided to the {@link ExportTable} operator
@@ -45,6 +46,8 @@ public class ExportTable {
 
         private String tableName;
 
+        private String delimiter = DEFAULT_DELIMITER;
+
         public Request() {
             // default constructor
         }
@@ -58,6 +61,14 @@ public class ExportTable {
             return this.tableName;
         }
 
+        public void setDelimiter(String delimiter) {
+            this.delimiter = delimiter;
+        }
+
+        public String getDelimiter() {
+            return this.delimiter;
+        }
+
     }
 
     /**
@@ -74,8 +85,9 @@ public class ExportTable {
     /**
      * Define the Operator Class : ExportTable
      *
-     * @param request : Contains table name and CSV file name
-     * @throws IkatsOperatorException : Names need to be not empty
+     * @param request : Contains table name and CSV delimiter
+     * @throws IkatsOperatorException : Names need to be not empty, delimiter must be one character, neither a double
+     *                                quote nor a line break
      */
     public ExportTable(Request request) throws IkatsOperatorException {
 
@@ -83,6 +95,11 @@ public class ExportTable {
         if (request.tableName == null || request.tableName.length() == 0) {
             throw new IkatsOperatorException("There should be a name for the table you want to export : " + request.tableName);
         }
+        if (request.delimiter == null || request.delimiter.length() != 1
+                || !TableCsvWriter.isValidDelimiter(request.delimiter.charAt(0))) {
+            throw new IkatsOperatorException("The delimiter should be one character, neither a double quote nor a line break : "
+                    + request.delimiter);
+        }
 
         this.request = request;
         this.tableManager = new TableManager();
@@ -97,85 +114,54 @@ public class ExportTable {
 
 
     /**
-     * Method to call outside
+     * Method to call outside: prepares the export of the table. The CSV is written by
+     * {@link TableCsvWriter#write(java.io.OutputStream)}.
      *
-     * @throws IkatsOperatorException
-     * @throws IkatsException
+     * @return the writer of the CSV
+     * @throws IkatsOperatorException table not found
+     * @throws IkatsException         deserialization error
      */
-    public StringBuffer apply() throws IkatsOperatorException, IkatsException {
+    public TableCsvWriter apply() throws IkatsOperatorException, IkatsException {
 
         // Retrieve the tables from database
-        String tableNameToExtract = null;
-        TableEntity tableDataToExport;
+        String tableNameToExtract = this.request.tableName;
+        TableCsvWriter writer;
         try {
-            //Read the table we want to store
-            tableNameToExtract = this.request.tableName;
-            tableDataToExport = tableManager.readRawFromDatabase(tableNameToExtract);
-
+            writer = tableManager.getCsvWriter(tableNameToExtract, request.delimiter.charAt(0));
         } catch (IkatsDaoMissingResource e) {
             String msg = "Table " + tableNameToExtract + " not found in database";
             throw new IkatsOperatorException(msg, e);
         }
 
-        // do the job : Adapt format of TableInfo
-        StringBuffer FormatResult = doExport(tableDataToExport);
-
-        // then, return it
         logger.info("Table '" + tableNameToExtract + "' is ready to be exported");
 
-        return FormatResult;
+        return writer;
     }
 
 
     /**
-     * Transform TableInfo to a StringBuffer containing data (CSV format)
+     * Prepares the export of a table entity as CSV, with the default delimiter
      *
-     * @param tableToExport : tableInfo we want to save as CSV file
-     * @return StringBuffer : Content stored in TableInfo
+     * @param tableToExport : table entity we want to save as CSV file
+     * @return the writer of the CSV
+     * @throws IkatsException deserialization error
      */
-    public StringBuffer doExport(TableEntity tableToExport) throws IkatsException {
+    public TableCsvWriter doExport(TableEntity tableToExport) throws IkatsException {
 
-        List<List<Object>> rawData;
-        ObjectInputStream ois;
-        try {
-            ois = new ObjectInputStream(new ByteArrayInputStream(tableToExport.getRawValues()));
-            rawData = (List<List<Object>>) ois.readObject();
-        } catch (ClassNotFoundException | IOException e) {
-            throw new IkatsException("Error raised during table deserialization of raw values. Message: " + e.getMessage(), e);
-        }
-
-        //We just have to parse it into String and add a comma separator + \n at the end of lines
-        StringBuffer FormatResult = ListToString(rawData);
-
-        return FormatResult;
+        return doExport(tableToExport, DEFAULT_DELIMITER.charAt(0));
     }
 
-
     /**
-     * Convert Array of Array to a stringBuffer like ["Line1\n  ...  \n....Linek...."]
+     * Prepares the export of a table entity as CSV
      *
-     * @param contentsCells : All contents : Data (+ Row Header + Column Header if necessary)
-     * @return StringBuffer containing data stored in ArrayList<ArrayList> as CSV
+     * @param tableToExport : table entity we want to save as CSV file
+     * @param delimiter     : delimiter of the fields
+     * @return the writer of the CSV
+     * @throws IkatsException deserialization error
      */
-    private StringBuffer ListToString(List<List<Object>> contentsCells) {
-
-        //Create a StringBuffer to store result
-        StringBuffer FormatResult = new StringBuffer();
-
-        //For loop to get all rows and add it to result
-        for (int i = 0; i < contentsCells.size(); i++) {
-            //Get ith row
-            List<Object> ithList = Arrays.asList(contentsCells.get(i)).get(0);
-            //Transform all elements into string (also for DataLink)
-            List<String> strings = ithList.stream().map(object -> Objects.toString(object, null)).collect(Collectors.toList());
-            //Convert all elements to String, separated by comma with spaces before/after
-            String ithListStringCommaSep = String.join(",", strings);
-            //Add a \n to begin a new line
-            ithListStringCommaSep += "\n";
-            //Add row to final result
-            FormatResult.append(ithListStringCommaSep);
-        }
-        return FormatResult;
+    public TableCsvWriter doExport(TableEntity tableToExport, char delimiter) throws IkatsException {
+
+        return tableManager.getCsvWriter(tableToExport, delimiter);
     }
 
 }
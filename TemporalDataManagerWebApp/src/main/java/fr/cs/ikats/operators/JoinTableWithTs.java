@@ -20,26 +20,18 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import org.apache.log4j.Logger;
 
 import fr.cs.ikats.common.dao.exception.IkatsDaoConflictException;
 import fr.cs.ikats.common.dao.exception.IkatsDaoException;
-import fr.cs.ikats.common.expr.SingleValueComparator;
 import fr.cs.ikats.lang.NaturalOrderComparator;
 import fr.cs.ikats.metadata.model.FunctionalIdentifier;
-import fr.cs.ikats.metadata.model.MetaData;
-import fr.cs.ikats.metadata.model.MetadataCriterion;
 import fr.cs.ikats.temporaldata.business.DataSetManager;
-import fr.cs.ikats.temporaldata.business.FilterOnTsWithMetadata;
-import fr.cs.ikats.temporaldata.business.MetaDataManager;
 import fr.cs.ikats.temporaldata.business.table.Table;
 import fr.cs.ikats.temporaldata.business.table.TableElement;
 import fr.cs.ikats.temporaldata.business.table.TableInfo;
@@ -51,7 +43,6 @@ import fr.cs.ikats.temporaldata.exception.InvalidValueException;
 import fr.cs.ikats.temporaldata.exception.ResourceNotFoundException;
 import fr.cs.ikats.temporaldata.resource.TableResource;
 import fr.cs.ikats.temporaldata.utils.Chronometer;
-import fr.cs.ikats.ts.dataset.model.LinkDatasetTimeSeries;
 
 /**
  * Provides the computation for the Table Operator "Join By Metrics". <br>
@@ -93,11 +84,6 @@ public class JoinTableWithTs {
      */
     private TableManager tableManager;
 
-    /**
-     * MetadataManager
-     */
-    private MetaDataManager metaManager;
-
     /**
      * DatasetManager
      */
@@ -110,7 +96,6 @@ public class JoinTableWithTs {
         super();
         this.processedTable = null;
         this.tableManager = new TableManager();
-        this.metaManager = new MetaDataManager();
         this.datasetManager = new DataSetManager();
     }
 
@@ -228,7 +213,7 @@ public class JoinTableWithTs {
             // step 1: restrict Timeseries to those having the metadata named
             // "metric" in the metrics list
             processingContext = "finds the timeseries matching metrics";
-            // The metadata filtering is ignoring spaces around ';' but
+            // The metrics are split ignoring spaces around ';' but
             // we also remove the spaces starting/ending the metrics:
             String preparedMetrics = metrics.trim();
 
@@ -236,85 +221,23 @@ public class JoinTableWithTs {
                 throw new InvalidValueException(
                         MessageFormat.format(MSG_INVALID_METRICS_FOR_JOIN_BY_METRICS, metrics, dataset, getContext()));
 
-            List<MetadataCriterion> selectByMetrics = new ArrayList<>();
-            selectByMetrics.add(new MetadataCriterion("metric", SingleValueComparator.IN.getText(), preparedMetrics));
-            FilterOnTsWithMetadata filterDataseByMetrics = new FilterOnTsWithMetadata();
-
-            // Determine the list of dataset links from the datasetManager
-            // => converts list of LinkDatasetTimeSeries into list of
-            // FunctionalIdentifier
-            List<FunctionalIdentifier> allDatasetFuncIds = datasetManager.getDataSetContent(dataset).stream()
-                    .map(LinkDatasetTimeSeries::getFuncIdentifier).collect(Collectors.toList());
-
-            filterDataseByMetrics.setTsList(allDatasetFuncIds);
-            filterDataseByMetrics.setCriteria(selectByMetrics);
-
-            List<FunctionalIdentifier> filteredFuncIds = metaManager.searchFunctionalIdentifiers(filterDataseByMetrics);
+            List<String> listMetrics = Arrays.asList(preparedMetrics.split("\\s*;\\s*"));
 
-            // 2: read, organize and store each used metadata on retained
-            // timeseries in a specific join Map: ( <join identifier> => (
-            // <metric> => ( funcId + tsuid )))
+            // 2: read the join map with one request joining the dataset links, the functional identifiers and the
+            // metadata: ( <join identifier> => ( <metric> => ( funcId + tsuid )))
             // - key: <join identifier> (example: FlihtId= "899" )
             // - value: the map ( <metric> => ( funcId + tsuid )):
             // - key: <metric>
             // - value: FunctionalIdentifier
             //
             processingContext = "prepare the join map from metadata";
-
-            // 2.1 prepare the String list of tsuids: useful to create a map
-            // associating tsuids to FunctionalIdentifier
-            Map<String, FunctionalIdentifier> originalRefs = new HashMap<>();
-            for (FunctionalIdentifier functionalIdentifier : filteredFuncIds)
-                originalRefs.put(functionalIdentifier.getTsuid(), functionalIdentifier);
-
-            // 2.2 get the metadata map: TSUID => list of Metadata
-            //
-            Set<String> filteredTsuids = originalRefs.keySet();
-            Map<String, List<MetaData>> metaGroupedByTsuid = metaManager.getMapGroupingByTsuid(filteredTsuids);
-
-            // 2.3 finalize the map: joinMap
-            //
-            // <join name> => Metric name => TSUID
-            //
-            List<String> listMetrics = Arrays.asList(preparedMetrics.split("\\s*;\\s*"));
-            Map<String, Map<String, FunctionalIdentifier>> joinMap = new HashMap<>();
+            Map<String, Map<String, FunctionalIdentifier>> joinMap = datasetManager.getMetricTsByJoinValue(dataset,
+                    listMetrics, finalJoinByMetaName);
 
             // set metricsInDataset: set of metrics in dataset selection
             Set<String> metricsInDataset = new HashSet<>();
-            for (Map.Entry<String, List<MetaData>> entryMeta : metaGroupedByTsuid.entrySet()) {
-                String tsuid = entryMeta.getKey();
-                List<MetaData> metaForTsuid = entryMeta.getValue();
-
-                // from current TS, search the metric value and the join
-                // idendifier
-                //
-                String joinIdentifier = null;
-                String metric = null;
-                Iterator<MetaData> iterMeta = metaForTsuid.iterator();
-                while (iterMeta.hasNext() && ((metric == null) || (joinIdentifier == null))) {
-                    MetaData metaData = iterMeta.next();
-                    String metaName = metaData.getName();
-
-                    if (finalJoinByMetaName.equals(metaName)) {
-                        joinIdentifier = metaData.getValue();
-                    } else if ("metric".equals(metaName) && listMetrics.contains(metaData.getValue())) {
-                        metric = metaData.getValue();
-                    }
-                }
-
-                if ((metric != null) && (joinIdentifier != null)) {
-                    // ... complete the joinMap, updating the
-                    // entry ( key: joinIdentifier , value: fromMetricToFuncId )
-                    //
-                    Map<String, FunctionalIdentifier> fromMetricToFuncId = joinMap.get(joinIdentifier);
-                    if (fromMetricToFuncId == null) {
-                        fromMetricToFuncId = new HashMap<>();
-                        joinMap.put(joinIdentifier, fromMetricToFuncId);
-
-                    }
-                    fromMetricToFuncId.put(metric, originalRefs.get(tsuid));
-                    metricsInDataset.add(metric);
-                }
+            for (Map<String, FunctionalIdentifier> fromMetricToFuncId : joinMap.values()) {
+                metricsInDataset.addAll(fromMetricToFuncId.keySet());
             }
 
             if (metricsInDataset.isEmpty()) {
@@ -337,51 +260,41 @@ public class JoinTableWithTs {
             filteredAndSortedMetrics.retainAll(metricsInDataset);
             Collections.sort(filteredAndSortedMetrics, new NaturalOrderComparator());
 
-            for (String insertedMetric : filteredAndSortedMetrics) {
-
-                List<TableElement> metricColumn = new ArrayList<>();
-                for (String joinIdentifier : joinIdentifers) {
-
-                    // prepare added element for the joinIdentifier
-                    TableElement elem = null;
-                    Map<String, FunctionalIdentifier> mapFuncIdsByMetrics = joinMap.get(joinIdentifier);
-                    if (mapFuncIdsByMetrics != null) {
-                        // ID=joinIdentifier exists in selected dataset
-                        // => Find element for insertedMetric ...
-                        FunctionalIdentifier addData = mapFuncIdsByMetrics.get(insertedMetric);
-                        if (addData != null) {
-                            // element is defined: one TS matches ID+insertedMetric
-                            DataLink link = new DataLink();
-
-                            // it is needed to wrap the unique FunctionalIdentifier into a list:
-                            // because the ts_list type, in json, is like [{ 'tsuid': ..., 'funcId': ... }, ...]
-                            link.val = Arrays.asList(addData);
-
-                            // add TableElement:
-                            // - data: the funcId text
-                            // - link: the json generated by FunctionalIdentifier
-                            elem = new TableElement(addData.getFuncId(), link);
-                        }
-                    }
-                    // treat cases when elem is undefined:
-                    // - missing entry joinIdentifier in joinMap: there is no such ID in the dataset selection
-                    // - missing entry insertedMetric in mapFuncIdsByMetrics: ID exists but not for insertedMetric
-                    if (elem == null) {
-                        elem = new TableElement(null, null);
+            // hash join: each row of the table looks up its joinIdentifier once, filling all the metric columns
+            List<List<TableElement>> metricColumns = new ArrayList<>(filteredAndSortedMetrics.size());
+            for (int i = 0; i < filteredAndSortedMetrics.size(); i++) {
+                metricColumns.add(new ArrayList<>(joinIdentifers.size()));
+            }
+            for (String joinIdentifier : joinIdentifers) {
+
+                // missing entry joinIdentifier in joinMap: there is no such ID in the dataset selection
+                Map<String, FunctionalIdentifier> mapFuncIdsByMetrics = joinMap.get(joinIdentifier);
+                for (int i = 0; i < filteredAndSortedMetrics.size(); i++) {
+                    FunctionalIdentifier addData = mapFuncIdsByMetrics == null ? null
+                            : mapFuncIdsByMetrics.get(filteredAndSortedMetrics.get(i));
+
+                    // element is undefined when no TS matches ID+insertedMetric
+                    TableElement elem = new TableElement(null, null);
+                    if (addData != null) {
+                        DataLink link = new DataLink();
+
+                        // it is needed to wrap the unique FunctionalIdentifier into a list:
+                        // because the ts_list type, in json, is like [{ 'tsuid': ..., 'funcId': ... }, ...]
+                        link.val = Arrays.asList(addData);
+
+                        // add TableElement:
+                        // - data: the funcId text
+                        // - link: the json generated by FunctionalIdentifier
+                        elem = new TableElement(addData.getFuncId(), link);
                     }
-
-                    metricColumn.add(elem);
-                }
-
-                // append or insert the new column ...
-                if ("".equals(finalTargetName)) {
-                    processedTable.appendColumn(insertedMetric, metricColumn);
-                } else {
-                    processedTable.insertColumn(finalTargetName, insertedMetric, metricColumn);
+                    metricColumns.get(i).add(elem);
                 }
-
             }
 
+            // append or insert the new columns, in one pass over the rows
+            processedTable.insertColumns("".equals(finalTargetName) ? null : finalTargetName, filteredAndSortedMetrics,
+                    metricColumns);
+
             return processedTable;
         } catch (IkatsJsonException jsonError) {
             String msg = MessageFormat.format(MSG_INVALID_TABLE_FOR_JOIN_BY_METRICS, getContext(), dataset, metrics);
@@ -18,46 +18,95 @@ package fr.cs.ikats.operators;
 
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 
 import fr.cs.ikats.common.dao.exception.IkatsDaoConflictException;
 import fr.cs.ikats.common.dao.exception.IkatsDaoMissingResource;
 import fr.cs.ikats.temporaldata.business.table.Table;
-import fr.cs.ikats.temporaldata.business.table.TableElement;
 import fr.cs.ikats.temporaldata.business.table.TableInfo;
 import fr.cs.ikats.temporaldata.business.table.TableInfo.DataLink;
 import fr.cs.ikats.temporaldata.business.table.TableInfo.Header;
 import fr.cs.ikats.temporaldata.business.table.TableManager;
 import fr.cs.ikats.temporaldata.exception.IkatsException;
 import fr.cs.ikats.temporaldata.exception.InvalidValueException;
-import fr.cs.ikats.temporaldata.exception.ResourceNotFoundException;
 
 /**
  * <p>IKATS Operator Tables Merge</p>
  * <p>
- * <p>Provides the ability to join 2 tables with an inner join. The instructions are set by the {@link Request}.</p>
+ * <p>Provides the ability to join 2 or more tables with an inner, left or full outer join. The instructions are set by
+ * the {@link Request}.</p>
  * <p>
  * <p>Rules:
  * <ul>
- * <li>The operator produces an inner join between 2 tables only</li>
- * <li>The first table (in the order) is the reference : all columns will be in the result</li>
- * <li>The operator will copy all the columns of the second table except the join column</li>
+ * <li>The operator produces a join between all the tables of the request, in one pass over the first table</li>
+ * <li>The first table (in the order) is the reference : all columns will be in the result, and the result rows follow its
+ * rows order</li>
+ * <li>The operator will copy all the columns of the other tables except the join column</li>
  * <li>The join key (see {@link Request#joinOn}) is case sensitive</li>
- * <li>The join key should be found in the 2 tables</li>
+ * <li>The join key should be found in all the tables</li>
  * <li>If the join key is not provided, the first column in the first table is selected,
  * <ul>
- * <li>If the first table has a header name for that column, that name will be used as join  key to select the join column in the second table</li>
- * <li>If the first table has no header, the first column of the second table is used to search matches for the join</li>
+ * <li>If the first table has a header name for that column, that name will be used as join  key to select the join column in the other tables</li>
+ * <li>If the first table has no header, the first column of the other tables is used to search matches for the join</li>
  * </ul>
- * <li>If the first table has no header and there is no key provided, the first columns of the two tables are used to match for the join</li>
- * <li>As per {@link TableInfo} construction, each of the two tables could, or not, manage headers, and datalinks. The result will report all the elements.
+ * <li>If the first table has no header and there is no key provided, the first columns of the tables are used to match for the join</li>
+ * <li>The join values are compared as strings. When a join value is repeated in a table other than the first one, its
+ * first row is used</li>
+ * <li>The join type (see {@link Request#joinType}, and {@link JoinType}) is inner by default</li>
+ * <li>As per {@link TableInfo} construction, each of the tables could, or not, manage headers, and datalinks. The result will report all the elements.
  * </ul>
  * </p>
+ * <p>
+ * The join values of each table other than the first one are indexed in a hash map, which is probed with the rows of the
+ * first table: the merge is linear in the total number of rows.
+ * </p>
  */
 public class TablesMerge {
 
+    /**
+     * The kinds of join computed by the operator
+     */
+    public enum JoinType {
+        /**
+         * Only the rows whose join value is found in every table
+         */
+        INNER,
+        /**
+         * All the rows of the first table: the columns of a table where the join value is not found are undefined
+         */
+        LEFT,
+        /**
+         * All the rows of the {@link #LEFT} join, followed by one row for each join value only found in the other tables
+         */
+        FULL;
+
+        /**
+         * Gets the join type from its name, case insensitive
+         *
+         * @param name the name: inner, left or full. Undefined or empty name stands for inner.
+         * @return the join type
+         * @throws IkatsOperatorException unknown join type
+         */
+        public static JoinType fromName(String name) throws IkatsOperatorException {
+            if (name == null || name.isEmpty()) {
+                return INNER;
+            }
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IkatsOperatorException("Unknown join type '" + name + "': expected one of inner, left, full", e);
+            }
+        }
+    }
+
     /**
      * Information to be provided to the {@link TablesMerge} operator
      */
@@ -65,6 +114,7 @@ public class TablesMerge {
 
         private String[] tableNames;
         private String joinOn;
+        private String joinType;
         private String outputTableName;
 
         public Request() {
@@ -87,6 +137,14 @@ public class TablesMerge {
             this.joinOn = joinOn;
         }
 
+        public String getJoinType() {
+            return joinType;
+        }
+
+        public void setJoinType(String joinType) {
+            this.joinType = joinType;
+        }
+
         public String getOutputTableName() {
             return outputTableName;
         }
@@ -96,6 +154,102 @@ public class TablesMerge {
         }
     }
 
+    /**
+     * One table to merge: gives a direct access to its values through the full column index, counting the rows header
+     * column as the first one when the table handles a rows header.
+     */
+    private static class MergedTable {
+
+        private final Table table;
+        private final List<List<Object>> cells;
+        private final List<List<DataLink>> links;
+        private final List<Object> rowsHeaderData;
+        private final int rowsHeaderOffset;
+        private final int firstContentColumn;
+        private final int width;
+        private int joinIndex;
+        private Map<String, Integer> index;
+
+        MergedTable(Table table) {
+            this.table = table;
+            TableInfo tableInfo = table.getTableInfo();
+            cells = (tableInfo.content != null && tableInfo.content.cells != null) ? tableInfo.content.cells
+                    : new ArrayList<>();
+            links = (tableInfo.content != null) ? tableInfo.content.links : null;
+            rowsHeaderData = table.isHandlingRowsHeader() ? table.getRowsHeader().data : null;
+            rowsHeaderOffset = table.isHandlingColumnsHeader() ? 1 : 0;
+            firstContentColumn = (rowsHeaderData != null) ? 1 : 0;
+
+            if (!cells.isEmpty()) {
+                width = cells.get(0).size() + firstContentColumn;
+            } else if (table.isHandlingColumnsHeader() && table.getColumnsHeader().data != null) {
+                width = table.getColumnsHeader().data.size();
+            } else {
+                width = firstContentColumn;
+            }
+        }
+
+        int getRowCount() {
+            return cells.size();
+        }
+
+        /**
+         * @param row content row index
+         * @param col full column index
+         * @return the value, the rows header values being converted to String
+         */
+        Object getValue(int row, int col) {
+            if (col < firstContentColumn) {
+                Object header = rowsHeaderData.get(row + rowsHeaderOffset);
+                return (header != null) ? header.toString() : null;
+            }
+            List<Object> rowData = cells.get(row);
+            int contentCol = col - firstContentColumn;
+            return (contentCol < rowData.size()) ? rowData.get(contentCol) : null;
+        }
+
+        /**
+         * @param row content row index
+         * @param col full column index
+         * @return the link, null for the rows header values
+         */
+        DataLink getLink(int row, int col) {
+            if (col < firstContentColumn || links == null || links.size() <= row) {
+                return null;
+            }
+            List<DataLink> rowLinks = links.get(row);
+            int contentCol = col - firstContentColumn;
+            return (rowLinks != null && contentCol < rowLinks.size()) ? rowLinks.get(contentCol) : null;
+        }
+
+        String getJoinValue(int row) {
+            Object value = getValue(row, joinIndex);
+            return (value != null) ? value.toString() : null;
+        }
+
+        /**
+         * Indexes the content rows by join value, keeping the first row of each value
+         */
+        void buildIndex() {
+            int rowCount = getRowCount();
+            index = new HashMap<>(Math.max(16, (int) (rowCount / 0.75f) + 1));
+            for (int row = 0; row < rowCount; row++) {
+                String joinValue = getJoinValue(row);
+                if (joinValue != null) {
+                    index.putIfAbsent(joinValue, row);
+                }
+            }
+        }
+
+        int findRow(String joinValue) {
+            if (joinValue == null) {
+                return -1;
+            }
+            Integer row = index.get(joinValue);
+            return (row != null) ? row : -1;
+        }
+    }
+
     private Request request;
     private TableManager tableManager;
 
@@ -105,7 +259,7 @@ public class TablesMerge {
      * Table Merge operator initialization
      *
      * @param request the input data provided to the operator
-     * @throws IkatsOperatorException when there is only 1 table to merge
+     * @throws IkatsOperatorException when there is only 1 table to merge, or when the join type is unknown
      */
     public TablesMerge(Request request) throws IkatsOperatorException {
 
@@ -113,6 +267,7 @@ public class TablesMerge {
         if (request.tableNames == null || request.tableNames.length < 2) {
             throw new IkatsOperatorException("There should be 2 tables for a merge");
         }
+        JoinType.fromName(request.joinType);
 
         this.request = request;
         this.tableManager = new TableManager();
@@ -133,21 +288,20 @@ public class TablesMerge {
     public void apply() throws IkatsOperatorException, IkatsException, IkatsDaoConflictException {
 
         // Retrieve the tables from database
-        Table firstTable;
-        Table secondTable;
+        List<TableInfo> tables = new ArrayList<>(this.request.tableNames.length);
         String tableNameToRead = null;
         try {
-            tableNameToRead = this.request.tableNames[0];
-            firstTable = tableManager.initTable(tableManager.readFromDatabase(tableNameToRead), false);
-            tableNameToRead = this.request.tableNames[1];
-            secondTable = tableManager.initTable(tableManager.readFromDatabase(tableNameToRead), false);
+            for (String tableName : this.request.tableNames) {
+                tableNameToRead = tableName;
+                tables.add(tableManager.readFromDatabase(tableNameToRead));
+            }
         } catch (IkatsDaoMissingResource e) {
             String msg = "Table " + tableNameToRead + " not found in database";
             throw new IkatsOperatorException(msg, e);
         }
 
         // do the job
-        Table resultTable = doMerge(firstTable.getTableInfo(), secondTable.getTableInfo(), request.joinOn, request.outputTableName);
+        Table resultTable = doMerge(tables, request.joinOn, JoinType.fromName(request.joinType), request.outputTableName);
 
         // then try to store it in the database
         try {
@@ -161,7 +315,7 @@ public class TablesMerge {
     }
 
     /**
-     * Operator processing for the merge
+     * Operator processing for the inner join of 2 tables
      *
      * @param tableInfo1      the reference table to join on
      * @param tableInfo2      the second table where columns should match
@@ -170,266 +324,257 @@ public class TablesMerge {
      * @return the merged table
      * @throws IkatsOperatorException if table is badly formatted
      */
-    Table doMerge(TableInfo tableInfo1, TableInfo tableInfo2, String joinOn, String outputTableName) throws IkatsOperatorException, IkatsException {
+    Table doMerge(TableInfo tableInfo1, TableInfo tableInfo2, String joinOn, String outputTableName) throws IkatsOperatorException {
+        return doMerge(Arrays.asList(tableInfo1, tableInfo2), joinOn, JoinType.INNER, outputTableName);
+    }
+
+    /**
+     * Operator processing for the merge
+     *
+     * @param tableInfos      the tables to merge: the first one is the reference table to join on
+     * @param joinOn          the join key
+     * @param joinType        the kind of join
+     * @param outputTableName the result table name
+     * @return the merged table
+     * @throws IkatsOperatorException if table is badly formatted
+     */
+    Table doMerge(List<TableInfo> tableInfos, String joinOn, JoinType joinType, String outputTableName) throws IkatsOperatorException {
+
+        if (tableInfos.size() < 2) {
+            throw new IkatsOperatorException("There should be 2 tables for a merge");
+        }
 
         // Normalize the request data
-        Table firstTable = tableManager.initTable(tableInfo1, false);
-        Table secondTable = tableManager.initTable(tableInfo2, false);
+        List<MergedTable> tables = new ArrayList<>(tableInfos.size());
+        for (TableInfo tableInfo : tableInfos) {
+            tables.add(new MergedTable(tableManager.initTable(tableInfo, false)));
+        }
+        MergedTable firstTable = tables.get(0);
         String joinKey = (joinOn != null && !joinOn.isEmpty()) ? joinOn : null;
 
-        // -- Get the left join column header name and index for the first table
-        int joinIndexOnFirstTable = -1;
+        // -- Get the join column header name and index for the first table
         if (joinKey == null) {
-            joinIndexOnFirstTable = 0;
+            firstTable.joinIndex = 0;
             // Case of the non provided join key => get the first column in the first table
             try {
-                if (firstTable.getColumnsHeader() != null) {
-                    joinKey = firstTable.getColumnsHeader().getItems().get(0);
+                if (firstTable.table.getColumnsHeader() != null) {
+                    joinKey = firstTable.table.getColumnsHeader().getItems().get(0);
                 }
-            } catch (IkatsException e) {
-                throw new IkatsOperatorException("The table '" + firstTable.getName() + "' has no column", e);
+            } catch (IkatsException | IndexOutOfBoundsException e) {
+                throw new IkatsOperatorException("The table '" + firstTable.table.getName() + "' has no column", e);
             }
         } else {
-            try {
-                joinIndexOnFirstTable = firstTable.getIndexColumnHeader(joinKey);
-            } catch (IkatsException e) {
-                throw new IkatsOperatorException("Join column '" + joinKey + "' not found in table '" + firstTable.getName() + "'. Additional info: " + e.getMessage(), e);
-            }
-
-            if (joinIndexOnFirstTable == -1) {
-                throw new IkatsOperatorException("Join column '" + joinKey + "' not found in table '" + firstTable.getName() + "'.");
-            }
+            firstTable.joinIndex = findJoinIndex(firstTable, joinKey);
         }
 
-        // -- Verify that the join column is in the second, if found :
-        // - store the index
-        // - point the to the column values
-        int joinIndexInSecondTable = 0; // default: use the first column for the join
-        List<String> columnValues = null;
-
-        // -- find join in the table and get the index of the row to merge
-        if (joinKey != null) {
-            // case where we have a join key -> (try to) find the corresponding
-            // column in the current table
-            try {
-                joinIndexInSecondTable = secondTable.getIndexColumnHeader(joinKey);
-            } catch (IkatsException e) {
-                // Exception is synonym of not found
-                // INNER JOIN could not be realized
-                throw new IkatsOperatorException("Join column not found in the second table", e);
-            }
-
-            if (joinIndexInSecondTable == -1) {
-                throw new IkatsOperatorException("Join column '" + joinKey + "' not found in table '" + secondTable.getName());
-            }
-        }
-
-        try {
-            columnValues = secondTable.getColumn(joinIndexInSecondTable, String.class);
-        } catch (IkatsException | ResourceNotFoundException e) {
-            logger.error("Can't get the column data at index " + joinIndexInSecondTable + " for table " + secondTable.getName(), e);
-            // Do nothing here because joinFound is already false
+        // -- Verify that the join column is in the other tables (default: use the first column for the join),
+        // and index their rows by join value
+        for (MergedTable table : tables.subList(1, tables.size())) {
+            table.joinIndex = (joinKey != null) ? findJoinIndex(table, joinKey) : 0;
+            table.buildIndex();
         }
 
         // -- Initialize the result/merged table
-        boolean withColHeaders = firstTable.isHandlingColumnsHeader() || secondTable.isHandlingColumnsHeader();
-        boolean withRowHeaders = firstTable.isHandlingRowsHeader() || secondTable.isHandlingRowsHeader();
+        boolean withColHeaders = false;
+        boolean withRowHeaders = false;
+        for (MergedTable table : tables) {
+            withColHeaders |= table.table.isHandlingColumnsHeader();
+            withRowHeaders |= table.table.isHandlingRowsHeader();
+        }
 
-        Table resultTable = tableManager.initEmptyTable(withColHeaders, withRowHeaders);
+        Table resultTable = TableManager.initEmptyTable(withColHeaders, withRowHeaders);
         resultTable.setName(outputTableName);
         resultTable.enableLinks(withColHeaders, new DataLink(), withRowHeaders, new DataLink(), true,
                 new DataLink());
+        resultTable.getTableInfo().content.cells = new ArrayList<>(firstTable.getRowCount());
+        resultTable.getTableInfo().content.links = new ArrayList<>(firstTable.getRowCount());
+
+        // When there is a rows header, the join column of the first table is written to it
+        Header rowsHeader = resultTable.getRowsHeader();
+        if (withRowHeaders) {
+            rowsHeader.data.add(null);
+            rowsHeader.links.add(null);
+        }
+        int rowWidth = withRowHeaders ? -1 : 0;
+        for (MergedTable table : tables) {
+            rowWidth += (table == firstTable) ? table.width : table.width - 1;
+        }
 
-        // -- Loop over the values in the join column of the first table to find matching keys in the second
-        int firstRow = firstTable.isHandlingColumnsHeader() ? 1 : 0;
-        int rowCount = firstTable.getRowCount(firstTable.isHandlingColumnsHeader());
-        for (int i = firstRow; i < rowCount; i++) {
+        // -- Loop over the values in the join column of the first table to find matching keys in the others
+        Set<String> firstTableJoinValues = (joinType == JoinType.FULL) ? new HashSet<>() : null;
+        int[] matchingRows = new int[tables.size()];
+        int rowCount = firstTable.getRowCount();
+        for (int row = 0; row < rowCount; row++) {
 
-            // -- Get the join value of the row in the first table
-            List<TableElement> firstTableRowData = new ArrayList<>();
-            // First : try to get the row with link
-            try {
-                if (firstTable.isHandlingRowsHeader()) {
-                    TableElement headerLine = new TableElement(firstTable.getRowsHeader().getItems(String.class).get(i), null);
-                    firstTableRowData.add(headerLine);
-                }
-                firstTableRowData.addAll(firstTable.getRow(i, TableElement.class));
-            } catch (IkatsException | ResourceNotFoundException e) {
-                logger.error("Can't get the row at index " + i + " for table " + firstTable.getName());
-                throw new IkatsOperatorException("Can't get the row at index " + i + " for table " + firstTable.getName(), e);
+            String joinValue = firstTable.getJoinValue(row);
+            if (firstTableJoinValues != null && joinValue != null) {
+                firstTableJoinValues.add(joinValue);
             }
-            String joinValue = firstTableRowData.get(joinIndexOnFirstTable).data.toString();
-
-            // -- Find the join value in the join column and get the row index of the second table
-            int rowIndexForMerge = -1;
-            boolean joinFound = false;
-
-            if (columnValues != null) {
-                for (int k = 0; k < columnValues.size(); k++) {
-                    if (joinValue.equals(columnValues.get(k))) {
-                        if (secondTable.isHandlingColumnsHeader()) {
-                            rowIndexForMerge = k + 1;
-                        } else {
-                            rowIndexForMerge = k;
-                        }
-                        joinFound = true;
-                        break;
-                    }
-                }
+
+            matchingRows[0] = row;
+            boolean joinFound = true;
+            for (int i = 1; i < matchingRows.length; i++) {
+                matchingRows[i] = tables.get(i).findRow(joinValue);
+                joinFound &= matchingRows[i] != -1;
             }
 
-            if (!joinFound) {
-                // INNER JOIN could not be realized -> no matching value for that row
-                continue;
+            if (joinFound || joinType != JoinType.INNER) {
+                writeRow(tables, matchingRows, joinValue, rowWidth, resultTable);
             }
-            // ELSE -> we could merge
+            // ELSE: INNER JOIN could not be realized -> no matching value for that row
+        }
 
-            // Append the row values to the firstTableRowData
-            try {
-                List<TableElement> secondTableRowData = new ArrayList<>();
-                if (secondTable.isHandlingRowsHeader()) {
-                    TableElement headerLine = new TableElement(secondTable.getRowsHeader().getItems(String.class).get(rowIndexForMerge), null);
-                    secondTableRowData.add(headerLine);
-                }
-                // Get the row
-                secondTableRowData.addAll(secondTable.getRow(rowIndexForMerge, TableElement.class));
-                // Loop over the row values to add them to the firstTable
-                for (int j = 0; j < secondTableRowData.size(); j++) {
-                    if (j == joinIndexInSecondTable) {
-                        // Skip the join value
+        // -- The full outer join adds the join values not found in the first table, in the order of the other tables
+        if (firstTableJoinValues != null) {
+            matchingRows[0] = -1;
+            for (MergedTable table : tables.subList(1, tables.size())) {
+                for (int row = 0; row < table.getRowCount(); row++) {
+                    String joinValue = table.getJoinValue(row);
+                    if (joinValue == null || !firstTableJoinValues.add(joinValue)) {
                         continue;
                     }
-                    firstTableRowData.add(secondTableRowData.get(j));
+                    for (int i = 1; i < matchingRows.length; i++) {
+                        matchingRows[i] = tables.get(i).findRow(joinValue);
+                    }
+                    writeRow(tables, matchingRows, joinValue, rowWidth, resultTable);
                 }
-
-                // Finally append the new row
-                resultTable.appendRow(firstTableRowData);
-            } catch (IkatsException | ResourceNotFoundException e) {
-                logger.error("Can't get the row at index " + rowIndexForMerge + " for table " + secondTable.getName());
-                throw new IkatsOperatorException("Can't get the row at index " + rowIndexForMerge + " for table " + secondTable.getName(), e);
             }
+        }
 
+        int resultRowCount = resultTable.getContentData().size();
+        if (withRowHeaders && resultRowCount == 0) {
+            throw new IkatsOperatorException("Error on the table format. No row is matching the join of the tables, " +
+                    "and the join column could not be set as rows header");
         }
 
-        // -- Set the result table columns header from the first and second table
+        // -- Set the result table columns header from the merged tables
         // Put only the headers if we got some data in the table
-        if (resultTable.getRowCount(false) > 0 && withColHeaders) {
-            reportTableColumnsHeader(firstTable, resultTable, -1);
-            reportTableColumnsHeader(secondTable, resultTable, joinIndexInSecondTable);
+        if (resultRowCount > 0 && withColHeaders) {
+            Header columnsHeader = resultTable.getColumnsHeader();
+            for (MergedTable table : tables) {
+                reportTableColumnsHeader(table, columnsHeader, table == firstTable ? -1 : table.joinIndex);
+            }
+
+            if (withRowHeaders) {
+                // The header of the join column is moved to the top-left corner
+                columnsHeader.data.add(0, columnsHeader.data.remove(firstTable.joinIndex));
+                columnsHeader.links.add(0, columnsHeader.links.remove(firstTable.joinIndex));
+            }
         }
 
-        resultTable = extractColAsRowHeader(resultTable, joinIndexOnFirstTable);
+        return resultTable;
+    }
 
+    /**
+     * Finds the full index of the join column in a table
+     *
+     * @param table   the table
+     * @param joinKey the name of the join column
+     * @return the full index of the join column
+     * @throws IkatsOperatorException the join column is not found
+     */
+    private int findJoinIndex(MergedTable table, String joinKey) throws IkatsOperatorException {
+        int joinIndex;
+        try {
+            joinIndex = table.table.getIndexColumnHeader(joinKey);
+        } catch (IkatsException e) {
+            throw new IkatsOperatorException("Join column '" + joinKey + "' not found in table '" + table.table.getName() + "'. Additional info: " + e.getMessage(), e);
+        }
 
-        return resultTable;
+        if (joinIndex == -1) {
+            throw new IkatsOperatorException("Join column '" + joinKey + "' not found in table '" + table.table.getName() + "'.");
+        }
+        return joinIndex;
     }
 
     /**
-     * Move a column from a Table to a "row Header" column and return the new Table
+     * Appends one merged row to the result table.
      *
-     * @param table    Table to change
-     * @param colIndex index of the column (in data) to set as row Header
-     * @return the converted table
-     * @throws IkatsOperatorException
+     * @param tables       the merged tables
+     * @param matchingRows for each table, the index of the content row to copy, or -1 when the join value is missing in
+     *                     that table: its columns are undefined
+     * @param joinValue    the join value, used for the join column of the first table when the row is missing in it
+     * @param rowWidth     the number of columns of the result content
+     * @param resultTable  the result table, whose join column of the first table goes to the rows header if any
      */
-    private Table extractColAsRowHeader(Table table, int colIndex) throws IkatsOperatorException {
+    private void writeRow(List<MergedTable> tables, int[] matchingRows, String joinValue, int rowWidth, Table resultTable) {
+
+        Header rowsHeader = resultTable.getRowsHeader();
+        TableInfo.TableContent content = resultTable.getTableInfo().content;
+        List<Object> rowData = new ArrayList<>(rowWidth);
+        List<DataLink> rowLinks = new ArrayList<>(rowWidth);
+
+        for (int i = 0; i < tables.size(); i++) {
+            MergedTable table = tables.get(i);
+            int row = matchingRows[i];
+            for (int col = 0; col < table.width; col++) {
+                boolean isJoinColumn = col == table.joinIndex;
+                if (isJoinColumn && i > 0) {
+                    // Skip the join value
+                    continue;
+                }
 
-        try {
-            if (table.isHandlingRowsHeader()) {
-                // Extract column
-                int firstCol = table.isHandlingRowsHeader() ? 1 : 0;
-                List<TableElement> headerValues = table.getColumn(colIndex + firstCol, TableElement.class);
-
-                // Create Headers
-                table.getRowsHeader().addItem(null);
-                table.getRowsHeader().addItems(headerValues.toArray());
-
-                // Remove extracted column from content
-                int rowCount = table.getRowCount(false);
-                for (int i = 0; i < rowCount; i++) {
-                    table.getTableInfo().content.getRowData(i).remove(colIndex);
-                    table.getTableInfo().content.links.get(i).remove(colIndex);
+                Object value = null;
+                DataLink link = null;
+                if (row != -1) {
+                    value = table.getValue(row, col);
+                    link = table.getLink(row, col);
+                } else if (isJoinColumn) {
+                    value = joinValue;
                 }
 
-                // Remove extracted column from column headers
-                table.getTableInfo().headers.col.data.add(0, table.getTableInfo().headers.col.data.remove(colIndex));
+                if (isJoinColumn && rowsHeader != null) {
+                    rowsHeader.data.add(value);
+                    rowsHeader.links.add(link);
+                } else {
+                    rowData.add(value);
+                    rowLinks.add(link);
+                }
             }
-
-            return table;
-
-        } catch (IndexOutOfBoundsException | IkatsException | ResourceNotFoundException e) {
-            throw new IkatsOperatorException("Error on the table format. Remind the merge table operator operates an inner join : it merges columns of table A and columns of table B, matching rows in joined column", e);
         }
 
+        content.cells.add(rowData);
+        content.links.add(rowLinks);
     }
 
     /**
      * Fill the columns header for the result table
      *
      * @param fromTable       the table from where header should be copied
-     * @param resultTable     the result table where to fill the header
+     * @param resultHeader    the result table columns header to fill
      * @param skipColumnIndex index of the column to skip (case of the join column), put -1 for not skipping any column
-     * @throws IkatsOperatorException In case the operation could not complete
      */
-    private void reportTableColumnsHeader(Table fromTable, Table resultTable, int skipColumnIndex) throws IkatsOperatorException {
-
-        Header resultHeader = resultTable.getColumnsHeader();
-        int numberOfColumnsHeaders = fromTable.getColumnCount(true);
-
-        if (fromTable.isHandlingColumnsHeader()) {
-            // Report columns header
-            List<TableElement> colHeaderElements = null;
-
-            try {
-                // Try to get header with links
-                colHeaderElements = fromTable.getColumnsHeader().getDataWithLink();
-            } catch (IkatsException e1) {
-                logger.info("no link managed in header", e1);
-                // Else manage header with no links
-                colHeaderElements = new ArrayList<>();
-                try {
-                    // An a new element to the headers
-                    for (String stringHeader : fromTable.getColumnsHeader().getItems()) {
-                        colHeaderElements.add(new TableElement(stringHeader, null));
-                    }
-                } catch (IkatsException e) {
-                    throw new IkatsOperatorException("Could not get columns header items from table " + fromTable.getName(), e);
-                }
-            }
-
-            for (int i = 0; i < numberOfColumnsHeaders; i++) {
-                if (i == skipColumnIndex) {
-                    // Skip that column header
-                    continue;
-                }
+    private void reportTableColumnsHeader(MergedTable fromTable, Header resultHeader, int skipColumnIndex) {
+
+        Header fromHeader = fromTable.table.getColumnsHeader();
+        List<Object> headerData = (fromHeader != null) ? fromHeader.data : null;
+        List<DataLink> headerLinks = (fromHeader != null) ? fromHeader.links : null;
+        // Links inconsistent with the header data are not reported, and the data are then reported as String
+        boolean withLinks = headerData != null && headerLinks != null && headerLinks.size() == headerData.size();
+        if (headerData != null && headerLinks != null && !withLinks) {
+            logger.info("no link managed in header of table " + fromTable.table.getName());
+        }
 
-                try {
-                    TableElement headerElement = colHeaderElements.get(i);
-                    resultHeader.addItem(headerElement.data, headerElement.link);
-                } catch (IkatsException e) {
-                    logger.error("Should not be raised", e);
-                    throw new IkatsOperatorException("Could not merge", e);
-                }
-            }
-        } else {
-            // Or fill with empty header if the first table do not have headers
-            if (skipColumnIndex != -1) {
-                numberOfColumnsHeaders -= 1;
+        for (int i = 0; i < fromTable.width; i++) {
+            if (i == skipColumnIndex) {
+                // Skip that column header
+                continue;
             }
 
-            for (int i = 0; i < numberOfColumnsHeaders; i++) {
-                try {
-                    resultHeader.addItems((Object) null);
-                    // cast trick to avoid compiler warning
-                } catch (IkatsException e) {
-                    logger.error("Should not be raised", e);
-                    throw new IkatsOperatorException("Could not merge", e);
+            Object data = null;
+            DataLink link = null;
+            if (headerData != null && i < headerData.size()) {
+                data = headerData.get(i);
+                if (withLinks) {
+                    link = headerLinks.get(i);
+                } else if (headerLinks != null && data != null) {
+                    data = data.toString();
                 }
             }
+            // Or fill with empty header if the table do not have headers
+            resultHeader.data.add(data);
+            resultHeader.links.add(link);
         }
-
-        // Finally, reset the result table columns header with the merged columns headers
-        resultTable.setColumnsHeader(resultHeader);
     }
 
 }
@@ -17,14 +17,16 @@
 package fr.cs.ikats.operators;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import fr.cs.ikats.common.dao.exception.IkatsDaoConflictException;
 import fr.cs.ikats.common.dao.exception.IkatsDaoMissingResource;
+import fr.cs.ikats.temporaldata.business.table.ColumnarTable;
 import fr.cs.ikats.temporaldata.business.table.Table;
-import fr.cs.ikats.temporaldata.business.table.TableInfo;
 import fr.cs.ikats.temporaldata.business.table.TableManager;
 import fr.cs.ikats.temporaldata.exception.IkatsException;
 import fr.cs.ikats.temporaldata.exception.InvalidValueException;
@@ -32,11 +34,30 @@ import fr.cs.ikats.temporaldata.exception.ResourceNotFoundException;
 
 /**
  * Class TrainTestSplitTable
+ * <p>
+ * The split works on the row indexes of the input table: the rows are shuffled, grouped by class when a target column
+ * is defined, then each output table is gathered column by column from its row indexes: see
+ * {@link ColumnarTable#gatherRows(int[], int, int)}.
  */
 public class TrainTestSplitTable {
 
     /**
-     * Information to be provided to the {@link TablesMerge} operator
+     * Suffix of the name of the train tables
+     */
+    static final String TRAIN_SUFFIX = "_Train";
+
+    /**
+     * Suffix of the name of the test tables
+     */
+    static final String TEST_SUFFIX = "_Test";
+
+    /**
+     * Maximum number of folds of the k-fold mode: each fold stores a train table and a test table
+     */
+    public static final int MAX_FOLDS = 100;
+
+    /**
+     * Information to be provided to the {@link TrainTestSplitTable} operator
      */
     public static class Request {
 
@@ -45,6 +66,16 @@ public class TrainTestSplitTable {
         private double repartitionRate;
         private String outputTableName;
 
+        /**
+         * Seed of the shuffle: null for a random seed
+         */
+        private Long seed;
+
+        /**
+         * Number of folds of the k-fold mode: 0 or 1 for a single train/test split
+         */
+        private int folds;
+
         public void setTableName(String tableName) {
             this.tableName = tableName;
         }
@@ -61,6 +92,14 @@ public class TrainTestSplitTable {
             this.outputTableName = outputTableName;
         }
 
+        public void setSeed(Long seed) {
+            this.seed = seed;
+        }
+
+        public void setFolds(int folds) {
+            this.folds = folds;
+        }
+
         public Request() {
             // default constructor
         }
@@ -87,6 +126,52 @@ public class TrainTestSplitTable {
         this.tableManager = new TableManager();
     }
 
+    /**
+     * Gets the names of the output tables, in the order of the tables computed by the operator:
+     * <ul>
+     * <li>single split: outputTableName_Train, outputTableName_Test</li>
+     * <li>k-fold mode: outputTableName_Train_1, outputTableName_Test_1, ..., outputTableName_Train_k,
+     * outputTableName_Test_k</li>
+     * </ul>
+     *
+     * @param outputTableName the prefix of the output names
+     * @param folds           the number of folds: 0 or 1 for a single split
+     * @return the names of the output tables
+     */
+    public static List<String> getOutputTableNames(String outputTableName, int folds) {
+        List<String> names = new ArrayList<>();
+        if (folds <= 1) {
+            names.add(outputTableName + TRAIN_SUFFIX);
+            names.add(outputTableName + TEST_SUFFIX);
+        } else {
+            for (int fold = 1; fold <= folds; fold++) {
+                names.add(outputTableName + TRAIN_SUFFIX + "_" + fold);
+                names.add(outputTableName + TEST_SUFFIX + "_" + fold);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Checks the number of folds of the k-fold mode: each fold must have at least one test row
+     *
+     * @param folds     the number of folds: 0 or 1 for a single split
+     * @param nbRows    the number of rows of the split table
+     * @param tableName the name of the split table
+     * @throws InvalidValueException negative number of folds, greater than {@link #MAX_FOLDS} or than the number of
+     *                               rows
+     */
+    public static void checkFolds(int folds, int nbRows, String tableName) throws InvalidValueException {
+        if (folds < 0 || folds > MAX_FOLDS) {
+            throw new InvalidValueException("TrainTestSplitTable", "folds", "from 0 to " + MAX_FOLDS,
+                    Integer.toString(folds), tableName);
+        }
+        if (folds > 1 && folds > nbRows) {
+            throw new InvalidValueException("TrainTestSplitTable", "folds",
+                    "at most the number of rows: " + nbRows, Integer.toString(folds), tableName);
+        }
+    }
+
     /**
      * Apply the operator to the {@link Request}, save the result.
      *
@@ -95,126 +180,259 @@ public class TrainTestSplitTable {
      * @throws IkatsDaoMissingResource
      * @throws InvalidValueException
      * @throws IkatsDaoConflictException
-     * @throws IkatsOperatorException
      */
     public void apply() throws IkatsDaoMissingResource, IkatsException, ResourceNotFoundException, IkatsDaoConflictException, InvalidValueException {
 
-        // do the job
-        List<Table> tabListResult = doCompute();
-
-        // Store tables in database
-        tabListResult.get(0).setName(request.outputTableName + "_Train");
-        tabListResult.get(1).setName(request.outputTableName + "_Test");
-        tableManager.createInDatabase(tabListResult.get(0).getTableInfo());
-        tableManager.createInDatabase(tabListResult.get(1).getTableInfo());
+        // retrieve table tableName from db
+        ColumnarTable table = tableManager.readColumnarFromDatabase(request.tableName);
+        checkFolds(request.folds, table.getRowCount(false), request.tableName);
+
+        // do the job on the row indexes
+        Random random = request.seed == null ? new Random() : new Random(request.seed);
+        List<int[]> outputRows = doCompute(table, request.targetColumnName, request.repartitionRate, request.folds,
+                random);
+
+        // Store tables in database: gathered one by one, only one output table is built at a time
+        List<String> outputNames = getOutputTableNames(request.outputTableName, request.folds);
+        for (int i = 0; i < outputRows.size(); i++) {
+            int[] rows = outputRows.get(i);
+            Table output = tableManager.initTable(table.gatherRows(rows, 0, rows.length).toTableInfo(), false);
+            output.setName(outputNames.get(i));
+            tableManager.createInDatabase(output.getTableInfo());
+        }
     }
 
     /**
-     * @throws IkatsException
-     * @throws IkatsDaoMissingResource
-     * @throws ResourceNotFoundException
+     * Computes the row indexes of the output tables, in the order of {@link #getOutputTableNames(String, int)}. The
+     * rows of each output table are sorted by the first column, assumed to be the id.
+     * <p>
+     * With a target column, the values of each class are distributed in each output table: see
+     * {@link #trainTestSplitTable(Table, String, double)}.
+     *
+     * @param table            the table to split
+     * @param targetColumnName name of the target column in input table, null or empty for a random split
+     * @param repartitionRate  repartition rate between learning and test sets in output, ignored in k-fold mode
+     * @param folds            the number of folds: 0 or 1 for a single split
+     * @param random           the generator of the shuffle
+     * @return the row indexes of each output table
+     * @throws ResourceNotFoundException if target column name not found in table
+     * @throws IkatsException            unexpected error reading the target column
      */
-    public List<Table> doCompute() throws IkatsDaoMissingResource, IkatsException, ResourceNotFoundException {
+    List<int[]> doCompute(ColumnarTable table, String targetColumnName, double repartitionRate, int folds,
+                          Random random) throws ResourceNotFoundException, IkatsException {
 
-        // retrieve table tableName from db
-        TableInfo tableInfo = tableManager.readFromDatabase(request.tableName);
-        Table table = tableManager.initTable(tableInfo, false);
+        int nbRows = table.getRowCount(false);
 
-        List<Table> tabListResult;
-        if ("".equals(request.targetColumnName)) {
-            tabListResult = randomSplitTable(table, request.repartitionRate);
+        // the shuffled rows, grouped by class: the class c is from rows[classStarts[c]] to rows[classStarts[c + 1]]
+        int[] rows = new int[nbRows];
+        int[] classStarts;
+        if (targetColumnName == null || targetColumnName.isEmpty()) {
+            for (int row = 0; row < nbRows; row++) {
+                rows[row] = row;
+            }
+            classStarts = new int[]{0, nbRows};
         } else {
-            tabListResult = trainTestSplitTable(table, request.targetColumnName, request.repartitionRate);
+            int[] classIndexes = getClassIndexes(table, targetColumnName);
+            int nbClasses = 0;
+            for (int classIndex : classIndexes) {
+                nbClasses = Math.max(nbClasses, classIndex + 1);
+            }
+            // counting sort of the rows by class
+            classStarts = new int[nbClasses + 1];
+            for (int classIndex : classIndexes) {
+                classStarts[classIndex + 1]++;
+            }
+            for (int c = 0; c < nbClasses; c++) {
+                classStarts[c + 1] += classStarts[c];
+            }
+            int[] positions = Arrays.copyOf(classStarts, nbClasses);
+            for (int row = 0; row < nbRows; row++) {
+                rows[positions[classIndexes[row]]++] = row;
+            }
         }
+        for (int c = 0; c + 1 < classStarts.length; c++) {
+            shuffle(rows, classStarts[c], classStarts[c + 1], random);
+        }
+
+        List<int[]> outputRows = folds <= 1 ? split(rows, classStarts, repartitionRate) : splitFolds(rows, folds);
 
-        return tabListResult;
+        // Assuming first column is id, sorting output tables
+        if (nbRows > 0) {
+            int[] sortedRows = table.getSortedRows(0, false);
+            int[] ranks = new int[nbRows];
+            for (int rank = 0; rank < nbRows; rank++) {
+                ranks[sortedRows[rank]] = rank;
+            }
+            for (int[] output : outputRows) {
+                for (int i = 0; i < output.length; i++) {
+                    output[i] = ranks[output[i]];
+                }
+                Arrays.sort(output);
+                for (int i = 0; i < output.length; i++) {
+                    output[i] = sortedRows[output[i]];
+                }
+            }
+        }
+        return outputRows;
     }
 
     /**
-     * Randomly split table in 2 tables according to repartition rate
-     * ex : repartitionRate = 0.6
-     * => table1 = 60% of input table
-     * => table2 = 40% of input table
-     * output = [table1 ; table2]
+     * Computes the class index of each row: the classes are the distinct values of the target column, indexed in their
+     * order of appearance.
      *
-     * @param table           original table to process
-     * @param repartitionRate repartition rate between two output tables
-     * @throws IkatsException            row from original table is undefined
-     * @throws ResourceNotFoundException row from original table is not found
+     * @param table            the table
+     * @param targetColumnName name of the target column
+     * @return the class index of each row
+     * @throws ResourceNotFoundException if target column name not found in table
+     * @throws IkatsException            unexpected error reading the target column
      */
-    List<Table> randomSplitTable(Table table, double repartitionRate) throws ResourceNotFoundException, IkatsException {
-
-        List<Integer> indexListInput = new ArrayList<>();
-        List<List<Integer>> indexListOutput;
-        boolean withColHeaders = table.isHandlingColumnsHeader();
-        boolean withRowHeaders = table.isHandlingRowsHeader();
+    private static int[] getClassIndexes(ColumnarTable table, String targetColumnName)
+            throws ResourceNotFoundException, IkatsException {
+
+        List<Object> classColumnContent = table.getColumn(targetColumnName, Object.class);
+        int[] classIndexes = new int[classColumnContent.size()];
+        Map<Object, Integer> classes = new HashMap<>();
+        for (int row = 0; row < classIndexes.length; row++) {
+            Object classValue = classColumnContent.get(row);
+            Integer classIndex = classes.get(classValue);
+            if (classIndex == null) {
+                classIndex = classes.size();
+                classes.put(classValue, classIndex);
+            }
+            classIndexes[row] = classIndex;
+        }
+        return classIndexes;
+    }
 
-        // Generate list of row indexes of input table
-        for (int i = 0; i < table.getRowCount(false); i++) {
-            indexListInput.add(i);
+    /**
+     * Fisher-Yates shuffle of rows[from] to rows[to - 1]
+     */
+    private static void shuffle(int[] rows, int from, int to, Random random) {
+        for (int i = to - 1; i > from; i--) {
+            int j = from + random.nextInt(i - from + 1);
+            int row = rows[i];
+            rows[i] = rows[j];
+            rows[j] = row;
         }
+    }
 
-        // Randomly split indexes list
-        indexListOutput = randomSplitTableIndexes(indexListInput, repartitionRate);
+    /**
+     * Splits the shuffled rows of each class according to the repartition rate: the first
+     * round(classSize x repartitionRate) rows of each class are the train rows, the others are the test rows.
+     *
+     * @param rows            the shuffled rows, grouped by class
+     * @param classStarts     the position of each class in rows, followed by the number of rows
+     * @param repartitionRate the repartition rate, constrained to [0, 1]
+     * @return the train rows and the test rows
+     */
+    private static List<int[]> split(int[] rows, int[] classStarts, double repartitionRate) {
 
-        // Result initialization
-        Table table1 = TableManager.initEmptyTable(withColHeaders, withRowHeaders);
-        Table table2 = TableManager.initEmptyTable(withColHeaders, withRowHeaders);
+        // Constraint the range of repartition to [0, 1] if overshoot the limits
+        repartitionRate = Math.max(repartitionRate, 0);
+        repartitionRate = Math.min(repartitionRate, 1);
 
-        // Extract rows at split indexes to generate output
-        table1 = extractIndexes(table, table1, indexListOutput.get(0));
-        table2 = extractIndexes(table, table2, indexListOutput.get(1));
-        if (withColHeaders) {
-            table1.getColumnsHeader().addItems(table.getColumnsHeader().getItems().toArray());
-            table2.getColumnsHeader().addItems(table.getColumnsHeader().getItems().toArray());
+        int[] trainRows = new int[rows.length];
+        int[] testRows = new int[rows.length];
+        int nbTrain = 0;
+        int nbTest = 0;
+        for (int c = 0; c + 1 < classStarts.length; c++) {
+            int start = classStarts[c];
+            int end = classStarts[c + 1];
+            int indexSplit = start + (int) Math.round((end - start) * repartitionRate);
+            System.arraycopy(rows, start, trainRows, nbTrain, indexSplit - start);
+            nbTrain += indexSplit - start;
+            System.arraycopy(rows, indexSplit, testRows, nbTest, end - indexSplit);
+            nbTest += end - indexSplit;
         }
 
-        // Assuming first column is id, sorting output tables
-        table1.sortRowsByColumnValues(0, false);
-        table2.sortRowsByColumnValues(0, false);
-
-        List<Table> result = new ArrayList<>();
-        result.add(table1);
-        result.add(table2);
+        List<int[]> result = new ArrayList<>();
+        result.add(Arrays.copyOf(trainRows, nbTrain));
+        result.add(Arrays.copyOf(testRows, nbTest));
         return result;
-
     }
 
     /**
-     * Randomly split table list indexes in 2 indexes lists according to repartition rate
-     * ex : repartitionRate = 0.6
-     * => list1 = 60% of input list (
-     * => list2 = 40% of input list
-     * output = [table1 ; table2]
-     * <p>
-     * NB: number of items in output lists are rounded to the nearest value
+     * Splits the shuffled rows into k folds, in one pass: the rows are dealt to the folds in turn, so that each fold
+     * gets the same share of each class, within one row. The split i has the fold i as test rows, and the other folds
+     * as train rows.
      *
-     * @param indexList       list of table indexes
-     * @param repartitionRate repartition rate between two output indexes lists
+     * @param rows  the shuffled rows, grouped by class
+     * @param folds the number of folds k
+     * @return the train rows and the test rows of each split
      */
-    private List<List<Integer>> randomSplitTableIndexes(List<Integer> indexList, double repartitionRate) {
-
-        // Randomize list content
-        Collections.shuffle(indexList);
-        int nbItems = indexList.size();
+    private static List<int[]> splitFolds(int[] rows, int folds) {
+
+        int[][] trainRows = new int[folds][];
+        int[][] testRows = new int[folds][];
+        for (int fold = 0; fold < folds; fold++) {
+            // the rows dealt to fold: positions fold, fold + folds, ...
+            int nbTest = rows.length / folds + (fold < rows.length % folds ? 1 : 0);
+            testRows[fold] = new int[nbTest];
+            trainRows[fold] = new int[rows.length - nbTest];
+        }
 
-        // Constraint the range of repartition to [0, 1] if overshoot the limits
-        repartitionRate = Math.max(repartitionRate, 0);
-        repartitionRate = Math.min(repartitionRate, 1);
+        int[] nbTrain = new int[folds];
+        for (int i = 0; i < rows.length; i++) {
+            int testFold = i % folds;
+            testRows[testFold][i / folds] = rows[i];
+            for (int fold = 0; fold < folds; fold++) {
+                if (fold != testFold) {
+                    trainRows[fold][nbTrain[fold]++] = rows[i];
+                }
+            }
+        }
 
-        // Compute index of list where to split
-        int indexSplit = (int) Math.round(nbItems * repartitionRate);
+        List<int[]> result = new ArrayList<>();
+        for (int fold = 0; fold < folds; fold++) {
+            result.add(trainRows[fold]);
+            result.add(testRows[fold]);
+        }
+        return result;
+    }
 
-        List<List<Integer>> result = new ArrayList<>();
+    /**
+     * Splits the table and gathers the output tables: see {@link #doCompute(ColumnarTable, String, double, int, Random)}
+     *
+     * @param table            the table to split
+     * @param targetColumnName name of the target column in input table, null or empty for a random split
+     * @param repartitionRate  repartition rate between learning and test sets in output
+     * @param folds            the number of folds: 0 or 1 for a single split
+     * @param random           the generator of the shuffle
+     * @return the output tables, in the order of {@link #getOutputTableNames(String, int)}
+     * @throws ResourceNotFoundException if target column name not found in table
+     * @throws IkatsException            unexpected error reading the target column
+     */
+    List<Table> splitTable(Table table, String targetColumnName, double repartitionRate, int folds, Random random)
+            throws ResourceNotFoundException, IkatsException {
 
-        // Splitting
-        result.add(new ArrayList<>(indexList.subList(0, indexSplit)));
-        result.add(new ArrayList<>(indexList.subList(indexSplit, nbItems)));
+        ColumnarTable columnarTable = tableManager.initColumnarTable(table.getTableInfo());
+        List<int[]> outputRows = doCompute(columnarTable, targetColumnName, repartitionRate, folds, random);
 
+        List<Table> result = new ArrayList<>();
+        for (int[] rows : outputRows) {
+            result.add(tableManager.initTable(columnarTable.gatherRows(rows, 0, rows.length).toTableInfo(), false));
+        }
         return result;
-
     }
 
+    /**
+     * Randomly split table in 2 tables according to repartition rate
+     * ex : repartitionRate = 0.6
+     * => table1 = 60% of input table
+     * => table2 = 40% of input table
+     * output = [table1 ; table2]
+     * <p>
+     * NB: number of items in output tables are rounded to the nearest value
+     *
+     * @param table           original table to process
+     * @param repartitionRate repartition rate between two output tables
+     * @throws IkatsException            row from original table is undefined
+     * @throws ResourceNotFoundException row from original table is not found
+     */
+    List<Table> randomSplitTable(Table table, double repartitionRate) throws ResourceNotFoundException, IkatsException {
+
+        return splitTable(table, "", repartitionRate, 0, new Random());
+    }
 
     /**
      * Original input table is randomly split into 2 tables according to repartition rate
@@ -239,125 +457,9 @@ public class TrainTestSplitTable {
     List<Table> trainTestSplitTable(Table table, String targetColumnName, double repartitionRate) throws
             ResourceNotFoundException, IkatsException {
 
-        boolean withColHeaders = table.isHandlingColumnsHeader();
-        boolean withRowHeaders = table.isHandlingRowsHeader();
-
-        // Sort table by column 'target'
-        table.sortRowsByColumnValues(targetColumnName, false);
-
-        // Extract classes column
-        List<String> classColumnContent = table.getColumn(targetColumnName);
-
-        // Building list of indexes where classes change
-        List<Integer> indexList = new ArrayList<>();
-        Object lastClassValue = classColumnContent.get(0);
-        for (int i = 1; i < classColumnContent.size(); i++) {
-            if (!classColumnContent.get(i).equals(lastClassValue)) {
-                indexList.add(i - 1);
-                lastClassValue = classColumnContent.get(i);
-            }
-        }
-
-        // Creating indexes list by class
-        int nbLines = classColumnContent.size();
-        List<List<List<Integer>>> indexesListByClass = new ArrayList<>();
-        Iterator<Integer> iteratorIndexList = indexList.iterator();
-        List<Integer> listIndexToAppend = new ArrayList<>();
-
-        // Handle the case where there is only 1 class
-        int nextIndex = nbLines - 1;
-        if (iteratorIndexList.hasNext()) {
-            nextIndex = iteratorIndexList.next();
-        }
-        for (int i = 0; i < nbLines; i++) {
-            listIndexToAppend.add(i);
-            if (i >= nextIndex) {
-                indexesListByClass.add(randomSplitTableIndexes(listIndexToAppend, repartitionRate));
-                listIndexToAppend.clear();
-                if (iteratorIndexList.hasNext()) {
-                    nextIndex = iteratorIndexList.next();
-                } else {
-                    nextIndex = nbLines - 1;
-                }
-            }
-        }
-
-        // Result initialization
-        Table table1 = TableManager.initEmptyTable(withColHeaders, withRowHeaders);
-        Table table2 = TableManager.initEmptyTable(withColHeaders, withRowHeaders);
-        List<Table> result = new ArrayList<>();
-        result.add(table1);
-        result.add(table2);
-
-        // Filling column headers
-        if (withColHeaders) {
-            table1.getColumnsHeader().addItems(table.getColumnsHeader().getItems().toArray());
-            table2.getColumnsHeader().addItems(table.getColumnsHeader().getItems().toArray());
-        }
-        // Initialization of row headers (first item must be null)
-        if (withRowHeaders) {
-            table1.getRowsHeader().addItem(null);
-            table2.getRowsHeader().addItem(null);
-        }
-
-        // Retrieving rows from original table according to list of indexes previously generated
-        // and filling output tables
-        // Shifting indexes in case of row headers
-        int shift = (table.isHandlingColumnsHeader()) ? 1 : 0;
-        for (List<List<Integer>> indexesList : indexesListByClass) {
-            List<Integer> tableRated1 = indexesList.get(0);
-            List<Integer> tableRated2 = indexesList.get(1);
-            for (Integer aTableRated1 : tableRated1) {
-                table1.appendRow(table.getRow(aTableRated1 + shift, Object.class));
-                if (withRowHeaders) {
-                    table1.getRowsHeader().addItem(table.getRowsHeader().getItems().get(aTableRated1 + 1));
-                }
-            }
-            for (Integer aTableRated2 : tableRated2) {
-                table2.appendRow(table.getRow(aTableRated2 + shift, Object.class));
-                if (withRowHeaders) {
-                    table2.getRowsHeader().addItem(table.getRowsHeader().getItems().get(aTableRated2 + 1));
-                }
-            }
-        }
-
-        // assuming first column is id, sorting output tables
-        table1.sortRowsByColumnValues(0, false);
-        table2.sortRowsByColumnValues(0, false);
-
-        return result;
-    }
-
-    /**
-     * Extract rows from tableIn matching list of indexes (indexList) to tableOut.
-     *
-     * @param tableIn   table in from which rows are extracted
-     * @param tableOut  table out contains only rows from tableIn matching indexList indexex
-     * @param indexList list of rows indexes to extract from tableIn
-     * @throws IkatsException            row from original table is undefined
-     * @throws ResourceNotFoundException row from original table is not found
-     */
-    private Table extractIndexes(Table tableIn, Table tableOut, List<Integer> indexList) throws ResourceNotFoundException, IkatsException {
-
-        // Shifting indexes in case of row headers
-        int shift = (tableIn.isHandlingColumnsHeader()) ? 1 : 0;
-
-        // Init row headers (first item is null)
-        if (tableIn.isHandlingRowsHeader()) {
-            tableOut.getRowsHeader().addItem(null);
-        }
-
-        // Retrieving rows from original table according to list of indexes previously generated
-        // and filling output tables (row headers included, if managed)
-        for (Integer index : indexList) {
-            if (tableOut.isHandlingRowsHeader()) {
-                tableOut.getRowsHeader().addItem(tableIn.getRowsHeader().getItems().get(index + 1));
-            }
-            tableOut.appendRow(tableIn.getRow(index + shift, Object.class));
+        if (targetColumnName == null) {
+            throw new IkatsException("Undefined target column");
         }
-        return tableOut;
-
+        return splitTable(table, targetColumnName, repartitionRate, 0, new Random());
     }
-
-
 }
@@ -0,0 +1,214 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.operators;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+
+import fr.cs.ikats.common.dao.exception.IkatsDaoException;
+import fr.cs.ikats.metadata.model.FunctionalIdentifier;
+import fr.cs.ikats.temporaldata.business.MetaDataManager;
+import fr.cs.ikats.temporaldata.business.table.ColumnarTable;
+import fr.cs.ikats.temporaldata.business.table.Table;
+import fr.cs.ikats.temporaldata.business.table.TableManager;
+import fr.cs.ikats.temporaldata.exception.IkatsException;
+import fr.cs.ikats.temporaldata.exception.InvalidValueException;
+import fr.cs.ikats.temporaldata.exception.ResourceNotFoundException;
+import fr.cs.ikats.temporaldata.resource.TableResource;
+import fr.cs.ikats.temporaldata.utils.Chronometer;
+
+/**
+ * Provides the computation for the Table Operator "Ts2Feature". <br>
+ * The documentation of the operator is available at
+ * {@link TableResource#ts2Feature(String, String, String, String, org.glassfish.jersey.media.multipart.FormDataMultiPart, javax.ws.rs.core.UriInfo)}
+ * <p>
+ * The functional identifiers of the rows header and their metadata are resolved with a few batched requests, then the
+ * output table is built in one pass over the input rows, grouped by population id and by metadata value.
+ */
+public class Ts2Feature {
+
+    /**
+     * the LOGGER instance for this class
+     */
+    private static final Logger LOGGER = Logger.getLogger(Ts2Feature.class);
+
+    static final String MSG_MISSING_HEADERS = "Ts2Feature: table=''{0}'' shall have both columns and rows headers";
+    static final String MSG_MISSING_FUNC_ID = "Ts2Feature: functional identifier=''{0}'' of table=''{1}'' is not found";
+    static final String MSG_MISSING_METADATA = "Ts2Feature: metadata=''{0}'' is not defined on functional identifier=''{1}'' of table=''{2}''";
+    static final String MSG_LINE_LENGTH_INCONSISTENCY = "Output table : line length inconsistency";
+
+    /**
+     * TableManager
+     */
+    private TableManager tableManager;
+
+    /**
+     * MetadataManager
+     */
+    private MetaDataManager metaManager;
+
+    /**
+     * Default constructor initializes the resources
+     */
+    public Ts2Feature() {
+        super();
+        this.tableManager = new TableManager();
+        this.metaManager = new MetaDataManager();
+    }
+
+    /**
+     * See API doc reference in
+     * {@link TableResource#ts2Feature(String, String, String, String, org.glassfish.jersey.media.multipart.FormDataMultiPart, javax.ws.rs.core.UriInfo)}
+     *
+     * @param tableName       the input table: its rows header holds the functional identifiers
+     * @param metaName        name of the metadata concatenated to the columns header
+     * @param populationId    name of the metadata giving the rows of the output table
+     * @param outputTableName name of the created table
+     * @throws IkatsOperatorException    the grouped rows do not fill the lines of the output table
+     * @throws ResourceNotFoundException a functional identifier or a metadata is not found
+     * @throws IkatsDaoException         error reading the metadata or creating the table
+     * @throws InvalidValueException     the output table name is invalid
+     * @throws IkatsException            error reading the input table
+     */
+    public void apply(String tableName, String metaName, String populationId, String outputTableName)
+            throws IkatsOperatorException, ResourceNotFoundException, IkatsDaoException, InvalidValueException,
+            IkatsException {
+
+        Chronometer chrono = new Chronometer("Ts2Feature: read table", true);
+        ColumnarTable table = tableManager.readColumnarFromDatabase(tableName);
+        if (!table.isHandlingColumnsHeader() || !table.isHandlingRowsHeader()) {
+            throw new IkatsOperatorException(MessageFormat.format(MSG_MISSING_HEADERS, tableName));
+        }
+        List<String> funcIds = table.getRowsHeader().getItems(String.class);
+        funcIds = funcIds.subList(1, funcIds.size());
+        chrono.stop(LOGGER);
+
+        chrono.start("Ts2Feature: resolve metadata");
+        Map<String, String> tsuidByFuncId = new HashMap<>();
+        for (FunctionalIdentifier fi : metaManager.getFunctionalIdentifierByFuncIdList(new ArrayList<>(new LinkedHashSet<>(funcIds)))) {
+            tsuidByFuncId.put(fi.getFuncId(), fi.getTsuid());
+        }
+        Map<String, Map<String, String>> valuesByTsuid = metaManager.getMetaDataValues(tsuidByFuncId.values(),
+                Arrays.asList(metaName, populationId));
+
+        List<String> popIds = new ArrayList<>(funcIds.size());
+        List<String> metaValues = new ArrayList<>(funcIds.size());
+        for (String funcId : funcIds) {
+            String tsuid = tsuidByFuncId.get(funcId);
+            if (tsuid == null) {
+                throw new ResourceNotFoundException(MessageFormat.format(MSG_MISSING_FUNC_ID, funcId, tableName));
+            }
+            Map<String, String> values = valuesByTsuid.get(tsuid);
+            popIds.add(getValue(values, populationId, funcId, tableName));
+            metaValues.add(getValue(values, metaName, funcId, tableName));
+        }
+        chrono.stop(LOGGER);
+
+        chrono.start("Ts2Feature: compute and create table");
+        Table outputTable = tableManager.initTable(pivot(table, popIds, metaValues, populationId).toTableInfo(), false);
+        outputTable.setName(outputTableName);
+        tableManager.createInDatabase(outputTable.getTableInfo());
+        chrono.stop(LOGGER);
+    }
+
+    /**
+     * Gets the value of a resolved metadata
+     *
+     * @throws ResourceNotFoundException the metadata is not defined
+     */
+    private static String getValue(Map<String, String> values, String name, String funcId, String tableName)
+            throws ResourceNotFoundException {
+        String value = values == null ? null : values.get(name);
+        if (value == null) {
+            throw new ResourceNotFoundException(MessageFormat.format(MSG_MISSING_METADATA, name, funcId, tableName));
+        }
+        return value;
+    }
+
+    /**
+     * Computes the output table: one row per population id, sorted, whose cells are the input rows of this population,
+     * sorted by metadata value and then in the input order. The columns header is the population id, then for each
+     * distinct metadata value, the input columns prefixed by the value.
+     *
+     * @param table        the input table, with columns and rows headers
+     * @param popIds       the population id of each input row, by content index
+     * @param metaValues   the metadata value of each input row, by content index
+     * @param populationId the name of the first column of the output table
+     * @return the output table
+     * @throws IkatsOperatorException    a population does not fill one line of the output table
+     * @throws ResourceNotFoundException an input row is not found
+     * @throws IkatsException            error reading the input table or appending an output row
+     */
+    static ColumnarTable pivot(ColumnarTable table, List<String> popIds, List<String> metaValues, String populationId)
+            throws IkatsOperatorException, ResourceNotFoundException, IkatsException {
+
+        // popId => metadata value => content indexes of the rows, in the input order
+        Map<String, Map<String, List<Integer>>> groups = new TreeMap<>();
+        for (int index = 0; index < popIds.size(); index++) {
+            Map<String, List<Integer>> byMetaValue = groups.get(popIds.get(index));
+            if (byMetaValue == null) {
+                byMetaValue = new TreeMap<>();
+                groups.put(popIds.get(index), byMetaValue);
+            }
+            List<Integer> indexes = byMetaValue.get(metaValues.get(index));
+            if (indexes == null) {
+                indexes = new ArrayList<>();
+                byMetaValue.put(metaValues.get(index), indexes);
+            }
+            indexes.add(index);
+        }
+
+        List<String> colHeaders = table.getColumnsHeader().getItems(String.class);
+        ColumnarTable outputTable = TableManager.initEmptyColumnarTable(true, true);
+        outputTable.getColumnsHeader().addItem(populationId);
+        for (String metaValue : new TreeSet<>(metaValues)) {
+            for (int i = 1; i < colHeaders.size(); i++) {
+                outputTable.getColumnsHeader().addItem(metaValue + "_" + colHeaders.get(i));
+            }
+        }
+        int tableContentWidth = outputTable.getColumnsHeader().getItems().size() - 1;
+
+        outputTable.getRowsHeader().addItem(null);
+        for (Map.Entry<String, Map<String, List<Integer>>> group : groups.entrySet()) {
+            List<Object> cellsLine = new ArrayList<>(tableContentWidth);
+            for (List<Integer> indexes : group.getValue().values()) {
+                for (Integer index : indexes) {
+                    List<Object> row = table.getRow(index + 1, Object.class);
+                    if (row != null) {
+                        cellsLine.addAll(row);
+                    }
+                }
+            }
+            // check line size is consistent
+            if (cellsLine.size() != tableContentWidth) {
+                throw new IkatsOperatorException(MSG_LINE_LENGTH_INCONSISTENCY);
+            }
+            outputTable.appendRow(group.getKey(), cellsLine);
+        }
+        return outputTable;
+    }
+}
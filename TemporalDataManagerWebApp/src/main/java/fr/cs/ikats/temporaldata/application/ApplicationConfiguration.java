@@ -59,6 +59,8 @@ public class ApplicationConfiguration {
     @SuppressWarnings("javadoc")
     public static final String IMPORT_EXECUTOR_POOL_SIZE = "import.executor.pool.size";
     @SuppressWarnings("javadoc")
+    public static final String DELETE_EXECUTOR_POOL_SIZE = "delete.executor.pool.size";
+    @SuppressWarnings("javadoc")
     public static final String IMPORT_THREAD_POOL_NAME = "IkatsTDMImportExecutor";
     @SuppressWarnings("javadoc")
     public static final String IMPORT_QUALIFIER = "importer.qualifier";
@@ -68,6 +70,14 @@ public class ApplicationConfiguration {
     public static final String DB_API_MSRESOLUTION = "db.api.msResolution";
     @SuppressWarnings("javadoc")
     public static final String DB_FLUSHING_INTERVAL = "db.flushing.interval";
+    @SuppressWarnings("javadoc")
+    public static final String METADATA_INDEX_ENABLED = "metadata.index.enabled";
+    @SuppressWarnings("javadoc")
+    public static final String METADATA_NUMERIC_BACKFILL = "metadata.numeric.backfill";
+    @SuppressWarnings("javadoc")
+    public static final String TABLE_STORAGE_COMPRESSION = "table.storage.compression";
+    @SuppressWarnings("javadoc")
+    public static final String TABLE_CACHE_MAX_BYTES = "table.cache.max.bytes";
 
 
     /**
@@ -19,10 +19,14 @@ package fr.cs.ikats.temporaldata.application;
 import javax.annotation.PreDestroy;
 import javax.ws.rs.ApplicationPath;
 
+import org.apache.log4j.Logger;
 import org.glassfish.jersey.jackson.JacksonFeature;
 import org.glassfish.jersey.media.multipart.MultiPartFeature;
 import org.glassfish.jersey.server.ResourceConfig;
 
+import fr.cs.ikats.common.dao.exception.IkatsDaoException;
+import fr.cs.ikats.metadata.MetaDataFacade;
+import fr.cs.ikats.temporaldata.business.DataSetManager;
 import fr.cs.ikats.temporaldata.utils.ExecutorManager;
 
 /**
@@ -32,6 +36,8 @@ import fr.cs.ikats.temporaldata.utils.ExecutorManager;
 @ApplicationPath("/")
 public class TemporalDataApplication extends ResourceConfig {
 
+    private static Logger logger = Logger.getLogger(TemporalDataApplication.class);
+
     /**
      * configuration for this application
      */
@@ -61,6 +67,37 @@ public class TemporalDataApplication extends ResourceConfig {
             CONFIGURATION = new ApplicationConfiguration();
         }
         CONFIGURATION.getSpringContext();
+        backfillMetaDataNumericValues();
+        initMetaDataIndex();
+    }
+
+    /**
+     * compute the numeric values of the metadata imported before the numeric_value column existed, when enabled by
+     * configuration
+     */
+    private void backfillMetaDataNumericValues() {
+        if (CONFIGURATION.getConfiguration().getBoolean(ApplicationConfiguration.METADATA_NUMERIC_BACKFILL, false)) {
+            try {
+                CONFIGURATION.getSpringContext().getBean(MetaDataFacade.class).backfillNumericValues();
+            } catch (IkatsDaoException e) {
+                // the metadata not migrated are not matched by the range filters
+                logger.error("Failed to compute the numeric values of the metadata", e);
+            }
+        }
+    }
+
+    /**
+     * build the in-memory metadata index, when enabled by configuration
+     */
+    private void initMetaDataIndex() {
+        if (CONFIGURATION.getConfiguration().getBoolean(ApplicationConfiguration.METADATA_INDEX_ENABLED, false)) {
+            try {
+                CONFIGURATION.getSpringContext().getBean(MetaDataFacade.class).enableSearchIndex();
+            } catch (IkatsDaoException e) {
+                // the searches are still evaluated by the database
+                logger.error("Failed to build the in-memory metadata index", e);
+            }
+        }
     }
 
     /**
@@ -87,6 +124,7 @@ public class TemporalDataApplication extends ResourceConfig {
     @PreDestroy
     public void destroy() {
         ExecutorManager.getInstance().stopExecutors();
+        DataSetManager.stopDeleteExecutor();
     }
 
 
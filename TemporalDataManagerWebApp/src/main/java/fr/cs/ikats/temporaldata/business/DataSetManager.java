@@ -18,19 +18,24 @@ package fr.cs.ikats.temporaldata.business;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
 import org.apache.log4j.Logger;
 
-import fr.cs.ikats.common.dao.exception.IkatsDaoConflictException;
 import fr.cs.ikats.common.dao.exception.IkatsDaoException;
 import fr.cs.ikats.common.dao.exception.IkatsDaoInvalidValueException;
 import fr.cs.ikats.metadata.model.FunctionalIdentifier;
+import fr.cs.ikats.temporaldata.application.ApplicationConfiguration;
 import fr.cs.ikats.temporaldata.application.TemporalDataApplication;
 import fr.cs.ikats.temporaldata.exception.ResourceNotFoundException;
-import fr.cs.ikats.temporaldata.resource.TimeSerieResource;
 import fr.cs.ikats.ts.dataset.DataSetFacade;
 import fr.cs.ikats.ts.dataset.model.DataSet;
 import fr.cs.ikats.ts.dataset.model.LinkDatasetTimeSeries;
@@ -45,6 +50,41 @@ public class DataSetManager {
      */
     private static final Logger LOGGER = Logger.getLogger(DataSetManager.class);
 
+    /**
+     * default number of threads deleting the TS data during a deep removal
+     */
+    private static final int DEFAULT_DELETE_EXECUTOR_POOL_SIZE = 8;
+
+    /**
+     * executor shared by all the deep removals, so that the TS deletions running at the same time are bounded for the
+     * whole application. Created on first use.
+     */
+    private static ExecutorService deleteExecutor;
+
+    /**
+     * get the executor shared by the deep removals, sized by configuration
+     *
+     * @return the executor
+     */
+    private static synchronized ExecutorService getDeleteExecutor() {
+        if (deleteExecutor == null) {
+            int poolSize = TemporalDataApplication.getApplicationConfiguration().getConfiguration()
+                    .getInt(ApplicationConfiguration.DELETE_EXECUTOR_POOL_SIZE, DEFAULT_DELETE_EXECUTOR_POOL_SIZE);
+            deleteExecutor = Executors.newFixedThreadPool(Math.max(1, poolSize));
+        }
+        return deleteExecutor;
+    }
+
+    /**
+     * stop the executor shared by the deep removals. The pending deletions are cancelled.
+     */
+    public static synchronized void stopDeleteExecutor() {
+        if (deleteExecutor != null) {
+            deleteExecutor.shutdownNow();
+            deleteExecutor = null;
+        }
+    }
+
     /**
      * private method to get the DataSetFacade from Spring context.
      *
@@ -55,10 +95,17 @@ public class DataSetManager {
     }
 
     /**
-     * getter on new TimeSerieResource.
+     * getter on new TemporalDataManager.
+     */
+    public TemporalDataManager getTemporalDataManager() {
+        return new TemporalDataManager();
+    }
+
+    /**
+     * getter on new MetaDataManager.
      */
-    public TimeSerieResource getTimeSerieResource() {
-        return new TimeSerieResource();
+    public MetaDataManager getMetaDataManager() {
+        return new MetaDataManager();
     }
 
     /**
@@ -106,6 +153,20 @@ public class DataSetManager {
 
     }
 
+    /**
+     * For each timeseries of one dataset having one of the metrics, get its functional identifier grouped by the value of
+     * a join metadata and by metric, with one query.
+     *
+     * @param dataSetId    the identifier
+     * @param metrics      the searched values of the metadata "metric"
+     * @param joinMetaName the name of the join metadata
+     * @return the map join value => metric => functional identifier, empty if nothing is found.
+     */
+    public Map<String, Map<String, FunctionalIdentifier>> getMetricTsByJoinValue(String dataSetId, List<String> metrics,
+                                                                                String joinMetaName) throws IkatsDaoException {
+        return getDataSetFacade().getMetricTsByJoinValue(dataSetId, metrics, joinMetaName);
+    }
+
     /**
      * return the dataset
      *
@@ -138,43 +199,28 @@ public class DataSetManager {
     public Status removeDataSet(String datasetId, Boolean deep) throws IkatsDaoException {
 
         String context = "Removing dataset=" + datasetId + " : ";
-        List<String> tsuidsToRemove = new ArrayList<>();
-        List<IkatsDaoException> tsRemoveError = new ArrayList<>();
         if (Boolean.valueOf(deep)) {
 
-            // 1: evaluate tsuidsToRemove
+            // 1: evaluate tsuidsToRemove, with one query
             // -------------------------------------------
             context = "Removing dataset=" + datasetId + "(mode=DEEP) : ";
             LOGGER.info(context + "step : evaluate time series that can be removed ");
 
-            List<String> tsNotRemovedWarnings = new ArrayList<>();
-
-            DataSet dataSet = getDataSet(datasetId);
-            if (dataSet == null) {
+            if (getDataSetSummary(datasetId) == null) {
                 return Status.NOT_FOUND;
             }
 
-            for (LinkDatasetTimeSeries linkDatasetTs : dataSet.getLinksToTimeSeries()) {
-                String tsuid = linkDatasetTs.getFuncIdentifier().getTsuid();
-
-                List<String> inDataSetNames = getContainers(tsuid);
-                if (inDataSetNames == null) {
-                    throw new IkatsDaoConflictException("No dataset found for timeseries :" + tsuid);
-                } else if ((inDataSetNames.size() == 1) && inDataSetNames.get(0).equals(datasetId)) {
-
+            List<String> tsuidsToRemove = new ArrayList<>();
+            List<String> tsNotRemovedWarnings = new ArrayList<>();
+            for (Map.Entry<String, List<String>> tsContainers : getDataSetFacade().getOtherDataSetNamesByTsuid(datasetId).entrySet()) {
+                String tsuid = tsContainers.getKey();
+                List<String> otherDataSetNames = tsContainers.getValue();
+                if (otherDataSetNames.isEmpty()) {
                     tsuidsToRemove.add(tsuid);
                 } else {
                     // add an error : TS is in another dataset
-                    StringBuilder builder = new StringBuilder();
-                    for (String datasetName : inDataSetNames) {
-
-                        if (!datasetName.equals(datasetId)) {
-                            builder.append(datasetName).append(",");
-                        }
-                    }
-
-                    tsNotRemovedWarnings.add("TS with " + tsuid + " is included in " + (inDataSetNames.size() - 1) + " others datasets ("
-                            + builder.toString() + "). It cannot be removed");
+                    tsNotRemovedWarnings.add("TS with " + tsuid + " is included in " + otherDataSetNames.size() + " others datasets ("
+                            + String.join(",", otherDataSetNames) + "). It cannot be removed");
                 }
             }
             if (!tsNotRemovedWarnings.isEmpty()) {
@@ -184,29 +230,27 @@ public class DataSetManager {
                 }
             }
 
-            // 2: remove data + metadata for TS having only this dataset as parent
+            // 2: remove data of the TS having only this dataset as parent, in parallel
             // --------------------------------------------------------------------
-            LOGGER.info(context + "step : remove linked time series and their metadata");
-            TimeSerieResource timeS = getTimeSerieResource();
+            LOGGER.info(context + "step : remove data of " + tsuidsToRemove.size() + " time series");
+            List<IkatsDaoException> tsRemoveError = new ArrayList<>();
+            List<String> removedTsuids = removeTimeSeriesData(tsuidsToRemove, tsRemoveError);
 
-            for (String tsuid : tsuidsToRemove) {
-                // only one dataset includes this tsuid, so remove all data
-                // about the TS.
+            // 3: remove links, metadata and functional identifiers of the removed TS, by bulk deletes
+            // --------------------------------------------------------------------
+            LOGGER.info(context + "step : remove links, metadata and functional identifiers of " + removedTsuids.size() + " time series");
+            if (!removedTsuids.isEmpty()) {
                 try {
-                    // firstly remove link before ds and ts to avoid constraint
+                    // firstly remove links before ds and ts to avoid constraint
                     // problem in db
-                    getDataSetFacade().removeTSFromDataSet(tsuid, datasetId);
-                    // then remove timeseries data + metadata from db
-                    timeS.removeTimeSeries(tsuid);
-                } catch (ResourceNotFoundException e) {
-                    LOGGER.error("- failed to remove tsuid " + tsuid + " : does not exist in DB");
-                    tsRemoveError.add(new IkatsDaoException("- failed to remove tsuid " + tsuid + " : does not exist in DB", e));
+                    getDataSetFacade().removeTSFromDataSet(removedTsuids, datasetId);
+                    MetaDataManager metaDataManager = getMetaDataManager();
+                    metaDataManager.deleteMetaData(removedTsuids);
+                    metaDataManager.deleteFunctionalIdentifier(removedTsuids);
                 } catch (IkatsDaoException e) {
-                    LOGGER.error("- failed to remove associated metadata for tsuid=" + tsuid);
-                    tsRemoveError.add(new IkatsDaoException("failed to remove associated metadata for tsuid " + tsuid, e));
-                } catch (Exception e) {
-                    LOGGER.error("- failed to remove tsuid=" + tsuid);
-                    tsRemoveError.add(new IkatsDaoException("failed to delete TS for tsuid " + tsuid, e));
+                    LOGGER.error("- failed to remove associated links, metadata or functional identifiers");
+                    tsRemoveError.add(new IkatsDaoException("failed to remove associated links, metadata or functional identifiers of "
+                            + removedTsuids.size() + " tsuids", e));
                 }
             }
 
@@ -238,6 +282,57 @@ public class DataSetManager {
         return Status.NO_CONTENT;
     }
 
+    /**
+     * Delete the data of the TS from the timeseries database, on the executor shared by the deep removals. The errors
+     * are reported per TS.
+     *
+     * @param tsuids the TS to delete
+     * @param errors the list completed with the error of each TS not deleted
+     * @return the TS actually deleted
+     */
+    private List<String> removeTimeSeriesData(List<String> tsuids, List<IkatsDaoException> errors) {
+        List<String> removedTsuids = new ArrayList<>();
+        if (tsuids.isEmpty()) {
+            return removedTsuids;
+        }
+
+        ExecutorService executor = getDeleteExecutor();
+        List<Future<Response>> deletions = new ArrayList<>(tsuids.size());
+        try {
+            TemporalDataManager temporalDataManager = getTemporalDataManager();
+            for (String tsuid : tsuids) {
+                deletions.add(executor.submit(() -> temporalDataManager.deleteTS(tsuid)));
+            }
+
+            for (int i = 0; i < tsuids.size(); i++) {
+                String tsuid = tsuids.get(i);
+                try {
+                    deletions.get(i).get();
+                    removedTsuids.add(tsuid);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof ResourceNotFoundException) {
+                        LOGGER.error("- failed to remove tsuid " + tsuid + " : does not exist in DB");
+                        errors.add(new IkatsDaoException("- failed to remove tsuid " + tsuid + " : does not exist in DB", e.getCause()));
+                    } else {
+                        LOGGER.error("- failed to remove tsuid=" + tsuid);
+                        errors.add(new IkatsDaoException("failed to delete TS for tsuid " + tsuid, e.getCause()));
+                    }
+                } catch (InterruptedException e) {
+                    // the pending deletions are cancelled: their TS are kept in the dataset
+                    Thread.currentThread().interrupt();
+                    errors.add(new IkatsDaoException("interrupted while deleting TS for tsuid " + tsuid, e));
+                    break;
+                }
+            }
+        } finally {
+            // no-op for the completed deletions
+            for (Future<Response> deletion : deletions) {
+                deletion.cancel(true);
+            }
+        }
+        return removedTsuids;
+    }
+
     /**
      * get all the dataSet summary : Name and Description only.
      *
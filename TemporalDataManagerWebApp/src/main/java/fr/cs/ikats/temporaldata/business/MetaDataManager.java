@@ -16,16 +16,27 @@
 
 package fr.cs.ikats.temporaldata.business;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+
 import org.apache.log4j.Logger;
 
 import fr.cs.ikats.common.dao.exception.IkatsDaoConflictException;
@@ -139,6 +150,19 @@ public class MetaDataManager {
         return getMetaDataFacade().getMetaData(tsuid, name);
     }
 
+    /**
+     * Retrieve the values of some MetaData for several tsuids, with one request per chunk of tsuids
+     *
+     * @param tsuids the tsuid criterion values
+     * @param names  the name criterion values
+     * @return found values by name, by tsuid: a tsuid without any of the searched MetaData has no entry
+     * @throws IkatsDaoException any error raised by DAO layer.
+     */
+    public Map<String, Map<String, String>> getMetaDataValues(Collection<String> tsuids, Collection<String> names)
+            throws IkatsDaoException {
+        return getMetaDataFacade().getMetaDataValues(tsuids, names);
+    }
+
     /**
      * persist all meta data read in a csv file.
      *
@@ -182,7 +206,8 @@ public class MetaDataManager {
     }
 
     /**
-     * get a synthetic metadata CSV representation for the list of tsduids in param
+     * get a CSV representation of the metadata for the list of tsuids in param: see
+     * {@link #getListAsCSVOutput(List)}
      *
      * @param tsuids : list of tsuid
      * @return a csv formatted string.
@@ -190,45 +215,84 @@ public class MetaDataManager {
      * @throws IkatsDaoException       any error raised by DAO layer.
      */
     public String getListAsCSV(List<String> tsuids) throws IkatsDaoException {
-        MetaDataFacade facade = getMetaDataFacade();
-        String separator = ";";
-        Map<String, Map<String, String>> exportedMap = new HashMap<>();
-        Set<String> metadataNameList = new HashSet<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            getListAsCSVOutput(tsuids).write(out);
+        } catch (IOException e) {
+            throw new IkatsDaoException("Writing the CSV of metadata for TSUID list=" + tsuids, e);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * get a streamed CSV representation of the metadata for the list of tsuids in param: one line per TS, starting
+     * with its functional identifier, and one column per metadata name.
+     * <p>
+     * The checks and the list of metadata names are computed at once, so that a missing tsuid is reported before
+     * anything is written. The lines are then written while the metadata are read from server-side cursors ordered by
+     * tsuid: the memory used does not depend upon the number of TS. For "*", the tsuids are not listed beforehand: a
+     * single cursor reads all the metadata.
+     *
+     * @param tsuids : list of tsuid, or "*" for all the TS having metadata
+     * @return the output writing the csv content
+     * @throws IkatsDaoMissingResource error raised when no matching resource is found, for a tsuid different from '*'
+     * @throws IkatsDaoException       any error raised by DAO layer.
+     */
+    public StreamingOutput getListAsCSVOutput(List<String> tsuids) throws IkatsDaoException {
+        final MetaDataFacade facade = getMetaDataFacade();
 
-        // Parse all tsuids and retrieve all associated metadata
+        Set<String> requestedTsuids = new HashSet<>();
         for (String tsuid : tsuids) {
-            Map<String, String> metadata = new HashMap<>();
-            logger.info("Reading MetaData list for TSUID=" + tsuid);
-            List<MetaData> metaListForTs = facade.getMetaDataForTS(tsuid);
-            for (MetaData meta : metaListForTs) {
-                metadata.put(meta.getName(), meta.getValue());
-                // construct metadata names list
-                metadataNameList.add(meta.getName());
-            }
-            FunctionalIdentifier funcId = getFunctionalIdentifierByTsuid(tsuid);
+            requestedTsuids.add(tsuid.trim());
+        }
 
-            if (funcId == null) {
-                funcId = new FunctionalIdentifier(tsuid, "NO_FUNC_ID_" + tsuid);
+        // null for all the TS having metadata
+        final List<String> exportedTsuids;
+        if (requestedTsuids.contains("*")) {
+            logger.info("Reading MetaData list for all TSUIDs");
+            exportedTsuids = null;
+        } else {
+            logger.info("Reading MetaData list for " + requestedTsuids.size() + " TSUIDs");
+            exportedTsuids = facade.getTsuidsWithMetaData(requestedTsuids);
+            if (exportedTsuids.size() < requestedTsuids.size()) {
+                requestedTsuids.removeAll(exportedTsuids);
+                String msg = "Searching MetaData from tsuid=" + requestedTsuids.iterator().next() + ": no resource found, but should exist.";
+                logger.error(msg);
+                throw new IkatsDaoMissingResource(msg);
             }
-            exportedMap.put(funcId.getFuncId(), metadata);
         }
 
-        StringBuilder sb = new StringBuilder();
-        for (String metadataName : metadataNameList) {
-            sb.append(separator);
-            sb.append(metadataName);
-        }
-        for (Map.Entry<String, Map<String, String>> entry : exportedMap.entrySet()) {
-            sb.append("\n");
-            sb.append(entry.getKey());
-            for (String meta : metadataNameList) {
-                sb.append(separator);
-                if (entry.getValue().containsKey(meta)) {
-                    sb.append(entry.getValue().get(meta));
+        // construct metadata names list
+        final Set<String> metadataNameList = new HashSet<>(facade.getMetaDataNamesForTsuids(exportedTsuids));
+
+        return new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException, WebApplicationException {
+                final String separator = ";";
+                final Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+                for (String metadataName : metadataNameList) {
+                    writer.write(separator);
+                    writer.write(metadataName);
+                }
+                try {
+                    facade.scrollMetaDataForTsuids(exportedTsuids, (tsuid, funcId, values) -> {
+                        writer.write("\n");
+                        writer.write(funcId == null ? "NO_FUNC_ID_" + tsuid : funcId);
+                        for (String meta : metadataNameList) {
+                            writer.write(separator);
+                            String value = values.get(meta);
+                            if (value != null) {
+                                writer.write(value);
+                            }
+                        }
+                    });
+                } catch (IkatsDaoException e) {
+                    throw new IOException("Reading the MetaData of "
+                            + (exportedTsuids == null ? "all" : String.valueOf(exportedTsuids.size())) + " TSUIDs", e);
                 }
+                writer.flush();
             }
-        }
-        return sb.toString();
+        };
     }
 
     /**
@@ -245,9 +309,22 @@ public class MetaDataManager {
         // List of metadata returned
         List<MetaData> result = new ArrayList<>();
 
-        // Parse all tsuids and concat to the result
+        List<String> trimmedTsuids = new ArrayList<>();
         for (String tsuid : tsuids) {
-            result.addAll(facade.getMetaDataForTS(tsuid.trim()));
+            trimmedTsuids.add(tsuid.trim());
+        }
+        if (trimmedTsuids.contains("*")) {
+            // all the metadata are requested
+            for (String tsuid : trimmedTsuids) {
+                result.addAll(facade.getMetaDataForTS(tsuid));
+            }
+            return result;
+        }
+
+        // Fetch all the metadata at once, then concat to the result following the order of tsuids
+        Map<String, List<MetaData>> grouped = getMapGroupingByTsuid(new HashSet<>(trimmedTsuids));
+        for (String tsuid : trimmedTsuids) {
+            result.addAll(grouped.get(tsuid));
         }
         return result;
     }
@@ -256,22 +333,35 @@ public class MetaDataManager {
      * Builds the map of metadata grouped by the tsuid: each entry is composed of: <ul> <li>key: the tsuid reference of
      * the TS</li> <li>value: List of Metadata associated to the TS</li> </ul>
      * <p>
-     * This service is based upon MetadataFacade.getMetadataForTS()
+     * This service is based upon MetadataFacade.getMetaDataForTsuids(): the metadata are read by chunks of tsuids,
+     * instead of one request per tsuid.
      *
      * @param tsuids: set of tsuids of the map
      * @return the built map.
-     * @throws IkatsDaoMissingResource
+     * @throws IkatsDaoMissingResource error raised when one tsuid has no metadata
      * @throws IkatsDaoException
      */
     public Map<String, List<MetaData>> getMapGroupingByTsuid(Set<String> tsuids) throws IkatsDaoException {
         MetaDataFacade facade = getMetaDataFacade();
 
+        Map<String, String> trimmedTsuids = new HashMap<>();
+        for (String tsuid : tsuids) {
+            trimmedTsuids.put(tsuid, tsuid.trim());
+        }
+        Map<String, List<MetaData>> grouped = facade.getMetaDataForTsuids(trimmedTsuids.values());
+
         // List of metadata returned
         Map<String, List<MetaData>> result = new HashMap<>();
 
         // Iterates on each tsuid in order to complete the map
-        for (String tsuid : tsuids) {
-            result.put(tsuid, new ArrayList<>(facade.getMetaDataForTS(tsuid.trim())));
+        for (Map.Entry<String, String> tsuid : trimmedTsuids.entrySet()) {
+            List<MetaData> metadata = grouped.get(tsuid.getValue());
+            if (metadata == null) {
+                String msg = "Searching MetaData from tsuid=" + tsuid.getValue() + ": no resource found, but should exist.";
+                logger.error(msg);
+                throw new IkatsDaoMissingResource(msg);
+            }
+            result.put(tsuid.getKey(), new ArrayList<>(metadata));
         }
         return result;
     }
@@ -369,7 +459,7 @@ public class MetaDataManager {
      * Get the functional identifier list matching the list of tsuid values
      *
      * @param tsuids list of search criteria: tsuid values
-     * @return a list of FunctionalIdentifier, or null if nothing is found.
+     * @return a list of FunctionalIdentifier, empty if nothing is found.
      */
     public List<FunctionalIdentifier> getFunctionalIdentifierByTsuidList(List<String> tsuids) throws IkatsDaoException {
 
@@ -393,7 +483,7 @@ public class MetaDataManager {
      * Get the functional identifier list matching the list of funcId values
      *
      * @param funcIds : list of functional identifiers
-     * @return a list of FunctionalIdentifier, or null if nothing is found.
+     * @return a list of FunctionalIdentifier, empty if nothing is found.
      */
     public List<FunctionalIdentifier> getFunctionalIdentifierByFuncIdList(List<String> funcIds) throws IkatsDaoException {
 
@@ -423,6 +513,28 @@ public class MetaDataManager {
         return getMetaDataFacade().removeMetaDataForTS(tsuid);
     }
 
+    /**
+     * delete the metadata of a list of TS
+     *
+     * @param tsuids the TS
+     * @return the number of metadata deleted
+     * @throws IkatsDaoException error deleting the resources
+     */
+    public int deleteMetaData(List<String> tsuids) throws IkatsDaoException {
+        return getMetaDataFacade().removeMetaDataForTS(tsuids);
+    }
+
+    /**
+     * delete the functional identifiers of a list of TS
+     *
+     * @param tsuids the TS
+     * @return the number of rows deleted
+     * @throws IkatsDaoException error deleting the resources
+     */
+    public int deleteFunctionalIdentifier(List<String> tsuids) throws IkatsDaoException {
+        return getMetaDataFacade().removeFunctionalIdentifier(tsuids);
+    }
+
     /**
      * delete metadata for a TS
      *
@@ -0,0 +1,829 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fr.cs.ikats.temporaldata.business.table;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.cs.ikats.temporaldata.business.table.TableInfo.DataLink;
+import fr.cs.ikats.temporaldata.business.table.TableInfo.Header;
+import fr.cs.ikats.temporaldata.business.table.TableInfo.TableContent;
+import fr.cs.ikats.temporaldata.business.table.TableInfo.TableDesc;
+import fr.cs.ikats.temporaldata.business.table.TableInfo.TableHeaders;
+import fr.cs.ikats.temporaldata.exception.IkatsException;
+import fr.cs.ikats.temporaldata.exception.ResourceNotFoundException;
+
+/**
+ * The ColumnarTable is an alternative to the {@link Table} business resource, storing the content by columns: each
+ * column is stored according to the type of its values, see {@link TableColumn}. A numeric column of n rows takes about
+ * 8 x n bytes, instead of the boxed values and the list of each row of the TableInfo.
+ * <p>
+ * The ColumnarTable provides the same getters as the Table, and the appending of rows. It is converted from and to the
+ * TableInfo only at the JSON boundary: see {@link #toTableInfo()}.
+ * <p>
+ * Note: for end-user, the TableManager is the entry point in order to build the ColumnarTable, for example with
+ * {@link TableManager#readColumnarFromDatabase(String)}. This is why the constructor visibility is default, not
+ * public.
+ */
+public class ColumnarTable {
+
+    private final TableDesc tableDesc;
+
+    private final TableHeaders headers;
+
+    /**
+     * True when the TableInfo has a content part
+     */
+    private boolean withContent;
+
+    /**
+     * True when the content has cells: see {@link TableContent#cells}
+     */
+    private boolean withCells;
+
+    /**
+     * True when the content is managing links: see {@link TableContent#links}
+     */
+    private boolean handlingLinks;
+
+    /**
+     * See {@link TableContent#default_links}
+     */
+    private DataLink defaultLinks;
+
+    private final List<TableColumn> columns = new ArrayList<>();
+
+    private int rowCount;
+
+    /**
+     * The sizes of the rows not having one value by column, by row index: -1 for a null row. Empty for a rectangular
+     * content.
+     */
+    private final Map<Integer, Integer> raggedRowSizes = new HashMap<>();
+
+    /**
+     * Creates the ColumnarTable from the TableInfo, copied. Internally used by TableManager.
+     *
+     * @param tableInfo the TableInfo: for example loaded from a json content.
+     */
+    ColumnarTable(TableInfo tableInfo) {
+        super();
+        if (tableInfo.table_desc != null) {
+            tableDesc = new TableDesc(tableInfo.table_desc);
+            tableDesc.name = tableInfo.table_desc.name;
+        } else {
+            tableDesc = null;
+        }
+        headers = tableInfo.headers != null ? new TableHeaders(tableInfo.headers) : null;
+
+        TableContent content = tableInfo.content;
+        if (content != null) {
+            withContent = true;
+            withCells = content.cells != null;
+            handlingLinks = content.links != null;
+            defaultLinks = content.default_links;
+
+            int nbRows = withCells ? content.cells.size() : (handlingLinks ? content.links.size() : 0);
+            for (int row = 0; row < nbRows; row++) {
+                List<DataLink> rowLinks = handlingLinks && row < content.links.size() ? content.links.get(row) : null;
+                List<Object> rowValues;
+                if (withCells) {
+                    rowValues = content.cells.get(row);
+                } else {
+                    rowValues = rowLinks == null ? null : Collections.nCopies(rowLinks.size(), null);
+                }
+                appendContentRow(rowValues, rowLinks);
+            }
+        }
+    }
+
+    /**
+     * Converts this table to a new TableInfo, at the JSON boundary: the links are copied, the values are assumed
+     * immutable.
+     *
+     * @return the TableInfo
+     */
+    public TableInfo toTableInfo() {
+        TableInfo tableInfo = new TableInfo();
+        if (tableDesc != null) {
+            tableInfo.table_desc = new TableDesc(tableDesc);
+            tableInfo.table_desc.name = tableDesc.name;
+        }
+        if (headers != null) {
+            tableInfo.headers = new TableHeaders(headers);
+        }
+        if (withContent) {
+            TableContent content = new TableContent();
+            content.default_links = defaultLinks;
+            content.cells = withCells ? new ArrayList<>(rowCount) : null;
+            content.links = handlingLinks ? new ArrayList<>(rowCount) : null;
+            for (int row = 0; row < rowCount; row++) {
+                int size = getRowSize(row);
+                List<Object> rowValues = size < 0 ? null : new ArrayList<>(size);
+                List<DataLink> rowLinks = size < 0 ? null : new ArrayList<>(size);
+                for (int col = 0; col < size; col++) {
+                    TableColumn column = columns.get(col);
+                    rowValues.add(column.get(row));
+                    DataLink link = column.getLink(row);
+                    rowLinks.add(link == null ? null : new DataLink(link));
+                }
+                if (withCells)
+                    content.cells.add(rowValues);
+                if (handlingLinks)
+                    content.links.add(rowLinks);
+            }
+            tableInfo.content = content;
+        }
+        return tableInfo;
+    }
+
+    /**
+     * Computes the String representation of this ColumnarTable: a short description based upon TableDesc section.
+     * {@inheritDoc}
+     */
+    public String toString() {
+        String nameStr = getName();
+        nameStr = nameStr == null ? "null" : nameStr;
+
+        String titleStr = getTitle();
+        titleStr = titleStr == null ? "null" : titleStr;
+
+        String descStr = getDescription();
+        descStr = descStr == null ? "null" : descStr;
+
+        return "ColumnarTable name=" + nameStr + " title=" + titleStr + " desc=" + descStr;
+    }
+
+    /**
+     * @return true only if this table is managing a columns header
+     */
+    public boolean isHandlingColumnsHeader() {
+        return getColumnsHeader() != null;
+    }
+
+    /**
+     * @return true only if this table is managing a rows header
+     */
+    public boolean isHandlingRowsHeader() {
+        return getRowsHeader() != null;
+    }
+
+    /**
+     * Gets the description of the table
+     *
+     * @return the description or null
+     */
+    public String getDescription() {
+        return tableDesc != null ? tableDesc.desc : null;
+    }
+
+    /**
+     * Gets the title of the table
+     *
+     * @return the title or null
+     */
+    public String getTitle() {
+        return tableDesc != null ? tableDesc.title : null;
+    }
+
+    /**
+     * Gets the name of the table
+     *
+     * @return the name or null
+     */
+    public String getName() {
+        return tableDesc != null ? tableDesc.name : null;
+    }
+
+    /**
+     * Counts the number of rows in the table.
+     *
+     * @param countColumnsHeaderAsrow set to True if the columns header line shall be counted, false otherwise
+     * @return the number of rows
+     */
+    public int getRowCount(boolean countColumnsHeaderAsrow) {
+        int nbRows = rowCount;
+        if (countColumnsHeaderAsrow && isHandlingColumnsHeader())
+            nbRows++;
+        return nbRows;
+    }
+
+    /**
+     * Counts the number of columns in the table.
+     *
+     * @param countRowsHeaderAsColumn set to True if the rows header column is counted as a column itself -if managed-
+     * @return the number of columns based upon the first row of the content and countRowsHeaderAsColumn
+     */
+    public int getColumnCount(boolean countRowsHeaderAsColumn) {
+        int countCol = rowCount > 0 ? Math.max(0, getRowSize(0)) : 0;
+        if (countRowsHeaderAsColumn && isHandlingRowsHeader())
+            countCol++;
+        return countCol;
+    }
+
+    /**
+     * Gets the columns Header, if defined, or null
+     *
+     * @return the columns Header, if defined, or null
+     */
+    public Header getColumnsHeader() {
+        return headers != null ? headers.col : null;
+    }
+
+    /**
+     * Gets the rows Header, if defined, or null
+     *
+     * @return the rows Header, if defined, or null
+     */
+    public Header getRowsHeader() {
+        return headers != null ? headers.row : null;
+    }
+
+    /**
+     * Retrieves the header column index matching the value.
+     *
+     * @param value the value to look for
+     * @return index matched by value, if exists, or -1
+     * @throws IkatsException when column header is null
+     */
+    public int getIndexColumnHeader(String value) throws IkatsException {
+        return getHeaderIndex(getColumnsHeader(), value);
+    }
+
+    /**
+     * Retrieves the header row index matching the value.
+     *
+     * @param value the value to look for
+     * @return index matched by value, if exists, or -1
+     * @throws IkatsException when row header is null
+     */
+    public int getIndexRowHeader(String value) throws IkatsException {
+        return getHeaderIndex(getRowsHeader(), value);
+    }
+
+    /**
+     * Retrieves the index position of a header name in the header container: see {@link Header#indexOf(String)}.
+     */
+    private int getHeaderIndex(Header theHeader, String value) throws IkatsException {
+        if (value == null)
+            throw new IkatsException("Unexpected searching header item: value is null ");
+
+        if (theHeader == null || theHeader.data == null)
+            throw new IkatsException("Undefined header: impossible to search the index matching value=" + value);
+
+        return theHeader.indexOf(value);
+    }
+
+    /**
+     * Gets the column values (as strings): see {@link Table#getColumn(String)}.
+     *
+     * @param columnName name of the selected column: this criterion is in the column header.
+     * @return the content column below selected column header name.
+     * @throws ResourceNotFoundException when the column is not found
+     * @throws IkatsException            unexpected error occured
+     */
+    public List<String> getColumn(String columnName) throws IkatsException, ResourceNotFoundException {
+
+        return getColumn(columnName, String.class);
+    }
+
+    /**
+     * Gets the column values: see {@link Table#getColumn(String, Class)}.
+     *
+     * @param <T>          Type of the castingClass parameter
+     * @param columnName   name of the selected column: this criteria is in the column header.
+     * @param castingClass the converting class: String.class, TableElement.class in order to get data+link of each cell,
+     *                     or another class in order to cast the cell data value.
+     * @return the content column below selected column header name.
+     * @throws ResourceNotFoundException when the column is not found
+     * @throws IkatsException            unexpected error occured: for exemple ClassCastException error.
+     */
+    public <T> List<T> getColumn(String columnName, Class<T> castingClass)
+            throws IkatsException, ResourceNotFoundException {
+
+        try {
+            int matchedIndex = getIndexColumnHeader(columnName);
+            if (matchedIndex < 0) {
+                throw new ResourceNotFoundException("Unmatched getColumn(): in Columns header: no column named "
+                        + columnName + " of table " + this.toString());
+            }
+            return getColumn(matchedIndex, castingClass);
+        } catch (IkatsException e) {
+            throw new IkatsException("Failed getColumn(" + columnName + ") in table: " + this.toString(), e);
+        }
+    }
+
+    /**
+     * Gets the column values: see {@link Table#getColumn(int, Class)}.
+     *
+     * @param <T>          Type of the castingClass parameter
+     * @param index        of selected column. Note: index relative to the global table. If rows header exists: 0 points to rows
+     *                     header; otherwise 0 points to first column of the content.
+     * @param castingClass the converting class: String.class, TableElement.class in order to get data+link of each cell,
+     *                     or another class in order to cast the cell data value.
+     * @return the selected column values. Note the columns header part is not included. And if Rows header is selected:
+     * the first rows header element is not included.
+     * @throws IkatsException            cast error, or inconsistency error
+     * @throws ResourceNotFoundException when the column is not found
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getColumn(int index, Class<T> castingClass) throws IkatsException, ResourceNotFoundException {
+
+        if (index < 0) {
+            throw new ResourceNotFoundException("Unmatched getColumn(): in Columns header: no column at content index="
+                    + index + " of table " + this.toString());
+        }
+        try {
+            Header rowsHeader = getRowsHeader();
+            if ((rowsHeader != null) && index == 0) {
+                // Read the rows header and ignore its first element
+                if (castingClass == TableElement.class) {
+                    List<TableElement> matchedData = new ArrayList<>(rowsHeader.getDataWithLink());
+                    matchedData.remove(0);
+                    return (List<T>) matchedData;
+                }
+                List<Object> matchedData = new ArrayList<>(rowsHeader.getData());
+                matchedData.remove(0);
+                return TableManager.convertList(matchedData, castingClass);
+            }
+
+            int contentIndex = (rowsHeader == null) ? index : index - 1;
+            checkContent("getColumn at index=" + index);
+            if (contentIndex >= columns.size())
+                throw new IndexOutOfBoundsException("Failed: getColumn at index=" + index + ": out of the content");
+
+            TableColumn column = columns.get(contentIndex);
+            if (castingClass == TableElement.class) {
+                List<TableElement> matchedData = new ArrayList<>(rowCount);
+                for (int row = 0; row < rowCount; row++) {
+                    checkCell(row, contentIndex);
+                    matchedData.add(new TableElement(column.get(row), column.getLink(row)));
+                }
+                return (List<T>) matchedData;
+            }
+            List<Object> matchedData = new ArrayList<>(rowCount);
+            for (int row = 0; row < rowCount; row++) {
+                checkCell(row, contentIndex);
+                matchedData.add(column.get(row));
+            }
+            return TableManager.convertList(matchedData, castingClass);
+
+        } catch (IkatsException typeError) {
+            throw new IkatsException("Failed getColumn() in table: cast failed on column at content index=" + index
+                    + " in table " + this.toString(), typeError);
+        }
+    }
+
+    /**
+     * Gets the row values as String: see {@link Table#getRow(String)}.
+     *
+     * @param rowName name of the selected row: this criteria is in the row header.
+     * @return the content row selected by the rowName parameter. Note: the selected row does not contain the rows
+     * header part.
+     * @throws IkatsException            row header is undefined or unexpected error.
+     * @throws ResourceNotFoundException not row is selected by rowName.
+     */
+    public List<String> getRow(String rowName) throws IkatsException, ResourceNotFoundException {
+
+        return getRow(rowName, String.class);
+    }
+
+    /**
+     * Gets the row values: see {@link Table#getRow(String, Class)}.
+     *
+     * @param rowName      name of the row header item selecting the row values.
+     * @param castingClass class to which the values are converted
+     * @return the selected row values. Note that the rows header part is not included in the result.
+     * @throws IkatsException            inconsistency error detected
+     * @throws ResourceNotFoundException when the row is not found
+     */
+    public <T> List<T> getRow(String rowName, Class<T> castingClass) throws IkatsException, ResourceNotFoundException {
+
+        try {
+            int matchedIndex = getIndexRowHeader(rowName);
+            if (matchedIndex < 0) {
+                throw new ResourceNotFoundException(
+                        "Unmatched getRow(): in Rows header: no row named " + rowName + " of table " + this.toString());
+            }
+            return getRow(matchedIndex, castingClass);
+        } catch (IkatsException e) {
+            throw new IkatsException("Failed getRow(" + rowName + ") in table: " + this.toString(), e);
+        }
+    }
+
+    /**
+     * Gets the selected row values: see {@link Table#getRow(int, Class)}.
+     *
+     * @param index        index of selected row. Note: index is relative to the whole table. If column header exists: 0 points
+     *                     to columnHeaders; otherwise 0 points to first row of the content.
+     * @param castingClass class to which the values are converted, TableElement.class in order to get data+link of each
+     *                     cell.
+     * @return selected row values. Note the row header part is not included. And if Columns header is selected: first
+     * header element is not included.
+     * @throws IkatsException            row header is undefined
+     * @throws ResourceNotFoundException row is not found
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getRow(int index, Class<T> castingClass) throws IkatsException, ResourceNotFoundException {
+
+        if (index < 0) {
+            throw new ResourceNotFoundException("Unmatched getRow(): in Rows header: no row at content index="
+                    + index + " of table " + this.toString());
+        }
+        try {
+            Header columnsHeader = getColumnsHeader();
+            if ((columnsHeader != null) && index == 0) {
+                // Read the columns header and ignore its first element
+                if (castingClass == TableElement.class) {
+                    List<TableElement> matchedData = new ArrayList<>(columnsHeader.getDataWithLink());
+                    matchedData.remove(0);
+                    return (List<T>) matchedData;
+                }
+                List<Object> matchedData = new ArrayList<>(columnsHeader.getData());
+                matchedData.remove(0);
+                return TableManager.convertList(matchedData, castingClass);
+            }
+
+            int contentIndex = (columnsHeader == null) ? index : index - 1;
+            checkContent("getRow at index=" + index);
+            if (contentIndex >= rowCount)
+                throw new IndexOutOfBoundsException("Failed: getRow at index=" + index + ": out of the content");
+
+            int size = getRowSize(contentIndex);
+            if (size < 0)
+                return null;
+            if (castingClass == TableElement.class) {
+                List<TableElement> matchedData = new ArrayList<>(size);
+                for (int col = 0; col < size; col++) {
+                    TableColumn column = columns.get(col);
+                    matchedData.add(new TableElement(column.get(contentIndex), column.getLink(contentIndex)));
+                }
+                return (List<T>) matchedData;
+            }
+            List<Object> matchedData = new ArrayList<>(size);
+            for (int col = 0; col < size; col++) {
+                matchedData.add(columns.get(col).get(contentIndex));
+            }
+            return TableManager.convertList(matchedData, castingClass);
+
+        } catch (IkatsException typeError) {
+            throw new IkatsException(
+                    "Failed getRow() in row at content index=" + index + " in table " + this.toString(), typeError);
+        }
+    }
+
+    /**
+     * Computes the order of the rows sorted by the values of one column, as
+     * {@link Table#sortRowsByColumnValues(int, boolean)}, without reordering this table: the sorted table is obtained
+     * with {@link #gatherRows(int[], int, int)}.
+     *
+     * @param index   index of the sorting column, relative to the global table: if rows header exists, 0 points to
+     *                rows header; otherwise 0 points to first column of the content.
+     * @param reverse true for the descending order
+     * @return the sorted rows: the i-th sorted row is the content row of index rows[i]
+     * @throws ResourceNotFoundException when the column is not found
+     */
+    public int[] getSortedRows(int index, boolean reverse) throws ResourceNotFoundException {
+
+        if (rowCount == 0)
+            return new int[0];
+
+        Header rowsHeader = getRowsHeader();
+        int contentIndex = (rowsHeader == null) ? index : index - 1;
+        if (index < 0 || contentIndex >= columns.size()) {
+            throw new ResourceNotFoundException("Unmatched getSortedRows(): no column at index=" + index
+                    + " of table " + this.toString());
+        }
+
+        List<Object> sortingColumn;
+        if (rowsHeader != null && index == 0) {
+            // first element of rows header is not sorted if a columns header exists
+            int firstHeaderSorted = isHandlingColumnsHeader() ? 1 : 0;
+            sortingColumn = rowsHeader.data.subList(firstHeaderSorted, firstHeaderSorted + rowCount);
+        } else {
+            TableColumn column = columns.get(contentIndex);
+            sortingColumn = new ArrayList<>(rowCount);
+            for (int row = 0; row < rowCount; row++) {
+                sortingColumn.add(column.get(row));
+            }
+        }
+        return TableRowsSorter.sortedPermutation(sortingColumn, reverse);
+    }
+
+    /**
+     * Creates a new table from some rows of this table, gathered column by column: the row i of the new table is the
+     * row rows[from + i] of this table, with its rows header item. The description, the columns header and the links
+     * are kept.
+     *
+     * @param rows the content row indexes
+     * @param from the position of the first gathered row index
+     * @param to   the position after the last gathered row index
+     * @return the new table
+     */
+    public ColumnarTable gatherRows(int[] rows, int from, int to) {
+
+        // the rows header is gathered below, instead of being copied
+        TableInfo tableInfo = new TableInfo();
+        tableInfo.table_desc = tableDesc;
+        Header rowsHeader = getRowsHeader();
+        if (headers != null) {
+            tableInfo.headers = new TableHeaders();
+            tableInfo.headers.col = headers.col;
+            if (rowsHeader != null) {
+                tableInfo.headers.row = new Header();
+                tableInfo.headers.row.default_links = rowsHeader.default_links;
+            }
+        }
+        ColumnarTable gathered = new ColumnarTable(tableInfo);
+
+        if (rowsHeader != null) {
+            // first element of rows header is kept if a columns header exists
+            int firstHeaderGathered = isHandlingColumnsHeader() ? 1 : 0;
+            Header gatheredHeader = gathered.getRowsHeader();
+            if (rowsHeader.data != null) {
+                gatheredHeader.data = gatherHeaderItems(rowsHeader.data, firstHeaderGathered, rows, from, to);
+            }
+            if (rowsHeader.links != null) {
+                gatheredHeader.links = gatherHeaderItems(rowsHeader.links, firstHeaderGathered, rows, from, to);
+            }
+        }
+
+        gathered.withContent = withContent;
+        gathered.withCells = withCells;
+        gathered.handlingLinks = handlingLinks;
+        gathered.defaultLinks = defaultLinks;
+        for (TableColumn column : columns) {
+            gathered.columns.add(column.gather(rows, from, to));
+        }
+        gathered.rowCount = to - from;
+        if (!raggedRowSizes.isEmpty()) {
+            for (int i = from; i < to; i++) {
+                Integer size = raggedRowSizes.get(rows[i]);
+                if (size != null)
+                    gathered.raggedRowSizes.put(i - from, size);
+            }
+        }
+        return gathered;
+    }
+
+    /**
+     * Copies this table: the links are copied, the values are assumed immutable. See
+     * {@link #gatherRows(int[], int, int)}.
+     *
+     * @return the copy
+     */
+    ColumnarTable copy() {
+        int[] rows = new int[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            rows[row] = row;
+        }
+        ColumnarTable copied = gatherRows(rows, 0, rowCount);
+        Header rowsHeader = copied.getRowsHeader();
+        if (rowsHeader != null && rowsHeader.links != null) {
+            rowsHeader.links = TableInfo.copyListOfLinks(rowsHeader.links);
+        }
+        for (TableColumn column : copied.columns) {
+            column.copyLinks();
+        }
+        return copied;
+    }
+
+    /**
+     * Estimates the heap size of this table: the columns, according to the storage of their type, and the headers.
+     * Used to bound the cache of the decoded tables, see {@link TableCache}.
+     *
+     * @return the estimated size in bytes
+     */
+    long estimateByteSize() {
+        long bytes = 0;
+        for (TableColumn column : columns) {
+            bytes += column.estimateByteSize();
+        }
+        if (headers != null) {
+            bytes += estimateByteSize(headers.col) + estimateByteSize(headers.row);
+        }
+        // ragged rows: a map entry and two boxed integers each
+        return bytes + raggedRowSizes.size() * 3 * TableColumn.OBJECT_BYTES;
+    }
+
+    private static long estimateByteSize(Header header) {
+        long bytes = 0;
+        if (header != null && header.data != null) {
+            for (Object item : header.data) {
+                bytes += TableColumn.estimateValueByteSize(item);
+            }
+        }
+        if (header != null && header.links != null) {
+            bytes += header.links.size() * (TableColumn.REFERENCE_BYTES + TableColumn.OBJECT_BYTES);
+        }
+        return bytes;
+    }
+
+    /**
+     * Gathers the items of a rows header: the first items are kept, then the item of each gathered row, null when
+     * the header is shorter than the content.
+     */
+    private static <T> List<T> gatherHeaderItems(List<T> items, int firstGathered, int[] rows, int from, int to) {
+        List<T> gatheredItems = new ArrayList<>(firstGathered + to - from);
+        gatheredItems.addAll(items.subList(0, Math.min(firstGathered, items.size())));
+        for (int i = from; i < to; i++) {
+            int position = firstGathered + rows[i];
+            gatheredItems.add(position < items.size() ? items.get(position) : null);
+        }
+        return gatheredItems;
+    }
+
+    /**
+     * Initializes the links configuration, when some links are required: see
+     * {@link Table#enableLinks(boolean, DataLink, boolean, DataLink, boolean, DataLink)}.
+     *
+     * @param enabledOnColHeader       True enables the links on the column header
+     * @param defaultPropertyColHeader the DataLink providing default values for column links
+     * @param enabledOnRowHeader       enables the links on the row header
+     * @param defaultPropertyRowHeader the DataLink providing default values for row links
+     * @param enabledOnContent         enables the links on the content
+     * @param defaultPropertyContent   the DataLink providing default values for content links
+     */
+    public void enableLinks(boolean enabledOnColHeader, DataLink defaultPropertyColHeader, boolean enabledOnRowHeader,
+                            DataLink defaultPropertyRowHeader, boolean enabledOnContent, DataLink defaultPropertyContent) {
+        Header columnsHeader = getColumnsHeader();
+        if (columnsHeader != null && enabledOnColHeader)
+            columnsHeader.enableLinks(defaultPropertyColHeader);
+        Header rowsHeader = getRowsHeader();
+        if (rowsHeader != null && enabledOnRowHeader)
+            rowsHeader.enableLinks(defaultPropertyRowHeader);
+        if (withContent && enabledOnContent && !handlingLinks) {
+            handlingLinks = true;
+            defaultLinks = defaultPropertyContent;
+        }
+    }
+
+    /**
+     * Adds a new row in the table, without row header information
+     *
+     * @param rowData required list of row data values. Accepted types for T: immutable Object (String, Double, Boolean ...)
+     *                or TableElement.
+     * @return number of rows in content part, i.e ignoring optional columns header.
+     * @throws IkatsException consistency/unexpected error occurred
+     */
+    @SuppressWarnings("unchecked")
+    public <T> int appendRow(List<T> rowData) throws IkatsException {
+
+        return appendRowInternal(null, (List<Object>) rowData);
+    }
+
+    /**
+     * Adds a new row in the table, with row header value.
+     *
+     * @param rowHeaderData optional row header data. null implies that row header will be ignored, not completed. Accepted types
+     *                      for H: immutable Object (String, Double, Boolean ...) or TableElement.
+     * @param rowData       required list of row data values. Accepted types for T: immutable Object (String, Double, Boolean ...)
+     *                      or TableElement grouping data+link or else DataLink defining one link, without data info.
+     * @return number of rows in content part, i.e ignoring optional columns header.
+     * @throws IkatsException consistency/unexpected error occurred
+     */
+    @SuppressWarnings("unchecked")
+    public <H, T> int appendRow(H rowHeaderData, List<T> rowData) throws IkatsException {
+
+        return appendRowInternal(rowHeaderData, (List<Object>) rowData);
+    }
+
+    /**
+     * internal implementation of service appending a row: see {@link Table#appendRow(Object, List)}
+     */
+    private int appendRowInternal(Object rowHeaderData, List<Object> rowData) throws IkatsException {
+
+        if (rowHeaderData != null && !isHandlingRowsHeader()) {
+            throw new IkatsException(
+                    "Cannot add row header: " + rowHeaderData.toString() + "not managing rows header");
+        }
+        List<Object> values = null;
+        List<DataLink> links = null;
+        if ((rowData != null) && !rowData.isEmpty()) {
+            checkContent("appendRow");
+            List<TableElement> elements = TableElement.encodeElements(rowData);
+            values = new ArrayList<>(elements.size());
+            links = handlingLinks ? new ArrayList<>(elements.size()) : null;
+            int posCol = 0;
+            for (TableElement elem : elements) {
+                values.add(elem.data);
+                if (handlingLinks) {
+                    links.add(elem.link);
+                } else if (elem.link != null) {
+                    throw new IkatsException("Failed to add new row at " + rowCount + " column=" + posCol
+                            + ": links not managed but got " + elem.link);
+                }
+                posCol++;
+            }
+        }
+
+        // the row is checked before modifying the table
+        if (rowHeaderData != null)
+            getRowsHeader().addItem(rowHeaderData);
+        if (values != null)
+            appendContentRow(values, links);
+        return rowCount;
+    }
+
+    /**
+     * Appends a row to the content, without check: the columns are created or converted when needed.
+     *
+     * @param values the values of the row, null for a null row
+     * @param links  the links of the row, optional
+     */
+    void appendContentRow(List<Object> values, List<DataLink> links) {
+        int size = values == null ? -1 : values.size();
+        for (int col = columns.size(); col < size; col++) {
+            // new column: undefined in the previous rows
+            TableColumn column = TableColumn.forValue(null);
+            for (int row = 0; row < rowCount; row++) {
+                column.add(null);
+                if (!raggedRowSizes.containsKey(row))
+                    raggedRowSizes.put(row, col);
+            }
+            columns.add(column);
+        }
+
+        for (int col = 0; col < columns.size(); col++) {
+            Object value = col < size ? values.get(col) : null;
+            TableColumn column = columns.get(col);
+            if (!column.accepts(value)) {
+                column = column.convertFor(value);
+                columns.set(col, column);
+            }
+            column.add(value);
+            if (links != null && col < size && col < links.size())
+                column.setLink(rowCount, links.get(col));
+        }
+        if (size != columns.size())
+            raggedRowSizes.put(rowCount, size);
+        rowCount++;
+    }
+
+    /**
+     * Gets the columns of the content, for the engines working on the column values, as {@link TableQueryEngine}. The
+     * cells missing in the ragged rows are undefined values of the columns.
+     *
+     * @return the columns, not to be modified
+     */
+    List<TableColumn> getContentColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * Sets the links of the content: replaces the previous ones
+     *
+     * @param links the links by row, consistent with the content. null when the content is not managing links.
+     */
+    void setContentLinks(List<List<DataLink>> links) {
+        handlingLinks = links != null;
+        for (int col = 0; col < columns.size(); col++) {
+            TableColumn column = columns.get(col);
+            for (int row = 0; row < rowCount; row++) {
+                List<DataLink> rowLinks = links != null && row < links.size() ? links.get(row) : null;
+                column.setLink(row, rowLinks != null && col < rowLinks.size() ? rowLinks.get(col) : null);
+            }
+        }
+    }
+
+    /**
+     * Gets the size of a content row
+     *
+     * @param row the row index
+     * @return the number of values of the row, -1 for a null row
+     */
+    private int getRowSize(int row) {
+        Integer size = raggedRowSizes.get(row);
+        return size != null ? size : columns.size();
+    }
+
+    private void checkContent(String message) throws IkatsException {
+        if (!withContent || !withCells)
+            throw new IkatsException("Failed: " + message + " undefined cells");
+    }
+
+    private void checkCell(int row, int col) throws IkatsException {
+        int size = getRowSize(row);
+        if (size < 0)
+            throw new IkatsException("Failed: getColumn at row=" + row + " : row is null");
+        if (col >= size)
+            throw new IkatsException("Failed: getColumn at row=" + row + " : list size < (index + 1) with index=" + col);
+    }
+}
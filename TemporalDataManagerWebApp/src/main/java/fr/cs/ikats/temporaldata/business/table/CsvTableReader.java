@@ -0,0 +1,216 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.temporaldata.business.table;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import fr.cs.ikats.temporaldata.exception.ImportException;
+import fr.cs.ikats.temporaldata.utils.CsvReader;
+
+/**
+ * Reader of a CSV table, streaming the records straight into the raw values of the storage format: the Table is not
+ * built, and only one row group of records is held in memory, besides the encoded blocks.
+ * <p>
+ * The first line of the CSV is the columns header, the first column is the rows header. The values are read as
+ * Strings. The values of the key column must be unique: they are checked with a set of 64-bits fingerprints, and
+ * the keys sharing a fingerprint are checked from the encoded key column, once the table is read.
+ */
+class CsvTableReader {
+
+    /**
+     * Separator of the CSV fields
+     */
+    static final char SEPARATOR = ',';
+
+    private final TableStorageCodec codec;
+
+    /**
+     * Constructor
+     *
+     * @param codec the codec of the raw values
+     */
+    CsvTableReader(TableStorageCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * Reads the CSV table into the encoded raw values, including the columns header: the top left corner holds the
+     * name of the columns header followed by "|", as written by {@link TableManager#tableInfoToTableEntity(TableInfo)}
+     * for an undefined name of the rows header.
+     *
+     * @param csv       the CSV content
+     * @param fileName  the name of the CSV file, for the errors
+     * @param keyColumn the name of the key column, in the header
+     * @param catalog   optional builder of the catalog, fed with the raw rows
+     * @return the encoded raw values
+     * @throws ImportException the key column is not found in the header, a record does not fit the header size, or
+     *                         duplicate key
+     * @throws IOException     error reading the CSV content
+     */
+    byte[] read(InputStream csv, String fileName, String keyColumn, TableCatalogBuilder catalog)
+            throws ImportException, IOException {
+
+        CsvReader reader = new CsvReader(new InputStreamReader(csv), SEPARATOR);
+
+        // consume header to retrieve column index of unique identifier in the table
+        List<String> columnHeaders = reader.readRecord();
+        int keyIndex = -1;
+        for (int i = 0; columnHeaders != null && i < columnHeaders.size(); i++) {
+            if (!columnHeaders.get(i).isEmpty() && columnHeaders.get(i).equals(keyColumn)) {
+                keyIndex = i;
+                break;
+            }
+        }
+        if (keyIndex == -1) {
+            throw new ImportException("Row name not found in csv file header : " + keyColumn);
+        }
+
+        int nbCols = columnHeaders.size();
+        FingerprintSet keys = new FingerprintSet();
+        Set<Long> sharedFingerprints = new HashSet<>();
+        try (TableStorageCodec.ValuesEncoder encoder = codec.newValuesEncoder(nbCols)) {
+            List<Object> header = new ArrayList<>(columnHeaders);
+            header.set(0, header.get(0) + "|");
+            encoder.addRow(header);
+            if (catalog != null) {
+                catalog.addRow(header);
+            }
+
+            List<String> record;
+            while ((record = reader.readRecord()) != null) {
+                // skip empty lines
+                if (record.isEmpty()) {
+                    continue;
+                }
+                // check table content consistency
+                if (record.size() != nbCols) {
+                    throw new ImportException("CSV line " + reader.getLineNumber()
+                            + " : length does not fit headers size in file " + fileName);
+                }
+                long fingerprint = fingerprint(record.get(keyIndex));
+                if (!keys.add(fingerprint)) {
+                    sharedFingerprints.add(fingerprint);
+                }
+                List<Object> row = new ArrayList<>(record);
+                encoder.addRow(row);
+                if (catalog != null) {
+                    catalog.addRow(row);
+                }
+            }
+
+            byte[] rawValues = encoder.finish();
+            if (!sharedFingerprints.isEmpty()) {
+                checkDuplicates(rawValues, keyIndex, keyColumn, sharedFingerprints);
+            }
+            return rawValues;
+        }
+    }
+
+    /**
+     * Checks the keys sharing a fingerprint, from the encoded key column
+     *
+     * @throws ImportException duplicate key: the first one in the order of the rows
+     */
+    private void checkDuplicates(byte[] rawValues, int keyIndex, String keyColumn, Set<Long> sharedFingerprints)
+            throws ImportException, IOException {
+        Set<Object> checkedKeys = new HashSet<>();
+        List<Object> duplicates = new ArrayList<>(1);
+        codec.scanValues(rawValues, new int[]{keyIndex}, 1, Integer.MAX_VALUE, row -> {
+            Object key = row.get(0);
+            if (duplicates.isEmpty() && sharedFingerprints.contains(fingerprint((String) key))
+                    && !checkedKeys.add(key)) {
+                duplicates.add(key);
+            }
+        });
+        if (!duplicates.isEmpty()) {
+            throw new ImportException("Duplicate found in csv file: " + keyColumn + " = " + duplicates.get(0));
+        }
+    }
+
+    /**
+     * 64-bits fingerprint of the value: FNV-1a hash of the chars, mixed by the finalizer of MurmurHash3. Never 0.
+     */
+    static long fingerprint(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Open addressing set of fingerprints, stored in a long array: 0 marks the free slots.
+     */
+    static class FingerprintSet {
+
+        private long[] slots = new long[1024];
+        private int size;
+
+        /**
+         * Adds the fingerprint
+         *
+         * @param fingerprint the fingerprint, not 0
+         * @return false when the fingerprint is already in the set
+         */
+        boolean add(long fingerprint) {
+            int mask = slots.length - 1;
+            int slot = (int) fingerprint & mask;
+            while (slots[slot] != 0) {
+                if (slots[slot] == fingerprint) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = fingerprint;
+            if (++size > slots.length / 2) {
+                grow();
+            }
+            return true;
+        }
+
+        /**
+         * Doubles the capacity of the set
+         */
+        private void grow() {
+            long[] previous = slots;
+            slots = new long[previous.length * 2];
+            int mask = slots.length - 1;
+            for (long fingerprint : previous) {
+                if (fingerprint != 0) {
+                    int slot = (int) fingerprint & mask;
+                    while (slots[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    slots[slot] = fingerprint;
+                }
+            }
+        }
+    }
+}
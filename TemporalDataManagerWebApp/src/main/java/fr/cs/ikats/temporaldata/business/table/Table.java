@@ -17,11 +17,7 @@
 package fr.cs.ikats.temporaldata.business.table;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import fr.cs.ikats.temporaldata.business.table.TableInfo.DataLink;
 import fr.cs.ikats.temporaldata.business.table.TableInfo.Header;
@@ -225,7 +221,7 @@ public class Table {
      * Retrieves the index position of a header name in the header container (theHeader).
      * <p>
      * Note: the value is compared to theHeader.data.get(x).toString(): this enables to manage also header data types
-     * different from String.
+     * different from String. The search is using the index of theHeader: see {@link Header#indexOf(String)}.
      *
      * @param theHeader Header is the header items container, where is searched the value.
      * @param value     Name of the searched header item (item: column or row) to get index
@@ -238,15 +234,8 @@ public class Table {
 
         if (theHeader == null || theHeader.data == null)
             throw new IkatsException("Undefined header: impossible to search the index matching value=" + value);
-        int position = 0;
 
-        for (Object headerValue : theHeader.data) {
-            if (headerValue != null && headerValue.toString().equals(value)) {
-                return position;
-            }
-            position++;
-        }
-        return -1;
+        return theHeader.indexOf(value);
     }
 
     /**
@@ -776,6 +765,10 @@ public class Table {
      * If a row header is managed, it is sorted the same way.
      * <p>
      * Assumed: the column named columnHeaderName ought to have homogeneous class on items.
+     * <p>
+     * When all the values of the column are numbers, they are sorted in numeric order, otherwise their String
+     * conversions are sorted in natural order: see {@link fr.cs.ikats.lang.NaturalOrderComparator}. The sort is
+     * stable.
      *
      * @param index index of the column: retrieved from getColumn service.
      * @throws IkatsException            inconsistency detected
@@ -787,75 +780,41 @@ public class Table {
         if (getContentData() == null)
             return;
 
-        // we will apply natural sort on values converted to String
-        List<String> sortingColumn = getColumn(index, String.class);
-
-        // associates original indexes to their sorting value
-        //
-        Map<Integer, String> mapIndexToSortingValue = new HashMap<Integer, String>();
-
-        // ... and initializes indexes: the list of indexes, before it is
-        // sorted differently ...
-        List<Integer> indexes = new ArrayList<>();
-        int originalIndex = 0;
-        for (String sortingValue : sortingColumn) {
-            Integer currentIndex = originalIndex;
-            String currentVal = sortingValue == null ? "" : sortingValue;
-            mapIndexToSortingValue.put(currentIndex, currentVal);
-            indexes.add(currentIndex);
-            originalIndex++;
+        if (index < 0) {
+            throw new ResourceNotFoundException(
+                    "Unmatched sortRowsByColumnValues(): no column at content index=" + index + " of table "
+                            + this.toString());
         }
 
-        Comparator<Integer> compareRows = TableManager.getIndexComparator(mapIndexToSortingValue, reverse);
-
-        // ... and apply the reordering on the list indexes
-        Collections.sort(indexes, compareRows);
-
-        List<List<Object>> theOriginalRows = tableInfo.content.cells;
-        List<List<Object>> theReorderedRows = new ArrayList<>();
-
-        List<List<DataLink>> theOriginalRowLinks = tableInfo.content.links;
-        List<List<DataLink>> theReorderedRowLinks = theOriginalRowLinks != null ? new ArrayList<>() : null;
-
-        List<Object> theOriginalRowsHeaderData = isHandlingRowsHeader() ? getRowsHeader().data : null;
-        List<Object> theReorderedRowsHeaderData = theOriginalRowsHeaderData != null ? new ArrayList<>() : null;
-
-        List<DataLink> theOriginalRowsHeaderLinks = isHandlingRowsHeader() ? getRowsHeader().links : null;
-        List<DataLink> theReorderedRowsHeaderLinks = theOriginalRowsHeaderLinks != null ? new ArrayList<>() : null;
-
         // first element (data or link) of rows header is not sorted if a
         // columns header exists
         // => save this in integer firstHeaderSorted
         int firstHeaderSorted = isHandlingColumnsHeader() ? 1 : 0;
+        int rowCount = tableInfo.content.cells.size();
 
-        // inserts fixed elements of rows header (if required)
-        if ((theReorderedRowsHeaderLinks != null) && (firstHeaderSorted == 1))
-            theReorderedRowsHeaderLinks.add(theOriginalRowsHeaderLinks.get(0));
-        if ((theReorderedRowsHeaderData != null) && (firstHeaderSorted == 1))
-            theReorderedRowsHeaderData.add(theOriginalRowsHeaderData.get(0));
-
-        // ... and then rebuild each reordered collection ...
-        for (Integer reorderedIndex : indexes) {
-            theReorderedRows.add(theOriginalRows.get(reorderedIndex));
-
-            if (theReorderedRowLinks != null)
-                theReorderedRowLinks.add(theOriginalRowLinks.get(reorderedIndex));
-
-            if (theReorderedRowsHeaderData != null)
-                theReorderedRowsHeaderData.add(theOriginalRowsHeaderData.get(reorderedIndex + firstHeaderSorted));
-
-            if (theReorderedRowsHeaderLinks != null)
-                theReorderedRowsHeaderLinks.add(theOriginalRowsHeaderLinks.get(reorderedIndex + firstHeaderSorted));
+        // the sorting values: from the rows header or from the content
+        List<Object> sortingColumn;
+        Header rowsHeader = getRowsHeader();
+        if (rowsHeader != null && index == 0) {
+            sortingColumn = rowsHeader.data.subList(firstHeaderSorted, firstHeaderSorted + rowCount);
+        } else {
+            int contentIndex = (rowsHeader == null) ? index : index - 1;
+            sortingColumn = getContent().getColumnData(contentIndex);
         }
 
-        // ... done ! => update the internal model
-        tableInfo.content.cells = theReorderedRows;
-        tableInfo.content.links = theReorderedRowLinks;
-        if (theReorderedRowsHeaderData != null)
-            tableInfo.headers.row.data = theReorderedRowsHeaderData;
-        if (theReorderedRowsHeaderLinks != null)
-            tableInfo.headers.row.links = theReorderedRowsHeaderLinks;
-
+        // computes the reordering of the rows: see TableRowsSorter about the sort keys ...
+        int[] permutation = TableRowsSorter.sortedPermutation(sortingColumn, reverse);
+
+        // ... and apply it on each collection, in place
+        TableRowsSorter.permute(tableInfo.content.cells, 0, permutation);
+        if (tableInfo.content.links != null)
+            TableRowsSorter.permute(tableInfo.content.links, 0, permutation);
+        if (rowsHeader != null) {
+            TableRowsSorter.permute(rowsHeader.data, firstHeaderSorted, permutation);
+            if (rowsHeader.links != null)
+                TableRowsSorter.permute(rowsHeader.links, firstHeaderSorted, permutation);
+            rowsHeader.resetIndex();
+        }
     }
 
     /**
@@ -1091,6 +1050,62 @@ public class Table {
         insertColumn(columnLocation, (List<Object>) columnData);
     }
 
+    /**
+     * Inserts several columns and their headers, with one pass over the rows, just before the column matched by the
+     * header location specified by beforeColHeader, or at the right of the content part when beforeColHeader is null.
+     *
+     * @param beforeColHeader the header value defining the insert location: String value compared to each header item as
+     *                        String. null to append the columns.
+     * @param colHeadersData  the inserted columns header data, in their final order. null items are not accepted.
+     * @param columnsData     the inserted columns data, in the same order. T type is expected to be an immutable Object
+     *                        (simpler case: String, Integer, Double, ...) or TableElement, or else DataLink.
+     * @throws IkatsException            inconsistency error, for instance: no columns header managed, or bad value for one
+     *                                   parameter, or insertion forbidden before the rows header.
+     * @throws ResourceNotFoundException column location unmatched by beforeColHeader
+     */
+    public <H, T> void insertColumns(H beforeColHeader, List<H> colHeadersData, List<List<T>> columnsData)
+            throws IkatsException, ResourceNotFoundException {
+
+        if (!isHandlingColumnsHeader())
+            throw new IkatsException("Cannot insert columns using columns header: this table is without columns header");
+
+        if (colHeadersData.size() != columnsData.size() || colHeadersData.contains(null))
+            throw new IkatsException("Cannot insert columns: expected one defined header for each of the "
+                    + columnsData.size() + " columns, got " + colHeadersData);
+
+        int insertedIndexColHeader = -1;
+        int columnLocation = -1;
+        if (beforeColHeader != null) {
+            String headerLocationValue = beforeColHeader.toString();
+            insertedIndexColHeader = getIndexColumnHeader(headerLocationValue);
+            if (insertedIndexColHeader == -1)
+                throw new ResourceNotFoundException("Unmatched column for column header=" + headerLocationValue);
+
+            columnLocation = insertedIndexColHeader;
+            if (isHandlingRowsHeader()) {
+                if (insertedIndexColHeader == 0)
+                    throw new IkatsException(
+                            "Forbidden insertion: a column before the rows header =>  failed insertColumns() for beforeColHeader="
+                                    + headerLocationValue);
+                columnLocation--;
+            }
+        }
+
+        List<List<TableElement>> encodedColumns = new ArrayList<>(columnsData.size());
+        for (List<T> columnData : columnsData) {
+            encodedColumns.add(TableElement.encodeElements((List<Object>) columnData));
+        }
+        getContent().insertColumns(columnLocation, encodedColumns);
+
+        for (int i = 0; i < colHeadersData.size(); i++) {
+            if (insertedIndexColHeader == -1) {
+                getColumnsHeader().addItem(colHeadersData.get(i));
+            } else {
+                getColumnsHeader().insertItem(insertedIndexColHeader + i, TableElement.encodeElement(colHeadersData.get(i)));
+            }
+        }
+    }
+
     /**
      * Inserts a new column just before the content column at specified content index.
      *
@@ -0,0 +1,212 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.temporaldata.business.table;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of the decoded tables, bounded by their estimated size in bytes, used by {@link TableManager}.
+ * <p>
+ * A table is cached with the id and the version of the stored table: it is served only while the stored table has
+ * the same id and version, so that a table deleted and created again, appended or replaced, even by another process,
+ * is decoded again. The writes through the TableManager also invalidate the cached table.
+ * <p>
+ * The cached tables are shared: they must not be modified.
+ */
+class TableCache {
+
+    /**
+     * default maximum size of the cached tables, in bytes
+     */
+    static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    /**
+     * A cached table, with the id and version of the stored table it was decoded from
+     */
+    private static final class Entry {
+        private final int id;
+        private final int version;
+        private final ColumnarTable table;
+        private final long byteSize;
+
+        Entry(int id, int version, ColumnarTable table, long byteSize) {
+            this.id = id;
+            this.version = version;
+            this.table = table;
+            this.byteSize = byteSize;
+        }
+    }
+
+    /**
+     * table name => cached table, in access order
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long maxBytes;
+
+    private long byteSize = 0;
+
+    private long hitCount = 0;
+
+    private long missCount = 0;
+
+    private long evictionCount = 0;
+
+    /**
+     * @param maxBytes maximum size of the cached tables, in bytes: 0 disables the cache
+     */
+    TableCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return true when the tables may be cached
+     */
+    synchronized boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Sets the maximum size of the cached tables: the least recently used tables are evicted when the cache exceeds
+     * the new size.
+     *
+     * @param maxBytes maximum size of the cached tables, in bytes: 0 disables the cache
+     */
+    synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    /**
+     * @param name     the table name
+     * @param id       the id of the stored table
+     * @param version  the version of the stored table
+     * @return the cached table, or null when the table is not cached, or cached with another id or version
+     */
+    synchronized ColumnarTable get(String name, int id, int version) {
+        Entry entry = entries.get(name);
+        if (entry != null && entry.id == id && entry.version == version) {
+            hitCount++;
+            return entry.table;
+        }
+        if (entry != null) {
+            // outdated
+            remove(name);
+        }
+        missCount++;
+        return null;
+    }
+
+    /**
+     * Cache a table decoded from the database: ignored when the table is larger than the cache.
+     *
+     * @param name     the table name
+     * @param id       the id of the stored table
+     * @param version  the version of the stored table
+     * @param table    the decoded table
+     */
+    synchronized void put(String name, int id, int version, ColumnarTable table) {
+        remove(name);
+        if (maxBytes <= 0) {
+            return;
+        }
+        long tableByteSize = table.estimateByteSize();
+        if (tableByteSize > maxBytes) {
+            return;
+        }
+        entries.put(name, new Entry(id, version, table, tableByteSize));
+        byteSize += tableByteSize;
+        evict();
+    }
+
+    /**
+     * Remove the cached table
+     *
+     * @param name the table name
+     */
+    synchronized void invalidate(String name) {
+        remove(name);
+    }
+
+    /**
+     * Remove all the tables, and reset the counters
+     */
+    synchronized void clear() {
+        entries.clear();
+        byteSize = 0;
+        hitCount = 0;
+        missCount = 0;
+        evictionCount = 0;
+    }
+
+    /**
+     * @return the number of cached tables
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the estimated size of the cached tables, in bytes
+     */
+    synchronized long getByteSize() {
+        return byteSize;
+    }
+
+    /**
+     * @return the number of reads served by the cache
+     */
+    synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of reads not served by the cache
+     */
+    synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the number of tables evicted to respect the maximum size
+     */
+    synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    private void remove(String name) {
+        Entry entry = entries.remove(name);
+        if (entry != null) {
+            byteSize -= entry.byteSize;
+        }
+    }
+
+    /**
+     * Evicts the least recently used tables until the maximum size is respected
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (byteSize > maxBytes && eldest.hasNext()) {
+            byteSize -= eldest.next().getValue().byteSize;
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+}
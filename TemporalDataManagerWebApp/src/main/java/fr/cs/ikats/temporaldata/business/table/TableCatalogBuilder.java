@@ -0,0 +1,172 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.temporaldata.business.table;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import fr.cs.ikats.table.AbstractTableEntity;
+
+/**
+ * Builds the catalog of a stored table from its raw rows, as they are written into the raw values: the first raw row
+ * is the columns header when defined, and the first raw column is the rows header when defined. See the catalog
+ * properties of {@link AbstractTableEntity}.
+ * <p>
+ * The rows are added while they are encoded, so that the catalog is computed without reading the raw values again.
+ */
+class TableCatalogBuilder {
+
+    private final boolean colHeader;
+    private final boolean rowHeader;
+
+    private int rawRowCount;
+    private int columnCount;
+    private final List<String> columnNames = new ArrayList<>();
+
+    /**
+     * Class of the values of each column: null while the column has no value, Object for mixed classes
+     */
+    private final List<Class<?>> columnClasses = new ArrayList<>();
+
+    /**
+     * @param colHeader true when the first raw row is the columns header
+     * @param rowHeader true when the first raw column is the rows header
+     */
+    TableCatalogBuilder(boolean colHeader, boolean rowHeader) {
+        this.colHeader = colHeader;
+        this.rowHeader = rowHeader;
+    }
+
+    /**
+     * Adds the next raw row
+     *
+     * @param row the raw row, possibly null
+     */
+    void addRow(List<?> row) {
+        int size = row == null ? 0 : row.size();
+        columnCount = Math.max(columnCount, size);
+
+        if (colHeader && rawRowCount == 0) {
+            for (int col = 0; col < size; col++) {
+                Object name = row.get(col);
+                if (col == 0 && rowHeader && name != null) {
+                    // top corner left: columns header value before "|"
+                    name = name.toString().split("\\|", -1)[0];
+                }
+                columnNames.add(name == null ? null : name.toString());
+            }
+        } else {
+            for (int col = 0; col < size; col++) {
+                while (columnClasses.size() <= col) {
+                    columnClasses.add(null);
+                }
+                Object value = row.get(col);
+                if (value != null) {
+                    Class<?> previous = columnClasses.get(col);
+                    if (previous == null) {
+                        columnClasses.set(col, value.getClass());
+                    } else if (previous != value.getClass()) {
+                        columnClasses.set(col, Object.class);
+                    }
+                }
+            }
+        }
+        rawRowCount++;
+    }
+
+    /**
+     * Sets the catalog properties of the entity
+     *
+     * @param entity the table entity, or its summary
+     * @param raws   the stored raw values and raw datalinks, then the raw values of the appended row groups
+     */
+    void applyTo(AbstractTableEntity entity, byte[]... raws) {
+        entity.setRowCount(getContentRowCount());
+        entity.setColumnCount(columnCount);
+        entity.setColumnNames(columnNames);
+
+        List<String> columnTypes = new ArrayList<>(columnCount);
+        for (int col = 0; col < columnCount; col++) {
+            columnTypes.add(getColumnType(col));
+        }
+        entity.setColumnTypes(columnTypes);
+
+        long byteSize = 0;
+        CRC32 crc = new CRC32();
+        for (byte[] raw : raws) {
+            if (raw != null) {
+                byteSize += raw.length;
+                crc.update(raw, 0, raw.length);
+            }
+        }
+        entity.setByteSize(byteSize);
+        entity.setChecksum(String.format("%08x", crc.getValue()));
+    }
+
+    /**
+     * Merges the rows added to this builder, written in one row group, into the defined catalog of the entity. The
+     * names of the columns are kept, the types of the columns are widened, and the checksum is chained with the raw
+     * values of the row group.
+     *
+     * @param entity        the table entity, or its summary, with a defined catalog
+     * @param replacedRows  number of content rows replaced by the added rows, 0 when they are appended
+     * @param replacedBytes size in bytes of the raw values replaced by rawValues, 0 when they are appended
+     * @param rawValues     the raw values of the row group
+     */
+    void mergeInto(AbstractTableEntity entity, int replacedRows, long replacedBytes, byte[] rawValues) {
+        entity.setRowCount(entity.getRowCount() - replacedRows + getContentRowCount());
+        entity.setColumnCount(Math.max(entity.getColumnCount(), columnCount));
+
+        List<String> columnTypes = entity.getColumnTypes();
+        for (int col = 0; col < columnCount; col++) {
+            String added = getColumnType(col);
+            if (col >= columnTypes.size()) {
+                columnTypes.add(added);
+            } else if (columnTypes.get(col) == null) {
+                columnTypes.set(col, added);
+            } else if (added != null && !added.equals(columnTypes.get(col))) {
+                columnTypes.set(col, Object.class.getSimpleName());
+            }
+        }
+        entity.setColumnTypes(columnTypes);
+
+        entity.setByteSize(entity.getByteSize() - replacedBytes + rawValues.length);
+        CRC32 crc = new CRC32();
+        byte[] previous = String.valueOf(entity.getChecksum()).getBytes(StandardCharsets.US_ASCII);
+        crc.update(previous, 0, previous.length);
+        crc.update(rawValues, 0, rawValues.length);
+        entity.setChecksum(String.format("%08x", crc.getValue()));
+    }
+
+    /**
+     * @return the number of rows added, the columns header excluded
+     */
+    int getContentRowCount() {
+        return colHeader ? Math.max(0, rawRowCount - 1) : rawRowCount;
+    }
+
+    /**
+     * @return the simple class name of the values of the column, Object for mixed classes, null without value
+     */
+    private String getColumnType(int col) {
+        Class<?> columnClass = col < columnClasses.size() ? columnClasses.get(col) : null;
+        return columnClass == null ? null : columnClass.getSimpleName();
+    }
+}
@@ -0,0 +1,770 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fr.cs.ikats.temporaldata.business.table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.cs.ikats.temporaldata.business.table.TableInfo.DataLink;
+
+/**
+ * One column of the content of a {@link ColumnarTable}: the values of the column, stored according to their type, and
+ * the links of the column, stored only when defined.
+ * <p>
+ * The type of a column is fixed by its first defined value:
+ * <ul>
+ * <li>Double: stored as double[],</li>
+ * <li>Integer or Long: stored as long[], and converted back to the same type,</li>
+ * <li>String: dictionary-encoded, stored as int[] codes of the distinct strings,</li>
+ * <li>other types: stored as a list of objects.</li>
+ * </ul>
+ * A value not accepted by the column, for example an Integer in a column of Double, requires to convert the column:
+ * see {@link #convertFor(Object)}.
+ */
+abstract class TableColumn {
+
+    /**
+     * Initial capacity of the arrays
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Estimated heap sizes, in bytes: see {@link #estimateByteSize()}
+     */
+    static final long REFERENCE_BYTES = 8;
+    static final long OBJECT_BYTES = 24;
+    static final long STRING_BYTES = 48;
+    private static final long COLUMN_BYTES = 64;
+    private static final long LINK_BYTES = 128;
+
+    /**
+     * The defined links, by row index. null when the column has no link.
+     */
+    private Map<Integer, DataLink> links;
+
+    /**
+     * @return the number of values
+     */
+    abstract int size();
+
+    /**
+     * Gets the value of a row
+     *
+     * @param row the row index
+     * @return the value, null if undefined
+     */
+    abstract Object get(int row);
+
+    /**
+     * @param value a value
+     * @return true if the value can be added to this column, without converting the column
+     */
+    abstract boolean accepts(Object value);
+
+    /**
+     * Adds a value, accepted by this column: see {@link #accepts(Object)}
+     *
+     * @param value the added value
+     */
+    abstract void add(Object value);
+
+    /**
+     * Gathers the values of some rows into a new column of the same type: see {@link #gather(int[], int, int)}. The
+     * links are not gathered.
+     *
+     * @param rows the row indexes
+     * @param from the position of the first gathered row index
+     * @param to   the position after the last gathered row index
+     * @return the new column
+     */
+    abstract TableColumn gatherValues(int[] rows, int from, int to);
+
+    /**
+     * Gathers the values and the links of some rows into a new column of the same type: the row i of the new column
+     * is the row rows[from + i] of this column.
+     *
+     * @param rows the row indexes
+     * @param from the position of the first gathered row index
+     * @param to   the position after the last gathered row index
+     * @return the new column
+     */
+    TableColumn gather(int[] rows, int from, int to) {
+        TableColumn gathered = gatherValues(rows, from, to);
+        if (links != null) {
+            for (int i = from; i < to; i++) {
+                DataLink link = links.get(rows[i]);
+                if (link != null) {
+                    gathered.setLink(i - from, link);
+                }
+            }
+        }
+        return gathered;
+    }
+
+    /**
+     * Estimates the heap size of this column: see {@link ColumnarTable#estimateByteSize()}
+     *
+     * @return the estimated size in bytes
+     */
+    long estimateByteSize() {
+        return COLUMN_BYTES + (links == null ? 0 : links.size() * LINK_BYTES);
+    }
+
+    /**
+     * Replaces the links by copies, so that this column shares no link with the column it is gathered from
+     */
+    void copyLinks() {
+        if (links != null) {
+            links.replaceAll((row, link) -> new DataLink(link));
+        }
+    }
+
+    /**
+     * Estimates the heap size of a value stored as an object
+     *
+     * @param value the value
+     * @return the estimated size in bytes, including the reference
+     */
+    static long estimateValueByteSize(Object value) {
+        if (value == null) {
+            return REFERENCE_BYTES;
+        } else if (value instanceof String) {
+            return REFERENCE_BYTES + STRING_BYTES + 2L * ((String) value).length();
+        } else {
+            return REFERENCE_BYTES + OBJECT_BYTES;
+        }
+    }
+
+    /**
+     * Filter of the values of a column: the numeric columns are filtered on their primitive values.
+     */
+    interface ValueFilter {
+
+        /**
+         * @param value a value, null when undefined
+         * @return true when the value is selected
+         */
+        boolean test(Object value);
+
+        /**
+         * @param value a defined value of a Double column
+         * @return true when the value is selected
+         */
+        boolean test(double value);
+
+        /**
+         * @param value a defined value of an Integer or Long column
+         * @return true when the value is selected
+         */
+        boolean test(long value);
+    }
+
+    /**
+     * Keeps the rows whose value is selected by the filter: the selected rows are moved at the beginning of rows, in
+     * the same order.
+     *
+     * @param rows   the row indexes
+     * @param count  the number of row indexes used in rows
+     * @param filter the filter
+     * @return the number of selected rows
+     */
+    int select(int[] rows, int count, ValueFilter filter) {
+        int selected = 0;
+        for (int i = 0; i < count; i++) {
+            if (filter.test(get(rows[i]))) {
+                rows[selected++] = rows[i];
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Encodes the values of the rows by dense codes: two rows have the same code when their values are equal.
+     *
+     * @param rows     the row indexes
+     * @param count    the number of row indexes used in rows
+     * @param distinct filled with the distinct values, in their order of appearance: the code of a value is its index
+     * @return the codes, indexed as rows
+     */
+    int[] encode(int[] rows, int count, List<Object> distinct) {
+        int[] codes = new int[count];
+        Map<Object, Integer> valueCodes = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            Object value = get(rows[i]);
+            Integer code = valueCodes.get(value);
+            if (code == null) {
+                code = distinct.size();
+                distinct.add(value);
+                valueCodes.put(value, code);
+            }
+            codes[i] = code;
+        }
+        return codes;
+    }
+
+    /**
+     * @return true when the defined values are numbers readable by {@link #getDouble(int)}, and by
+     * {@link #getLong(int)} when {@link #isIntegral()}
+     */
+    boolean isNumeric() {
+        return false;
+    }
+
+    /**
+     * @return true when the defined values are Integer or Long values
+     */
+    boolean isIntegral() {
+        return false;
+    }
+
+    /**
+     * @param row the row index
+     * @return true when the value of the row is defined
+     */
+    boolean isDefined(int row) {
+        return get(row) != null;
+    }
+
+    /**
+     * @param row the row index of a defined value of a numeric column
+     * @return the value
+     */
+    double getDouble(int row) {
+        return ((Number) get(row)).doubleValue();
+    }
+
+    /**
+     * @param row the row index of a defined value of an integral column
+     * @return the value
+     */
+    long getLong(int row) {
+        return ((Number) get(row)).longValue();
+    }
+
+    /**
+     * @param value a value computed from the values of an integral column, for example their minimum
+     * @return the value, with the type of the column values
+     */
+    Object box(long value) {
+        return value;
+    }
+
+    /**
+     * Gets the link of a row
+     *
+     * @param row the row index
+     * @return the link, null if undefined
+     */
+    DataLink getLink(int row) {
+        return links == null ? null : links.get(row);
+    }
+
+    /**
+     * Sets the link of a row
+     *
+     * @param row  the row index
+     * @param link the link, null to remove it
+     */
+    void setLink(int row, DataLink link) {
+        if (link != null) {
+            if (links == null) {
+                links = new HashMap<>();
+            }
+            links.put(row, link);
+        } else if (links != null) {
+            links.remove(row);
+        }
+    }
+
+    /**
+     * Creates an empty column, typed for the value
+     *
+     * @param value the first value of the column
+     * @return the column
+     */
+    static TableColumn forValue(Object value) {
+        if (value == null) {
+            return new NullColumn();
+        } else if (value instanceof Double) {
+            return new DoubleColumn();
+        } else if (value instanceof Integer) {
+            return new LongColumn(true);
+        } else if (value instanceof Long) {
+            return new LongColumn(false);
+        } else if (value instanceof String) {
+            return new StringColumn();
+        } else {
+            return new ObjectColumn();
+        }
+    }
+
+    /**
+     * Converts this column into a column accepting its values and the new value: a column typed for the value when
+     * this column has only undefined values, a column of objects otherwise. The links are kept.
+     *
+     * @param value the value not accepted by this column
+     * @return the converted column
+     */
+    TableColumn convertFor(Object value) {
+        boolean undefined = true;
+        for (int row = 0; row < size() && undefined; row++) {
+            undefined = get(row) == null;
+        }
+        TableColumn converted = undefined ? forValue(value) : new ObjectColumn();
+        for (int row = 0; row < size(); row++) {
+            converted.add(get(row));
+        }
+        converted.links = links;
+        return converted;
+    }
+
+    /**
+     * Capacity of the arrays holding at least minCapacity values
+     */
+    private static int grow(int capacity, int minCapacity) {
+        return Math.max(minCapacity, Math.max(INITIAL_CAPACITY, capacity + (capacity >> 1)));
+    }
+
+    /**
+     * Column of undefined values
+     */
+    private static final class NullColumn extends TableColumn {
+        private int size;
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        Object get(int row) {
+            checkRow(row, size);
+            return null;
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value == null;
+        }
+
+        @Override
+        void add(Object value) {
+            size++;
+        }
+
+        @Override
+        TableColumn gatherValues(int[] rows, int from, int to) {
+            NullColumn gathered = new NullColumn();
+            for (int i = from; i < to; i++) {
+                checkRow(rows[i], size);
+            }
+            gathered.size = to - from;
+            return gathered;
+        }
+
+        @Override
+        boolean isNumeric() {
+            return true;
+        }
+    }
+
+    /**
+     * Column of Double values
+     */
+    private static final class DoubleColumn extends TableColumn {
+        private double[] values = new double[INITIAL_CAPACITY];
+        private final BitSet undefined = new BitSet();
+        private int size;
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        Object get(int row) {
+            checkRow(row, size);
+            return undefined.get(row) ? null : values[row];
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value == null || value instanceof Double;
+        }
+
+        @Override
+        void add(Object value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size, size + 1));
+            }
+            if (value == null) {
+                undefined.set(size);
+            } else {
+                values[size] = (Double) value;
+            }
+            size++;
+        }
+
+        @Override
+        TableColumn gatherValues(int[] rows, int from, int to) {
+            DoubleColumn gathered = new DoubleColumn();
+            gathered.values = new double[Math.max(INITIAL_CAPACITY, to - from)];
+            for (int i = from; i < to; i++) {
+                int row = rows[i];
+                checkRow(row, size);
+                if (undefined.get(row)) {
+                    gathered.undefined.set(i - from);
+                } else {
+                    gathered.values[i - from] = values[row];
+                }
+            }
+            gathered.size = to - from;
+            return gathered;
+        }
+
+        @Override
+        int select(int[] rows, int count, ValueFilter filter) {
+            boolean undefinedSelected = filter.test(null);
+            int selected = 0;
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                if (undefined.get(row) ? undefinedSelected : filter.test(values[row])) {
+                    rows[selected++] = row;
+                }
+            }
+            return selected;
+        }
+
+        @Override
+        boolean isNumeric() {
+            return true;
+        }
+
+        @Override
+        boolean isDefined(int row) {
+            return !undefined.get(row);
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        long estimateByteSize() {
+            return super.estimateByteSize() + 8L * values.length + undefined.size() / 8;
+        }
+    }
+
+    /**
+     * Column of Integer or Long values
+     */
+    private static final class LongColumn extends TableColumn {
+        private final boolean integers;
+        private long[] values = new long[INITIAL_CAPACITY];
+        private final BitSet undefined = new BitSet();
+        private int size;
+
+        /**
+         * @param integers true for Integer values, false for Long values
+         */
+        LongColumn(boolean integers) {
+            this.integers = integers;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        Object get(int row) {
+            checkRow(row, size);
+            if (undefined.get(row)) {
+                return null;
+            }
+            return integers ? (Object) (int) values[row] : (Object) values[row];
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value == null || (integers ? value instanceof Integer : value instanceof Long);
+        }
+
+        @Override
+        void add(Object value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size, size + 1));
+            }
+            if (value == null) {
+                undefined.set(size);
+            } else {
+                values[size] = ((Number) value).longValue();
+            }
+            size++;
+        }
+
+        @Override
+        TableColumn gatherValues(int[] rows, int from, int to) {
+            LongColumn gathered = new LongColumn(integers);
+            gathered.values = new long[Math.max(INITIAL_CAPACITY, to - from)];
+            for (int i = from; i < to; i++) {
+                int row = rows[i];
+                checkRow(row, size);
+                if (undefined.get(row)) {
+                    gathered.undefined.set(i - from);
+                } else {
+                    gathered.values[i - from] = values[row];
+                }
+            }
+            gathered.size = to - from;
+            return gathered;
+        }
+
+        @Override
+        int select(int[] rows, int count, ValueFilter filter) {
+            boolean undefinedSelected = filter.test(null);
+            int selected = 0;
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                if (undefined.get(row) ? undefinedSelected : filter.test(values[row])) {
+                    rows[selected++] = row;
+                }
+            }
+            return selected;
+        }
+
+        @Override
+        boolean isNumeric() {
+            return true;
+        }
+
+        @Override
+        boolean isIntegral() {
+            return true;
+        }
+
+        @Override
+        boolean isDefined(int row) {
+            return !undefined.get(row);
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        Object box(long value) {
+            return integers ? (Object) (int) value : (Object) value;
+        }
+
+        @Override
+        long estimateByteSize() {
+            return super.estimateByteSize() + 8L * values.length + undefined.size() / 8;
+        }
+    }
+
+    /**
+     * Column of String values, dictionary-encoded
+     */
+    private static final class StringColumn extends TableColumn {
+        private int[] codes = new int[INITIAL_CAPACITY];
+        private final List<String> dictionary = new ArrayList<>();
+        private final Map<String, Integer> dictionaryCodes = new HashMap<>();
+        private int size;
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        Object get(int row) {
+            checkRow(row, size);
+            int code = codes[row];
+            return code < 0 ? null : dictionary.get(code);
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value == null || value instanceof String;
+        }
+
+        @Override
+        void add(Object value) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, grow(size, size + 1));
+            }
+            if (value == null) {
+                codes[size] = -1;
+            } else {
+                Integer code = dictionaryCodes.get(value);
+                if (code == null) {
+                    code = dictionary.size();
+                    dictionary.add((String) value);
+                    dictionaryCodes.put((String) value, code);
+                }
+                codes[size] = code;
+            }
+            size++;
+        }
+
+        /**
+         * The codes are copied, and the dictionary is reduced to the gathered strings, without hashing the strings
+         * again
+         */
+        @Override
+        TableColumn gatherValues(int[] rows, int from, int to) {
+            StringColumn gathered = new StringColumn();
+            gathered.codes = new int[Math.max(INITIAL_CAPACITY, to - from)];
+            // gathered code + 1 of each dictionary code: 0 when not yet met
+            int[] gatheredCodes = new int[dictionary.size()];
+            for (int i = from; i < to; i++) {
+                int row = rows[i];
+                checkRow(row, size);
+                int code = codes[row];
+                if (code < 0) {
+                    gathered.codes[i - from] = -1;
+                    continue;
+                }
+                if (gatheredCodes[code] == 0) {
+                    String value = dictionary.get(code);
+                    gathered.dictionaryCodes.put(value, gathered.dictionary.size());
+                    gathered.dictionary.add(value);
+                    gatheredCodes[code] = gathered.dictionary.size();
+                }
+                gathered.codes[i - from] = gatheredCodes[code] - 1;
+            }
+            gathered.size = to - from;
+            return gathered;
+        }
+
+        /**
+         * The filter is evaluated once by distinct string
+         */
+        @Override
+        int select(int[] rows, int count, ValueFilter filter) {
+            boolean undefinedSelected = filter.test(null);
+            boolean[] selectedCodes = new boolean[dictionary.size()];
+            for (int code = 0; code < selectedCodes.length; code++) {
+                selectedCodes[code] = filter.test(dictionary.get(code));
+            }
+            int selected = 0;
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                int code = codes[row];
+                if (code < 0 ? undefinedSelected : selectedCodes[code]) {
+                    rows[selected++] = row;
+                }
+            }
+            return selected;
+        }
+
+        /**
+         * The dictionary codes are renumbered, without hashing the strings
+         */
+        @Override
+        int[] encode(int[] rows, int count, List<Object> distinct) {
+            // dense code + 1 of each dictionary code + 1: 0 when not yet met
+            int[] denseCodes = new int[dictionary.size() + 1];
+            int[] encoded = new int[count];
+            for (int i = 0; i < count; i++) {
+                int code = codes[rows[i]] + 1;
+                if (denseCodes[code] == 0) {
+                    distinct.add(code == 0 ? null : dictionary.get(code - 1));
+                    denseCodes[code] = distinct.size();
+                }
+                encoded[i] = denseCodes[code] - 1;
+            }
+            return encoded;
+        }
+
+        /**
+         * The distinct strings are counted once
+         */
+        @Override
+        long estimateByteSize() {
+            long bytes = super.estimateByteSize() + 4L * codes.length;
+            for (String value : dictionary) {
+                // the string in the dictionary, and its entry with a boxed code in the dictionary codes
+                bytes += estimateValueByteSize(value) + 2 * OBJECT_BYTES;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Column of values of any type
+     */
+    private static final class ObjectColumn extends TableColumn {
+        private final List<Object> values = new ArrayList<>();
+
+        @Override
+        int size() {
+            return values.size();
+        }
+
+        @Override
+        Object get(int row) {
+            return values.get(row);
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return true;
+        }
+
+        @Override
+        void add(Object value) {
+            values.add(value);
+        }
+
+        @Override
+        TableColumn gatherValues(int[] rows, int from, int to) {
+            ObjectColumn gathered = new ObjectColumn();
+            for (int i = from; i < to; i++) {
+                gathered.values.add(values.get(rows[i]));
+            }
+            return gathered;
+        }
+
+        @Override
+        long estimateByteSize() {
+            long bytes = super.estimateByteSize();
+            for (Object value : values) {
+                bytes += estimateValueByteSize(value);
+            }
+            return bytes;
+        }
+    }
+
+    private static void checkRow(int row, int size) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row index=" + row + " out of column of size=" + size);
+        }
+    }
+}
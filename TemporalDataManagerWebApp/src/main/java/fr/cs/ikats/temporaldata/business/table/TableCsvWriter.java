@@ -0,0 +1,147 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.temporaldata.business.table;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import fr.cs.ikats.table.TableEntity;
+
+/**
+ * Writes a stored table as CSV, directly from the raw values: the rows are decoded and written one by one, without
+ * building the TableInfo nor the CSV in memory.
+ * <p>
+ * The CSV follows RFC 4180:
+ * <ul>
+ * <li>the first record is the columns header, if any, and the first field of each record is the rows header item, if
+ * any,</li>
+ * <li>the records end with CRLF,</li>
+ * <li>a field containing the delimiter, a double quote, CR or LF is enclosed in double quotes, and its double quotes
+ * are doubled,</li>
+ * <li>an undefined value is an empty field.</li>
+ * </ul>
+ * The links are not exported.
+ * <p>
+ * The writers are built by {@link TableManager#getCsvWriter(String, char)}.
+ */
+public class TableCsvWriter {
+
+    private static final String RECORD_END = "\r\n";
+
+    private final TableEntity table;
+    private final TableJsonWriter.RawValuesScanner scanner;
+    private final char delimiter;
+
+    /**
+     * Constructor
+     *
+     * @param table     the table entity providing the general attributes
+     * @param scanner   the scanner of the raw values of the table
+     * @param delimiter the delimiter of the fields: neither a double quote, CR nor LF
+     */
+    TableCsvWriter(TableEntity table, TableJsonWriter.RawValuesScanner scanner, char delimiter) {
+        this.table = table;
+        this.scanner = scanner;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * @return the name of the written table
+     */
+    public String getTableName() {
+        return table.getName();
+    }
+
+    /**
+     * Writes the CSV of the table, encoded in UTF-8. The output stream is flushed, not closed.
+     *
+     * @param out the output stream
+     * @throws IOException deserialization error or error writing the output stream
+     */
+    public void write(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+        // the top left corner holds the name of both headers: "columns|rows"
+        boolean withTopLeftCorner = table.hasColHeader() && table.hasRowHeader();
+        boolean[] firstRow = {true};
+        scanner.scan(null, 0, Integer.MAX_VALUE, row -> {
+            if (row != null) {
+                for (int col = 0; col < row.size(); col++) {
+                    Object value = row.get(col);
+                    if (col == 0 && firstRow[0] && withTopLeftCorner && value != null) {
+                        value = value.toString().split("\\|", -1)[0];
+                    }
+                    if (col > 0) {
+                        writer.write(delimiter);
+                    }
+                    writeField(writer, value);
+                }
+            }
+            writer.write(RECORD_END);
+            firstRow[0] = false;
+        });
+        writer.flush();
+    }
+
+    /**
+     * Writes one field, quoted when needed
+     */
+    private void writeField(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (!needsQuotes(text)) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private boolean needsQuotes(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == delimiter || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks that the delimiter may separate the fields: see {@link TableCsvWriter}
+     *
+     * @param delimiter the delimiter
+     * @return true when the delimiter is valid
+     */
+    public static boolean isValidDelimiter(char delimiter) {
+        return delimiter != '"' && delimiter != '\r' && delimiter != '\n';
+    }
+}
@@ -18,8 +18,10 @@ package fr.cs.ikats.temporaldata.business.table;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -473,6 +475,66 @@ public class TableInfo {
 
         }
 
+        /**
+         * Inserts several columns at the specified position, with one pass over the rows: each row is shifted once,
+         * whatever the number of inserted columns.
+         * <p>
+         * This operation updates as well this.cells and -if not null- this.links
+         *
+         * @param beforeIndex
+         *            the index defining the location of the inserted columns, or -1 to add them as the last ones.
+         * @param columns
+         *            the lists of TableElement defining the inserted columns, in their final order
+         * @return this TableContent
+         * @throws IkatsException
+         *             a column size is different from the number of rows, or a link is defined when the links are not
+         *             managed
+         */
+        public TableContent insertColumns(int beforeIndex, List<List<TableElement>> columns) throws IkatsException {
+            for (List<TableElement> column : columns) {
+                if (column.size() != cells.size())
+                    throw new IkatsException("Inconsistency error number of rows=" + cells.size()
+                            + " is different from the size of inserted column=" + column.size());
+            }
+            boolean manageLinks = isHandlingLinks();
+            int posRow = 0;
+            try {
+                Iterator<List<DataLink>> iterLinks = manageLinks ? links.iterator() : null;
+                for (List<Object> currentRow : cells) {
+                    List<Object> rowData = new ArrayList<>(columns.size());
+                    List<DataLink> rowLinks = manageLinks ? new ArrayList<>(columns.size()) : null;
+                    for (List<TableElement> column : columns) {
+                        TableElement tableElement = column.get(posRow);
+                        rowData.add(tableElement.data);
+                        if (manageLinks) {
+                            rowLinks.add(tableElement.link);
+                        } else if (tableElement.link != null) {
+                            throw new IkatsException("Failed to insert columns at row " + posRow
+                                    + ": links not managed but got " + tableElement.link);
+                        }
+                    }
+                    if (beforeIndex < 0) {
+                        currentRow.addAll(rowData);
+                    } else {
+                        currentRow.addAll(beforeIndex, rowData);
+                    }
+                    if (manageLinks) {
+                        List<DataLink> currentRowLinks = iterLinks.next();
+                        if (beforeIndex < 0) {
+                            currentRowLinks.addAll(rowLinks);
+                        } else {
+                            currentRowLinks.addAll(beforeIndex, rowLinks);
+                        }
+                    }
+                    posRow++;
+                }
+                return this;
+            } catch (NullPointerException | IndexOutOfBoundsException | NoSuchElementException e) {
+                throw new IkatsException(
+                        "Failed to insert columns at index=" + beforeIndex + " near row index=" + posRow, e);
+            }
+        }
+
         /**
          * Not yet implemented
          *
@@ -621,6 +683,19 @@ public class TableInfo {
          */
         public List<DataLink> links;
 
+        /**
+         * Lazily built index of this.data: maps each item converted to String onto the position of its first
+         * occurrence. See {@link #indexOf(String)}.
+         */
+        private Map<String, Integer> itemsIndex;
+
+        /**
+         * The list this.data, and its size, when itemsIndex was last updated: a replaced or resized list is indexed
+         * again.
+         */
+        private List<Object> indexedData;
+        private int indexedSize;
+
         /**
          * The public constructor required by jackson ObjectMapper
          */
@@ -707,6 +782,7 @@ public class TableInfo {
                 throw new IkatsException("Inconsistency: add item with link, on a header not managing the links");
 
             this.data.add(data);
+            updateIndex(data);
             // links are managed <=> this.links is not null
             // And if links are managed: it is yet possible and required to add
             // null link.
@@ -716,6 +792,78 @@ public class TableInfo {
             return this;
         }
 
+        /**
+         * Retrieves the position of the first item of this.data matching value.
+         * <p>
+         * Note: the value is compared to data.get(x).toString(): this enables to manage also header data types
+         * different from String.
+         * <p>
+         * The search uses an index built at the first call, then kept up to date by addItem() and insertItem(). When
+         * this.data is replaced (for instance by the sort of the rows) or resized out of these methods, the index is
+         * built again. An item replaced in place, using this.data.set(), requires a call to {@link #resetIndex()}.
+         *
+         * @param value the searched item, not null
+         * @return the position of the item, or -1 when it is not found.
+         */
+        public int indexOf(String value) {
+            if (itemsIndex == null || indexedData != data || indexedSize != data.size()) {
+                buildIndex();
+            }
+            Integer position = itemsIndex.get(value);
+            if (position == null) {
+                return -1;
+            }
+            Object item = data.get(position);
+            if (item == null || !item.toString().equals(value)) {
+                // item modified in place: this.data.set(...)
+                buildIndex();
+                position = itemsIndex.get(value);
+            }
+            return position != null ? position : -1;
+        }
+
+        /**
+         * Builds the index of the items from this.data
+         */
+        private void buildIndex() {
+            int size = data.size();
+            Map<String, Integer> index = new HashMap<>(Math.max(16, (int) (size / 0.75f) + 1));
+            for (int position = 0; position < size; position++) {
+                Object item = data.get(position);
+                if (item != null) {
+                    index.putIfAbsent(item.toString(), position);
+                }
+            }
+            itemsIndex = index;
+            indexedData = data;
+            indexedSize = size;
+        }
+
+        /**
+         * Drops the index of the items, which is built again by the next search: required after items of this.data
+         * were replaced or reordered in place.
+         */
+        public void resetIndex() {
+            itemsIndex = null;
+        }
+
+        /**
+         * Updates the index, if already built, with the item just appended to this.data
+         *
+         * @param item the appended item
+         */
+        private void updateIndex(Object item) {
+            if (itemsIndex == null)
+                return;
+            if (indexedData != data || indexedSize != data.size() - 1) {
+                resetIndex();
+                return;
+            }
+            if (item != null)
+                itemsIndex.putIfAbsent(item.toString(), indexedSize);
+            indexedSize++;
+        }
+
         /**
          * Gets the this.data: this service is internal to TableManager / Table implementation. You can use getItems(),
          * for external use.
@@ -829,6 +977,11 @@ public class TableInfo {
                             "Inconsistency: insert header item with link, on a header not managing the links");
 
                 data.add(insertedIndexColHeader, elemH.data);
+                if (insertedIndexColHeader == data.size() - 1)
+                    updateIndex(elemH.data);
+                else
+                    // the following items are shifted: the index is rebuilt by the next search
+                    resetIndex();
                 if (links != null)
                     links.add(insertedIndexColHeader, elemH.link);
             } catch (IkatsException | NullPointerException | IndexOutOfBoundsException e) {
@@ -949,7 +1102,8 @@ public class TableInfo {
     static List<DataLink> copyListOfLinks(List<DataLink> links) {
         ArrayList<DataLink> copyLinks = new ArrayList<>();
         for (DataLink dataLink : links) {
-            copyLinks.add(new DataLink(dataLink));
+            // undefined links are kept undefined
+            copyLinks.add(dataLink == null ? null : new DataLink(dataLink));
         }
         return copyLinks;
     }
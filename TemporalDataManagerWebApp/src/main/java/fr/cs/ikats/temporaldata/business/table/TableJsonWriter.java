@@ -0,0 +1,232 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.temporaldata.business.table;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.cs.ikats.table.TableEntity;
+import fr.cs.ikats.temporaldata.business.table.TableStorageCodec.RowHandler;
+
+/**
+ * Writes a stored table as the JSON of its TableInfo, directly from the raw values: the rows are decoded and written
+ * one by one, without building the TableInfo. The JSON is the one written by the ObjectMapper for the TableInfo built
+ * by {@link TableManager#readFromDatabase(String, List, int, int)}.
+ * <p>
+ * The writers are built by {@link TableManager#getJsonWriter(String, List, int, int, boolean)}.
+ */
+public class TableJsonWriter {
+
+    /**
+     * Scanner of the stored raw values
+     */
+    interface RawValuesScanner {
+
+        /**
+         * Decodes the selection of raw values and passes the rows one by one to the handler
+         *
+         * @param columns the indexes of the selected raw columns, null selects all the columns
+         * @param fromRow index of the first selected raw row, inclusive
+         * @param toRow   index of the last selected raw row, exclusive
+         * @param handler the handler of the rows
+         * @throws IOException deserialization error or error raised by the handler
+         */
+        void scan(int[] columns, int fromRow, int toRow, RowHandler handler) throws IOException;
+    }
+
+    private final TableEntity table;
+    private final RawValuesScanner scanner;
+    private final int[] rawColumns;
+    private final int fromRow;
+    private final int toRow;
+    private final TableManager.DataLinksMatrix links;
+    private final ObjectMapper mapper;
+    private final boolean withNullValues;
+
+    /**
+     * Constructor
+     *
+     * @param table          the table entity providing the general attributes
+     * @param scanner        the scanner of the raw values of the table
+     * @param rawColumns     the indexes of the selected raw columns, including the rows header, null selects all
+     * @param fromRow        index of the first selected content raw row, inclusive
+     * @param toRow          index of the last selected content raw row, exclusive
+     * @param links          the links of the selection
+     * @param mapper         the mapper writing the values and the links
+     * @param withNullValues true to write the null properties and the empty arrays, as the default ObjectMapper does.
+     *                       false to skip them, as the {@link TableManager} mapper does.
+     */
+    TableJsonWriter(TableEntity table, RawValuesScanner scanner, int[] rawColumns, int fromRow, int toRow,
+                    TableManager.DataLinksMatrix links, ObjectMapper mapper, boolean withNullValues) {
+        this.table = table;
+        this.scanner = scanner;
+        this.rawColumns = rawColumns;
+        this.fromRow = fromRow;
+        this.toRow = toRow;
+        this.links = links;
+        this.mapper = mapper;
+        this.withNullValues = withNullValues;
+    }
+
+    /**
+     * Writes the JSON of the table. The output stream is flushed, not closed.
+     *
+     * @param out the output stream
+     * @throws IOException deserialization error or error writing the output stream
+     */
+    public void write(OutputStream out) throws IOException {
+        JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            generator.writeStartObject();
+
+            generator.writeObjectFieldStart("table_desc");
+            writeField(generator, "title", table.getTitle());
+            writeField(generator, "desc", table.getDescription());
+            writeField(generator, "name", table.getName());
+            generator.writeEndObject();
+
+            // the top left corner holds the name of both headers: "columns|rows"
+            String[] topCornerLeft = null;
+            List<Object> columnsHeader = null;
+            if (table.hasColHeader()) {
+                columnsHeader = firstRow();
+                if (table.hasRowHeader() && columnsHeader != null && !columnsHeader.isEmpty()) {
+                    columnsHeader = new ArrayList<>(columnsHeader);
+                    // limit -1: the corner is "|" when the first header field of an imported CSV is empty
+                    topCornerLeft = columnsHeader.get(0).toString().split("\\|", -1);
+                    columnsHeader.set(0, topCornerLeft[0]);
+                }
+            }
+
+            generator.writeObjectFieldStart("headers");
+            if (table.hasColHeader()) {
+                generator.writeObjectFieldStart("col");
+                writeField(generator, "data", columnsHeader);
+                writeField(generator, "default_links", links.getColumnHeaderDefaultDatalink());
+                writeField(generator, "links", links.getColumnHeaderDatalink());
+                generator.writeEndObject();
+            } else {
+                writeField(generator, "col", null);
+            }
+            if (table.hasRowHeader()) {
+                generator.writeObjectFieldStart("row");
+                LazyArray data = new LazyArray(generator, "data");
+                if (table.hasColHeader()) {
+                    data.writeItem(topCornerLeft != null && topCornerLeft.length > 1 && !topCornerLeft[1].isEmpty()
+                            ? topCornerLeft[1] : null);
+                }
+                scanner.scan(new int[]{rawColumns == null ? 0 : rawColumns[0]}, fromRow, toRow,
+                        row -> data.writeItem(row == null || row.isEmpty() ? null : row.get(0)));
+                data.end();
+                writeField(generator, "default_links", links.getRowHeaderDefaultDatalink());
+                writeField(generator, "links", links.getRowHeaderDatalink());
+                generator.writeEndObject();
+            } else {
+                writeField(generator, "row", null);
+            }
+            generator.writeEndObject();
+
+            generator.writeObjectFieldStart("content");
+            LazyArray cells = new LazyArray(generator, "cells");
+            int firstCell = table.hasRowHeader() ? 1 : 0;
+            scanner.scan(rawColumns, fromRow, toRow, row -> {
+                cells.start();
+                if (row == null) {
+                    generator.writeNull();
+                    return;
+                }
+                generator.writeStartArray();
+                for (int col = firstCell; col < row.size(); col++) {
+                    generator.writeObject(row.get(col));
+                }
+                generator.writeEndArray();
+            });
+            cells.end();
+            writeField(generator, "default_links", links.getCellsDefaultDatalink());
+            writeField(generator, "links", links.getCellsDatalink());
+            generator.writeEndObject();
+
+            generator.writeEndObject();
+        } finally {
+            generator.close();
+        }
+    }
+
+    /**
+     * Decodes the first raw row: the columns header
+     */
+    private List<Object> firstRow() throws IOException {
+        List<List<Object>> rows = new ArrayList<>(1);
+        scanner.scan(rawColumns, 0, 1, rows::add);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Writes the property, unless its value is null or an empty array, and the null values are not written
+     */
+    private void writeField(JsonGenerator generator, String name, Object value) throws IOException {
+        if (!withNullValues && (value == null || value instanceof Collection && ((Collection<?>) value).isEmpty())) {
+            return;
+        }
+        generator.writeObjectField(name, value);
+    }
+
+    /**
+     * Array property started with its first item: an empty array is not written unless the null values are written
+     */
+    private class LazyArray {
+
+        private final JsonGenerator generator;
+        private final String name;
+        private boolean started;
+
+        LazyArray(JsonGenerator generator, String name) {
+            this.generator = generator;
+            this.name = name;
+        }
+
+        void start() throws IOException {
+            if (!started) {
+                generator.writeArrayFieldStart(name);
+                started = true;
+            }
+        }
+
+        void writeItem(Object item) throws IOException {
+            start();
+            generator.writeObject(item);
+        }
+
+        void end() throws IOException {
+            if (withNullValues) {
+                start();
+            }
+            if (started) {
+                generator.writeEndArray();
+            }
+        }
+    }
+}
@@ -17,14 +17,15 @@
 package fr.cs.ikats.temporaldata.business.table;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -39,16 +40,20 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import fr.cs.ikats.common.dao.exception.IkatsDaoConflictException;
 import fr.cs.ikats.common.dao.exception.IkatsDaoException;
 import fr.cs.ikats.common.dao.exception.IkatsDaoMissingResource;
-import fr.cs.ikats.lang.NaturalOrderComparator;
+import fr.cs.ikats.table.AbstractTableEntity;
 import fr.cs.ikats.table.TableDAO;
 import fr.cs.ikats.table.TableEntity;
 import fr.cs.ikats.table.TableEntitySummary;
+import fr.cs.ikats.table.TableSegmentEntity;
+import fr.cs.ikats.temporaldata.application.ApplicationConfiguration;
+import fr.cs.ikats.temporaldata.application.TemporalDataApplication;
 import fr.cs.ikats.temporaldata.business.table.TableInfo.Header;
 import fr.cs.ikats.temporaldata.business.table.TableInfo.TableContent;
 import fr.cs.ikats.temporaldata.business.table.TableInfo.TableDesc;
 import fr.cs.ikats.temporaldata.business.table.TableInfo.TableHeaders;
 import fr.cs.ikats.temporaldata.exception.IkatsException;
 import fr.cs.ikats.temporaldata.exception.IkatsJsonException;
+import fr.cs.ikats.temporaldata.exception.ImportException;
 import fr.cs.ikats.temporaldata.exception.InvalidValueException;
 import fr.cs.ikats.temporaldata.exception.ResourceNotFoundException;
 
@@ -75,6 +80,17 @@ public class TableManager {
      */
     private ObjectMapper jsonObjectMapper;
 
+    /**
+     * Mapper with the default configuration, writing the null values: the one of the JSON responses of TableInfo
+     */
+    private static final ObjectMapper DEFAULT_JSON_OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Cache of the decoded tables, shared by the managers: see {@link TableCache}. Sized once, by configuration.
+     */
+    private static final TableCache TABLE_CACHE = new TableCache(TemporalDataApplication.getApplicationConfiguration()
+            .getConfiguration().getLong(ApplicationConfiguration.TABLE_CACHE_MAX_BYTES, TableCache.DEFAULT_MAX_BYTES));
+
     public TableDAO getDao() {
         return dao;
     }
@@ -88,6 +104,11 @@ public class TableManager {
      */
     private TableDAO dao;
 
+    /**
+     * Codec of the raw values and raw datalinks stored in database
+     */
+    private TableStorageCodec storageCodec;
+
     /**
      * Default constructor for default configuration of jsonObjectMapper.
      */
@@ -104,12 +125,16 @@ public class TableManager {
         jsonObjectMapper.setSerializationInclusion(Include.NON_NULL);
 
         dao = new TableDAO();
+
+        boolean compressed = TemporalDataApplication.getApplicationConfiguration().getConfiguration()
+                .getBoolean(ApplicationConfiguration.TABLE_STORAGE_COMPRESSION, false);
+        storageCodec = new TableStorageCodec(compressed);
     }
 
     /**
      * Dao specific class to store all datalinks of functional type table
      */
-    private static class DataLinksMatrix implements Serializable {
+    static class DataLinksMatrix implements Serializable {
 
         /**
          * Set version of the object for serialization purposes
@@ -125,7 +150,7 @@ public class TableManager {
         private TableInfo.DataLink columnHeaderDefaultDatalink;
         private List<TableInfo.DataLink> columnHeaderDatalink;
 
-        private DataLinksMatrix() {
+        DataLinksMatrix() {
             super();
         }
 
@@ -262,15 +287,53 @@ public class TableManager {
     }
 
 
+    /**
+     * Initializes the ColumnarTable from the TableInfo JSON-mapping resource: the content is converted into columns.
+     *
+     * @param tableInfo the JSON-mapping resource, not modified.
+     * @return initialized ColumnarTable
+     */
+    public ColumnarTable initColumnarTable(TableInfo tableInfo) {
+        return new ColumnarTable(tableInfo);
+    }
+
     /**
      * Convert a TableEntity table to TableInfo table
      *
      * @param table the table entity to convert
      * @return the table entity converted to table info
      */
-    @SuppressWarnings("unchecked")
     public TableInfo tableEntityToTableInfo(TableEntity table) throws IkatsException {
 
+        // process table raw data
+        List<List<Object>> rawData;
+        try {
+            rawData = decodeRawValues(table, null, 0, Integer.MAX_VALUE);
+        } catch (ClassNotFoundException | IOException e) {
+            throw new IkatsException("Error raised during table deserialization of raw values. Message: " + e.getMessage(), e);
+        }
+
+        // process table raw data links
+        DataLinksMatrix rawDataLinks;
+        try {
+            rawDataLinks = decodeRawDataLinks(table.getRawDataLinks());
+        } catch (ClassNotFoundException | IOException e) {
+            throw new IkatsException("Error raised during table deserialization of raw datalinks. Message: " + e.getMessage(), e);
+        }
+
+        return rawToTableInfo(table, rawData, rawDataLinks);
+    }
+
+    /**
+     * Convert the decoded raw data and raw data links of a TableEntity table to TableInfo table
+     *
+     * @param table        the table entity providing the general attributes
+     * @param rawData      the rows of raw data: the first one is the columns header, when the table has one
+     * @param rawDataLinks the links of cells and headers, consistent with rawData
+     * @return the table info
+     */
+    private TableInfo rawToTableInfo(TableEntity table, List<List<Object>> rawData, DataLinksMatrix rawDataLinks) {
+
         TableInfo destTable = new TableInfo();
         TableDesc destTableDesc = new TableDesc();
         TableHeaders destTableHeaders = new TableHeaders();
@@ -285,77 +348,60 @@ public class TableManager {
         destTableDesc.title = table.getTitle();
 
         // process table raw data
-        List<List<Object>> rawData;
-        ObjectInputStream ois;
-        try {
-            ois = new ObjectInputStream(new ByteArrayInputStream(table.getRawValues()));
-            rawData = (List<List<Object>>) ois.readObject();
-            if (table.hasColHeader()) {
-                destTableHeaders.col = new Header();
-                destTableHeaders.col.data = rawData.get(0);
+        if (table.hasColHeader()) {
+            destTableHeaders.col = new Header();
+            destTableHeaders.col.data = rawData.get(0);
+        } else if (!rawData.isEmpty()) {
+            //No column header
+            if (table.hasRowHeader()) {
+                //Row header : Add first row without first element
+                destTableContent.cells.add(rawData.get(0).subList(1, rawData.get(0).size()));
             } else {
-                //No column header
-                if (table.hasRowHeader()) {
-                    //Row header : Add first row without first element
-                    destTableContent.cells.add(rawData.get(0).subList(1, rawData.get(0).size()));
-                } else {
-                    //No header : add whole row
-                    destTableContent.cells.add(rawData.get(0));
-                }
+                //No header : add whole row
+                destTableContent.cells.add(rawData.get(0));
             }
-            if (table.hasRowHeader()) {
-                destTableHeaders.row = new Header();
-                destTableHeaders.row.data = new ArrayList<>();
-                if (table.hasColHeader()) {
-                    //There is a column header : First value is stored in it
-                    //Add a null to row header to shift
-                    destTableHeaders.row.data.add(null);
-                } else {
-                    //Only row header : Add first element to row header
-                    destTableHeaders.row.data.add(rawData.get(0).get(0));
-                }
+        }
+        if (table.hasRowHeader()) {
+            destTableHeaders.row = new Header();
+            destTableHeaders.row.data = new ArrayList<>();
+            if (table.hasColHeader()) {
+                //There is a column header : First value is stored in it
+                //Add a null to row header to shift
+                destTableHeaders.row.data.add(null);
+            } else if (!rawData.isEmpty()) {
+                //Only row header : Add first element to row header
+                destTableHeaders.row.data.add(rawData.get(0).get(0));
             }
-            for (int i = 1; i < rawData.size(); i++) {
-                if (table.hasRowHeader()) {
-                    destTableHeaders.row.data.add(rawData.get(i).get(0));
-                    destTableContent.cells.add(rawData.get(i).subList(1, rawData.get(i).size()));
-                } else {
-                    destTableContent.cells.add(rawData.get(i));
-                }
+        }
+        for (int i = 1; i < rawData.size(); i++) {
+            if (table.hasRowHeader()) {
+                destTableHeaders.row.data.add(rawData.get(i).get(0));
+                destTableContent.cells.add(rawData.get(i).subList(1, rawData.get(i).size()));
+            } else {
+                destTableContent.cells.add(rawData.get(i));
             }
-            // filling headers by splitting top corner left of table in case of row and column headers
-            if (table.hasColHeader() && table.hasRowHeader()) {
-                String[] topCornerLeftValues = rawData.get(0).get(0).toString().split("\\|");
-                destTableHeaders.col.data.set(0, topCornerLeftValues[0]);
-                if (topCornerLeftValues.length > 1) {
-                    destTableHeaders.row.data.set(0, topCornerLeftValues[1]);
-                }
+        }
+        // filling headers by splitting top corner left of table in case of row and column headers
+        if (table.hasColHeader() && table.hasRowHeader()) {
+            String[] topCornerLeftValues = rawData.get(0).get(0).toString().split("\\|", -1);
+            destTableHeaders.col.data.set(0, topCornerLeftValues[0]);
+            if (topCornerLeftValues.length > 1 && !topCornerLeftValues[1].isEmpty()) {
+                destTableHeaders.row.data.set(0, topCornerLeftValues[1]);
             }
-
-        } catch (ClassNotFoundException | IOException e) {
-            throw new IkatsException("Error raised during table deserialization of raw values. Message: " + e.getMessage(), e);
         }
 
         // process table raw data links
-        DataLinksMatrix rawDataLinks;
-        try {
-            ois = new ObjectInputStream(new ByteArrayInputStream(table.getRawDataLinks()));
-            rawDataLinks = (DataLinksMatrix) ois.readObject();
-            destTableContent.default_links = rawDataLinks.getCellsDefaultDatalink();
-            destTableContent.links = rawDataLinks.getCellsDatalink();
+        destTableContent.default_links = rawDataLinks.getCellsDefaultDatalink();
+        destTableContent.links = rawDataLinks.getCellsDatalink();
 
-            if (table.hasRowHeader()) {
-                destTableHeaders.row.default_links = rawDataLinks.getRowHeaderDefaultDatalink();
-                destTableHeaders.row.links = rawDataLinks.getRowHeaderDatalink();
-            }
-
-            if (table.hasColHeader()) {
-                destTableHeaders.col.default_links = rawDataLinks.getColumnHeaderDefaultDatalink();
-                destTableHeaders.col.links = rawDataLinks.getColumnHeaderDatalink();
-            }
+        if (table.hasRowHeader()) {
+            destTableHeaders.row.default_links = rawDataLinks.getRowHeaderDefaultDatalink();
+            destTableHeaders.row.links = rawDataLinks.getRowHeaderDatalink();
+        }
 
-        } catch (ClassNotFoundException | IOException e) {
-            throw new IkatsException("Error raised during table deserialization of raw datalinks. Message: " + e.getMessage(), e);
+        if (table.hasColHeader()) {
+            destTableHeaders.col.default_links = rawDataLinks.getColumnHeaderDefaultDatalink();
+            destTableHeaders.col.links = rawDataLinks.getColumnHeaderDatalink();
         }
 
         destTable.content = destTableContent;
@@ -440,14 +486,8 @@ public class TableManager {
             tableFullContent.add(tempRowData);
         }
 
-        ObjectOutputStream oos;
-        ByteArrayOutputStream bos;
         try {
-            bos = new ByteArrayOutputStream();
-            oos = new ObjectOutputStream(bos);
-            oos.writeObject(tableFullContent);
-            oos.flush();
-            destTable.setRawValues(bos.toByteArray());
+            destTable.setRawValues(storageCodec.encodeValues(tableFullContent));
         } catch (IOException e) {
             throw new IkatsException("Error raised during table serialization of raw values. Message: " + e.getMessage(), e);
         }
@@ -467,21 +507,82 @@ public class TableManager {
         dataLinks.setCellsDatalink(table.getContent().links);
 
         try {
-            bos = new ByteArrayOutputStream();
-            oos = new ObjectOutputStream(bos);
-            oos.writeObject(dataLinks);
-            oos.flush();
-            destTable.setRawDataLinks(bos.toByteArray());
-
+            destTable.setRawDataLinks(storageCodec.encodeDataLinks(dataLinks));
         } catch (IOException e) {
             throw new IkatsException("Error raised during table serialization of raw datalinks. Message: " + e.getMessage(), e);
         }
 
+        // catalog of the stored raw data
+        TableCatalogBuilder catalog = new TableCatalogBuilder(destTable.hasColHeader(), destTable.hasRowHeader());
+        for (List<Object> rawRow : tableFullContent) {
+            catalog.addRow(rawRow);
+        }
+        catalog.applyTo(destTable, destTable.getRawValues(), destTable.getRawDataLinks());
+
         return destTable;
     }
 
     /**
-     * Gets the JSON resource TableInfo from process data database.
+     * Decodes a selection of the raw values, written by the TableStorageCodec, or by the ObjectOutputStream for the
+     * tables stored before the codec: these ones are fully decoded before the selection.
+     *
+     * @param rawValues the stored blob
+     * @param columns   indexes of the selected raw columns, null selects all of them
+     * @param fromRow   index of the first selected raw row, inclusive
+     * @param toRow     index of the last selected raw row, exclusive
+     * @return the selected rows of values, including the headers
+     */
+    @SuppressWarnings("unchecked")
+    private List<List<Object>> decodeRawValues(byte[] rawValues, int[] columns, int fromRow, int toRow)
+            throws IOException, ClassNotFoundException {
+        if (TableStorageCodec.isEncoded(rawValues)) {
+            return storageCodec.decodeValues(rawValues, columns, fromRow, toRow);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(rawValues))) {
+            return TableStorageCodec.selectRows((List<List<Object>>) ois.readObject(), columns, fromRow, toRow);
+        }
+    }
+
+    /**
+     * Decodes a selection of the raw values of the table, followed by the rows of its appended row groups: see
+     * {@link #decodeRawValues(byte[], int[], int, int)}
+     *
+     * @param dataTable the stored table
+     * @param columns   indexes of the selected raw columns, null selects all of them
+     * @param fromRow   index of the first selected raw row, inclusive
+     * @param toRow     index of the last selected raw row, exclusive
+     * @return the selected rows of values, including the headers
+     */
+    private List<List<Object>> decodeRawValues(TableEntity dataTable, int[] columns, int fromRow, int toRow)
+            throws IOException, ClassNotFoundException {
+        List<TableSegmentEntity> segments = readSegments(dataTable);
+        if (segments.isEmpty()) {
+            return decodeRawValues(dataTable.getRawValues(), columns, fromRow, toRow);
+        }
+        List<List<Object>> rows = new ArrayList<>();
+        getRawValuesScanner(dataTable.getRawValues(), segments).scan(columns, fromRow, toRow, rows::add);
+        return rows;
+    }
+
+    /**
+     * Decodes the raw datalinks, written by the TableStorageCodec, or by the ObjectOutputStream for the tables stored
+     * before the codec.
+     *
+     * @param rawDataLinks the stored blob
+     * @return the links of cells and headers
+     */
+    private DataLinksMatrix decodeRawDataLinks(byte[] rawDataLinks) throws IOException, ClassNotFoundException {
+        if (TableStorageCodec.isEncoded(rawDataLinks)) {
+            return storageCodec.decodeDataLinks(rawDataLinks);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(rawDataLinks))) {
+            return (DataLinksMatrix) ois.readObject();
+        }
+    }
+
+    /**
+     * Gets the JSON resource TableInfo from process data database. The decoded table is cached: see
+     * {@link #readCachedColumnar(String)}.
      *
      * @param tableName the name of the table is its unique identifier
      * @return read resource TableInfo.
@@ -491,16 +592,536 @@ public class TableManager {
     public TableInfo readFromDatabase(String tableName)
             throws IkatsDaoMissingResource, IkatsException {
 
-        TableEntity dataTable = dao.getByName(tableName);
-
         // Convert to Table type
-        TableInfo table = tableEntityToTableInfo(dataTable);
+        TableInfo table = readCachedColumnar(tableName).toTableInfo();
 
         LOGGER.trace("Table retrieved from db OK : name=" + tableName);
         return table;
 
     }
 
+    /**
+     * Gets the table from process data database, as a ColumnarTable: the rows are decoded one by one into the columns,
+     * without building the TableInfo. The decoded table is cached: see {@link #readCachedColumnar(String)}.
+     *
+     * @param tableName the name of the table is its unique identifier
+     * @return read ColumnarTable.
+     * @throws IkatsDaoMissingResource the table name tableName is not matched in the database.
+     * @throws IkatsException          deserialization error
+     */
+    public ColumnarTable readColumnarFromDatabase(String tableName)
+            throws IkatsDaoMissingResource, IkatsException {
+
+        return readCachedColumnar(tableName).copy();
+    }
+
+    /**
+     * Gets the decoded table from the cache, when cached with the id and version of the stored table, otherwise
+     * decodes it from the database and caches it. See {@link TableCache}.
+     *
+     * @param tableName the name of the table is its unique identifier
+     * @return the decoded table, shared by the cache: not to be modified
+     * @throws IkatsDaoMissingResource the table name tableName is not matched in the database.
+     * @throws IkatsException          deserialization error
+     */
+    private ColumnarTable readCachedColumnar(String tableName) throws IkatsDaoMissingResource, IkatsException {
+
+        if (TABLE_CACHE.isEnabled()) {
+            TableEntitySummary summary = dao.getSummaryByName(tableName);
+            ColumnarTable cached = TABLE_CACHE.get(tableName, summary.getId(), summary.getVersion());
+            if (cached != null) {
+                LOGGER.trace("Table retrieved from cache OK : name=" + tableName);
+                return cached;
+            }
+        }
+
+        TableEntity dataTable = dao.getByName(tableName);
+        ColumnarTable table = decodeColumnar(dataTable);
+        TABLE_CACHE.put(tableName, dataTable.getId(), dataTable.getVersion(), table);
+        return table;
+    }
+
+    /**
+     * Decodes the stored table as a ColumnarTable: see {@link #readColumnarFromDatabase(String)}
+     *
+     * @param dataTable the stored table
+     * @return the decoded table
+     * @throws IkatsException deserialization error
+     */
+    private ColumnarTable decodeColumnar(TableEntity dataTable) throws IkatsException {
+
+        String tableName = dataTable.getName();
+        boolean hasRowHeader = dataTable.hasRowHeader();
+
+        ColumnarTable table;
+        try {
+            DataLinksMatrix rawDataLinks = decodeRawDataLinks(dataTable.getRawDataLinks());
+            List<List<TableInfo.DataLink>> cellsLinks = rawDataLinks.getCellsDatalink();
+            rawDataLinks.setCellsDatalink(null);
+
+            // the first raw row provides the headers: built as readFromDatabase() does
+            List<List<Object>> firstRow = decodeRawValues(dataTable.getRawValues(), null, 0, 1);
+            table = new ColumnarTable(rawToTableInfo(dataTable, firstRow, rawDataLinks));
+
+            Header rowsHeader = table.getRowsHeader();
+            getRawValuesScanner(dataTable).scan(null, 1, Integer.MAX_VALUE, row -> {
+                if (hasRowHeader) {
+                    rowsHeader.data.add(row == null ? null : row.get(0));
+                    table.appendContentRow(row == null ? null : row.subList(1, row.size()), null);
+                } else {
+                    table.appendContentRow(row, null);
+                }
+            });
+            table.setContentLinks(cellsLinks);
+        } catch (ClassNotFoundException | IOException e) {
+            throw new IkatsException("Error raised during table deserialization. Message: " + e.getMessage(), e);
+        }
+
+        LOGGER.trace("Columnar table retrieved from db OK : name=" + tableName);
+        return table;
+    }
+
+    /**
+     * Executes a query on the content of a table stored in process data database: see {@link TableQuery}. The
+     * query is evaluated on the columns of the table, so that only the result rows are converted to the returned
+     * TableInfo.
+     *
+     * @param tableName the name of the table is its unique identifier
+     * @param query     the query
+     * @return the result of the query: a table with a columns header and its content, without links
+     * @throws IkatsDaoMissingResource   the table name tableName is not matched in the database.
+     * @throws ResourceNotFoundException a column of the query is not found in the columns header.
+     * @throws InvalidValueException     invalid query, or table without columns header
+     * @throws IkatsException            deserialization error
+     */
+    public TableInfo queryTable(String tableName, TableQuery query)
+            throws IkatsDaoMissingResource, ResourceNotFoundException, InvalidValueException, IkatsException {
+
+        if (query == null) {
+            throw new InvalidValueException("TableQuery", "query", "a query", "undefined", tableName);
+        }
+        validateSelection(tableName, query.getOffset(), query.getLimit() == null ? 0 : query.getLimit());
+
+        // the engine does not modify the table: the cached table is not copied
+        ColumnarTable table = readCachedColumnar(tableName);
+        TableInfo result = new TableQueryEngine(table).execute(query);
+
+        LOGGER.trace("Table query executed OK : name=" + tableName);
+        return result;
+    }
+
+    /**
+     * Gets a selection of the JSON resource TableInfo from process data database: only the selected columns and rows
+     * are decoded. The rows header and the columns header, when defined, are kept.
+     *
+     * @param tableName   the name of the table is its unique identifier
+     * @param columnNames the names of the selected columns, in the columns header. null selects all the columns.
+     * @param offset      the index of the first selected content row
+     * @param limit       the maximum number of selected content rows
+     * @return read resource TableInfo, restricted to the selection.
+     * @throws IkatsDaoMissingResource   the table name tableName is not matched in the database.
+     * @throws ResourceNotFoundException one of the columnNames is not found in the columns header.
+     * @throws InvalidValueException     negative offset or limit
+     * @throws IkatsException            selection of columns without columns header, or deserialization error
+     */
+    public TableInfo readFromDatabase(String tableName, List<String> columnNames, int offset, int limit)
+            throws IkatsDaoMissingResource, ResourceNotFoundException, InvalidValueException, IkatsException {
+
+        validateSelection(tableName, offset, limit);
+
+        TableEntity dataTable = dao.getByName(tableName);
+        boolean hasColHeader = dataTable.hasColHeader();
+
+        List<List<Object>> rawData;
+        int[] rawColumns = null;
+        try {
+            if (columnNames != null) {
+                rawColumns = getRawColumnIndexes(dataTable, columnNames);
+            }
+
+            rawData = new ArrayList<>();
+            if (hasColHeader) {
+                rawData.addAll(decodeRawValues(dataTable.getRawValues(), rawColumns, 0, 1));
+            }
+            rawData.addAll(decodeRawValues(dataTable, rawColumns, getFromRawRow(dataTable, offset),
+                    getToRawRow(dataTable, offset, limit)));
+        } catch (ClassNotFoundException | IOException e) {
+            throw new IkatsException("Error raised during table deserialization of raw values. Message: " + e.getMessage(), e);
+        }
+
+        DataLinksMatrix selectedLinks = readSelectedLinks(dataTable, rawColumns, offset, limit);
+
+        TableInfo table = rawToTableInfo(dataTable, rawData, selectedLinks);
+
+        LOGGER.trace("Table selection retrieved from db OK : name=" + tableName);
+        return table;
+    }
+
+    /**
+     * Prepares the streamed JSON of a selection of the table: the table is checked and the selection is resolved by
+     * this method, then the rows are decoded and written one by one by {@link TableJsonWriter#write(OutputStream)}.
+     * The written JSON is the one of the TableInfo returned by {@link #readFromDatabase(String, List, int, int)}.
+     *
+     * @param tableName      the name of the table is its unique identifier
+     * @param columnNames    the names of the selected columns, in the columns header. null selects all the columns.
+     * @param offset         the index of the first selected content row
+     * @param limit          the maximum number of selected content rows
+     * @param withNullValues true to write the null properties and empty arrays, as a default ObjectMapper, false to
+     *                       skip them, as {@link #serializeToJson(TableInfo)}
+     * @return the writer of the JSON
+     * @throws IkatsDaoMissingResource   the table name tableName is not matched in the database.
+     * @throws ResourceNotFoundException one of the columnNames is not found in the columns header.
+     * @throws InvalidValueException     negative offset or limit
+     * @throws IkatsException            selection of columns without columns header, or deserialization error
+     */
+    public TableJsonWriter getJsonWriter(String tableName, List<String> columnNames, int offset, int limit,
+                                         boolean withNullValues)
+            throws IkatsDaoMissingResource, ResourceNotFoundException, InvalidValueException, IkatsException {
+
+        validateSelection(tableName, offset, limit);
+
+        TableEntity dataTable = dao.getByName(tableName);
+
+        int[] rawColumns = null;
+        TableJsonWriter.RawValuesScanner scanner;
+        try {
+            if (columnNames != null) {
+                rawColumns = getRawColumnIndexes(dataTable, columnNames);
+            }
+            scanner = getRawValuesScanner(dataTable);
+        } catch (ClassNotFoundException | IOException e) {
+            throw new IkatsException("Error raised during table deserialization of raw values. Message: " + e.getMessage(), e);
+        }
+
+        DataLinksMatrix selectedLinks = readSelectedLinks(dataTable, rawColumns, offset, limit);
+
+        return new TableJsonWriter(dataTable, scanner, rawColumns, getFromRawRow(dataTable, offset),
+                getToRawRow(dataTable, offset, limit), selectedLinks,
+                withNullValues ? DEFAULT_JSON_OBJECT_MAPPER : jsonObjectMapper, withNullValues);
+    }
+
+    /**
+     * Prepares the streamed CSV of the table: the rows are decoded and written one by one by
+     * {@link TableCsvWriter#write(OutputStream)}.
+     *
+     * @param tableName the name of the table is its unique identifier
+     * @param delimiter the delimiter of the fields: see {@link TableCsvWriter#isValidDelimiter(char)}
+     * @return the writer of the CSV
+     * @throws IkatsDaoMissingResource the table name tableName is not matched in the database.
+     * @throws IkatsException          deserialization error
+     */
+    public TableCsvWriter getCsvWriter(String tableName, char delimiter)
+            throws IkatsDaoMissingResource, IkatsException {
+
+        return getCsvWriter(dao.getByName(tableName), delimiter);
+    }
+
+    /**
+     * Prepares the streamed CSV of the table entity: see {@link #getCsvWriter(String, char)}
+     *
+     * @param dataTable the table entity
+     * @param delimiter the delimiter of the fields: see {@link TableCsvWriter#isValidDelimiter(char)}
+     * @return the writer of the CSV
+     * @throws IkatsException deserialization error
+     */
+    public TableCsvWriter getCsvWriter(TableEntity dataTable, char delimiter) throws IkatsException {
+
+        TableJsonWriter.RawValuesScanner scanner;
+        try {
+            scanner = getRawValuesScanner(dataTable);
+        } catch (ClassNotFoundException | IOException e) {
+            throw new IkatsException("Error raised during table deserialization of raw values. Message: " + e.getMessage(), e);
+        }
+        return new TableCsvWriter(dataTable, scanner, delimiter);
+    }
+
+    /**
+     * Prepares the scanner of the raw values of the table, followed by the rows of its appended row groups
+     *
+     * @param dataTable the stored table
+     * @return the scanner of the rows
+     */
+    private TableJsonWriter.RawValuesScanner getRawValuesScanner(TableEntity dataTable)
+            throws IOException, ClassNotFoundException {
+        return getRawValuesScanner(dataTable.getRawValues(), readSegments(dataTable));
+    }
+
+    /**
+     * Prepares the scanner of the raw values, followed by the rows of the appended row groups: only the row groups
+     * overlapping the scanned rows are decoded.
+     *
+     * @param rawValues the stored blob of the TableEntity
+     * @param segments  the appended row groups, in their order
+     * @return the scanner of the rows
+     */
+    private TableJsonWriter.RawValuesScanner getRawValuesScanner(byte[] rawValues, List<TableSegmentEntity> segments)
+            throws IOException, ClassNotFoundException {
+        TableJsonWriter.RawValuesScanner scanner = getRawValuesScanner(rawValues);
+        if (segments.isEmpty()) {
+            return scanner;
+        }
+        int rawRowCount = countRawRows(rawValues);
+        return (columns, fromRow, toRow, handler) -> {
+            scanner.scan(columns, fromRow, toRow, handler);
+            int first = rawRowCount;
+            for (TableSegmentEntity segment : segments) {
+                int next = first + segment.getRowCount();
+                if (fromRow < next && toRow > first) {
+                    storageCodec.scanValues(segment.getRawValues(), columns, fromRow - first, toRow - first, handler);
+                }
+                first = next;
+            }
+        };
+    }
+
+    /**
+     * Counts the rows of the raw values, including the headers
+     */
+    private int countRawRows(byte[] rawValues) throws IOException, ClassNotFoundException {
+        if (TableStorageCodec.isEncoded(rawValues)) {
+            return storageCodec.countRows(rawValues);
+        }
+        return decodeRawValues(rawValues, null, 0, Integer.MAX_VALUE).size();
+    }
+
+    /**
+     * Reads the row groups appended to the table
+     *
+     * @param table the table, or its summary
+     * @return the segments of the appended row groups, in their order: empty for a table never appended
+     */
+    private List<TableSegmentEntity> readSegments(AbstractTableEntity table) {
+        if (getRowGroupCount(table) <= 1) {
+            return Collections.emptyList();
+        }
+        return dao.listSegments(table.getId());
+    }
+
+    /**
+     * @return the number of row groups of the table: 1 for a table never appended
+     */
+    private static int getRowGroupCount(AbstractTableEntity table) {
+        return table.getRowGroupCount() == null ? 1 : table.getRowGroupCount();
+    }
+
+    /**
+     * Prepares the scanner of the raw values
+     *
+     * @param rawValues the stored blob
+     * @return the scanner of the rows
+     */
+    private TableJsonWriter.RawValuesScanner getRawValuesScanner(byte[] rawValues)
+            throws IOException, ClassNotFoundException {
+        if (TableStorageCodec.isEncoded(rawValues)) {
+            return (columns, fromRow, toRow, handler) ->
+                    storageCodec.scanValues(rawValues, columns, fromRow, toRow, handler);
+        }
+        // table stored before the codec: decoded once
+        List<List<Object>> rawData = decodeRawValues(rawValues, null, 0, Integer.MAX_VALUE);
+        return (columns, fromRow, toRow, handler) -> {
+            for (List<Object> row : TableStorageCodec.selectRows(rawData, columns, fromRow, toRow)) {
+                handler.handle(row);
+            }
+        };
+    }
+
+    /**
+     * Checks the offset and limit of a selection of rows
+     */
+    private static void validateSelection(String tableName, int offset, int limit) throws InvalidValueException {
+        if (offset < 0) {
+            throw new InvalidValueException("Table", "offset", ">= 0", Integer.toString(offset), tableName);
+        }
+        if (limit < 0) {
+            throw new InvalidValueException("Table", "limit", ">= 0", Integer.toString(limit), tableName);
+        }
+    }
+
+    /**
+     * Index of the first raw row of the content rows [offset, offset + limit[, after the columns header
+     */
+    private static int getFromRawRow(TableEntity dataTable, int offset) {
+        int shift = dataTable.hasColHeader() ? 1 : 0;
+        return (int) Math.min((long) offset + shift, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Index following the last raw row of the content rows [offset, offset + limit[, after the columns header
+     */
+    private static int getToRawRow(TableEntity dataTable, int offset, int limit) {
+        int shift = dataTable.hasColHeader() ? 1 : 0;
+        return (int) Math.min((long) offset + limit + shift, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads the links of the table, restricted to the selection
+     */
+    private DataLinksMatrix readSelectedLinks(TableEntity dataTable, int[] rawColumns, int offset, int limit)
+            throws IkatsException {
+        DataLinksMatrix rawDataLinks;
+        try {
+            rawDataLinks = decodeRawDataLinks(dataTable.getRawDataLinks());
+        } catch (ClassNotFoundException | IOException e) {
+            throw new IkatsException("Error raised during table deserialization of raw datalinks. Message: " + e.getMessage(), e);
+        }
+        return selectLinks(rawDataLinks, rawColumns, offset, limit, dataTable.hasColHeader(), dataTable.hasRowHeader());
+    }
+
+    /**
+     * Gets the JSON resource TableInfo from process data database, restricted to the selected columns: see
+     * {@link #readFromDatabase(String, List, int, int)}
+     *
+     * @param tableName   the name of the table is its unique identifier
+     * @param columnNames the names of the selected columns, in the columns header
+     * @return read resource TableInfo, restricted to the selected columns.
+     */
+    public TableInfo readColumns(String tableName, List<String> columnNames)
+            throws IkatsDaoMissingResource, ResourceNotFoundException, InvalidValueException, IkatsException {
+        return readFromDatabase(tableName, columnNames, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the JSON resource TableInfo from process data database, restricted to a range of rows: see
+     * {@link #readFromDatabase(String, List, int, int)}
+     *
+     * @param tableName the name of the table is its unique identifier
+     * @param offset    the index of the first selected content row
+     * @param limit     the maximum number of selected content rows
+     * @return read resource TableInfo, restricted to the range of rows.
+     */
+    public TableInfo readRows(String tableName, int offset, int limit)
+            throws IkatsDaoMissingResource, ResourceNotFoundException, InvalidValueException, IkatsException {
+        return readFromDatabase(tableName, null, offset, limit);
+    }
+
+    /**
+     * Evaluates the indexes of the raw columns selected by their name in the columns header. The rows header, when
+     * defined, is the first selected raw column.
+     */
+    private int[] getRawColumnIndexes(TableEntity dataTable, List<String> columnNames)
+            throws IOException, ClassNotFoundException, IkatsException, ResourceNotFoundException {
+        if (!dataTable.hasColHeader()) {
+            throw new IkatsException("Selection of columns by name failed: no columns header in table " + dataTable.getName());
+        }
+        List<List<Object>> firstRow = decodeRawValues(dataTable.getRawValues(), null, 0, 1);
+        List<Object> rawHeader = firstRow.isEmpty() ? new ArrayList<>() : firstRow.get(0);
+
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = rawHeader.size() - 1; i >= 0; i--) {
+            Object name = rawHeader.get(i);
+            if (i == 0 && dataTable.hasRowHeader() && name != null) {
+                // top corner left: columns header value before "|"
+                name = name.toString().split("\\|", -1)[0];
+            }
+            if (name != null) {
+                indexes.put(name.toString(), i);
+            }
+        }
+
+        List<Integer> selected = new ArrayList<>();
+        if (dataTable.hasRowHeader()) {
+            selected.add(0);
+        }
+        for (String columnName : columnNames) {
+            Integer index = indexes.get(columnName);
+            if (index == null) {
+                throw new ResourceNotFoundException("Column " + columnName + " not found in table " + dataTable.getName());
+            }
+            if (!selected.contains(index)) {
+                selected.add(index);
+            }
+        }
+        int[] rawColumns = new int[selected.size()];
+        for (int i = 0; i < rawColumns.length; i++) {
+            rawColumns[i] = selected.get(i);
+        }
+        return rawColumns;
+    }
+
+    /**
+     * Selects the links of the selected raw columns and content rows
+     *
+     * @param links        all the links
+     * @param rawColumns   indexes of the selected raw columns, null selects all of them
+     * @param offset       the index of the first selected content row
+     * @param limit        the maximum number of selected content rows
+     * @param hasColHeader true if the table has a columns header
+     * @param hasRowHeader true if the table has a rows header
+     * @return the selected links
+     */
+    private static DataLinksMatrix selectLinks(DataLinksMatrix links, int[] rawColumns, int offset, int limit,
+                                               boolean hasColHeader, boolean hasRowHeader) {
+        int[] contentColumns = null;
+        if (rawColumns != null) {
+            // the rows header is the first raw column
+            int shift = hasRowHeader ? 1 : 0;
+            List<Integer> columns = new ArrayList<>();
+            for (int rawColumn : rawColumns) {
+                if (rawColumn >= shift) {
+                    columns.add(rawColumn - shift);
+                }
+            }
+            contentColumns = new int[columns.size()];
+            for (int i = 0; i < contentColumns.length; i++) {
+                contentColumns[i] = columns.get(i);
+            }
+        }
+        int to = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+
+        DataLinksMatrix selection = new DataLinksMatrix();
+        selection.setCellsDefaultDatalink(links.getCellsDefaultDatalink());
+        selection.setRowHeaderDefaultDatalink(links.getRowHeaderDefaultDatalink());
+        selection.setColumnHeaderDefaultDatalink(links.getColumnHeaderDefaultDatalink());
+
+        if (links.getCellsDatalink() != null) {
+            List<List<TableInfo.DataLink>> cells = new ArrayList<>();
+            for (List<TableInfo.DataLink> row : subList(links.getCellsDatalink(), offset, to)) {
+                cells.add(row == null ? null : selectItems(row, contentColumns));
+            }
+            selection.setCellsDatalink(cells);
+        }
+        if (links.getColumnHeaderDatalink() != null) {
+            selection.setColumnHeaderDatalink(selectItems(links.getColumnHeaderDatalink(), rawColumns));
+        }
+        List<TableInfo.DataLink> rowHeaderLinks = links.getRowHeaderDatalink();
+        if (rowHeaderLinks != null) {
+            List<TableInfo.DataLink> rowLinks = new ArrayList<>();
+            if (hasColHeader) {
+                // first link is the one of top corner left
+                if (!rowHeaderLinks.isEmpty()) {
+                    rowLinks.add(rowHeaderLinks.get(0));
+                }
+                rowLinks.addAll(subList(rowHeaderLinks, offset + 1, to == Integer.MAX_VALUE ? to : to + 1));
+            } else {
+                rowLinks.addAll(subList(rowHeaderLinks, offset, to));
+            }
+            selection.setRowHeaderDatalink(rowLinks);
+        }
+        return selection;
+    }
+
+    /**
+     * Bounded subList
+     */
+    private static <T> List<T> subList(List<T> list, int from, int to) {
+        int boundedTo = Math.min(to, list.size());
+        return from >= boundedTo ? new ArrayList<>() : list.subList(from, boundedTo);
+    }
+
+    /**
+     * Selects the items at indexes, null when out of bounds. null indexes selects all the items.
+     */
+    private static <T> List<T> selectItems(List<T> items, int[] indexes) {
+        if (indexes == null) {
+            return new ArrayList<>(items);
+        }
+        List<T> selection = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            selection.add(index < items.size() ? items.get(index) : null);
+        }
+        return selection;
+    }
+
     /**
      * Gets the JSON resource TableInfo from process data database.
      *
@@ -555,6 +1176,52 @@ public class TableManager {
         TableEntity tableToStore = tableInfoToTableEntity(table);
 
         Integer rid = dao.persist(tableToStore);
+        TABLE_CACHE.invalidate(tableName);
+        LOGGER.trace("Table stored Ok in db: " + tableName + " with rid: " + rid);
+
+        return rid;
+    }
+
+    /**
+     * Creates in the database the table read from CSV content: the records are streamed into the storage format,
+     * without building the Table. The first line is the columns header, the first column is the rows header, and the
+     * values are read as Strings. See {@link CsvTableReader}.
+     *
+     * @param tableName   the name of the created table
+     * @param fileName    the name of the CSV file: description of the table
+     * @param csv         the CSV content
+     * @param keyColumn   the name of the column whose values must be unique
+     * @return the id of the created table
+     * @throws InvalidValueException      invalid table name
+     * @throws ImportException            invalid CSV content: key column not found in the header, record not fitting
+     *                                    the header size, or duplicate key
+     * @throws IOException                error reading the CSV content
+     * @throws IkatsException             serialization error
+     * @throws IkatsDaoConflictException  table already existing
+     */
+    public Integer createInDatabaseFromCsv(String tableName, String fileName, InputStream csv, String keyColumn)
+            throws InvalidValueException, ImportException, IOException, IkatsException, IkatsDaoConflictException {
+
+        validateTableName(tableName, "Create Table in database from CSV");
+
+        TableEntity tableToStore = new TableEntity();
+        tableToStore.setName(tableName);
+        tableToStore.setTitle(tableName);
+        tableToStore.setDescription(fileName);
+        tableToStore.setCreated(new Date());
+        tableToStore.setColHeader(true);
+        tableToStore.setRowHeader(true);
+        TableCatalogBuilder catalog = new TableCatalogBuilder(true, true);
+        tableToStore.setRawValues(new CsvTableReader(storageCodec).read(csv, fileName, keyColumn, catalog));
+        try {
+            tableToStore.setRawDataLinks(storageCodec.encodeDataLinks(new DataLinksMatrix()));
+        } catch (IOException e) {
+            throw new IkatsException("Error raised during table serialization of raw datalinks. Message: " + e.getMessage(), e);
+        }
+        catalog.applyTo(tableToStore, tableToStore.getRawValues(), tableToStore.getRawDataLinks());
+
+        Integer rid = dao.persist(tableToStore);
+        TABLE_CACHE.invalidate(tableName);
         LOGGER.trace("Table stored Ok in db: " + tableName + " with rid: " + rid);
 
         return rid;
@@ -568,12 +1235,13 @@ public class TableManager {
      */
     public void deleteFromDatabase(String tableName) throws IkatsDaoException, ResourceNotFoundException {
         // No exception raised by this remove
-        int idTable = dao.getByName(tableName).getId();
+        int idTable = dao.getSummaryByName(tableName).getId();
         dao.removeById(idTable);
+        TABLE_CACHE.invalidate(tableName);
     }
 
     /**
-     * Basically checks if tableName exists in the database.
+     * Basically checks if tableName exists in the database: the tables are counted, without loading their content.
      * <p>
      *
      * @param tableName the name is the identifier of the Table.
@@ -581,7 +1249,228 @@ public class TableManager {
      * @throws IkatsDaoException unexpected Hibernate error.
      */
     public boolean existsInDatabase(String tableName) throws IkatsDaoException {
-        return !dao.findByName(tableName, true).isEmpty();
+        return dao.exists(tableName);
+    }
+
+    /**
+     * @return the number of table reads served by the cache of the decoded tables
+     */
+    public long getTableCacheHitCount() {
+        return TABLE_CACHE.getHitCount();
+    }
+
+    /**
+     * @return the number of table reads decoded from the database, while the cache is enabled
+     */
+    public long getTableCacheMissCount() {
+        return TABLE_CACHE.getMissCount();
+    }
+
+    /**
+     * @return the number of decoded tables evicted from the cache, to respect its maximum size
+     */
+    public long getTableCacheEvictionCount() {
+        return TABLE_CACHE.getEvictionCount();
+    }
+
+    /**
+     * @return the estimated size of the cached decoded tables, in bytes
+     */
+    public long getTableCacheByteSize() {
+        return TABLE_CACHE.getByteSize();
+    }
+
+    /**
+     * Empty the cache of the decoded tables, and reset its counters
+     */
+    public void clearTableCache() {
+        TABLE_CACHE.clear();
+    }
+
+    /**
+     * Gets the catalog of a table: its summary, with the row count, the column count, the column names and types,
+     * the byte size and the checksum of the stored raw data. The raw data is not loaded, except for a table stored
+     * before the catalog: its catalog is then computed once, and stored.
+     *
+     * @param tableName the name is the identifier of the Table.
+     * @return the summary of the table, with its catalog
+     * @throws IkatsDaoMissingResource the table name tableName is not matched in the database.
+     * @throws IkatsException          deserialization error, computing the missing catalog
+     */
+    public TableEntitySummary readCatalog(String tableName) throws IkatsDaoException, IkatsException {
+        TableEntitySummary summary = dao.getSummaryByName(tableName);
+        if (summary.getRowCount() != null) {
+            return summary;
+        }
+
+        TableEntity dataTable = dao.getByName(tableName);
+        List<TableSegmentEntity> segments = readSegments(dataTable);
+        TableCatalogBuilder catalog = new TableCatalogBuilder(dataTable.hasColHeader(), dataTable.hasRowHeader());
+        try {
+            getRawValuesScanner(dataTable.getRawValues(), segments).scan(null, 0, Integer.MAX_VALUE, catalog::addRow);
+        } catch (ClassNotFoundException | IOException e) {
+            throw new IkatsException("Error raised during table deserialization of raw values. Message: " + e.getMessage(), e);
+        }
+        byte[][] raws = new byte[2 + segments.size()][];
+        raws[0] = dataTable.getRawValues();
+        raws[1] = dataTable.getRawDataLinks();
+        for (int i = 0; i < segments.size(); i++) {
+            raws[2 + i] = segments.get(i).getRawValues();
+        }
+        catalog.applyTo(dataTable, raws);
+        catalog.applyTo(summary, raws);
+        dao.update(dataTable);
+
+        LOGGER.info("Catalog of table computed and stored: name=" + tableName);
+        return summary;
+    }
+
+    /**
+     * Appends rows to the content of a table stored in database: the rows are stored as a new row group, apart from
+     * the raw values of the table, which are neither read nor written. The catalog of the table is updated.
+     * <p>
+     * The appended rows have no links.
+     *
+     * @param tableName the name is the identifier of the Table.
+     * @param rows      the appended content rows: the first value of each row is its rows header value, when the
+     *                  table has a rows header.
+     * @return the summary of the table, with its updated catalog
+     * @throws IkatsDaoMissingResource   the table name tableName is not matched in the database.
+     * @throws IkatsDaoConflictException the table has been concurrently modified
+     * @throws InvalidValueException     no row, or row larger than the columns header
+     * @throws IkatsException            serialization error
+     */
+    public TableEntitySummary appendRows(String tableName, List<List<Object>> rows)
+            throws IkatsDaoException, InvalidValueException, IkatsException {
+
+        if (rows == null || rows.isEmpty()) {
+            throw new InvalidValueException("Table", "rows", "at least one row", "no row", tableName);
+        }
+        TableEntitySummary summary = readCatalog(tableName);
+        validateRowSizes(summary, rows);
+
+        int rowGroup = getRowGroupCount(summary);
+        TableSegmentEntity segment = new TableSegmentEntity();
+        segment.setTableId(summary.getId());
+        segment.setRowGroup(rowGroup);
+        segment.setRowCount(rows.size());
+        segment.setRawValues(encodeRowGroup(rows, summary, 0, 0));
+        summary.setRowGroupCount(rowGroup + 1);
+        dao.saveSegment(summary, segment);
+        TABLE_CACHE.invalidate(tableName);
+
+        LOGGER.trace("Rows appended to table: name=" + tableName + " row group=" + rowGroup + " rows=" + rows.size());
+        return summary;
+    }
+
+    /**
+     * Replaces the rows of one row group of a table stored in database: see {@link #appendRows(String, List)}. Row
+     * group 0 holds the rows stored when the table was created, and is written with the raw values of the table. The
+     * other row groups hold the appended rows: only the replaced row group is written. The catalog of the table is
+     * updated, the types of the columns being widened.
+     * <p>
+     * The links of the table are kept as they are.
+     *
+     * @param tableName the name is the identifier of the Table.
+     * @param rowGroup  the index of the row group
+     * @param rows      the content rows replacing the ones of the row group, possibly none: the first value of each
+     *                  row is its rows header value, when the table has a rows header.
+     * @return the summary of the table, with its updated catalog
+     * @throws IkatsDaoMissingResource   the table name tableName is not matched in the database.
+     * @throws IkatsDaoConflictException the table has been concurrently modified
+     * @throws ResourceNotFoundException the row group is not found in the table
+     * @throws InvalidValueException     undefined rows, or row larger than the columns header
+     * @throws IkatsException            serialization error
+     */
+    public TableEntitySummary replaceRowGroup(String tableName, int rowGroup, List<List<Object>> rows)
+            throws IkatsDaoException, ResourceNotFoundException, InvalidValueException, IkatsException {
+
+        if (rows == null) {
+            throw new InvalidValueException("Table", "rows", "a list of rows", "null", tableName);
+        }
+        TableEntitySummary summary = readCatalog(tableName);
+        validateRowSizes(summary, rows);
+        if (rowGroup < 0 || rowGroup >= getRowGroupCount(summary)) {
+            throw new ResourceNotFoundException("Row group " + rowGroup + " not found in table " + tableName);
+        }
+
+        if (rowGroup > 0) {
+            TableSegmentEntity segment = dao.getSegment(summary.getId(), rowGroup);
+            segment.setRawValues(encodeRowGroup(rows, summary, segment.getRowCount(), segment.getRawValues().length));
+            segment.setRowCount(rows.size());
+            dao.saveSegment(summary, segment);
+        } else {
+            // the first row group is stored with the columns header, in the raw values of the table
+            TableEntity dataTable = dao.getByName(tableName);
+            byte[] rawValues = dataTable.getRawValues();
+            List<List<Object>> rawRows = new ArrayList<>();
+            int replacedRows;
+            try {
+                if (dataTable.hasColHeader()) {
+                    rawRows.addAll(decodeRawValues(rawValues, null, 0, 1));
+                }
+                replacedRows = countRawRows(rawValues) - rawRows.size();
+            } catch (ClassNotFoundException | IOException e) {
+                throw new IkatsException("Error raised during table deserialization of raw values. Message: " + e.getMessage(), e);
+            }
+            rawRows.addAll(rows);
+
+            TableCatalogBuilder catalog = new TableCatalogBuilder(dataTable.hasColHeader(), dataTable.hasRowHeader());
+            rawRows.forEach(catalog::addRow);
+            try {
+                dataTable.setRawValues(storageCodec.encodeValues(rawRows));
+            } catch (IOException e) {
+                throw new IkatsException("Error raised during table serialization of raw values. Message: " + e.getMessage(), e);
+            }
+            catalog.mergeInto(dataTable, replacedRows, rawValues.length, dataTable.getRawValues());
+            dao.update(dataTable);
+            summary = dao.getSummaryByName(tableName);
+        }
+
+        TABLE_CACHE.invalidate(tableName);
+
+        LOGGER.trace("Row group replaced in table: name=" + tableName + " row group=" + rowGroup + " rows=" + rows.size());
+        return summary;
+    }
+
+    /**
+     * Checks that the rows are not larger than the columns header, when the table has one
+     */
+    private static void validateRowSizes(TableEntitySummary summary, List<List<Object>> rows)
+            throws InvalidValueException {
+        if (!summary.hasColHeader()) {
+            return;
+        }
+        int columnCount = summary.getColumnCount();
+        for (List<Object> row : rows) {
+            if (row != null && row.size() > columnCount) {
+                throw new InvalidValueException("Table", "rows", "rows of at most " + columnCount + " values",
+                        Integer.toString(row.size()), summary.getName());
+            }
+        }
+    }
+
+    /**
+     * Encodes the raw values of a row group appended or replaced, and merges its rows into the catalog of the table
+     *
+     * @param rows          the content rows of the row group
+     * @param summary       the summary of the table, with its defined catalog
+     * @param replacedRows  number of content rows replaced, 0 when the rows are appended
+     * @param replacedBytes size in bytes of the raw values replaced, 0 when the rows are appended
+     * @return the raw values of the row group
+     */
+    private byte[] encodeRowGroup(List<List<Object>> rows, TableEntitySummary summary, int replacedRows,
+                                  long replacedBytes) throws IkatsException {
+        byte[] rawValues;
+        try {
+            rawValues = storageCodec.encodeValues(rows);
+        } catch (IOException e) {
+            throw new IkatsException("Error raised during table serialization of raw values. Message: " + e.getMessage(), e);
+        }
+        TableCatalogBuilder catalog = new TableCatalogBuilder(false, summary.hasRowHeader());
+        rows.forEach(catalog::addRow);
+        catalog.mergeInto(summary, replacedRows, replacedBytes, rawValues);
+        return rawValues;
     }
 
     /**
@@ -608,11 +1497,7 @@ public class TableManager {
     public List<String> getColumnFromTable(String tableName, String columnName)
             throws IkatsException, IkatsDaoException, ResourceNotFoundException {
 
-        TableInfo table = readFromDatabase(tableName);
-
-        Table tableH = initTable(table, false);
-
-        List<String> column = tableH.getColumn(columnName);
+        List<String> column = readCachedColumnar(tableName).getColumn(columnName);
 
         LOGGER.trace("Column " + columnName + " retrieved from table : " + tableName);
 
@@ -668,6 +1553,17 @@ public class TableManager {
         return new Table(tableInfo);
     }
 
+    /**
+     * Creates an empty ColumnarTable, initialized as {@link #initEmptyTable(boolean, boolean)} does.
+     *
+     * @param withColumnsHeader true to enable the columns header
+     * @param withRowsHeader    true to enable the rows header
+     * @return created ColumnarTable, ready to be completed.
+     */
+    public static ColumnarTable initEmptyColumnarTable(boolean withColumnsHeader, boolean withRowsHeader) {
+        return new ColumnarTable(initEmptyTable(withColumnsHeader, withRowsHeader).getTableInfo());
+    }
+
     /**
      * Internal use: convert a collection of Object data into a collection of type T. For each item from originalList:
      * if type T is String, item is replaced by item.toString() in the new collection else: objects are casted to the
@@ -703,32 +1599,4 @@ public class TableManager {
         }
 
     }
-
-    /**
-     * Internal use only: definition of Integer comparator driven by sorting String values. Purpose of returned
-     * Comparator is to sort some table indexes (for instance rows indexes) according to a specific criterion, i.e.
-     * associated values from mapIndexToSortingValue (for instance values from one specific column).
-     *
-     * @param mapIndexToSortingValue the map associating each index to its sorting value.
-     * @param reverse                true for descending order.
-     * @return this comparator
-     */
-    static Comparator<Integer> getIndexComparator(Map<Integer, String> mapIndexToSortingValue, boolean reverse) {
-        // magic comparator: reorder the indexes according to the order of
-        // sorting values
-        Comparator<String> internalComparator = new NaturalOrderComparator();
-
-        return new Comparator<Integer>() {
-
-            @Override
-            public int compare(Integer index, Integer anotherIndex) {
-                String sortingVal = mapIndexToSortingValue.get(index);
-                String anotherSortingVal = mapIndexToSortingValue.get(anotherIndex);
-                int res = internalComparator.compare(sortingVal, anotherSortingVal);
-                if (reverse)
-                    res = -res;
-                return res;
-            }
-        };
-    }
 }
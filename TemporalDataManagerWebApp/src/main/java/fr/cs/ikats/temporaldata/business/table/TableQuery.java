@@ -0,0 +1,363 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.temporaldata.business.table;
+
+import java.util.List;
+import java.util.Locale;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import fr.cs.ikats.temporaldata.exception.InvalidValueException;
+
+/**
+ * Query on the content of a stored table, executed on the server side by {@link TableManager#queryTable(String,
+ * TableQuery)}. The query is evaluated as:
+ * <ol>
+ * <li>the rows are filtered by the conditions of {@link #getWhere()}: all the conditions must be satisfied,</li>
+ * <li>when {@link #getGroupBy()} or {@link #getAggregates()} is defined, the filtered rows are grouped by the values
+ * of the group-by columns, and each group gives one row: the group-by values followed by the aggregates. Without
+ * group-by column, the aggregates are computed on all the filtered rows,</li>
+ * <li>otherwise, the columns of {@link #getColumns()} are projected: all the columns by default,</li>
+ * <li>the result rows are sorted by {@link #getOrderBy()}, then {@link #getOffset()} and {@link #getLimit()} select a
+ * range of rows.</li>
+ * </ol>
+ * The columns are designated by their name in the columns header, the rows header being the first column. The order-by
+ * columns are the columns of the result when the rows are grouped, the columns of the table otherwise.
+ * <p>
+ * JSON example:
+ *
+ * <pre>
+ * {
+ *   "where": [ { "column": "flight_phase", "operator": "in", "values": [ "climb", "cruise" ] },
+ *              { "column": "altitude", "operator": "&gt;=", "value": 1000 } ],
+ *   "groupBy": [ "aircraft" ],
+ *   "aggregates": [ { "function": "count" },
+ *                   { "function": "mean", "column": "speed", "name": "mean_speed" } ],
+ *   "orderBy": [ { "column": "mean_speed", "descending": true } ],
+ *   "limit": 20
+ * }
+ * </pre>
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TableQuery {
+
+    /**
+     * The comparison operators of a {@link Condition}
+     */
+    public enum Operator {
+        EQ("="), NE("!="), LT("<"), LE("<="), GT(">"), GE(">="), IN("in"), IS_NULL("is_null"), NOT_NULL("not_null");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        /**
+         * @return the symbol of the operator in the JSON query
+         */
+        public String getSymbol() {
+            return symbol;
+        }
+
+        /**
+         * Gets the operator from its symbol
+         *
+         * @param symbol the symbol: one of =, !=, &lt;, &lt;=, &gt;, &gt;=, in, is_null, not_null
+         * @return the operator
+         * @throws InvalidValueException unknown operator
+         */
+        public static Operator fromSymbol(String symbol) throws InvalidValueException {
+            for (Operator operator : values()) {
+                if (operator.symbol.equalsIgnoreCase(symbol)) {
+                    return operator;
+                }
+            }
+            throw new InvalidValueException("TableQuery", "operator", "one of =, !=, <, <=, >, >=, in, is_null, not_null",
+                    symbol, null);
+        }
+    }
+
+    /**
+     * The aggregate functions of an {@link Aggregate}
+     */
+    public enum Function {
+        /**
+         * Number of rows, or of defined values when a column is specified
+         */
+        COUNT,
+        /**
+         * Sum of the defined values: Long for Integer or Long values, Double otherwise
+         */
+        SUM,
+        /**
+         * Mean of the defined values, as Double
+         */
+        MEAN,
+        /**
+         * Minimum of the defined values, with the type of the values
+         */
+        MIN,
+        /**
+         * Maximum of the defined values, with the type of the values
+         */
+        MAX;
+
+        /**
+         * Gets the function from its name, case insensitive
+         *
+         * @param name the name: count, sum, mean, min or max
+         * @return the function
+         * @throws InvalidValueException unknown function
+         */
+        public static Function fromName(String name) throws InvalidValueException {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new InvalidValueException("TableQuery", "function", "one of count, sum, mean, min, max", name,
+                        null, e);
+            }
+        }
+    }
+
+    /**
+     * Condition on the values of a column. The numbers are compared by value, whatever their type, the strings by
+     * their natural order, as sorted by {@link Table#sortRowsByColumnValues(String, boolean)}. Compared with a
+     * number, a string written as a number is read as a number, as the cells of the tables imported from CSV. An
+     * undefined value only satisfies the is_null operator.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Condition {
+
+        private String column;
+        private String operator;
+        private Object value;
+        private List<Object> values;
+
+        public Condition() {
+            // default constructor
+        }
+
+        public Condition(String column, String operator, Object value) {
+            this.column = column;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        public void setColumn(String column) {
+            this.column = column;
+        }
+
+        public String getOperator() {
+            return operator;
+        }
+
+        public void setOperator(String operator) {
+            this.operator = operator;
+        }
+
+        /**
+         * @return the compared value, for the operators other than in, is_null and not_null
+         */
+        public Object getValue() {
+            return value;
+        }
+
+        public void setValue(Object value) {
+            this.value = value;
+        }
+
+        /**
+         * @return the accepted values, for the in operator
+         */
+        public List<Object> getValues() {
+            return values;
+        }
+
+        public void setValues(List<Object> values) {
+            this.values = values;
+        }
+    }
+
+    /**
+     * Aggregate computed for each group of rows. Except for the count, the aggregated values are numbers, or strings
+     * written as numbers.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Aggregate {
+
+        private String function;
+        private String column;
+        private String name;
+
+        public Aggregate() {
+            // default constructor
+        }
+
+        public Aggregate(String function, String column) {
+            this.function = function;
+            this.column = column;
+        }
+
+        public String getFunction() {
+            return function;
+        }
+
+        public void setFunction(String function) {
+            this.function = function;
+        }
+
+        /**
+         * @return the aggregated column: optional for the count function
+         */
+        public String getColumn() {
+            return column;
+        }
+
+        public void setColumn(String column) {
+            this.column = column;
+        }
+
+        /**
+         * @return the name of the result column. Default: function_column, or count.
+         */
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Sort criterion of the result rows
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Order {
+
+        private String column;
+        private boolean descending;
+
+        public Order() {
+            // default constructor
+        }
+
+        public Order(String column, boolean descending) {
+            this.column = column;
+            this.descending = descending;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        public void setColumn(String column) {
+            this.column = column;
+        }
+
+        public boolean isDescending() {
+            return descending;
+        }
+
+        public void setDescending(boolean descending) {
+            this.descending = descending;
+        }
+    }
+
+    private List<String> columns;
+    private List<Condition> where;
+    private List<String> groupBy;
+    private List<Aggregate> aggregates;
+    private List<Order> orderBy;
+    private int offset;
+    private Integer limit;
+
+    public TableQuery() {
+        // default constructor
+    }
+
+    /**
+     * @return the projected columns, when the rows are not grouped. Default: all the columns.
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
+
+    public List<Condition> getWhere() {
+        return where;
+    }
+
+    public void setWhere(List<Condition> where) {
+        this.where = where;
+    }
+
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    public void setGroupBy(List<String> groupBy) {
+        this.groupBy = groupBy;
+    }
+
+    public List<Aggregate> getAggregates() {
+        return aggregates;
+    }
+
+    public void setAggregates(List<Aggregate> aggregates) {
+        this.aggregates = aggregates;
+    }
+
+    public List<Order> getOrderBy() {
+        return orderBy;
+    }
+
+    public void setOrderBy(List<Order> orderBy) {
+        this.orderBy = orderBy;
+    }
+
+    /**
+     * @return the index of the first result row. Default: 0.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(int offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * @return the maximum number of result rows. Default: all the rows.
+     */
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,643 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.temporaldata.business.table;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import fr.cs.ikats.temporaldata.business.table.TableColumn.ValueFilter;
+import fr.cs.ikats.temporaldata.business.table.TableInfo.Header;
+import fr.cs.ikats.temporaldata.business.table.TableQuery.Aggregate;
+import fr.cs.ikats.temporaldata.business.table.TableQuery.Condition;
+import fr.cs.ikats.temporaldata.business.table.TableQuery.Function;
+import fr.cs.ikats.temporaldata.business.table.TableQuery.Operator;
+import fr.cs.ikats.temporaldata.business.table.TableQuery.Order;
+import fr.cs.ikats.temporaldata.exception.IkatsException;
+import fr.cs.ikats.temporaldata.exception.InvalidValueException;
+import fr.cs.ikats.temporaldata.exception.ResourceNotFoundException;
+
+/**
+ * Executes a {@link TableQuery} on the columns of a {@link ColumnarTable}.
+ * <p>
+ * The engine works on a selection vector: the indexes of the selected rows, in an int[]. Each condition reduces the
+ * selection in one pass over its column, on the primitive values of the numeric columns, and once by distinct string
+ * on the dictionary-encoded columns. The groups are numbered from the dense codes of the group-by columns, and the
+ * aggregates are accumulated in primitive arrays indexed by group. Only the rows of the result range are converted to
+ * the rows of the returned TableInfo.
+ */
+final class TableQueryEngine {
+
+    /**
+     * Numbers written as strings, as the cells of the tables imported from CSV
+     */
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+
+    private static final Pattern INTEGER_PATTERN = Pattern.compile("[+-]?\\d+");
+
+    private final ColumnarTable table;
+
+    /**
+     * The names of the columns, as in the columns header: the rows header first, when handled
+     */
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * The columns, indexed as names
+     */
+    private final List<TableColumn> columns = new ArrayList<>();
+
+    private final int rowCount;
+
+    /**
+     * @param table the queried table, with a columns header
+     * @throws InvalidValueException the table has no columns header
+     */
+    TableQueryEngine(ColumnarTable table) throws InvalidValueException {
+        this.table = table;
+        Header columnsHeader = table.getColumnsHeader();
+        if (columnsHeader == null || columnsHeader.data == null) {
+            throw new InvalidValueException("Table", "headers.col", "a columns header naming the queried columns",
+                    "undefined", table.getName());
+        }
+        for (Object name : columnsHeader.data) {
+            names.add(name == null ? null : name.toString());
+        }
+
+        rowCount = table.getRowCount(false);
+        if (table.isHandlingRowsHeader()) {
+            List<Object> rowsHeaderData = table.getRowsHeader().data;
+            TableColumn rowsHeaderColumn = TableColumn.forValue(null);
+            for (int row = 0; row < rowCount; row++) {
+                Object value = row + 1 < rowsHeaderData.size() ? rowsHeaderData.get(row + 1) : null;
+                if (!rowsHeaderColumn.accepts(value)) {
+                    rowsHeaderColumn = rowsHeaderColumn.convertFor(value);
+                }
+                rowsHeaderColumn.add(value);
+            }
+            columns.add(rowsHeaderColumn);
+        }
+        columns.addAll(table.getContentColumns());
+        while (columns.size() < names.size()) {
+            // named column without content: undefined values
+            TableColumn undefinedColumn = TableColumn.forValue(null);
+            for (int row = 0; row < rowCount; row++) {
+                undefinedColumn.add(null);
+            }
+            columns.add(undefinedColumn);
+        }
+    }
+
+    /**
+     * Executes the query: see {@link TableQuery} about the evaluation.
+     *
+     * @param query the query
+     * @return the result: a table with a columns header and its content, without links
+     * @throws ResourceNotFoundException a column of the query is not found
+     * @throws InvalidValueException     invalid query
+     * @throws IkatsException            error building the result
+     */
+    TableInfo execute(TableQuery query) throws ResourceNotFoundException, InvalidValueException, IkatsException {
+
+        int[] rows = new int[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            rows[row] = row;
+        }
+        int count = rowCount;
+        if (query.getWhere() != null) {
+            for (Condition condition : query.getWhere()) {
+                count = getColumn(condition.getColumn()).select(rows, count, buildFilter(condition));
+            }
+        }
+
+        List<String> resultNames = new ArrayList<>();
+        List<List<Object>> resultRows;
+        int offset = query.getOffset();
+        int limit = query.getLimit() == null ? Integer.MAX_VALUE : query.getLimit();
+        if (isNotEmpty(query.getGroupBy()) || isNotEmpty(query.getAggregates())) {
+            if (isNotEmpty(query.getColumns())) {
+                throw new InvalidValueException("TableQuery", "columns",
+                        "no projection when grouping: the result columns are the groupBy columns and the aggregates",
+                        query.getColumns().toString(), table.getName());
+            }
+            resultRows = aggregate(query, rows, count, resultNames);
+            sortResultRows(resultRows, resultNames, query.getOrderBy());
+            int from = Math.min(offset, resultRows.size());
+            resultRows = resultRows.subList(from, (int) Math.min((long) from + limit, resultRows.size()));
+        } else {
+            List<String> projected = isNotEmpty(query.getColumns()) ? query.getColumns() : names;
+            List<TableColumn> projectedColumns = new ArrayList<>(projected.size());
+            for (String name : projected) {
+                projectedColumns.add(getColumn(name));
+                resultNames.add(name);
+            }
+            sortRows(rows, count, query.getOrderBy());
+            int from = Math.min(offset, count);
+            int to = (int) Math.min((long) from + limit, count);
+            resultRows = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                List<Object> resultRow = new ArrayList<>(projectedColumns.size());
+                for (TableColumn column : projectedColumns) {
+                    resultRow.add(column.get(rows[i]));
+                }
+                resultRows.add(resultRow);
+            }
+        }
+
+        Table result = TableManager.initEmptyTable(true, false);
+        result.setName(table.getName());
+        result.setTitle(table.getTitle());
+        result.setDescription(table.getDescription());
+        result.getColumnsHeader().addItems(resultNames.toArray());
+        for (List<Object> resultRow : resultRows) {
+            result.appendRow(resultRow);
+        }
+        return result.getTableInfo();
+    }
+
+    /**
+     * Groups the selected rows, and computes the aggregates of each group
+     *
+     * @param query       the query
+     * @param rows        the selected rows
+     * @param count       the number of selected rows
+     * @param resultNames filled with the names of the result columns
+     * @return the result rows: one by group, in the order of the first row of each group
+     */
+    private List<List<Object>> aggregate(TableQuery query, int[] rows, int count, List<String> resultNames)
+            throws ResourceNotFoundException, InvalidValueException {
+
+        List<String> groupBy = query.getGroupBy() == null ? Collections.<String>emptyList() : query.getGroupBy();
+        List<Aggregate> aggregates = query.getAggregates() == null ? Collections.<Aggregate>emptyList()
+                : query.getAggregates();
+
+        // Numbers the groups: without group-by column, all the rows are in one group
+        int[] groups = new int[count];
+        int groupCount = 1;
+        List<TableColumn> groupColumns = new ArrayList<>(groupBy.size());
+        for (String name : groupBy) {
+            TableColumn column = getColumn(name);
+            groupColumns.add(column);
+            resultNames.add(name);
+
+            List<Object> distinct = new ArrayList<>();
+            int[] codes = column.encode(rows, count, distinct);
+            if (groupColumns.size() == 1) {
+                groups = codes;
+                groupCount = distinct.size();
+            } else {
+                // combines the group and the code of the column: both are ints
+                Map<Long, Integer> combined = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    long key = ((long) groups[i] << 32) | codes[i];
+                    Integer group = combined.get(key);
+                    if (group == null) {
+                        group = combined.size();
+                        combined.put(key, group);
+                    }
+                    groups[i] = group;
+                }
+                groupCount = combined.size();
+            }
+        }
+
+        List<List<Object>> resultRows = new ArrayList<>(groupCount);
+        if (!groupColumns.isEmpty()) {
+            int[] firstRows = new int[groupCount];
+            int found = 0;
+            for (int i = 0; i < count && found < groupCount; i++) {
+                if (resultRows.size() == groups[i]) {
+                    firstRows[groups[i]] = rows[i];
+                    resultRows.add(new ArrayList<>(groupColumns.size() + aggregates.size()));
+                    found++;
+                }
+            }
+            for (int group = 0; group < groupCount; group++) {
+                for (TableColumn column : groupColumns) {
+                    resultRows.get(group).add(column.get(firstRows[group]));
+                }
+            }
+        } else {
+            resultRows.add(new ArrayList<>(aggregates.size()));
+        }
+
+        for (Aggregate aggregate : aggregates) {
+            Function function = Function.fromName(aggregate.getFunction());
+            TableColumn column = aggregate.getColumn() == null ? null : getColumn(aggregate.getColumn());
+            if (aggregate.getName() != null) {
+                resultNames.add(aggregate.getName());
+            } else {
+                resultNames.add(column == null ? function.name().toLowerCase(Locale.ROOT)
+                        : function.name().toLowerCase(Locale.ROOT) + "_" + aggregate.getColumn());
+            }
+
+            Object[] values = computeAggregate(function, column, aggregate.getColumn(), rows, count, groups,
+                    resultRows.size());
+            for (int group = 0; group < resultRows.size(); group++) {
+                resultRows.get(group).add(values[group]);
+            }
+        }
+        return resultRows;
+    }
+
+    /**
+     * Computes one aggregate for each group
+     *
+     * @param function   the aggregate function
+     * @param column     the aggregated column, null for the count of rows
+     * @param columnName the name of the aggregated column
+     * @param rows       the selected rows
+     * @param count      the number of selected rows
+     * @param groups     the group of each selected row
+     * @param groupCount the number of groups
+     * @return the aggregates, indexed by group: undefined for a group without defined value, except for the count
+     * @throws InvalidValueException a non numeric column is aggregated by another function than count
+     */
+    private Object[] computeAggregate(Function function, TableColumn column, String columnName, int[] rows, int count,
+                                      int[] groups, int groupCount) throws InvalidValueException {
+
+        int[] counts = new int[groupCount];
+        Object[] values = new Object[groupCount];
+        if (function == Function.COUNT) {
+            for (int i = 0; i < count; i++) {
+                if (column == null || column.isDefined(rows[i])) {
+                    counts[groups[i]]++;
+                }
+            }
+            for (int group = 0; group < groupCount; group++) {
+                values[group] = counts[group];
+            }
+            return values;
+        }
+
+        if (column == null) {
+            throw new InvalidValueException("TableQuery", "aggregates.column", "a column aggregated by "
+                    + function.name().toLowerCase(Locale.ROOT), "undefined", table.getName());
+        }
+        if (!column.isNumeric()) {
+            // the selected values are read as numbers, in a numeric column indexed as the selection
+            TableColumn numbers = TableColumn.forValue(null);
+            for (int i = 0; i < count; i++) {
+                Object value = column.get(rows[i]);
+                Number number = value instanceof String ? parseNumber((String) value) : null;
+                if (number != null) {
+                    value = number;
+                } else if (value != null && !(value instanceof Number)) {
+                    throw new InvalidValueException("TableQuery", "aggregates.column", "a numeric column aggregated by "
+                            + function.name().toLowerCase(Locale.ROOT), columnName, table.getName());
+                }
+                if (!numbers.accepts(value)) {
+                    numbers = numbers.convertFor(value);
+                }
+                numbers.add(value);
+            }
+            column = numbers;
+            rows = new int[count];
+            for (int i = 0; i < count; i++) {
+                rows[i] = i;
+            }
+        }
+
+        if (column.isIntegral() && function != Function.MEAN) {
+            long[] accumulators = new long[groupCount];
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                if (!column.isDefined(row)) {
+                    continue;
+                }
+                int group = groups[i];
+                long value = column.getLong(row);
+                if (counts[group]++ == 0) {
+                    accumulators[group] = value;
+                } else if (function == Function.SUM) {
+                    accumulators[group] += value;
+                } else if (function == Function.MIN) {
+                    accumulators[group] = Math.min(accumulators[group], value);
+                } else {
+                    accumulators[group] = Math.max(accumulators[group], value);
+                }
+            }
+            for (int group = 0; group < groupCount; group++) {
+                if (counts[group] > 0) {
+                    values[group] = function == Function.SUM ? (Object) accumulators[group]
+                            : column.box(accumulators[group]);
+                }
+            }
+        } else {
+            double[] accumulators = new double[groupCount];
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                if (!column.isDefined(row)) {
+                    continue;
+                }
+                int group = groups[i];
+                double value = column.getDouble(row);
+                if (counts[group]++ == 0) {
+                    accumulators[group] = value;
+                } else if (function == Function.SUM || function == Function.MEAN) {
+                    accumulators[group] += value;
+                } else if (function == Function.MIN) {
+                    accumulators[group] = Math.min(accumulators[group], value);
+                } else {
+                    accumulators[group] = Math.max(accumulators[group], value);
+                }
+            }
+            for (int group = 0; group < groupCount; group++) {
+                if (counts[group] > 0) {
+                    values[group] = function == Function.MEAN ? accumulators[group] / counts[group]
+                            : accumulators[group];
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Sorts the selected rows by the order-by columns of the table
+     *
+     * @param rows    the selected rows, sorted in place
+     * @param count   the number of selected rows
+     * @param orderBy the sort criteria, or null
+     */
+    private void sortRows(int[] rows, int count, List<Order> orderBy) throws ResourceNotFoundException {
+        if (orderBy == null) {
+            return;
+        }
+        // the sort is stable: sorting by the last criterion first gives the lexicographic order
+        int[] sorted = new int[count];
+        for (int k = orderBy.size() - 1; k >= 0; k--) {
+            TableColumn column = getColumn(orderBy.get(k).getColumn());
+            List<Object> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(column.get(rows[i]));
+            }
+            int[] permutation = TableRowsSorter.sortedPermutation(values, orderBy.get(k).isDescending());
+            for (int i = 0; i < count; i++) {
+                sorted[i] = rows[permutation[i]];
+            }
+            System.arraycopy(sorted, 0, rows, 0, count);
+        }
+    }
+
+    /**
+     * Sorts the result rows by the order-by columns of the result
+     *
+     * @param resultRows  the result rows, sorted in place
+     * @param resultNames the names of the result columns
+     * @param orderBy     the sort criteria, or null
+     */
+    private void sortResultRows(List<List<Object>> resultRows, List<String> resultNames, List<Order> orderBy)
+            throws ResourceNotFoundException {
+        if (orderBy == null) {
+            return;
+        }
+        for (int k = orderBy.size() - 1; k >= 0; k--) {
+            int index = resultNames.indexOf(orderBy.get(k).getColumn());
+            if (index < 0) {
+                throw new ResourceNotFoundException("Unmatched orderBy: no result column named "
+                        + orderBy.get(k).getColumn() + " in the query of table " + table.getName());
+            }
+            List<Object> values = new ArrayList<>(resultRows.size());
+            for (List<Object> resultRow : resultRows) {
+                values.add(resultRow.get(index));
+            }
+            TableRowsSorter.permute(resultRows, 0,
+                    TableRowsSorter.sortedPermutation(values, orderBy.get(k).isDescending()));
+        }
+    }
+
+    /**
+     * Builds the filter of the values satisfying the condition
+     *
+     * @param condition the condition
+     * @return the filter
+     * @throws InvalidValueException invalid condition
+     */
+    private ValueFilter buildFilter(Condition condition) throws InvalidValueException {
+        Operator operator = Operator.fromSymbol(condition.getOperator());
+        switch (operator) {
+            case IS_NULL:
+            case NOT_NULL:
+                boolean undefined = operator == Operator.IS_NULL;
+                return new ValueFilter() {
+                    @Override
+                    public boolean test(Object value) {
+                        return (value == null) == undefined;
+                    }
+
+                    @Override
+                    public boolean test(double value) {
+                        return !undefined;
+                    }
+
+                    @Override
+                    public boolean test(long value) {
+                        return !undefined;
+                    }
+                };
+            case IN:
+                if (condition.getValues() == null) {
+                    throw new InvalidValueException("TableQuery", "where.values", "the values of the in operator",
+                            "undefined", table.getName());
+                }
+                return new InFilter(condition.getValues());
+            default:
+                if (condition.getValue() == null) {
+                    throw new InvalidValueException("TableQuery", "where.value",
+                            "the value compared by the " + operator.getSymbol() + " operator", "undefined",
+                            table.getName());
+                }
+                return new ComparisonFilter(operator, condition.getValue());
+        }
+    }
+
+    /**
+     * Filter of the in operator
+     */
+    private static final class InFilter implements ValueFilter {
+        private final Set<Long> integralValues = new HashSet<>();
+        private final Set<Double> decimalValues = new HashSet<>();
+        private final Set<Object> otherValues = new HashSet<>();
+
+        InFilter(List<Object> values) {
+            for (Object value : values) {
+                if (isIntegral(value)) {
+                    integralValues.add(((Number) value).longValue());
+                    decimalValues.add(((Number) value).doubleValue());
+                } else if (value instanceof Number) {
+                    double decimalValue = ((Number) value).doubleValue();
+                    decimalValues.add(decimalValue == 0.0 ? 0.0 : decimalValue);
+                } else if (value != null) {
+                    otherValues.add(value);
+                }
+            }
+        }
+
+        @Override
+        public boolean test(Object value) {
+            if (value instanceof String && !decimalValues.isEmpty()) {
+                Number number = parseNumber((String) value);
+                if (number != null && test(number)) {
+                    return true;
+                }
+            }
+            if (isIntegral(value)) {
+                return test(((Number) value).longValue());
+            } else if (value instanceof Number) {
+                return test(((Number) value).doubleValue());
+            }
+            return value != null && otherValues.contains(value);
+        }
+
+        @Override
+        public boolean test(double value) {
+            // -0.0 equals 0.0
+            return decimalValues.contains(value == 0.0 ? 0.0 : value);
+        }
+
+        @Override
+        public boolean test(long value) {
+            return integralValues.contains(value) || decimalValues.contains((double) value);
+        }
+    }
+
+    /**
+     * Filter of the comparison operators: =, !=, &lt;, &lt;=, &gt;, &gt;=
+     */
+    private static final class ComparisonFilter implements ValueFilter {
+        private final Operator operator;
+        private final Object reference;
+        private final boolean numeric;
+        private final boolean integral;
+        private final long longReference;
+        private final double doubleReference;
+
+        ComparisonFilter(Operator operator, Object reference) {
+            this.operator = operator;
+            this.reference = reference;
+            numeric = reference instanceof Number;
+            integral = isIntegral(reference);
+            longReference = numeric ? ((Number) reference).longValue() : 0;
+            doubleReference = numeric ? ((Number) reference).doubleValue() : 0;
+        }
+
+        @Override
+        public boolean test(Object value) {
+            if (numeric && value instanceof String) {
+                Number number = parseNumber((String) value);
+                if (number != null) {
+                    return test(number);
+                }
+            }
+            if (value == null) {
+                return false;
+            } else if (isIntegral(value)) {
+                return test(((Number) value).longValue());
+            } else if (value instanceof Number) {
+                return test(((Number) value).doubleValue());
+            } else if (numeric) {
+                return operator == Operator.NE;
+            } else if (operator == Operator.EQ || operator == Operator.NE) {
+                return value.equals(reference) == (operator == Operator.EQ);
+            }
+            return accepts(TableRowsSorter.compareNatural(value.toString(), reference.toString()));
+        }
+
+        @Override
+        public boolean test(double value) {
+            if (!numeric) {
+                return operator == Operator.NE;
+            }
+            return accepts(value == doubleReference ? 0 : Double.compare(value, doubleReference));
+        }
+
+        @Override
+        public boolean test(long value) {
+            if (!numeric) {
+                return operator == Operator.NE;
+            } else if (integral) {
+                return accepts(Long.compare(value, longReference));
+            }
+            return test((double) value);
+        }
+
+        private boolean accepts(int comparison) {
+            switch (operator) {
+                case EQ:
+                    return comparison == 0;
+                case NE:
+                    return comparison != 0;
+                case LT:
+                    return comparison < 0;
+                case LE:
+                    return comparison <= 0;
+                case GT:
+                    return comparison > 0;
+                default:
+                    return comparison >= 0;
+            }
+        }
+    }
+
+    /**
+     * Reads a number written as a string, as the cells of the tables imported from CSV
+     *
+     * @param value the string
+     * @return the Long or Double value, null when the string is not a number
+     */
+    private static Number parseNumber(String value) {
+        if (INTEGER_PATTERN.matcher(value).matches()) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                // out of the long range: read as a double
+            }
+        }
+        return NUMBER_PATTERN.matcher(value).matches() ? Double.parseDouble(value) : null;
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    private static boolean isNotEmpty(List<?> list) {
+        return list != null && !list.isEmpty();
+    }
+
+    /**
+     * Gets a column of the table by its name in the columns header
+     *
+     * @param name the name
+     * @return the column
+     * @throws ResourceNotFoundException the column is not found
+     */
+    private TableColumn getColumn(String name) throws ResourceNotFoundException {
+        int index = name == null ? -1 : names.indexOf(name);
+        if (index < 0) {
+            throw new ResourceNotFoundException("Unmatched query: in Columns header: no column named " + name
+                    + " of table " + table.getName());
+        }
+        return columns.get(index);
+    }
+}
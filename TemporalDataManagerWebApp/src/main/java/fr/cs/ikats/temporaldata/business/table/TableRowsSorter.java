@@ -0,0 +1,411 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.temporaldata.business.table;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sorter of the rows of a Table, according to the values of one column: computes the sorted permutation of the rows
+ * once, as an int[], and applies it in place on the lists of the table (cells, links, rows header).
+ * <p>
+ * The sort keys are prepared once from the column values, as long:
+ * <ul>
+ * <li>when all the defined values are numbers: the numeric values, compared as long when they are all integral,</li>
+ * <li>otherwise: the values converted to String, compared with the natural order of
+ * {@link fr.cs.ikats.lang.NaturalOrderComparator}. The strings are split once into tokens, and the key of a row is its
+ * first token differing from the other rows.</li>
+ * </ul>
+ * Undefined values are sorted first, in ascending order. The sort is stable.
+ */
+final class TableRowsSorter {
+
+    /**
+     * Comparison of two rows, by their indexes
+     */
+    private interface RowComparator {
+        int compare(int row, int otherRow);
+    }
+
+    /**
+     * Below that size, a run is sorted by insertion
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    /**
+     * Tokens of the natural order: see {@link #tokenize(String)}
+     */
+    private static final int TOKEN_CLASS_SHIFT = 47;
+    private static final int MAX_TOKEN_DIGITS = 14;
+
+    private TableRowsSorter() {
+        // utility class
+    }
+
+    /**
+     * Computes the permutation sorting the values.
+     *
+     * @param values  the sorting values: one by row
+     * @param reverse true for the descending order
+     * @return the permutation: the i-th sorted row is the row permutation[i] of values.
+     */
+    static int[] sortedPermutation(List<Object> values, boolean reverse) {
+        int size = values.size();
+        int[] permutation = new int[size];
+        for (int i = 0; i < size; i++) {
+            permutation[i] = i;
+        }
+
+        long[] keys = new long[size];
+        RowComparator ties = buildKeys(values, keys);
+        if (reverse) {
+            // ~ reverses the order of the longs
+            for (int i = 0; i < size; i++) {
+                keys[i] = ~keys[i];
+            }
+            if (ties != null) {
+                RowComparator ascending = ties;
+                ties = (row, otherRow) -> ascending.compare(otherRow, row);
+            }
+        }
+        sort(permutation, keys, ties);
+        return permutation;
+    }
+
+    /**
+     * Reorders the list in place, from position offset: the item at offset + i is replaced by the item at offset +
+     * permutation[i]
+     *
+     * @param list        the reordered list
+     * @param offset      the position of the first reordered item
+     * @param permutation the permutation
+     */
+    static <T> void permute(List<T> list, int offset, int[] permutation) {
+        Object[] items = list.subList(offset, offset + permutation.length).toArray();
+        for (int i = 0; i < permutation.length; i++) {
+            @SuppressWarnings("unchecked")
+            T item = (T) items[permutation[i]];
+            list.set(offset + i, item);
+        }
+    }
+
+    /**
+     * Prepares the primary sort keys: the rows are sorted by their key, then by the returned comparator when their keys
+     * are equal.
+     *
+     * @param values the sorting values
+     * @param keys   the keys to fill: one by row
+     * @return the comparator of the rows with the same key, in ascending order, or null when the keys are enough.
+     */
+    private static RowComparator buildKeys(List<Object> values, long[] keys) {
+        int size = values.size();
+        boolean allNumbers = true;
+        boolean allIntegral = true;
+        for (Object value : values) {
+            if (value == null) {
+                continue;
+            }
+            if (!(value instanceof Number)) {
+                allNumbers = false;
+                break;
+            }
+            allIntegral &= value instanceof Integer || value instanceof Long || value instanceof Short
+                    || value instanceof Byte;
+        }
+
+        if (allNumbers) {
+            boolean minValue = false;
+            for (int i = 0; i < size; i++) {
+                Number value = (Number) values.get(i);
+                if (value == null) {
+                    keys[i] = Long.MIN_VALUE;
+                } else if (allIntegral) {
+                    keys[i] = value.longValue();
+                    minValue |= keys[i] == Long.MIN_VALUE;
+                } else {
+                    // same order as Double.compare
+                    long bits = Double.doubleToLongBits(value.doubleValue());
+                    keys[i] = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+                }
+            }
+            if (!minValue) {
+                return null;
+            }
+            // only Long.MIN_VALUE shares its key with the undefined values
+            return (row, otherRow) -> Boolean.compare(values.get(row) != null, values.get(otherRow) != null);
+        }
+
+        String[] strings = new String[size];
+        long[][] tokens = new long[size][];
+        boolean tokenized = true;
+        for (int i = 0; i < size; i++) {
+            Object value = values.get(i);
+            strings[i] = value == null ? "" : value.toString();
+            tokens[i] = tokenize(strings[i]);
+            tokenized &= tokens[i] != null;
+        }
+        if (!tokenized) {
+            return (row, otherRow) -> compareNatural(strings[row], strings[otherRow]);
+        }
+
+        // The key is the first token not shared by all the rows
+        int prefix = size == 0 ? 0 : tokens[0].length;
+        for (int i = 1; i < size && prefix > 0; i++) {
+            prefix = Math.min(prefix, commonPrefix(tokens[0], tokens[i], prefix));
+        }
+        if (prefix == (size == 0 ? 0 : tokens[0].length)) {
+            // all the rows are equal
+            return null;
+        }
+        for (int i = 0; i < size; i++) {
+            keys[i] = tokens[i][prefix];
+        }
+        int from = prefix + 1;
+        return (row, otherRow) -> compareTokens(tokens[row], tokens[otherRow], from);
+    }
+
+    /**
+     * Splits the string into the tokens of the natural order, so that comparing the tokens gives the same result as
+     * {@link #compareNatural(String, String)}. Each token is a long, whose 16 upper bits are its class, and 47 lower bits
+     * its value:
+     * <ul>
+     * <li>a character c, neither a digit nor a space: class c, value 0,</li>
+     * <li>a run of digits: class '0', value the number. Compared to a character, it is sorted as any digit would,</li>
+     * <li>the end of the string: class 0, value the number of zeros just before the end.</li>
+     * </ul>
+     * The zeros leading a run of digits, or followed by a character, are ignored as in the natural order.
+     *
+     * @param s the string
+     * @return the tokens, or null when s has characters not handled here: spaces, null character, non ASCII digits,
+     * or a run of more than 14 digits. Such strings are compared with {@link #compareNatural(String, String)}.
+     */
+    static long[] tokenize(String s) {
+        int length = s.length();
+        long[] tokens = new long[length + 1];
+        int count = 0;
+        int i = 0;
+        while (true) {
+            int zeros = 0;
+            while (i < length && s.charAt(i) == '0') {
+                zeros++;
+                i++;
+            }
+            if (i == length) {
+                tokens[count++] = zeros;
+                return Arrays.copyOf(tokens, count);
+            }
+
+            char c = s.charAt(i);
+            if (c >= '1' && c <= '9') {
+                long number = 0;
+                int digits = 0;
+                for (; i < length && s.charAt(i) >= '0' && s.charAt(i) <= '9'; i++, digits++) {
+                    number = number * 10 + (s.charAt(i) - '0');
+                }
+                if (digits > MAX_TOKEN_DIGITS || (i < length && Character.isDigit(s.charAt(i)))) {
+                    return null;
+                }
+                tokens[count++] = ((long) '0' << TOKEN_CLASS_SHIFT) | number;
+            } else if (c == 0 || Character.isDigit(c) || Character.isSpaceChar(c)) {
+                return null;
+            } else {
+                tokens[count++] = (long) c << TOKEN_CLASS_SHIFT;
+                i++;
+            }
+        }
+    }
+
+    private static int commonPrefix(long[] tokens, long[] otherTokens, int length) {
+        int i = 0;
+        while (i < length && i < otherTokens.length && tokens[i] == otherTokens[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int compareTokens(long[] tokens, long[] otherTokens, int from) {
+        int length = Math.min(tokens.length, otherTokens.length);
+        for (int i = from; i < length; i++) {
+            if (tokens[i] != otherTokens[i]) {
+                return tokens[i] < otherTokens[i] ? -1 : 1;
+            }
+        }
+        return tokens.length - otherTokens.length;
+    }
+
+    /**
+     * Stable merge sort of the permutation, by the keys of the rows then by the comparator of ties. The keys are moved
+     * with the rows, so that they are read in sequence.
+     *
+     * @param permutation the sorted row indexes
+     * @param keys        the keys of the rows, indexed as permutation
+     * @param ties        the comparator of the rows with equal keys, or null
+     */
+    private static void sort(int[] permutation, long[] keys, RowComparator ties) {
+        int size = permutation.length;
+        for (int start = 0; start < size; start += INSERTION_SORT_THRESHOLD) {
+            insertionSort(permutation, keys, start, Math.min(start + INSERTION_SORT_THRESHOLD, size), ties);
+        }
+
+        int[] source = permutation;
+        long[] sourceKeys = keys;
+        int[] target = new int[size];
+        long[] targetKeys = new long[size];
+        for (int width = INSERTION_SORT_THRESHOLD; width < size; width *= 2) {
+            for (int start = 0; start < size; start += 2 * width) {
+                int middle = Math.min(start + width, size);
+                int end = Math.min(start + 2 * width, size);
+                merge(source, sourceKeys, target, targetKeys, start, middle, end, ties);
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+            long[] swapKeys = sourceKeys;
+            sourceKeys = targetKeys;
+            targetKeys = swapKeys;
+        }
+        if (source != permutation) {
+            System.arraycopy(source, 0, permutation, 0, size);
+        }
+    }
+
+    private static int compare(int row, long key, int otherRow, long otherKey, RowComparator ties) {
+        if (key != otherKey) {
+            return key < otherKey ? -1 : 1;
+        }
+        return ties == null ? 0 : ties.compare(row, otherRow);
+    }
+
+    private static void insertionSort(int[] rows, long[] keys, int start, int end, RowComparator ties) {
+        for (int i = start + 1; i < end; i++) {
+            int row = rows[i];
+            long key = keys[i];
+            int j = i - 1;
+            while (j >= start && compare(rows[j], keys[j], row, key, ties) > 0) {
+                rows[j + 1] = rows[j];
+                keys[j + 1] = keys[j];
+                j--;
+            }
+            rows[j + 1] = row;
+            keys[j + 1] = key;
+        }
+    }
+
+    private static void merge(int[] source, long[] sourceKeys, int[] target, long[] targetKeys, int start, int middle,
+                              int end, RowComparator ties) {
+        if (middle == end
+                || compare(source[middle - 1], sourceKeys[middle - 1], source[middle], sourceKeys[middle], ties) <= 0) {
+            // already ordered
+            System.arraycopy(source, start, target, start, end - start);
+            System.arraycopy(sourceKeys, start, targetKeys, start, end - start);
+            return;
+        }
+        int left = start;
+        int right = middle;
+        for (int i = start; i < end; i++) {
+            if (right >= end || (left < middle
+                    && compare(source[left], sourceKeys[left], source[right], sourceKeys[right], ties) <= 0)) {
+                targetKeys[i] = sourceKeys[left];
+                target[i] = source[left++];
+            } else {
+                targetKeys[i] = sourceKeys[right];
+                target[i] = source[right++];
+            }
+        }
+    }
+
+    /**
+     * Natural order of the strings: same result as {@link fr.cs.ikats.lang.NaturalOrderComparator#compare}, without
+     * allocating substrings.
+     *
+     * @param a a string
+     * @param b another string
+     * @return negative, zero or positive as for {@link java.util.Comparator#compare}
+     */
+    static int compareNatural(String a, String b) {
+        int ia = 0;
+        int ib = 0;
+
+        while (true) {
+            // Only count the number of zeroes leading the last number compared
+            int nza = 0;
+            int nzb = 0;
+
+            char ca = charAt(a, ia);
+            char cb = charAt(b, ib);
+
+            // skip over leading spaces or zeros
+            while (Character.isSpaceChar(ca) || ca == '0') {
+                nza = (ca == '0') ? nza + 1 : 0;
+                ca = charAt(a, ++ia);
+            }
+            while (Character.isSpaceChar(cb) || cb == '0') {
+                nzb = (cb == '0') ? nzb + 1 : 0;
+                cb = charAt(b, ++ib);
+            }
+
+            // Process run of digits
+            if (Character.isDigit(ca) && Character.isDigit(cb)) {
+                int bias = compareRight(a, ia, b, ib);
+                if (bias != 0) {
+                    return bias;
+                }
+            }
+
+            if (ca == 0 && cb == 0) {
+                return nza - nzb;
+            }
+            if (ca != cb) {
+                return ca < cb ? -1 : +1;
+            }
+
+            ++ia;
+            ++ib;
+        }
+    }
+
+    /**
+     * Compares the runs of digits starting at ia in a, and at ib in b: the longest run wins, then the greatest value.
+     */
+    private static int compareRight(String a, int ia, String b, int ib) {
+        int bias = 0;
+        for (; ; ia++, ib++) {
+            char ca = charAt(a, ia);
+            char cb = charAt(b, ib);
+            boolean digitA = Character.isDigit(ca);
+            boolean digitB = Character.isDigit(cb);
+
+            if (!digitA && !digitB) {
+                return bias;
+            }
+            if (!digitA) {
+                return -1;
+            }
+            if (!digitB) {
+                return +1;
+            }
+            if (bias == 0 && ca != cb) {
+                bias = ca < cb ? -1 : +1;
+            }
+        }
+    }
+
+    private static char charAt(String s, int i) {
+        return i >= s.length() ? 0 : s.charAt(i);
+    }
+}
@@ -0,0 +1,1301 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.temporaldata.business.table;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import fr.cs.ikats.temporaldata.business.table.TableInfo.DataLink;
+
+/**
+ * Binary codec of the raw values and raw datalinks stored by the TableEntity.
+ * <p>
+ * The raw values are written by columns: each column is typed (String, Integer, Long, Double, Boolean, or mixed), the
+ * strings are dictionary-encoded, the integers are written as variable-length integers, and the doubles as scaled
+ * variable-length integers when they all have few decimals, as raw 64 bits otherwise.
+ * The first row, usually the columns header, is written item by item, so that it does not spoil the type of the
+ * columns.
+ * <p>
+ * The rows following the first one are split in row groups, and each column of each row group is written in its own
+ * block, compressed separately. A directory of the blocks follows the format marker, so that a selection of columns or
+ * a range of rows only decodes the blocks it needs: see {@link #decodeValues(byte[], int[], int, int)}.
+ * <p>
+ * Each blob starts with a format marker (magic bytes + version + flags + kind), which is never the start of a blob
+ * written by ObjectOutputStream: see {@link #isEncoded(byte[])}. The blocks may be compressed with Deflate.
+ * <p>
+ * Versions:
+ * <ul>
+ * <li>1: values written in one single stream, after the marker,</li>
+ * <li>2: values written in blocks, by row groups. Same layout of the links than version 1.</li>
+ * </ul>
+ */
+class TableStorageCodec {
+
+    /**
+     * Magic bytes starting the encoded blobs: 'IKTB'
+     */
+    private static final byte[] MAGIC = { 'I', 'K', 'T', 'B' };
+
+    /**
+     * Current version of the format
+     */
+    static final byte VERSION = 2;
+
+    /**
+     * Default number of rows in a row group
+     */
+    static final int DEFAULT_ROW_GROUP_SIZE = 4096;
+
+    private static final byte FLAG_DEFLATE = 0x01;
+
+    private static final byte KIND_VALUES = 'V';
+    private static final byte KIND_LINKS = 'L';
+
+    private static final int MARKER_SIZE = MAGIC.length + 3;
+
+    // Types of the columns
+    private static final byte COL_EMPTY = 0;
+    private static final byte COL_STRING = 1;
+    private static final byte COL_INT = 2;
+    private static final byte COL_LONG = 3;
+    private static final byte COL_DOUBLE = 4;
+    private static final byte COL_BOOLEAN = 5;
+    private static final byte COL_MIXED = 6;
+    private static final byte COL_DECIMAL = 7;
+
+    // Tags of the values written item by item
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INT = 2;
+    private static final byte TAG_LONG = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_TRUE = 5;
+    private static final byte TAG_FALSE = 6;
+    private static final byte TAG_LIST = 7;
+    private static final byte TAG_MAP = 8;
+    private static final byte TAG_SERIALIZED = 9;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int BLOCK_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Powers of ten of the decimal scales tried on the Double columns
+     */
+    private static final double[] DECIMAL_POWERS = { 1d, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6 };
+
+    /**
+     * Bound of the scaled values exactly represented by a double
+     */
+    private static final double MAX_EXACT_DOUBLE = 1L << 53;
+
+    /**
+     * Writer of one block of the values
+     */
+    private interface BlockWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Handler of the decoded rows: see {@link #scanValues(byte[], int[], int, int, RowHandler)}
+     */
+    interface RowHandler {
+
+        /**
+         * Handles one decoded row
+         *
+         * @param row the values of the row, null for a null row
+         * @throws IOException error raised by the handler
+         */
+        void handle(List<Object> row) throws IOException;
+    }
+
+    /**
+     * Directory of the blocks of a values blob, version 2
+     */
+    private static class Directory {
+        private int nbRows;
+        private int nbCols;
+        private int rowGroupSize;
+        private boolean compressed;
+
+        /**
+         * Offsets in the blob of the blocks: the shape block, then the blocks of the row groups, column by column.
+         * One more offset marks the end of the last block.
+         */
+        private int[] offsets;
+
+        private int nbRowGroups() {
+            return nbRows <= 1 ? 0 : (nbRows - 2) / rowGroupSize + 1;
+        }
+
+        private int blockIndex(int rowGroup, int col) {
+            return 1 + rowGroup * nbCols + col;
+        }
+    }
+
+    private final boolean compressed;
+
+    private final int rowGroupSize;
+
+    /**
+     * @param compressed true activates the Deflate compression of the encoded blobs
+     */
+    TableStorageCodec(boolean compressed) {
+        this(compressed, DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    /**
+     * @param compressed   true activates the Deflate compression of the encoded blobs
+     * @param rowGroupSize number of rows in a row group
+     */
+    TableStorageCodec(boolean compressed, int rowGroupSize) {
+        if (rowGroupSize < 1) {
+            throw new IllegalArgumentException("Row group size must be positive: " + rowGroupSize);
+        }
+        this.compressed = compressed;
+        this.rowGroupSize = rowGroupSize;
+    }
+
+    /**
+     * Tests if the blob has been written by this codec, in any version, or by the legacy ObjectOutputStream
+     * serialization.
+     *
+     * @param blob the stored blob
+     * @return true if blob starts with the format marker of this codec
+     */
+    static boolean isEncoded(byte[] blob) {
+        if (blob == null || blob.length < MARKER_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (blob[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encodes the matrix of raw values: list of rows, including the headers
+     *
+     * @param rows the rows of values. The rows may have different sizes.
+     * @return the encoded blob
+     * @throws IOException unsupported value: neither primitive wrapper, String, List, Map nor Serializable.
+     */
+    byte[] encodeValues(List<List<Object>> rows) throws IOException {
+        int nbCols = 0;
+        for (List<Object> row : rows) {
+            if (row != null && row.size() > nbCols) {
+                nbCols = row.size();
+            }
+        }
+        try (ValuesEncoder encoder = new ValuesEncoder(nbCols)) {
+            for (List<Object> row : rows) {
+                encoder.addRow(row);
+            }
+            return encoder.finish();
+        }
+    }
+
+    /**
+     * Creates an incremental encoder of the raw values
+     *
+     * @param nbCols the maximum size of the rows
+     * @return the encoder, to be closed
+     */
+    ValuesEncoder newValuesEncoder(int nbCols) {
+        return new ValuesEncoder(nbCols);
+    }
+
+    /**
+     * Incremental encoder of the raw values, producing the blob of {@link #encodeValues(List)}: the rows are added one
+     * by one and each row group is encoded as soon as it is complete, so that only the encoded blocks and one row group
+     * of values are held in memory.
+     */
+    final class ValuesEncoder implements Closeable {
+
+        private final int nbCols;
+        private final Deflater deflater = compressed ? new Deflater(Deflater.BEST_SPEED) : null;
+        private final List<byte[]> blocks = new ArrayList<>();
+        private final List<List<Object>> rowGroup = new ArrayList<>();
+
+        /**
+         * Sizes of the rows + 1, 0 for a null row: written unless all the rows have nbCols values
+         */
+        private final BlockOutput sizes = new BlockOutput();
+        private final DataOutputStream sizesOut = new DataOutputStream(sizes);
+        private boolean uniform = true;
+        private List<Object> firstRow;
+        private int nbRows;
+
+        /**
+         * Constructor
+         *
+         * @param nbCols the maximum size of the rows
+         */
+        ValuesEncoder(int nbCols) {
+            this.nbCols = nbCols;
+        }
+
+        /**
+         * Adds a row
+         *
+         * @param row the values of the row, or null. The row is not copied: it must not be modified until the next
+         *            row group is encoded.
+         * @throws IOException the row is larger than nbCols, or unsupported value: neither primitive wrapper, String,
+         *                     List, Map nor Serializable.
+         */
+        void addRow(List<Object> row) throws IOException {
+            if (row != null && row.size() > nbCols) {
+                throw new IOException("Row " + nbRows + " has " + row.size() + " values, more than " + nbCols);
+            }
+            uniform &= row != null && row.size() == nbCols;
+            writeVarInt(sizesOut, row == null ? 0 : row.size() + 1);
+            if (nbRows == 0) {
+                firstRow = row;
+            } else {
+                rowGroup.add(row);
+                if (rowGroup.size() == rowGroupSize) {
+                    encodeRowGroup();
+                }
+            }
+            nbRows++;
+        }
+
+        /**
+         * @return the number of rows added
+         */
+        int getNbRows() {
+            return nbRows;
+        }
+
+        /**
+         * Encodes the rows added so far: the encoder can not be used any more.
+         *
+         * @return the encoded blob
+         * @throws IOException unsupported value
+         */
+        byte[] finish() throws IOException {
+            encodeRowGroup();
+
+            // shape block: sizes of the rows, and first row item by item
+            byte[] shape = encodeBlock(deflater, out -> {
+                out.writeBoolean(uniform);
+                if (!uniform) {
+                    out.write(sizes.bytes, 0, sizes.size);
+                }
+                if (firstRow != null) {
+                    for (Object value : firstRow) {
+                        writeValue(out, value);
+                    }
+                }
+            });
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bos);
+            writeMarker(out, KIND_VALUES, compressed);
+            writeVarInt(out, nbRows);
+            writeVarInt(out, nbCols);
+            writeVarInt(out, rowGroupSize);
+            writeVarInt(out, shape.length);
+            for (byte[] block : blocks) {
+                writeVarInt(out, block.length);
+            }
+            out.write(shape);
+            for (byte[] block : blocks) {
+                out.write(block);
+            }
+            out.close();
+            return bos.toByteArray();
+        }
+
+        /**
+         * Encodes the blocks of the pending row group, column by column
+         */
+        private void encodeRowGroup() throws IOException {
+            if (rowGroup.isEmpty()) {
+                return;
+            }
+            int to = rowGroup.size();
+            for (int col = 0; col < nbCols; col++) {
+                int column = col;
+                blocks.add(encodeBlock(deflater, out -> writeColumn(out, rowGroup, column, 0, to)));
+            }
+            rowGroup.clear();
+        }
+
+        /**
+         * Releases the deflater
+         */
+        @Override
+        public void close() {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Decodes the matrix of raw values written by {@link #encodeValues(List)}
+     *
+     * @param blob the encoded blob
+     * @return the rows of values: mutable lists
+     * @throws IOException corrupted or unsupported blob
+     */
+    List<List<Object>> decodeValues(byte[] blob) throws IOException {
+        return decodeValues(blob, null, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decodes a selection of the raw values written by {@link #encodeValues(List)}. Only the blocks of the selected
+     * columns and rows are decoded.
+     *
+     * @param blob    the encoded blob
+     * @param columns the indexes of the selected columns, in the order of the decoded rows. null selects all the
+     *                columns, as they are written. A selected column missing in a row is decoded as null.
+     * @param fromRow index of the first selected row, inclusive. Index 0 is the first row.
+     * @param toRow   index of the last selected row, exclusive. Bounded by the number of rows.
+     * @return the selected rows of values: mutable lists
+     * @throws IOException corrupted or unsupported blob
+     */
+    List<List<Object>> decodeValues(byte[] blob, int[] columns, int fromRow, int toRow) throws IOException {
+        List<List<Object>> rows = new ArrayList<>();
+        scanValues(blob, columns, fromRow, toRow, rows::add);
+        return rows;
+    }
+
+    /**
+     * Decodes a selection of the raw values written by {@link #encodeValues(List)}, row group by row group, and passes
+     * the rows one by one to the handler: the memory used is bounded by the size of a row group. See
+     * {@link #decodeValues(byte[], int[], int, int)} for the selection.
+     *
+     * @param blob    the encoded blob
+     * @param columns the indexes of the selected columns, null selects all the columns
+     * @param fromRow index of the first selected row, inclusive
+     * @param toRow   index of the last selected row, exclusive
+     * @param handler the handler of the selected rows, in their order. A null row is passed as null.
+     * @throws IOException corrupted or unsupported blob, or error raised by the handler
+     */
+    void scanValues(byte[] blob, int[] columns, int fromRow, int toRow, RowHandler handler) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            if (blob.length >= MARKER_SIZE && blob[MAGIC.length] == 1) {
+                // version 1: the whole stream is decoded
+                List<List<Object>> rows = readRowsVersion1(openPayload(blob, KIND_VALUES, inflater));
+                for (List<Object> row : selectRows(rows, columns, fromRow, toRow)) {
+                    handler.handle(row);
+                }
+                return;
+            }
+
+            Directory directory = readDirectory(blob);
+            int nbRows = directory.nbRows;
+            int from = Math.max(0, fromRow);
+            int to = Math.min(toRow, nbRows);
+            if (from >= to) {
+                return;
+            }
+            int nbSelected = columns == null ? directory.nbCols : columns.length;
+
+            // shape block
+            DataInputStream shape = openBlock(blob, directory, 0, inflater);
+            boolean uniform = shape.readBoolean();
+            int[] sizes = new int[nbRows];
+            for (int row = 0; row < nbRows; row++) {
+                sizes[row] = uniform ? directory.nbCols : readVarInt(shape) - 1;
+            }
+            if (from == 0) {
+                List<Object> firstRow = null;
+                if (sizes[0] >= 0) {
+                    firstRow = new ArrayList<>(sizes[0]);
+                    for (int col = 0; col < sizes[0]; col++) {
+                        firstRow.add(readValue(shape));
+                    }
+                }
+                handler.handle(selectRow(firstRow, columns));
+            }
+
+            // blocks of the row groups overlapping the selection
+            Object[][] values = new Object[nbSelected][];
+            for (int rowGroup = 0; rowGroup < directory.nbRowGroups(); rowGroup++) {
+                int groupFrom = 1 + rowGroup * directory.rowGroupSize;
+                int groupTo = Math.min(nbRows, groupFrom + directory.rowGroupSize);
+                if (groupTo <= from || groupFrom >= to) {
+                    continue;
+                }
+                for (int selectedCol = 0; selectedCol < nbSelected; selectedCol++) {
+                    int col = columns == null ? selectedCol : columns[selectedCol];
+                    if (col >= 0 && col < directory.nbCols) {
+                        if (values[selectedCol] == null) {
+                            values[selectedCol] = new Object[directory.rowGroupSize];
+                        }
+                        DataInputStream in = openBlock(blob, directory, directory.blockIndex(rowGroup, col), inflater);
+                        readColumn(in, sizes, col, groupFrom, groupTo, values[selectedCol]);
+                    }
+                }
+                for (int row = Math.max(from, groupFrom); row < Math.min(to, groupTo); row++) {
+                    if (sizes[row] < 0) {
+                        handler.handle(null);
+                        continue;
+                    }
+                    int size = columns == null ? sizes[row] : nbSelected;
+                    List<Object> rowValues = new ArrayList<>(size);
+                    for (int selectedCol = 0; selectedCol < size; selectedCol++) {
+                        Object[] columnValues = values[selectedCol];
+                        rowValues.add(columnValues == null ? null : columnValues[row - groupFrom]);
+                    }
+                    handler.handle(rowValues);
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Counts the rows of the raw values written by {@link #encodeValues(List)}, without decoding them
+     *
+     * @param blob the encoded blob
+     * @return the number of rows, including the headers
+     * @throws IOException corrupted or unsupported blob
+     */
+    int countRows(byte[] blob) throws IOException {
+        if (blob.length >= MARKER_SIZE && blob[MAGIC.length] == 1) {
+            // version 1: the dimensions start the stream
+            Inflater inflater = new Inflater();
+            try {
+                return readVarInt(openPayload(blob, KIND_VALUES, inflater));
+            } finally {
+                inflater.end();
+            }
+        }
+        return readDirectory(blob).nbRows;
+    }
+
+    /**
+     * Encodes the links of the table
+     *
+     * @param links the links of cells and headers
+     * @return the encoded blob
+     * @throws IOException unsupported link value
+     */
+    byte[] encodeDataLinks(TableManager.DataLinksMatrix links) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Deflater deflater = compressed ? new Deflater(Deflater.BEST_SPEED) : null;
+        try {
+            DataOutputStream out = openPayload(bos, KIND_LINKS, deflater);
+            writeDataLinks(out, links);
+            out.close();
+            return bos.toByteArray();
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Decodes the links written by {@link #encodeDataLinks(TableManager.DataLinksMatrix)}
+     *
+     * @param blob the encoded blob
+     * @return the links of cells and headers
+     * @throws IOException corrupted or unsupported blob
+     */
+    TableManager.DataLinksMatrix decodeDataLinks(byte[] blob) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            return readDataLinks(openPayload(blob, KIND_LINKS, inflater));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Selects the rows and columns of the fully decoded rows: same selection than
+     * {@link #decodeValues(byte[], int[], int, int)}
+     *
+     * @param rows    all the rows
+     * @param columns the indexes of the selected columns, null selects all the columns
+     * @param fromRow index of the first selected row, inclusive
+     * @param toRow   index of the last selected row, exclusive
+     * @return the selected rows
+     */
+    static List<List<Object>> selectRows(List<List<Object>> rows, int[] columns, int fromRow, int toRow) {
+        int from = Math.max(0, fromRow);
+        int to = Math.min(toRow, rows.size());
+        if (from == 0 && to == rows.size() && columns == null) {
+            return rows;
+        }
+        List<List<Object>> selection = new ArrayList<>(Math.max(0, to - from));
+        for (int row = from; row < to; row++) {
+            selection.add(selectRow(rows.get(row), columns));
+        }
+        return selection;
+    }
+
+    /**
+     * Selects the columns of the row: null columns selects all of them
+     */
+    private static List<Object> selectRow(List<Object> row, int[] columns) {
+        if (row == null || columns == null) {
+            return row;
+        }
+        List<Object> selected = new ArrayList<>(columns.length);
+        for (int col : columns) {
+            selected.add(col >= 0 && col < row.size() ? row.get(col) : null);
+        }
+        return selected;
+    }
+
+    private static void writeMarker(DataOutputStream out, byte kind, boolean compressed) throws IOException {
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(compressed ? FLAG_DEFLATE : 0);
+        out.writeByte(kind);
+    }
+
+    /**
+     * Checks the format marker of the blob
+     *
+     * @return the flags of the blob
+     */
+    private static byte readMarker(byte[] blob, byte kind) throws IOException {
+        if (!isEncoded(blob)) {
+            throw new IOException("Unexpected table blob: missing format marker");
+        }
+        byte version = blob[MAGIC.length];
+        byte flags = blob[MAGIC.length + 1];
+        byte blobKind = blob[MAGIC.length + 2];
+        if (version > VERSION) {
+            throw new IOException("Unsupported version of table blob: " + version);
+        }
+        if (blobKind != kind) {
+            throw new IOException("Unexpected kind of table blob: " + (char) blobKind);
+        }
+        return flags;
+    }
+
+    /**
+     * Writes the format marker and opens the payload stream, compressed when deflater is defined. Used by the links,
+     * and by the values in version 1.
+     */
+    private static DataOutputStream openPayload(ByteArrayOutputStream bos, byte kind, Deflater deflater)
+            throws IOException {
+        writeMarker(new DataOutputStream(bos), kind, deflater != null);
+        OutputStream payload = bos;
+        if (deflater != null) {
+            payload = new DeflaterOutputStream(bos, deflater, BUFFER_SIZE);
+        }
+        return new DataOutputStream(new BufferedOutputStream(payload, BUFFER_SIZE));
+    }
+
+    /**
+     * Checks the format marker and opens the payload stream, uncompressed with inflater when flagged. Used by the
+     * links, and by the values in version 1.
+     */
+    private static DataInputStream openPayload(byte[] blob, byte kind, Inflater inflater) throws IOException {
+        byte flags = readMarker(blob, kind);
+        InputStream payload = new ByteArrayInputStream(blob, MARKER_SIZE, blob.length - MARKER_SIZE);
+        if ((flags & FLAG_DEFLATE) != 0) {
+            payload = new InflaterInputStream(payload, inflater, BUFFER_SIZE);
+        }
+        return new DataInputStream(new BufferedInputStream(payload, BUFFER_SIZE));
+    }
+
+    /**
+     * Writes one block of values, compressed when deflater is defined
+     */
+    private static byte[] encodeBlock(Deflater deflater, BlockWriter writer) throws IOException {
+        BlockOutput block = new BlockOutput();
+        writer.write(new DataOutputStream(block));
+        if (deflater == null) {
+            return block.toByteArray();
+        }
+        deflater.reset();
+        deflater.setInput(block.bytes, 0, block.size);
+        deflater.finish();
+        BlockOutput deflated = new BlockOutput();
+        byte[] buffer = new byte[BLOCK_BUFFER_SIZE];
+        while (!deflater.finished()) {
+            deflated.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return deflated.toByteArray();
+    }
+
+    /**
+     * Growing buffer of one block: contrary to the ByteArrayOutputStream, the writes are not synchronized
+     */
+    private static final class BlockOutput extends OutputStream {
+
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        @Override
+        public void write(int b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (size + len > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(size * 2, size + len));
+            }
+            System.arraycopy(b, off, bytes, size, len);
+            size += len;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+
+    /**
+     * Reads the marker and the directory of the blocks of a values blob
+     */
+    private static Directory readDirectory(byte[] blob) throws IOException {
+        Directory directory = new Directory();
+        directory.compressed = (readMarker(blob, KIND_VALUES) & FLAG_DEFLATE) != 0;
+        ByteArrayInputStream bis = new ByteArrayInputStream(blob, MARKER_SIZE, blob.length - MARKER_SIZE);
+        DataInputStream in = new DataInputStream(bis);
+        directory.nbRows = readVarInt(in);
+        directory.nbCols = readVarInt(in);
+        directory.rowGroupSize = readVarInt(in);
+        if (directory.rowGroupSize < 1) {
+            throw new IOException("Unexpected row group size in table blob: " + directory.rowGroupSize);
+        }
+        int nbBlocks = 1 + directory.nbRowGroups() * directory.nbCols;
+        int[] lengths = new int[nbBlocks];
+        for (int block = 0; block < nbBlocks; block++) {
+            lengths[block] = readVarInt(in);
+        }
+        directory.offsets = new int[nbBlocks + 1];
+        directory.offsets[0] = blob.length - bis.available();
+        for (int block = 0; block < nbBlocks; block++) {
+            directory.offsets[block + 1] = directory.offsets[block] + lengths[block];
+        }
+        if (directory.offsets[nbBlocks] > blob.length) {
+            throw new IOException("Truncated table blob");
+        }
+        return directory;
+    }
+
+    /**
+     * Opens the stream on one block of values
+     */
+    private static DataInputStream openBlock(byte[] blob, Directory directory, int block, Inflater inflater) {
+        int offset = directory.offsets[block];
+        InputStream in = new ByteArrayInputStream(blob, offset, directory.offsets[block + 1] - offset);
+        if (directory.compressed) {
+            inflater.reset();
+            in = new InflaterInputStream(in, inflater, BLOCK_BUFFER_SIZE);
+        }
+        return new DataInputStream(new BufferedInputStream(in, BLOCK_BUFFER_SIZE));
+    }
+
+    /**
+     * Reads the rows written in version 1: dimensions, then first row item by item, then the other rows column by
+     * column.
+     */
+    private static List<List<Object>> readRowsVersion1(DataInputStream in) throws IOException {
+        int nbRows = readVarInt(in);
+        int nbCols = readVarInt(in);
+        boolean uniform = in.readBoolean();
+        int[] sizes = new int[nbRows];
+        for (int row = 0; row < nbRows; row++) {
+            sizes[row] = uniform ? nbCols : readVarInt(in) - 1;
+        }
+
+        List<List<Object>> rows = new ArrayList<>(nbRows);
+        for (int row = 0; row < nbRows; row++) {
+            rows.add(sizes[row] < 0 ? null : new ArrayList<>(sizes[row]));
+        }
+        if (nbRows == 0) {
+            return rows;
+        }
+
+        List<Object> firstRow = rows.get(0);
+        for (int col = 0; col < sizes[0]; col++) {
+            firstRow.add(readValue(in));
+        }
+        Object[] values = new Object[nbRows];
+        for (int col = 0; col < nbCols; col++) {
+            readColumn(in, sizes, col, 1, nbRows, values);
+            for (int row = 1; row < nbRows; row++) {
+                if (sizes[row] > col) {
+                    rows.get(row).add(values[row - 1]);
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Writes the links of cells and headers
+     */
+    private static void writeDataLinks(DataOutputStream out, TableManager.DataLinksMatrix links) throws IOException {
+        Map<String, Integer> dictionary = new HashMap<>();
+
+        writeLink(out, links.getCellsDefaultDatalink(), dictionary);
+        List<List<DataLink>> cellsDatalink = links.getCellsDatalink();
+        if (cellsDatalink == null) {
+            writeVarInt(out, 0);
+        } else {
+            writeVarInt(out, cellsDatalink.size() + 1);
+            for (List<DataLink> row : cellsDatalink) {
+                writeLinks(out, row, dictionary);
+            }
+        }
+        writeLink(out, links.getRowHeaderDefaultDatalink(), dictionary);
+        writeLinks(out, links.getRowHeaderDatalink(), dictionary);
+        writeLink(out, links.getColumnHeaderDefaultDatalink(), dictionary);
+        writeLinks(out, links.getColumnHeaderDatalink(), dictionary);
+    }
+
+    /**
+     * Reads the links written by {@link #writeDataLinks(DataOutputStream, TableManager.DataLinksMatrix)}
+     */
+    private static TableManager.DataLinksMatrix readDataLinks(DataInputStream in) throws IOException {
+        List<String> dictionary = new ArrayList<>();
+        TableManager.DataLinksMatrix links = new TableManager.DataLinksMatrix();
+
+        links.setCellsDefaultDatalink(readLink(in, dictionary));
+        int nbRows = readVarInt(in) - 1;
+        if (nbRows >= 0) {
+            List<List<DataLink>> cellsDatalink = new ArrayList<>(nbRows);
+            for (int row = 0; row < nbRows; row++) {
+                cellsDatalink.add(readLinks(in, dictionary));
+            }
+            links.setCellsDatalink(cellsDatalink);
+        }
+        links.setRowHeaderDefaultDatalink(readLink(in, dictionary));
+        links.setRowHeaderDatalink(readLinks(in, dictionary));
+        links.setColumnHeaderDefaultDatalink(readLink(in, dictionary));
+        links.setColumnHeaderDatalink(readLinks(in, dictionary));
+        return links;
+    }
+
+    /**
+     * Evaluates the type of the column in the rows [from, to[, ignoring the null values.
+     */
+    private static byte columnType(List<List<Object>> rows, int col, int from, int to) {
+        byte type = COL_EMPTY;
+        for (int row = from; row < to; row++) {
+            List<Object> rowValues = rows.get(row);
+            if (rowValues == null || rowValues.size() <= col) {
+                continue;
+            }
+            Object value = rowValues.get(col);
+            if (value == null) {
+                continue;
+            }
+            byte valueType;
+            if (value instanceof String) {
+                valueType = COL_STRING;
+            } else if (value instanceof Integer) {
+                valueType = COL_INT;
+            } else if (value instanceof Long) {
+                valueType = COL_LONG;
+            } else if (value instanceof Double) {
+                valueType = COL_DOUBLE;
+            } else if (value instanceof Boolean) {
+                valueType = COL_BOOLEAN;
+            } else {
+                return COL_MIXED;
+            }
+            if (type == COL_EMPTY) {
+                type = valueType;
+            } else if (type != valueType) {
+                return COL_MIXED;
+            }
+        }
+        return type;
+    }
+
+    /**
+     * Evaluates the smallest decimal scale s such that each Double v of the column, in the rows [from, to[, is exactly
+     * decoded from the long rint(v * 10^s).
+     *
+     * @return the scale, or -1 if there is none: the column is written as raw doubles
+     */
+    private static int decimalScale(List<List<Object>> rows, int col, int from, int to) {
+        int scale = 0;
+        for (int row = from; row < to; row++) {
+            List<Object> rowValues = rows.get(row);
+            if (rowValues == null || rowValues.size() <= col || rowValues.get(col) == null) {
+                continue;
+            }
+            double value = (Double) rowValues.get(col);
+            while (!isDecimal(value, DECIMAL_POWERS[scale])) {
+                scale++;
+                if (scale == DECIMAL_POWERS.length) {
+                    return -1;
+                }
+            }
+        }
+        // a larger scale may not suit the values checked with a smaller one
+        for (int row = from; row < to; row++) {
+            List<Object> rowValues = rows.get(row);
+            if (rowValues != null && rowValues.size() > col && rowValues.get(col) != null
+                    && !isDecimal((Double) rowValues.get(col), DECIMAL_POWERS[scale])) {
+                return -1;
+            }
+        }
+        return scale;
+    }
+
+    /**
+     * Tests that value is exactly decoded from rint(value * power) / power. Rejects -0.0, NaN and infinities.
+     */
+    private static boolean isDecimal(double value, double power) {
+        double scaled = Math.rint(value * power);
+        return Math.abs(scaled) < MAX_EXACT_DOUBLE && Double.compare((long) scaled / power, value) == 0;
+    }
+
+    /**
+     * Writes the cells of the column col, in the rows [from, to[: type, null bitmap, values.
+     */
+    private static void writeColumn(DataOutputStream out, List<List<Object>> rows, int col, int from, int to)
+            throws IOException {
+        byte type = columnType(rows, col, from, to);
+        int scale = type == COL_DOUBLE ? decimalScale(rows, col, from, to) : -1;
+        if (scale >= 0) {
+            type = COL_DECIMAL;
+        }
+        out.writeByte(type);
+        if (type == COL_EMPTY) {
+            return;
+        }
+
+        // null bitmap over the defined cells of the column
+        BitSet nulls = new BitSet();
+        int nbCells = 0;
+        for (int row = from; row < to; row++) {
+            List<Object> rowValues = rows.get(row);
+            if (rowValues != null && rowValues.size() > col) {
+                if (rowValues.get(col) == null) {
+                    nulls.set(nbCells);
+                }
+                nbCells++;
+            }
+        }
+        if (type != COL_MIXED) {
+            writeBitSet(out, nulls);
+        }
+        if (type == COL_DECIMAL) {
+            out.writeByte(scale);
+        }
+
+        BitSet booleans = type == COL_BOOLEAN ? new BitSet() : null;
+        Map<String, Integer> dictionary = type == COL_STRING ? new HashMap<>() : null;
+        int cell = 0;
+        for (int row = from; row < to; row++) {
+            List<Object> rowValues = rows.get(row);
+            if (rowValues == null || rowValues.size() <= col) {
+                continue;
+            }
+            Object value = rowValues.get(col);
+            if (type == COL_MIXED) {
+                writeValue(out, value);
+            } else if (value != null) {
+                switch (type) {
+                    case COL_STRING:
+                        writeDictionaryString(out, (String) value, dictionary);
+                        break;
+                    case COL_INT:
+                        writeVarLong(out, (Integer) value);
+                        break;
+                    case COL_LONG:
+                        writeVarLong(out, (Long) value);
+                        break;
+                    case COL_DOUBLE:
+                        out.writeDouble((Double) value);
+                        break;
+                    case COL_DECIMAL:
+                        writeVarLong(out, (long) Math.rint((Double) value * DECIMAL_POWERS[scale]));
+                        break;
+                    default:
+                        // COL_BOOLEAN
+                        booleans.set(cell, (Boolean) value);
+                        break;
+                }
+            }
+            cell++;
+        }
+        if (booleans != null) {
+            writeBitSet(out, booleans);
+        }
+    }
+
+    /**
+     * Reads the cells of the column col, in the rows [from, to[, into values[row - from]. The cells missing in the
+     * rows shorter than col are set to null.
+     */
+    private static void readColumn(DataInputStream in, int[] sizes, int col, int from, int to, Object[] values)
+            throws IOException {
+        byte type = in.readByte();
+        BitSet nulls = type == COL_EMPTY || type == COL_MIXED ? new BitSet() : readBitSet(in);
+        List<String> dictionary = type == COL_STRING ? new ArrayList<>() : null;
+        double power = 1d;
+        if (type == COL_DECIMAL) {
+            int scale = in.readByte();
+            if (scale < 0 || scale >= DECIMAL_POWERS.length) {
+                throw new IOException("Unexpected decimal scale in table blob: " + scale);
+            }
+            power = DECIMAL_POWERS[scale];
+        }
+
+        // the booleans are written after the column: set them at the end
+        List<Integer> booleanRows = type == COL_BOOLEAN ? new ArrayList<>() : null;
+
+        int cell = 0;
+        for (int row = from; row < to; row++) {
+            Object value = null;
+            if (sizes[row] <= col) {
+                values[row - from] = null;
+                continue;
+            }
+            if (type == COL_MIXED) {
+                value = readValue(in);
+            } else if (type != COL_EMPTY && !nulls.get(cell)) {
+                switch (type) {
+                    case COL_STRING:
+                        value = readDictionaryString(in, dictionary);
+                        break;
+                    case COL_INT:
+                        value = (int) readVarLong(in);
+                        break;
+                    case COL_LONG:
+                        value = readVarLong(in);
+                        break;
+                    case COL_DOUBLE:
+                        value = in.readDouble();
+                        break;
+                    case COL_DECIMAL:
+                        value = readVarLong(in) / power;
+                        break;
+                    case COL_BOOLEAN:
+                        booleanRows.add(row);
+                        value = cell;
+                        break;
+                    default:
+                        throw new IOException("Unexpected column type in table blob: " + type);
+                }
+            }
+            values[row - from] = value;
+            cell++;
+        }
+        if (type == COL_BOOLEAN) {
+            BitSet booleans = readBitSet(in);
+            for (int row : booleanRows) {
+                values[row - from] = booleans.get((Integer) values[row - from]);
+            }
+        }
+    }
+
+    /**
+     * Writes a value of any supported type, preceded by its tag.
+     */
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INT);
+            writeVarLong(out, (Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            writeVarLong(out, (Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(TAG_LIST);
+            writeVarInt(out, list.size());
+            for (Object item : list) {
+                writeValue(out, item);
+            }
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(TAG_MAP);
+            writeVarInt(out, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(out, entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        } else if (value instanceof Serializable) {
+            // other values: BigDecimal, Float ...
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+                oos.writeObject(value);
+            }
+            out.writeByte(TAG_SERIALIZED);
+            writeVarInt(out, bos.size());
+            bos.writeTo(out);
+        } else {
+            throw new IOException("Unsupported value type in table: " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * Reads a value written by {@link #writeValue(DataOutputStream, Object)}
+     */
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return readString(in);
+            case TAG_INT:
+                return (int) readVarLong(in);
+            case TAG_LONG:
+                return readVarLong(in);
+            case TAG_DOUBLE:
+                return in.readDouble();
+            case TAG_TRUE:
+                return Boolean.TRUE;
+            case TAG_FALSE:
+                return Boolean.FALSE;
+            case TAG_LIST: {
+                int size = readVarInt(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case TAG_MAP: {
+                int size = readVarInt(in);
+                Map<Object, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    Object key = readValue(in);
+                    map.put(key, readValue(in));
+                }
+                return map;
+            }
+            case TAG_SERIALIZED: {
+                byte[] bytes = new byte[readVarInt(in)];
+                in.readFully(bytes);
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return ois.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("Unexpected serialized value in table blob", e);
+                }
+            }
+            default:
+                throw new IOException("Unexpected value tag in table blob: " + tag);
+        }
+    }
+
+    /**
+     * Writes the list of links: size + 1 then the links, 0 stands for null list.
+     */
+    private static void writeLinks(DataOutputStream out, List<DataLink> links, Map<String, Integer> dictionary)
+            throws IOException {
+        if (links == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, links.size() + 1);
+        for (DataLink link : links) {
+            writeLink(out, link, dictionary);
+        }
+    }
+
+    /**
+     * Reads the list of links written by {@link #writeLinks(DataOutputStream, List, Map)}
+     */
+    private static List<DataLink> readLinks(DataInputStream in, List<String> dictionary) throws IOException {
+        int size = readVarInt(in) - 1;
+        if (size < 0) {
+            return null;
+        }
+        List<DataLink> links = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            links.add(readLink(in, dictionary));
+        }
+        return links;
+    }
+
+    /**
+     * Writes the link: type and context are dictionary-encoded, as they are usually shared by the links.
+     */
+    private static void writeLink(DataOutputStream out, DataLink link, Map<String, Integer> dictionary) throws IOException {
+        out.writeBoolean(link != null);
+        if (link != null) {
+            writeDictionaryString(out, link.type, dictionary);
+            writeValue(out, link.val);
+            writeDictionaryString(out, link.context, dictionary);
+        }
+    }
+
+    /**
+     * Reads the link written by {@link #writeLink(DataOutputStream, DataLink, Map)}
+     */
+    private static DataLink readLink(DataInputStream in, List<String> dictionary) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        DataLink link = new DataLink();
+        link.type = readDictionaryString(in, dictionary);
+        link.val = readValue(in);
+        link.context = readDictionaryString(in, dictionary);
+        return link;
+    }
+
+    /**
+     * Writes a string with an inline dictionary: 0 for null, 1 followed by the string for a new entry, index + 2 for
+     * an entry already written.
+     */
+    private static void writeDictionaryString(DataOutputStream out, String value, Map<String, Integer> dictionary)
+            throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        Integer index = dictionary.get(value);
+        if (index != null) {
+            writeVarInt(out, index + 2);
+        } else {
+            dictionary.put(value, dictionary.size());
+            writeVarInt(out, 1);
+            writeString(out, value);
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #writeDictionaryString(DataOutputStream, String, Map)}
+     */
+    private static String readDictionaryString(DataInputStream in, List<String> dictionary) throws IOException {
+        int code = readVarInt(in);
+        if (code == 0) {
+            return null;
+        }
+        if (code == 1) {
+            String value = readString(in);
+            dictionary.add(value);
+            return value;
+        }
+        if (code - 2 >= dictionary.size()) {
+            throw new IOException("Unexpected dictionary index in table blob: " + (code - 2));
+        }
+        return dictionary.get(code - 2);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBitSet(DataOutputStream out, BitSet bits) throws IOException {
+        byte[] bytes = bits.toByteArray();
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static BitSet readBitSet(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return BitSet.valueOf(bytes);
+    }
+
+    /**
+     * Writes an unsigned int on 1 to 5 bytes
+     */
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer in table blob");
+    }
+
+    /**
+     * Writes a signed long on 1 to 10 bytes, zigzag-encoded: small negative values are short too.
+     */
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Malformed variable-length integer in table blob");
+    }
+}
@@ -16,9 +16,7 @@
 
 package fr.cs.ikats.temporaldata.resource;
 
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -35,7 +33,6 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
-import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
@@ -232,7 +229,7 @@ public class MetaDataResource extends AbstractResource {
 
         Response response;
         try {
-            String csvStr = metadataManager.getListAsCSV(tsuidslist);
+            StreamingOutput csvOutput = metadataManager.getListAsCSVOutput(tsuidslist);
 
             if (tsuids.equals("*")) {
                 logger.info("listing all metadata in database");
@@ -245,7 +242,7 @@ public class MetaDataResource extends AbstractResource {
                     filename = tsuids + "_metadata.csv";
                 }
             }
-            response = Response.ok(getOut(csvStr)).header("Content-Disposition", "attachment;filename=" + filename).build();
+            response = Response.ok(csvOutput).header("Content-Disposition", "attachment;filename=" + filename).build();
         } catch (IkatsDaoMissingResource e) {
             // just to add a message in the logger ...
             logger.error("Unable to find tsuid " + tsuids + " in database");
@@ -320,21 +317,6 @@ public class MetaDataResource extends AbstractResource {
         return metadataManager.getListTypes();
     }
 
-    /**
-     * return a new Instance of OutputStreaming, used for streaming out the csv
-     * file
-     *
-     * @param excelBytes the bytes to write
-     * @return
-     */
-    private StreamingOutput getOut(final String excelBytes) {
-        return new StreamingOutput() {
-            @Override
-            public void write(OutputStream out) throws IOException, WebApplicationException {
-                out.write(excelBytes.getBytes());
-            }
-        };
-    }
 
     /**
      * import a FunctionalIdentifier for a tsuid.
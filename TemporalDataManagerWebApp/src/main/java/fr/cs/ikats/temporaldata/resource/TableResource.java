@@ -21,13 +21,8 @@ import java.io.*;
 
 import javax.ws.rs.core.Response.ResponseBuilder;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
@@ -42,15 +37,17 @@ import org.glassfish.jersey.media.multipart.FormDataParam;
 
 import fr.cs.ikats.common.dao.exception.IkatsDaoConflictException;
 import fr.cs.ikats.common.dao.exception.IkatsDaoException;
-import fr.cs.ikats.metadata.MetaDataFacade;
-import fr.cs.ikats.metadata.model.MetaData;
 import fr.cs.ikats.table.TableEntitySummary;
 import fr.cs.ikats.temporaldata.business.MetaDataManager;
 import fr.cs.ikats.temporaldata.business.table.Table;
+import fr.cs.ikats.temporaldata.business.table.TableCsvWriter;
 import fr.cs.ikats.temporaldata.business.table.TableInfo;
+import fr.cs.ikats.temporaldata.business.table.TableJsonWriter;
 import fr.cs.ikats.temporaldata.business.table.TableManager;
+import fr.cs.ikats.temporaldata.business.table.TableQuery;
 import fr.cs.ikats.temporaldata.exception.IkatsException;
 import fr.cs.ikats.temporaldata.exception.IkatsJsonException;
+import fr.cs.ikats.temporaldata.exception.ImportException;
 import fr.cs.ikats.temporaldata.exception.InvalidValueException;
 import fr.cs.ikats.temporaldata.exception.ResourceNotFoundException;
 import fr.cs.ikats.temporaldata.utils.Chronometer;
@@ -96,17 +93,10 @@ public class TableResource extends AbstractResource {
     @Path("/{tableName}")
     public Response downloadTable(@PathParam("tableName") String tableName) throws ResourceNotFoundException, IkatsException, IkatsDaoException, IkatsJsonException, IOException, ClassNotFoundException {
 
-        // get table in db by name
-        TableInfo table = tableManager.readFromDatabase(tableName);
-        try {
-
-            String jsonString = tableManager.serializeToJson(table);
-
-            return Response.ok(jsonString, MediaType.APPLICATION_JSON_TYPE).build();
-        } catch (Exception e) {
-            throw new IkatsException("Failed: service downloadTable() " + tableName + " : caught unexpected Throwable:", e);
-        }
+        // get table in db by name: the rows are streamed to the response
+        TableJsonWriter writer = tableManager.getJsonWriter(tableName, null, 0, Integer.MAX_VALUE, false);
 
+        return Response.ok((StreamingOutput) writer::write, MediaType.APPLICATION_JSON_TYPE).build();
     }
 
     /**
@@ -175,91 +165,14 @@ public class TableResource extends AbstractResource {
             logger.info("Import csv file : " + fileName);
             logger.info("Table Name : " + tableName);
 
-            BufferedReader reader = new BufferedReader(new InputStreamReader(fileis));
-            String separator = ",";
-            Integer rowIndexId = -1;
-            List<String> columnHeaders;
-            List<String> rowHeaders = new ArrayList<>();
-
-            // consume header to retrieve column index of unique identifier in the table
-            columnHeaders = Arrays.asList(reader.readLine().split(separator));
-            for (int i = 0; i < columnHeaders.size(); i++) {
-                if (!columnHeaders.get(i).isEmpty() && columnHeaders.get(i).equals(rowName)) {
-                    rowIndexId = i;
-                    break;
-                }
-            }
-
-            if (rowIndexId == -1) {
-                String context = "Row name not found in csv file header : " + rowName;
-                logger.error(context);
-                return Response.status(Response.Status.BAD_REQUEST).entity(context).build();
-            }
-
-            HashMap<String, String> keyTableMap = new HashMap<>();
-            String line;
-            // first element of row header is column header : set to null
-            rowHeaders.add(null);
-
-            // init output table with both columns/rows header
-            Table outputTable = TableManager.initEmptyTable(true, true);
-
-            // init line counter
-            Integer lineNb = 1;
-
-            // parse csv content to :
-            // 1. retrieve data to build json table structure to store
-            // 2. fix duplicates : if occurs, we stop at first duplicate and
-            // send back 409 http code
-            while ((line = reader.readLine()) != null) {
-
-                // increment line number
-                lineNb++;
-
-                // skip empty lines
-                if (line.isEmpty()) {
-                    continue;
-                }
-
-                String[] items = line.split(separator, -1);
-                // check table content consistency
-                if (items.length != columnHeaders.size()) {
-                    String context = "CSV line " + lineNb + " : length does not fit headers size in file " + fileName;
-                    logger.error(context);
-                    return Response.status(Response.Status.BAD_REQUEST).entity(context).build();
-                }
-
-                // retrieving table data
-                rowHeaders.add(items[0]);
-                List<String> newRow = new ArrayList<>();
-                for (int i = 1; i < items.length; i++) {
-                    newRow.add(items[i]);
-                }
-                // add row to output table
-                outputTable.appendRow(newRow);
-
-                // seeking for duplicates
-                String idRef = items[rowIndexId];
-                if (!keyTableMap.containsKey(idRef)) {
-                    keyTableMap.put(idRef, "NA");
-                } else {
-                    String context = "Duplicate found in csv file: " + rowName + " = " + idRef;
-                    logger.error(context);
-                    return Response.status(Response.Status.BAD_REQUEST).entity(context).build();
-                }
+            // the records are streamed into the stored table: duplicates of rowName values or records not fitting
+            // the header are rejected with 400 http code
+            try {
+                tableManager.createInDatabaseFromCsv(tableName, fileName, fileis, rowName);
+            } catch (ImportException e) {
+                logger.error(e.getMessage());
+                return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
             }
-
-            // fill table description
-            outputTable.setName(tableName);
-            outputTable.setTitle(tableName);
-            outputTable.setDescription(fileName);
-
-            // fill headers
-            outputTable.getColumnsHeader().addItems(columnHeaders.toArray());
-            outputTable.getRowsHeader().addItems(rowHeaders.toArray());
-
-            // store Table
-            tableManager.createInDatabase(outputTable.getTableInfo());
             chrono.stop(logger);
 
             // table name is returned in the body
@@ -367,7 +280,7 @@ public class TableResource extends AbstractResource {
      * @return the internal id
      * @throws IOException               error when parsing input csv file
      * @throws IkatsDaoException         error while accessing database to check if table already exists
-     * @throws ResourceNotFoundException if table not found
+     * @throws ResourceNotFoundException if table, a functional identifier of its rows or their metadata are not found
      * @throws InvalidValueException     if table name does not match expected pattern
      * @throws IkatsException            others unexpected exceptions
      */
@@ -401,81 +314,17 @@ public class TableResource extends AbstractResource {
         }
 
         Chronometer chrono = new Chronometer(uriInfo.getPath(), true);
-
-        // retrieve table tableName from db
-        TableInfo tableInfo = tableManager.readFromDatabase(tableName);
-        Table table = tableManager.initTable(tableInfo, false);
-
-        logger.info("Working on table (" + table.getDescription() + ") " +
+        logger.info("Working on table (" + tableName + ") " +
                 "with metaName (" + metaName + ") " +
                 "and with populationId (" + populationId + ")");
         logger.info("Output table name is (" + outputTableName + ")");
 
-        // retrieve headers
-        List<Object> colHeaders = table.getColumnsHeader().getItems(Object.class);
-        List<Object> rowHeaders = table.getRowsHeader().getItems(Object.class);
-
-        MetaDataFacade metaFacade = new MetaDataFacade();
-        List<String> colPopId = new ArrayList<>();
-        List<String> colMetaTs = new ArrayList<>();
-        for (int i = 1; i < rowHeaders.size(); i++) {
-
-            // retrieving tsuids of input
-            String tsuid = metaFacade.getFunctionalIdentifierByFuncId(rowHeaders.get(i).toString()).getTsuid();
-            MetaData metaTs = metaFacade.getMetaData(tsuid, metaName);
-            MetaData metaPopId = metaFacade.getMetaData(tsuid, populationId);
-
-            // filling new colPopId column
-            colPopId.add(metaPopId.getValue());
-
-            // filling new colMetaTs column
-            colMetaTs.add(metaTs.getValue());
-        }
-
-        // processing an ordered list of populationId values without duplicates
-        Set<String> setPopId = new HashSet<>(colPopId);
-        List<String> listPopId = new ArrayList<>(setPopId);
-        Collections.sort(listPopId);
-
-        // processing an ordered list of metaName values by ts without duplicates
-        Set<String> setMetaTs = new HashSet<>(colMetaTs);
-        List<String> listMetaTs = new ArrayList<>(setMetaTs);
-        Collections.sort(listMetaTs);
-
-        // init empty table managing rows/columns headers
-        Table outputTable = TableManager.initEmptyTable(true, true);
-        outputTable.getColumnsHeader().addItem(populationId);
-        for (String metaTs : listMetaTs) {
-            for (int i = 1; i < colHeaders.size(); i++) {
-                outputTable.getColumnsHeader().addItem(metaTs + "_" + colHeaders.get(i));
-            }
-        }
-        int tableContentWidth = outputTable.getColumnsHeader().getItems().size() - 1;
-
-        // filling rows headers and content by popId
-        outputTable.getRowsHeader().addItem(null);
-        for (String popId : listPopId) {
-            outputTable.getRowsHeader().addItem(popId);
-            List<Integer> listIndexPopId = retrieveIndexesListOfEltInList(popId, colPopId);
-
-            List<Object> cellsLine = new ArrayList<>();
-            for (String metaTS : listMetaTs) {
-                for (Integer index : listIndexPopId) {
-                    if (metaTS.equals(colMetaTs.get(index))) {
-                        cellsLine.addAll(table.getRow(index + 1, Object.class));
-                    }
-                }
-            }
-            // check line size is consistent
-            if (cellsLine.size() != tableContentWidth) {
-                String context = "Output table : line length inconsistency";
-                return Response.status(Response.Status.BAD_REQUEST).entity(context).build();
-            }
-            outputTable.appendRow(cellsLine);
+        // delegates the work to the operator Ts2Feature
+        try {
+            new Ts2Feature().apply(tableName, metaName, populationId, outputTableName);
+        } catch (IkatsOperatorException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         }
-        // store table in db
-        outputTable.setName(outputTableName);
-        tableManager.createInDatabase(outputTable.getTableInfo());
 
         chrono.stop(logger);
 
@@ -483,48 +332,136 @@ public class TableResource extends AbstractResource {
         return Response.status(Response.Status.OK).entity(outputTableName).build();
     }
 
-    /**
-     * Return list of indexes where element is present in the list
-     */
-    private List<Integer> retrieveIndexesListOfEltInList(String element, List<String> list) {
-        List<Integer> result = new ArrayList<>();
-        for (int i = 0; i < list.size(); i++) {
-            if (list.get(i).equals(element)) {
-                result.add(i);
-            }
-        }
-        return result;
-    }
-
     /**
      * Read the Table from database, using media-type
      * (with DAO Table: merge equivalent services readTable <=> downlodTable into one compliant with final solution)
+     * <p>
+     * Optional selection: only the selected columns and rows are decoded, the headers are kept.
      *
-     * @param name unique identifier of the table
-     * @return the table read from database
+     * @param name    unique identifier of the table
+     * @param columns optional names of the selected columns, in the columns header: repeated query parameter column
+     * @param offset  optional index of the first selected row (default 0)
+     * @param limit   optional maximum number of selected rows (default: all the rows)
+     * @return the table read from database, streamed as JSON
      * @throws IkatsJsonException        error parsing the json content from the database
      * @throws IkatsDaoException         database access error
-     * @throws ResourceNotFoundException resource not found in the database, for specified name
+     * @throws ResourceNotFoundException resource not found in the database, for specified name, or selected column not
+     *                                   found
+     * @throws InvalidValueException     negative offset or limit
      */
     @GET
     @Path("/json/{name}")
     @Produces(MediaType.APPLICATION_JSON)
-    public TableInfo readTable(@PathParam("name") String name) throws IkatsException, IkatsDaoException, ResourceNotFoundException, IOException, ClassNotFoundException {
+    public Response readTable(@PathParam("name") String name,
+                              @QueryParam("column") List<String> columns,
+                              @QueryParam("offset") @DefaultValue("0") int offset,
+                              @QueryParam("limit") Integer limit) throws IkatsException, IkatsDaoException, ResourceNotFoundException, InvalidValueException, IOException, ClassNotFoundException {
         TableManager tableMgt = new TableManager();
-        return tableMgt.readFromDatabase(name);
+        boolean columnsSelected = columns != null && !columns.isEmpty();
+        TableJsonWriter writer = tableMgt.getJsonWriter(name, columnsSelected ? columns : null, offset,
+                limit == null ? Integer.MAX_VALUE : limit, true);
+        return Response.ok((StreamingOutput) writer::write, MediaType.APPLICATION_JSON_TYPE).build();
     }
 
     /**
-     * Table process to :
-     * - change table key from metadata (populationId)
-     * - add metadata (metaName) value to original column headers  : metaName_colHeader
-     * <p>
-     * Input table first column must be time series functional identifiers
+     * Gets the catalog of a table, without reading its content: row count, column count, column names and types,
+     * byte size and checksum of the stored data.
      *
-     * @param tableName the table to convert
-     * @param formData  the form data
-     * @param uriInfo   all info on URI
-     * @return the internal id
+     * @param tableName unique identifier of the table
+     * @return the summary of the table, with its catalog
+     * @throws IkatsDaoException database access error, or table not found
+     * @throws IkatsException    error computing the catalog of a table stored before the catalog
+     */
+    @GET
+    @Path("/{tableName}/catalog")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response readTableCatalog(@PathParam("tableName") String tableName) throws IkatsDaoException, IkatsException {
+        TableEntitySummary catalog = tableManager.readCatalog(tableName);
+        return Response.ok(catalog, MediaType.APPLICATION_JSON_TYPE).build();
+    }
+
+    /**
+     * Executes a query on the content of a table: filter on the column values, projection, group-by with aggregates,
+     * order-by and range of rows. See {@link TableQuery} for JSON input specification.
+     *
+     * @param name  unique identifier of the table
+     * @param query the query
+     * @return the result of the query, as a table in JSON: columns header and content
+     * @throws IkatsDaoException         database access error, or table not found
+     * @throws ResourceNotFoundException a column of the query is not found
+     * @throws InvalidValueException     invalid query
+     * @throws IkatsException            error reading the table
+     */
+    @POST
+    @Path("/{name}/query")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response queryTable(@PathParam("name") String name, TableQuery query)
+            throws IkatsException, IkatsDaoException, ResourceNotFoundException, InvalidValueException {
+        TableInfo result = tableManager.queryTable(name, query);
+        return Response.ok(result, MediaType.APPLICATION_JSON_TYPE).build();
+    }
+
+    /**
+     * Appends rows to the content of a table, stored as a new row group: the stored content of the table is not
+     * rewritten.
+     *
+     * @param name unique identifier of the table
+     * @param rows the appended content rows, as a JSON array of arrays: the first value of each row is its rows
+     *             header value, when the table has a rows header
+     * @return the summary of the table, with its updated catalog
+     * @throws IkatsDaoException     database access error, table not found, or concurrent append
+     * @throws InvalidValueException no row, or row larger than the columns header
+     * @throws IkatsException        error storing the rows
+     */
+    @POST
+    @Path("/{name}/rows")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response appendRows(@PathParam("name") String name, List<List<Object>> rows)
+            throws IkatsException, IkatsDaoException, InvalidValueException {
+        TableEntitySummary catalog = tableManager.appendRows(name, rows);
+        return Response.ok(catalog, MediaType.APPLICATION_JSON_TYPE).build();
+    }
+
+    /**
+     * Replaces the rows of one row group of a table: only this row group is rewritten. Row group 0 holds the rows
+     * stored at the creation of the table, the following ones the appended rows.
+     *
+     * @param name     unique identifier of the table
+     * @param rowGroup index of the row group
+     * @param rows     the content rows replacing the ones of the row group, as a JSON array of arrays
+     * @return the summary of the table, with its updated catalog
+     * @throws IkatsDaoException         database access error, or table not found
+     * @throws ResourceNotFoundException row group not found
+     * @throws InvalidValueException     row larger than the columns header
+     * @throws IkatsException            error storing the rows
+     */
+    @PUT
+    @Path("/{name}/rowgroup/{rowGroup}")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response replaceRowGroup(@PathParam("name") String name, @PathParam("rowGroup") int rowGroup,
+                                    List<List<Object>> rows)
+            throws IkatsException, IkatsDaoException, ResourceNotFoundException, InvalidValueException {
+        TableEntitySummary catalog = tableManager.replaceRowGroup(name, rowGroup, rows);
+        return Response.ok(catalog, MediaType.APPLICATION_JSON_TYPE).build();
+    }
+
+    /**
+     * Table process to split a table into a train table and a test table, or into k train/test splits in k-fold mode:
+     * see {@link TrainTestSplitTable}.
+     *
+     * @param tableName        the table to split
+     * @param targetColumnName the column whose classes are distributed in each output table, empty for a random split
+     * @param repartitionRate  repartition rate between train and test tables, ignored in k-fold mode
+     * @param outputTableName  the prefix of the output table names
+     * @param seed             the seed of the shuffle, optional: a random seed is used when undefined
+     * @param folds            the number of folds of the k-fold mode: 0 or 1 for a single split, at most the number of
+     *                         rows of the table and {@link TrainTestSplitTable#MAX_FOLDS}
+     * @param formData         the form data
+     * @param uriInfo          all info on URI
+     * @return the names of the output tables, comma separated
      * @throws IOException               error when parsing input csv file
      * @throws IkatsDaoException         error while accessing database to check if table already exists
      * @throws InvalidValueException     if table name does not match expected pattern
@@ -538,6 +475,8 @@ public class TableResource extends AbstractResource {
                                    @FormDataParam("targetColumnName") @DefaultValue("") String targetColumnName,
                                    @FormDataParam("repartitionRate") @DefaultValue("0.5") double repartitionRate,
                                    @FormDataParam("outputTableName") String outputTableName,
+                                   @FormDataParam("seed") Long seed,
+                                   @FormDataParam("folds") @DefaultValue("0") int folds,
                                    FormDataMultiPart formData,
                                    @Context UriInfo uriInfo) throws IOException, IkatsDaoException, IkatsException, InvalidValueException, ResourceNotFoundException {
 
@@ -545,12 +484,25 @@ public class TableResource extends AbstractResource {
         // check output table name validity
         tableManager.validateTableName(outputTableName, "trainTestSplit");
 
+        if (folds < 0 || folds > 1) {
+            try {
+                // the row count is read from the catalog, without loading the table
+                TrainTestSplitTable.checkFolds(folds, tableManager.readCatalog(tableName).getRowCount(), tableName);
+            } catch (InvalidValueException e) {
+                String context = "Invalid number of folds : " + e.getMessage();
+                logger.error(context);
+                return Response.status(Response.Status.BAD_REQUEST).entity(context).build();
+            }
+        }
+
         // check that output tables names does not already exist
-        if (tableManager.existsInDatabase(outputTableName + "_Train") ||
-                tableManager.existsInDatabase(outputTableName + "_Test")) {
-            String context = "Table names already exist : " + outputTableName + "(_Train and/or _Test)";
-            logger.error(context);
-            return Response.status(Response.Status.CONFLICT).entity(context).build();
+        List<String> outputTableNames = TrainTestSplitTable.getOutputTableNames(outputTableName, folds);
+        for (String name : outputTableNames) {
+            if (tableManager.existsInDatabase(name)) {
+                String context = "Table names already exist : " + outputTableName + "(_Train and/or _Test)";
+                logger.error(context);
+                return Response.status(Response.Status.CONFLICT).entity(context).build();
+            }
         }
 
         // Creates the request to the operator. Should be replaced in a future version by the JAXRS JSON transformation
@@ -560,6 +512,8 @@ public class TableResource extends AbstractResource {
         request.setTargetColumnName(targetColumnName);
         request.setRepartitionRate(repartitionRate);
         request.setOutputTableName(outputTableName);
+        request.setSeed(seed);
+        request.setFolds(folds);
 
         // Try to initialize the operator with the request
         TrainTestSplitTable trainTestSplitTable = new TrainTestSplitTable(request);
@@ -569,14 +523,13 @@ public class TableResource extends AbstractResource {
         chrono.stop(logger);
 
         // tables names are returned in the body
-        return Response.status(Response.Status.OK).entity(
-                outputTableName + "_Train" + "," + outputTableName + "_Test").build();
+        return Response.status(Response.Status.OK).entity(String.join(",", outputTableNames)).build();
 
     }
 
 
     /**
-     * Operator call for the merge of two tables with a join column.<br>
+     * Operator call for the merge of two or more tables with a join column.<br>
      * See {@link TablesMerge.Request} for JSON input specification
      *
      * @param request
@@ -634,15 +587,25 @@ public class TableResource extends AbstractResource {
     /**
      * Operator call for the export of TableInfo as CSV file.<br>
      * See {@link ExportTable.Request} for input specification
+     * <p>
+     * The CSV is streamed from the stored table to the response: see {@link TableCsvWriter}. It is compressed with
+     * gzip when the client accepts this content encoding.
      *
+     * @param tableName      the name of the exported table
+     * @param delimiter      the delimiter of the fields: one character, "," by default
+     * @param acceptEncoding the content encodings accepted by the client
      * @return the HTTP response with the csv as content
      */
     @GET
     @Path("/export/{tableName}")
-    public Response exportTable(@PathParam("tableName") String tableName) throws IkatsException,IkatsOperatorException {
+    public Response exportTable(@PathParam("tableName") String tableName,
+                                @QueryParam("delimiter") @DefaultValue(ExportTable.DEFAULT_DELIMITER) String delimiter,
+                                @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding)
+            throws IkatsException, IkatsOperatorException {
 
         ExportTable.Request request = new ExportTable.Request();
         request.setTableName(tableName);
+        request.setDelimiter(delimiter);
         ExportTable exportTable;
         try {
             // Try to initialize the operator with the request
@@ -664,18 +627,26 @@ public class TableResource extends AbstractResource {
             return Response.status(Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
         }
 
-        // Do the job and return the CSV table content
-        StringBuffer CSVExportStringBuffer = exportTable.apply();
-
-        byte[] csvContentBytes = String.valueOf(CSVExportStringBuffer).getBytes();
-        StreamingOutput streamCSV = new StreamingOutput() {
-            @Override
-            public void write(OutputStream out) throws IOException, WebApplicationException {
-                out.write(csvContentBytes);
+        // Do the job: the CSV table content is written while the response is sent
+        TableCsvWriter writer = exportTable.apply();
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        StreamingOutput streamCSV = out -> {
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out);
+                writer.write(gzipOut);
+                gzipOut.finish();
+            } else {
+                writer.write(out);
             }
         };
+
         //Build HTTP request for download
-        ResponseBuilder responseBuilder = Response.ok(streamCSV).header("Content-Disposition", "attachment;filename=" + tableName + ".csv");
+        ResponseBuilder responseBuilder = Response.ok(streamCSV)
+                .header("Content-Disposition", "attachment;filename=" + tableName + ".csv")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            responseBuilder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
 
         return responseBuilder.build();
 
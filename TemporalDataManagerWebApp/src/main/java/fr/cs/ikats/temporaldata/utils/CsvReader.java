@@ -0,0 +1,245 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.temporaldata.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reader of CSV records, following RFC-4180: fields separated by the separator, optionally enclosed in double quotes.
+ * A quoted field may contain the separator, line breaks, and double quotes escaped by doubling them.
+ * Lines are ended by LF, CRLF or CR.
+ * <p>
+ * The records are tokenized char by char from an internal buffer, without regular expressions: the unquoted fields
+ * are copied straight from the buffer.
+ */
+public class CsvReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final char QUOTE = '"';
+
+    private final Reader reader;
+    private final char separator;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    /**
+     * Number of the current line, from 1
+     */
+    private long lineNumber = 1;
+
+    /**
+     * Number of the line starting the last record read
+     */
+    private long recordLineNumber;
+
+    private final StringBuilder field = new StringBuilder();
+
+    /**
+     * Constructor
+     *
+     * @param reader    the reader of the CSV content: read by blocks, no need to buffer it
+     * @param separator the separator of the fields
+     */
+    public CsvReader(Reader reader, char separator) {
+        if (separator == QUOTE || separator == '\n' || separator == '\r') {
+            throw new IllegalArgumentException("Invalid CSV separator: " + separator);
+        }
+        this.reader = reader;
+        this.separator = separator;
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return the fields of the record, an empty list for an empty line, or null at the end of the content
+     * @throws IOException error reading the content, or quoted field not closed at the end of the content
+     */
+    public List<String> readRecord() throws IOException {
+        if (!fill()) {
+            return null;
+        }
+        recordLineNumber = lineNumber;
+        List<String> record = new ArrayList<>();
+        if (endOfLine()) {
+            return record;
+        }
+        while (true) {
+            boolean endOfRecord = buffer[position] == QUOTE ? readQuotedField(record) : readField(record);
+            if (endOfRecord) {
+                return record;
+            }
+        }
+    }
+
+    /**
+     * @return the number of the line starting the last record read, from 1
+     */
+    public long getLineNumber() {
+        return recordLineNumber;
+    }
+
+    /**
+     * Closes the reader of the content
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Reads an unquoted field, until the separator or the end of the line
+     *
+     * @return true when the field ends the record
+     */
+    private boolean readField(List<String> record) throws IOException {
+        field.setLength(0);
+        while (true) {
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == separator || c == '\n' || c == '\r') {
+                    break;
+                }
+                position++;
+            }
+            if (position < limit) {
+                record.add(takeField(start));
+                return endOfField(record);
+            }
+            field.append(buffer, start, position - start);
+            if (!fill()) {
+                record.add(field.toString());
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reads a quoted field: the buffer is positioned on the opening quote
+     *
+     * @return true when the field ends the record
+     */
+    private boolean readQuotedField(List<String> record) throws IOException {
+        field.setLength(0);
+        position++;
+        while (true) {
+            if (!fill()) {
+                throw new IOException("CSV: quoted field not closed, from line " + recordLineNumber);
+            }
+            char c = buffer[position++];
+            if (c == QUOTE) {
+                if (fill() && buffer[position] == QUOTE) {
+                    // escaped quote
+                    field.append(QUOTE);
+                    position++;
+                } else {
+                    break;
+                }
+            } else {
+                if (c == '\n' || c == '\r' && !(fill() && buffer[position] == '\n')) {
+                    lineNumber++;
+                }
+                field.append(c);
+            }
+        }
+
+        // characters following the closing quote are kept, as written
+        while (fill()) {
+            char c = buffer[position];
+            if (c == separator || c == '\n' || c == '\r') {
+                record.add(field.toString());
+                return endOfField(record);
+            }
+            field.append(c);
+            position++;
+        }
+        record.add(field.toString());
+        return true;
+    }
+
+    /**
+     * Consumes the separator or the end of line following a field
+     *
+     * @return true when the field ends the record
+     */
+    private boolean endOfField(List<String> record) throws IOException {
+        if (buffer[position] == separator) {
+            position++;
+            if (!fill()) {
+                // a separator ending the content is followed by an empty field
+                record.add("");
+                return true;
+            }
+            return false;
+        }
+        endOfLine();
+        return true;
+    }
+
+    /**
+     * Consumes the end of line at the current position, if any
+     *
+     * @return true when an end of line has been consumed
+     */
+    private boolean endOfLine() throws IOException {
+        char c = buffer[position];
+        if (c != '\n' && c != '\r') {
+            return false;
+        }
+        position++;
+        if (c == '\r' && fill() && buffer[position] == '\n') {
+            position++;
+        }
+        lineNumber++;
+        return true;
+    }
+
+    /**
+     * Gets the field from the pending characters and the buffer, from start to the current position
+     */
+    private String takeField(int start) {
+        if (field.length() == 0) {
+            return new String(buffer, start, position - start);
+        }
+        field.append(buffer, start, position - start);
+        return field.toString();
+    }
+
+    /**
+     * Fills the buffer when all its characters have been consumed
+     *
+     * @return false at the end of the content
+     */
+    private boolean fill() throws IOException {
+        while (position >= limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit < 0) {
+                limit = 0;
+                return false;
+            }
+        }
+        return true;
+    }
+}
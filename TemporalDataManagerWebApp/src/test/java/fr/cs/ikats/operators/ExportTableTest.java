@@ -17,8 +17,10 @@
 package fr.cs.ikats.operators;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -29,6 +31,7 @@ import org.junit.Test;
 
 import fr.cs.ikats.operators.ExportTable.Request;
 import fr.cs.ikats.temporaldata.business.table.Table;
+import fr.cs.ikats.temporaldata.business.table.TableCsvWriter;
 import fr.cs.ikats.temporaldata.business.table.TableManager;
 import fr.cs.ikats.temporaldata.exception.IkatsException;
 
@@ -176,77 +179,101 @@ public class ExportTableTest {
 
 
     /**
-     * Test doExport method
+     * Test doExport method: the top left corner holds the columns header name, the fields containing the delimiter are
+     * not quoted with another delimiter
      */
     @Test
-    public void testDoExportWithHeaders() throws IkatsException {
-        //Build buffer
+    public void testDoExportWithHeaders() throws Exception {
         TableManager tableManager = new TableManager();
-        String Table2_CSV_NewSeparator = TABLE2_CSV.replaceAll(";", ",");
 
         //Result
-        StringBuffer resultExport = new ExportTable().doExport(tableManager.tableInfoToTableEntity(table2WithRow.getTableInfo()));
-
-        //Compare first element without "|"
-        assertEquals(resultExport.toString().split(",")[0].replace("|",""), Table2_CSV_NewSeparator.split(",")[0]);
-
-        //Compare others elements
-        String[] resultSplitted = resultExport.toString().split(",");
-        String[] truncateResult = Arrays.copyOfRange(resultSplitted, 1, resultSplitted.length);
-        String[] realResult = Table2_CSV_NewSeparator.split(",");
-        String[] truncateRealResult = Arrays.copyOfRange(realResult, 1, realResult.length);
-        assertEquals(truncateResult , truncateRealResult);
+        String resultExport = write(new ExportTable().doExport(tableManager.tableInfoToTableEntity(table2WithRow.getTableInfo()), ';'));
 
+        assertEquals(toRecords(TABLE2_CSV), resultExport);
     }
 
     /**
      * Test Array to string
      */
     @Test
-    public void testDoExportWithoutHeaders() throws IkatsException {
+    public void testDoExportWithoutHeaders() throws Exception {
 
         TableManager tableManager = new TableManager();
 
-        //Build buffer
-        String Table4_CSV_NewSeparator = TABLE4_CSV.replaceAll(";", ",");
-        StringBuffer buffer = new StringBuffer(Table4_CSV_NewSeparator);
-
         //Result
-        StringBuffer resultExport = new ExportTable().doExport(tableManager.tableInfoToTableEntity(table4.getTableInfo()));
-        assertEquals(resultExport.toString(), buffer.toString());
+        String resultExport = write(new ExportTable().doExport(tableManager.tableInfoToTableEntity(table4.getTableInfo()), ';'));
+        assertEquals(toRecords(TABLE4_CSV), resultExport);
 
     }
 
     @Test
-    public void testDoExportWithoutRowHeaders() throws IkatsException {
+    public void testDoExportWithoutRowHeaders() throws Exception {
 
         TableManager tableManager = new TableManager();
 
-        //Build buffer
-        String Table5_CSV_NewSeparator = TABLE5_CSV.replaceAll(";", ",");
-        StringBuffer buffer = new StringBuffer(Table5_CSV_NewSeparator);
+        //Build expected CSV
+        String Table5_CSV_NewSeparator = toRecords(TABLE5_CSV.replaceAll(";", ","));
 
         //Result
-        StringBuffer resultExport = new ExportTable().doExport(tableManager.tableInfoToTableEntity(table5.getTableInfo()));
-        assertEquals(resultExport.toString(), buffer.toString());
+        String resultExport = write(new ExportTable().doExport(tableManager.tableInfoToTableEntity(table5.getTableInfo())));
+        assertEquals(Table5_CSV_NewSeparator, resultExport);
 
     }
 
     @Test
-    public void testDoExportWithoutColHeaders() throws IkatsException {
+    public void testDoExportWithoutColHeaders() throws Exception {
 
         TableManager tableManager = new TableManager();
 
-        //Build buffer example
-        String Table3_CSV_NewSeparator = TABLE3_CSV.replaceAll(";", ",");
-        StringBuffer buffer = new StringBuffer(Table3_CSV_NewSeparator);
+        //Build expected CSV
+        String Table3_CSV_NewSeparator = toRecords(TABLE3_CSV.replaceAll(";", ","));
 
         //Result with doExport method
-        StringBuffer resultExport = new ExportTable().doExport(tableManager.tableInfoToTableEntity(table3.getTableInfo()));
+        String resultExport = write(new ExportTable().doExport(tableManager.tableInfoToTableEntity(table3.getTableInfo())));
 
         //Compare result and reality
-        assertEquals(resultExport.toString(), buffer.toString());
+        assertEquals(Table3_CSV_NewSeparator, resultExport);
+
+    }
+
+    /**
+     * Test the RFC 4180 quoting: fields with delimiter, double quote or line break are quoted, undefined values are
+     * empty fields
+     */
+    @Test
+    public void testDoExportQuoting() throws Exception {
+
+        TableManager tableManager = new TableManager();
+        Table table = tableManager.initTable(Arrays.asList("Id", "Text", "Value"), false);
+        table.appendRow(Arrays.asList("1", "a,b", 1.5));
+        table.appendRow(Arrays.asList("2", "say \"hi\"", null));
+        table.appendRow(Arrays.asList("3", "line\nbreak", "x;y"));
+        table.setName("tableQuoting");
+
+        String resultExport = write(new ExportTable().doExport(tableManager.tableInfoToTableEntity(table.getTableInfo())));
+        assertEquals("Id,Text,Value\r\n"
+                + "1,\"a,b\",1.5\r\n"
+                + "2,\"say \"\"hi\"\"\",\r\n"
+                + "3,\"line\nbreak\",x;y\r\n", resultExport);
+
+        resultExport = write(new ExportTable().doExport(tableManager.tableInfoToTableEntity(table.getTableInfo()), '\t'));
+        assertEquals("Id\tText\tValue\r\n"
+                + "1\ta,b\t1.5\r\n"
+                + "2\t\"say \"\"hi\"\"\"\t\r\n"
+                + "3\t\"line\nbreak\"\tx;y\r\n", resultExport);
+    }
+
+    /**
+     * jUnit Test on constructor : delimiter must be one character, other than double quote
+     */
+    @Test(expected = IkatsOperatorException.class)
+    public final void testExportTableConstructorWrongDelimiter() throws IkatsOperatorException {
+
+        Request exportTableRequest = new Request();
+        exportTableRequest.setTableName("table_1");
+        exportTableRequest.setDelimiter("\"");
 
+        new ExportTable(exportTableRequest);
     }
 
 
@@ -265,26 +292,15 @@ public class ExportTableTest {
         // Build the nominal request
         Request request1 = new Request();
         request1.setTableName("table2WithRow");
+        request1.setDelimiter(";");
 
         //Build Export constructor
         ExportTable exportTableHeader = new ExportTable(request1);
 
         //Call Apply method
-        StringBuffer csvFormatTable2WithRow = exportTableHeader.apply();
-
-        //Prepare data to test equality
-        String table2WithRowComma = TABLE2_CSV.replaceAll(";", ",");
+        String csvFormatTable2WithRow = write(exportTableHeader.apply());
 
-        //For now : We have the character "|" when there are two headers (Avoid it)
-        //Compare first element without "|"
-        assertEquals(csvFormatTable2WithRow.toString().split(",")[0].replace("|",""),table2WithRowComma.split(",")[0]);
-
-        //Compare others elements
-        String[] resultSplitted = csvFormatTable2WithRow.toString().split(",");
-        String[] truncateResult = Arrays.copyOfRange(resultSplitted, 1, resultSplitted.length);
-        String[] realResult = table2WithRowComma.split(",");
-        String[] truncateRealResult = Arrays.copyOfRange(realResult, 1, realResult.length);
-        assertEquals(truncateResult , truncateRealResult);
+        assertEquals(toRecords(TABLE2_CSV), csvFormatTable2WithRow);
 
         tableManager.deleteFromDatabase("table2WithRow");
     }
@@ -300,16 +316,15 @@ public class ExportTableTest {
         // Build the nominal request
         Request request2 = new Request();
         request2.setTableName("table4");
+        request2.setDelimiter(";");
 
         //Build Export constructor
         ExportTable exportTableWithoutHeader = new ExportTable(request2);
 
         //Call Apply method
-        StringBuffer csvFormatTable4 = exportTableWithoutHeader.apply();
+        String csvFormatTable4 = write(exportTableWithoutHeader.apply());
 
-        //Prepare data to test equality
-        String table4WithComma = TABLE4_CSV.replaceAll(";", ",");
-        assertEquals(table4WithComma, csvFormatTable4.toString());
+        assertEquals(toRecords(TABLE4_CSV), csvFormatTable4);
         tableManager.deleteFromDatabase("table4");
     }
 
@@ -330,11 +345,11 @@ public class ExportTableTest {
         ExportTable exportTableColHeader = new ExportTable(request3);
 
         //Call Apply method
-        StringBuffer csvFormatTable5WithoutRow = exportTableColHeader.apply();
+        String csvFormatTable5WithoutRow = write(exportTableColHeader.apply());
 
         //Prepare data to test equality
-        String table5WithRowComma = TABLE5_CSV.replaceAll(";", ",");
-        assertEquals(table5WithRowComma, csvFormatTable5WithoutRow.toString());
+        String table5WithRowComma = toRecords(TABLE5_CSV.replaceAll(";", ","));
+        assertEquals(table5WithRowComma, csvFormatTable5WithoutRow);
         tableManager.deleteFromDatabase("table5");
     }
 
@@ -355,16 +370,34 @@ public class ExportTableTest {
         ExportTable exportTableRowHeader = new ExportTable(request4);
 
         //Call Apply method
-        StringBuffer csvFormatTable3WithRow = exportTableRowHeader.apply();
+        String csvFormatTable3WithRow = write(exportTableRowHeader.apply());
 
         //Prepare data to test equality
-        String table3WithRowComma = TABLE3_CSV.replaceAll(";", ",");
-        assertEquals(table3WithRowComma, csvFormatTable3WithRow.toString());
+        String table3WithRowComma = toRecords(TABLE3_CSV.replaceAll(";", ","));
+        assertEquals(table3WithRowComma, csvFormatTable3WithRow);
 
         tableManager.deleteFromDatabase("table3");
     }
 
 
+    /**
+     * Writes the CSV of the writer into a String
+     */
+    private static String write(TableCsvWriter writer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Converts the lines of a test CSV into RFC 4180 records: ended by CRLF
+     */
+    private static String toRecords(String csv) {
+        String records = csv.replace("\n", "\r\n");
+        return records.endsWith("\r\n") ? records : records + "\r\n";
+    }
+
+
     /**
      * Function to help building tests
      *
@@ -20,16 +20,22 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import fr.cs.ikats.common.dao.exception.IkatsDaoException;
 import fr.cs.ikats.common.junit.CommonTest;
+import fr.cs.ikats.metadata.MetaDataFacade;
 import fr.cs.ikats.metadata.model.FunctionalIdentifier;
+import fr.cs.ikats.metadata.model.MetaData;
+import fr.cs.ikats.metadata.model.MetaData.MetaType;
 import fr.cs.ikats.table.TableEntity;
 import fr.cs.ikats.temporaldata.business.DataSetManager;
 import fr.cs.ikats.temporaldata.business.MetaDataManager;
@@ -510,6 +516,69 @@ public class JoinTableWithTsTest extends CommonTest {
 
     }
 
+    /**
+     * Benchmark of computeTable() on a dataset of 100k timeseries (system property benchmark.join.ts): two metrics by
+     * flight, one flight out of two in the joined table.
+     *
+     * @throws Exception
+     */
+    @Test
+    @Ignore("Benchmark: run manually")
+    public void benchmarkComputeTable() throws Exception {
+
+        int nbTs = Integer.getInteger("benchmark.join.ts", 100000);
+        String datasetName = "benchmarkDataset_JoinTableWithTsTest";
+        List<String> benchmarkMetrics = Arrays.asList("BM1", "BM2");
+
+        Map<String, String> funcIds = new HashMap<>();
+        List<MetaData> metadata = new ArrayList<>();
+        Table selectedTable = TableManager.initEmptyTable(true, false);
+        selectedTable.getColumnsHeader().addItems("ID", "Value");
+        for (int i = 0; i < nbTs; i++) {
+            String flightId = "B" + (i / benchmarkMetrics.size());
+            String metric = benchmarkMetrics.get(i % benchmarkMetrics.size());
+            String tsuid = "tsuid_" + flightId + "_" + metric;
+            funcIds.put(tsuid, "funcId_" + flightId + "_" + metric);
+            metadata.add(buildMetaData(tsuid, "metric", metric));
+            metadata.add(buildMetaData(tsuid, "flightId", flightId));
+            if (i % (2 * benchmarkMetrics.size()) == 0) {
+                selectedTable.appendRow(Arrays.asList(flightId, i));
+            }
+        }
+        List<String> tsuids = new ArrayList<>(funcIds.keySet());
+
+        MetaDataFacade metaFacade = new MetaDataFacade();
+        metaFacade.persistFunctionalIdentifier(funcIds);
+        metaFacade.persist(metadata, false);
+        dataSetManager.persistDataSet(datasetName, "JUnit benchmark", tsuids);
+        try {
+            long start = System.currentTimeMillis();
+            Table computedTable = new JoinTableWithTs().computeTable(selectedTable.getTableInfo(), "BM1;BM2",
+                    datasetName, "ID", "flightId", "", OUTPUT_TABLE_NAME);
+            long duration = System.currentTimeMillis() - start;
+
+            assertEquals(4, computedTable.getColumnCount(false));
+            getLogger().info("JoinTableWithTs.computeTable: " + nbTs + " timeseries, "
+                    + computedTable.getRowCount(false) + " rows joined in " + duration + " ms");
+        } finally {
+            dataSetManager.removeDataSet(datasetName, false);
+            metaManager.deleteFunctionalIdentifier(tsuids);
+            metaManager.deleteMetaData(tsuids);
+        }
+    }
+
+    /**
+     * Builds a string metadata, not yet stored
+     */
+    private static MetaData buildMetaData(String tsuid, String name, String value) {
+        MetaData md = new MetaData();
+        md.setTsuid(tsuid);
+        md.setName(name);
+        md.setValue(value);
+        md.setDType(MetaType.string);
+        return md;
+    }
+
     /**
      * Ends the junit class: clean the data prepared for the test in the database
      *
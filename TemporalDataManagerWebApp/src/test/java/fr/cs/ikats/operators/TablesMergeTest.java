@@ -29,6 +29,7 @@ import org.junit.Test;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import fr.cs.ikats.operators.TablesMerge.JoinType;
 import fr.cs.ikats.operators.TablesMerge.Request;
 import fr.cs.ikats.table.TableEntity;
 import fr.cs.ikats.temporaldata.business.table.Table;
@@ -514,6 +515,102 @@ public class TablesMergeTest {
         testTableMerge(table1, table5, "H1-1", "MergeWithJoinKeyAndNoMatch", ";");
     }
 
+    /**
+     * Construction check with an unknown join type
+     */
+    @Test(expected = IkatsOperatorException.class)
+    public final void testTablesMergeConstructorUnknownJoinType() throws IkatsOperatorException {
+
+        Request tableMergeRequest = new Request();
+        tableMergeRequest.setJoinOn("join_key");
+        tableMergeRequest.setJoinType("cross");
+        tableMergeRequest.setOutputTableName("output_table_name");
+        tableMergeRequest.setTableNames(new String[]{table1.getName(), table2.getName()});
+
+        new TablesMerge(tableMergeRequest);
+    }
+
+    /**
+     * Left join: all the rows of the first table are kept, the rows «four», «six» and «one» missing in the second table
+     * have undefined values for its columns.
+     */
+    @Test
+    public final void testDoMergeLeftJoin() throws IkatsException, IkatsOperatorException {
+
+        Table obtainedResult = new TablesMerge().doMerge(Arrays.asList(table1.getTableInfo(), table2Smaller.getTableInfo()),
+                "H1-2", JoinType.LEFT, "left join");
+
+        assertEquals(Arrays.asList("H1-1", "H1-2", "H1-3", "H1-4", "H1-5", "H2-1", "H2-2", "H2-3", "H1-1"),
+                obtainedResult.getColumnsHeader().getItems());
+        assertEquals(10, obtainedResult.getRowCount(false));
+        assertEquals(Arrays.asList("H", "eight", "08", "8", "1000", "3,14", "0", "0", "H"),
+                obtainedResult.getContentData().get(0));
+        assertEquals(Arrays.asList("D", "four", "04", "4", "0100", null, null, null, null),
+                obtainedResult.getContentData().get(2));
+        assertEquals(Arrays.asList("A", "one", "01", "1", "0001", null, null, null, null),
+                obtainedResult.getContentData().get(4));
+        assertEquals(Arrays.asList("B", "two", "02", "2", "0010", "9,42", "12,57", "6,28", "B"),
+                obtainedResult.getContentData().get(9));
+    }
+
+    /**
+     * Full outer join: the rows of the left join, followed by the rows of the second table whose join value is not in the
+     * first table, in the second table order.
+     */
+    @Test
+    public final void testDoMergeFullJoin() throws IkatsException, IkatsOperatorException {
+
+        Table obtainedResult = new TablesMerge().doMerge(Arrays.asList(table1Smaller.getTableInfo(), table2.getTableInfo()),
+                "H1-2", JoinType.FULL, "full join");
+
+        assertEquals(11, obtainedResult.getRowCount(false));
+        assertEquals(Arrays.asList("A", "un", "01", "1", "0001", null, null, null, null),
+                obtainedResult.getContentData().get(3));
+        assertEquals(Arrays.asList(null, "six", null, null, null, "0", "3,14", "6,28", "F"),
+                obtainedResult.getContentData().get(8));
+        assertEquals(Arrays.asList(null, "one", null, null, null, "3,14", "9,42", "6,28", "A"),
+                obtainedResult.getContentData().get(9));
+        assertEquals(Arrays.asList(null, "four", null, null, null, "3,14", "15,71", "12,57", "D"),
+                obtainedResult.getContentData().get(10));
+    }
+
+    /**
+     * Full outer join with rows headers: the join values only found in the second table are set in the rows header.
+     */
+    @Test
+    public final void testDoMergeFullJoinWithRow() throws IkatsException, IkatsOperatorException {
+
+        Table obtainedResult = new TablesMerge().doMerge(Arrays.asList(table1Smaller.getTableInfo(), table2WithRow.getTableInfo()),
+                "H1-2", JoinType.FULL, "full join");
+
+        assertEquals(Arrays.asList("H1-2", "H1-1", "H1-3", "H1-4", "H1-5", "H2-1", "H2-2", "H2-3", "H1-1"),
+                obtainedResult.getColumnsHeader().getItems());
+        assertEquals(Arrays.asList(null, "eight", "five", "nine", "un", "seven", "ten", "three", "two", "six", "one", "four"),
+                obtainedResult.getRowsHeader().getItems());
+        assertEquals(Arrays.asList(null, null, null, null, "0", "3,14", "6,28", "F"),
+                obtainedResult.getContentData().get(8));
+    }
+
+    /**
+     * Merge of 3 tables in one pass: the inner join keeps the join values found in all the tables.
+     */
+    @Test
+    public final void testDoMergeThreeTables() throws IkatsException, IkatsOperatorException {
+
+        Table obtainedResult = new TablesMerge().doMerge(
+                Arrays.asList(table1.getTableInfo(), table2.getTableInfo(), table1Smaller.getTableInfo()),
+                "H1-2", JoinType.INNER, "three tables join");
+
+        assertEquals(Arrays.asList("H1-1", "H1-2", "H1-3", "H1-4", "H1-5", "H2-1", "H2-2", "H2-3", "H1-1",
+                "H1-1", "H1-3", "H1-4", "H1-5"),
+                obtainedResult.getColumnsHeader().getItems());
+        assertEquals(7, obtainedResult.getRowCount(false));
+        assertEquals(Arrays.asList("H", "eight", "08", "8", "1000", "3,14", "0", "0", "H", "H", "08", "8", "1000"),
+                obtainedResult.getContentData().get(0));
+        assertEquals(Arrays.asList("B", "two", "02", "2", "0010", "9,42", "12,57", "6,28", "B", "B", "02", "2", "0010"),
+                obtainedResult.getContentData().get(6));
+    }
+
     /**
      * Build a {@link Table} from a CSV string
      *
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.After;
 import org.junit.Before;
@@ -37,6 +38,7 @@ import fr.cs.ikats.temporaldata.exception.InvalidValueException;
 import fr.cs.ikats.temporaldata.exception.ResourceNotFoundException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 
 public class TrainTestSplitTableTest {
@@ -379,6 +381,108 @@ public class TrainTestSplitTableTest {
         new TrainTestSplitTable().trainTestSplitTable(tableIn, "WrongTarget", repartitionRate);
     }
 
+    /**
+     * test the split with a seed: same seed, same output tables
+     */
+    @Test
+    public void testSplitTableSeeded() throws Exception {
+
+        String tableContent = "MainId;Target\n"
+                + "125;A\n"
+                + "1;A\n"
+                + "2;A\n"
+                + "3;B\n"
+                + "4;B\n"
+                + "42;C\n"
+                + "6;D\n"
+                + "7;D\n"
+                + "8;D\n";
+
+        Table tableIn = tableFromCSV("tableTestIn", tableContent, false);
+
+        List<Table> result1 = new TrainTestSplitTable().splitTable(tableIn, "Target", 0.5, 0, new Random(42L));
+        List<Table> result2 = new TrainTestSplitTable().splitTable(tableIn, "Target", 0.5, 0, new Random(42L));
+
+        assertEquals(2, result1.size());
+        assertEquals(result1.get(0).getContentData(), result2.get(0).getContentData());
+        assertEquals(result1.get(1).getContentData(), result2.get(1).getContentData());
+
+        // output tables are sorted by the first column
+        List<String> ids = result1.get(0).getColumn("MainId");
+        List<String> sortedIds = new ArrayList<>(ids);
+        Collections.sort(sortedIds, (a, b) -> Integer.compare(Integer.parseInt(a), Integer.parseInt(b)));
+        assertEquals(sortedIds, ids);
+    }
+
+    /**
+     * test the k-fold mode: each row is in the test table of exactly one split, the train table of a split is the
+     * complement of its test table, and the classes are distributed in the folds
+     */
+    @Test
+    public void testSplitTableFolds() throws Exception {
+
+        String tableContent = "MainId;Target\n"
+                + "1;A\n"
+                + "2;A\n"
+                + "3;A\n"
+                + "4;A\n"
+                + "5;A\n"
+                + "6;A\n"
+                + "7;B\n"
+                + "8;B\n"
+                + "9;B\n"
+                + "10;C\n";
+
+        Table tableIn = tableFromCSV("tableTestIn", tableContent, false);
+        int folds = 3;
+
+        List<Table> result = new TrainTestSplitTable().splitTable(tableIn, "Target", 0.5, folds, new Random(7L));
+        assertEquals(2 * folds, result.size());
+
+        List<String> testIds = new ArrayList<>();
+        for (int fold = 0; fold < folds; fold++) {
+            List<String> trainFoldIds = result.get(2 * fold).getColumn("MainId");
+            List<String> testFoldIds = result.get(2 * fold + 1).getColumn("MainId");
+            assertEquals(10, trainFoldIds.size() + testFoldIds.size());
+            for (String id : testFoldIds) {
+                assertEquals(false, trainFoldIds.contains(id));
+            }
+            testIds.addAll(testFoldIds);
+
+            // 6 A and 3 B in 3 folds
+            List<String> testClasses = result.get(2 * fold + 1).getColumn("Target");
+            assertEquals(2, Collections.frequency(testClasses, "A"));
+            assertEquals(1, Collections.frequency(testClasses, "B"));
+        }
+        Collections.sort(testIds, (a, b) -> Integer.compare(Integer.parseInt(a), Integer.parseInt(b)));
+        assertEquals(Arrays.asList("1", "2", "3", "4", "5", "6", "7", "8", "9", "10"), testIds);
+
+        assertEquals(Arrays.asList("out_Train_1", "out_Test_1", "out_Train_2", "out_Test_2", "out_Train_3",
+                "out_Test_3"), TrainTestSplitTable.getOutputTableNames("out", folds));
+    }
+
+    /**
+     * test the check of the number of folds: at most the number of rows, and {@link TrainTestSplitTable#MAX_FOLDS}
+     */
+    @Test
+    public void testCheckFolds() throws Exception {
+
+        TrainTestSplitTable.checkFolds(0, 0, "tableTestIn");
+        TrainTestSplitTable.checkFolds(1, 0, "tableTestIn");
+        TrainTestSplitTable.checkFolds(10, 10, "tableTestIn");
+        TrainTestSplitTable.checkFolds(TrainTestSplitTable.MAX_FOLDS, 1000, "tableTestIn");
+
+        int[][] invalidFolds = {{-1, 10}, {11, 10}, {2, 0}, {TrainTestSplitTable.MAX_FOLDS + 1, 1000}};
+        for (int[] invalid : invalidFolds) {
+            try {
+                TrainTestSplitTable.checkFolds(invalid[0], invalid[1], "tableTestIn");
+                fail("Expected InvalidValueException for " + invalid[0] + " folds of " + invalid[1] + " rows");
+            } catch (InvalidValueException e) {
+                // expected
+            }
+        }
+    }
+
     /**
      * Convert a CSV to Table object
      *
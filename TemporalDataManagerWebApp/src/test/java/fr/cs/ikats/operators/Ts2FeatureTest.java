@@ -0,0 +1,79 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.operators;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import fr.cs.ikats.temporaldata.business.table.ColumnarTable;
+import fr.cs.ikats.temporaldata.business.table.TableManager;
+
+/**
+ * Tests the computation of the operator Ts2Feature, without database
+ */
+public class Ts2FeatureTest {
+
+    /**
+     * Builds the input table: one row per functional identifier, with the columns B1 and B2
+     */
+    private static ColumnarTable inputTable(int nbRows) throws Exception {
+        ColumnarTable table = TableManager.initEmptyColumnarTable(true, true);
+        table.getColumnsHeader().addItems("funcId", "B1", "B2");
+        table.getRowsHeader().addItem(null);
+        for (int i = 0; i < nbRows; i++) {
+            table.appendRow("FID" + i, Arrays.asList(2 * i + 1, 2 * i + 2));
+        }
+        return table;
+    }
+
+    /**
+     * test pivot: the rows are grouped by population, sorted by population then by metadata value
+     */
+    @Test
+    public void testPivot() throws Exception {
+
+        ColumnarTable table = inputTable(4);
+        List<String> popIds = Arrays.asList("2", "1", "1", "2");
+        List<String> metaValues = Arrays.asList("M2", "M1", "M2", "M1");
+
+        ColumnarTable result = Ts2Feature.pivot(table, popIds, metaValues, "flightId");
+
+        assertEquals(Arrays.asList("flightId", "M1_B1", "M1_B2", "M2_B1", "M2_B2"),
+                result.getColumnsHeader().getItems());
+        assertEquals(Arrays.asList(null, "1", "2"), result.getRowsHeader().getItems(Object.class));
+        assertEquals(Arrays.asList(3, 4, 5, 6), result.getRow(1, Object.class));
+        assertEquals(Arrays.asList(7, 8, 1, 2), result.getRow(2, Object.class));
+    }
+
+    /**
+     * test pivot: a population without a row for each metadata value is rejected
+     */
+    @Test(expected = IkatsOperatorException.class)
+    public void testPivotInconsistentLine() throws Exception {
+
+        ColumnarTable table = inputTable(3);
+        List<String> popIds = Arrays.asList("1", "1", "2");
+        List<String> metaValues = Arrays.asList("M1", "M2", "M1");
+
+        Ts2Feature.pivot(table, popIds, metaValues, "flightId");
+    }
+}
@@ -18,8 +18,11 @@ package fr.cs.ikats.temporaldata;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
@@ -42,23 +45,22 @@ import org.mockito.runners.MockitoJUnitRunner;
 import fr.cs.ikats.common.dao.exception.IkatsDaoException;
 import fr.cs.ikats.common.dao.exception.IkatsDaoMissingResource;
 import fr.cs.ikats.datamanager.client.opentsdb.IkatsWebClientException;
-import fr.cs.ikats.metadata.model.FunctionalIdentifier;
 import fr.cs.ikats.temporaldata.business.DataSetManager;
 import fr.cs.ikats.temporaldata.business.DataSetWithFids;
 import fr.cs.ikats.temporaldata.business.MetaDataManager;
+import fr.cs.ikats.temporaldata.business.TemporalDataManager;
 import fr.cs.ikats.temporaldata.exception.ResourceNotFoundException;
 import fr.cs.ikats.temporaldata.resource.DataSetResource;
-import fr.cs.ikats.temporaldata.resource.TimeSerieResource;
 import fr.cs.ikats.ts.dataset.DataSetFacade;
 import fr.cs.ikats.ts.dataset.model.DataSet;
-import fr.cs.ikats.ts.dataset.model.LinkDatasetTimeSeries;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -258,7 +260,8 @@ public class DataSetRequestTest extends AbstractRequestTest {
 
     /**
      * Beside testRemoveDataset(): the test testDeepRemoveDataSet() is checking if facade methods are correctly called
-     * in order to complete deletion with timeseries tsuidX1 and tsuidX2 attached to the deleted dataset.
+     * in order to complete deletion with timeseries tsuidX1 and tsuidX2 attached to the deleted dataset, while tsuidX3
+     * also belongs to another dataset.
      *
      * @throws IkatsDaoMissingResource
      * @throws IkatsDaoException
@@ -273,51 +276,42 @@ public class DataSetRequestTest extends AbstractRequestTest {
         // and verify that all deleting services are called.
         // => it does not check the DAO layer !
 
-        // Mocked DT => required in order to stub a Dataset
         String dataSetId = "monDataSet_" + testCaseName;
-        FunctionalIdentifier[] fids = {new FunctionalIdentifier("tsuidX1", "fidX1"),
-                new FunctionalIdentifier("tsuidX2", "fidX2")};
-        DataSet mockedDataset = Mockito.spy(DataSet.class);
-        mockedDataset.setName(dataSetId);
-        mockedDataset.setDescription("desc");
-        LinkDatasetTimeSeries[] linksDT = {new LinkDatasetTimeSeries(fids[0], mockedDataset),
-                new LinkDatasetTimeSeries(fids[1], mockedDataset)};
-
-        when(mockedDataset.getLinksToTimeSeries()).thenReturn(Arrays.asList(linksDT));
-
-        // Mock the TimeSerieResource 
-        // required: simulate the DELETE on TS (content+meta+fid)
-        Response respDeletedTS = Response.status(Status.NO_CONTENT).entity("mocked delete TS").build();
-        TimeSerieResource mockedTS = Mockito.spy(TimeSerieResource.class);
-        doReturn(respDeletedTS).when(mockedTS).removeTimeSeries(fids[0].getTsuid());
-        doReturn(respDeletedTS).when(mockedTS).removeTimeSeries(fids[1].getTsuid());
+        DataSet summary = new DataSet(dataSetId, "desc", null);
+        List<String> removedTsuids = Arrays.asList("tsuidX1", "tsuidX2");
+        Map<String, List<String>> otherDataSetNames = new LinkedHashMap<>();
+        otherDataSetNames.put("tsuidX1", new ArrayList<String>());
+        otherDataSetNames.put("tsuidX2", new ArrayList<String>());
+        otherDataSetNames.put("tsuidX3", Arrays.asList("anotherDataSet"));
+
+        // Mock the TemporalDataManager
+        // required: simulate the DELETE on TS content
+        Response respDeletedTS = Response.status(Status.OK).entity("mocked delete TS").build();
+        TemporalDataManager mockedTDM = Mockito.mock(TemporalDataManager.class);
+        doReturn(respDeletedTS).when(mockedTDM).deleteTS("tsuidX1");
+        doReturn(respDeletedTS).when(mockedTDM).deleteTS("tsuidX2");
+
+        // Mock the MetaDataManager: bulk DELETE of the meta and fids
+        MetaDataManager mockedMDM = Mockito.mock(MetaDataManager.class);
+        doReturn(2).when(mockedMDM).deleteMetaData(removedTsuids);
+        doReturn(2).when(mockedMDM).deleteFunctionalIdentifier(removedTsuids);
 
         // Mock DataSetFacade in order to simulate
+        //  - the evaluation of the TS belonging only to the dataset
         //  - DELETE on Dataset
         //  - DELETE on the links between dataset and fids.
         // These services are tested by testRemoveDataSet
         DataSetFacade mockedFacade = Mockito.spy(DataSetFacade.class);
-        Mockito.doNothing().when(mockedFacade).removeTSFromDataSet(fids[0].getTsuid(), dataSetId);
-        Mockito.doNothing().when(mockedFacade).removeTSFromDataSet(fids[1].getTsuid(), dataSetId);
+        doReturn(otherDataSetNames).when(mockedFacade).getOtherDataSetNamesByTsuid(dataSetId);
+        doReturn(2).when(mockedFacade).removeTSFromDataSet(removedTsuids, dataSetId);
         Mockito.doNothing().when(mockedFacade).removeDataSet(dataSetId);
 
-        // Spy the DataSetManager in order to inject mockedFacade + mockedTS + dataset
+        // Spy the DataSetManager in order to inject mockedFacade + mocked managers + dataset
         DataSetManager mockedDataSetManager = Mockito.spy(DataSetManager.class);
         when(mockedDataSetManager.getDataSetFacade()).thenReturn(mockedFacade);
-        // 
-        doReturn(mockedDataset).when(mockedDataSetManager).getDataSet(dataSetId);
-        doReturn(mockedTS).when(mockedDataSetManager).getTimeSerieResource();
-        doReturn(Arrays.asList(dataSetId)).when(mockedDataSetManager).getContainers(fids[0].getTsuid());
-        doReturn(Arrays.asList(dataSetId)).when(mockedDataSetManager).getContainers(fids[1].getTsuid());
-
-        // DataSet stub = mockedDataSetManager.getDataSet(dataSetId);
-        // works: partial solution before injecting mocked manager(s) into the webapp tested by grizzly client 
-        // mockedDataSetManager.removeDataSet(dataSetId, true);
-
-        // TODO : Finally: inject mockedDataSetManager into DataSetResource,
-        // in the webapp tested by grizzly client (requires extra works, new dependancies ...)
-        //
-        // => done presently: test directly on DataSetResource
+        doReturn(summary).when(mockedDataSetManager).getDataSetSummary(dataSetId);
+        doReturn(mockedTDM).when(mockedDataSetManager).getTemporalDataManager();
+        doReturn(mockedMDM).when(mockedDataSetManager).getMetaDataManager();
 
         DataSetResource mockedDataSetResource = new DataSetResource();
         mockedDataSetResource.setDataSetManager(mockedDataSetManager);
@@ -325,17 +319,63 @@ public class DataSetRequestTest extends AbstractRequestTest {
         Response httpResponse = mockedDataSetResource.removeDataSet(dataSetId, true);
         assertTrue(httpResponse.getStatus() == Status.NO_CONTENT.getStatusCode());
 
-        long delay = 500;
-        // Test that delete on links is called ...
-        verify(mockedFacade, timeout(delay)).removeTSFromDataSet(fids[0].getTsuid(), dataSetId);
-        verify(mockedFacade, timeout(delay)).removeTSFromDataSet(fids[1].getTsuid(), dataSetId);
+        // Test that the TS content is deleted, except for the TS shared with another dataset
+        verify(mockedTDM).deleteTS("tsuidX1");
+        verify(mockedTDM).deleteTS("tsuidX2");
+        verify(mockedTDM, never()).deleteTS("tsuidX3");
+
+        // Test that the bulk deletes on links, meta and fids are called ...
+        verify(mockedFacade).removeTSFromDataSet(removedTsuids, dataSetId);
+        verify(mockedMDM).deleteMetaData(removedTsuids);
+        verify(mockedMDM).deleteFunctionalIdentifier(removedTsuids);
 
         // Test that delete on dataset is called ...
-        verify(mockedFacade, timeout(delay)).removeDataSet(dataSetId);
+        verify(mockedFacade).removeDataSet(dataSetId);
+    }
+
+    /**
+     * A TS whose content can't be deleted is reported, and kept with the dataset: the other TS are removed.
+     *
+     * @throws IkatsDaoException
+     * @throws IkatsWebClientException
+     * @throws ResourceNotFoundException
+     */
+    @Test
+    public void testDeepRemoveDataSetPartialError() throws IkatsDaoException, ResourceNotFoundException, IkatsWebClientException {
+
+        String dataSetId = "monDataSet_testDeepRemoveDataSetPartialError";
+        Map<String, List<String>> otherDataSetNames = new LinkedHashMap<>();
+        otherDataSetNames.put("tsuidY1", new ArrayList<String>());
+        otherDataSetNames.put("tsuidY2", new ArrayList<String>());
+        List<String> removedTsuids = Arrays.asList("tsuidY2");
+
+        TemporalDataManager mockedTDM = Mockito.mock(TemporalDataManager.class);
+        Mockito.doThrow(new ResourceNotFoundException("mocked missing TS")).when(mockedTDM).deleteTS("tsuidY1");
+        doReturn(Response.status(Status.OK).build()).when(mockedTDM).deleteTS("tsuidY2");
+        MetaDataManager mockedMDM = Mockito.mock(MetaDataManager.class);
+
+        DataSetFacade mockedFacade = Mockito.spy(DataSetFacade.class);
+        doReturn(otherDataSetNames).when(mockedFacade).getOtherDataSetNamesByTsuid(dataSetId);
+        doReturn(1).when(mockedFacade).removeTSFromDataSet(removedTsuids, dataSetId);
+
+        DataSetManager mockedDataSetManager = Mockito.spy(DataSetManager.class);
+        when(mockedDataSetManager.getDataSetFacade()).thenReturn(mockedFacade);
+        doReturn(new DataSet(dataSetId, "desc", null)).when(mockedDataSetManager).getDataSetSummary(dataSetId);
+        doReturn(mockedTDM).when(mockedDataSetManager).getTemporalDataManager();
+        doReturn(mockedMDM).when(mockedDataSetManager).getMetaDataManager();
+
+        try {
+            mockedDataSetManager.removeDataSet(dataSetId, true);
+            fail("error expected on tsuidY1");
+        } catch (WebApplicationException e) {
+            // expected
+        }
 
-        // Test if service deleting the TS, its meta and its funcId is called
-        verify(mockedTS, timeout(delay)).removeTimeSeries(fids[0].getTsuid());
-        verify(mockedTS, timeout(delay)).removeTimeSeries(fids[1].getTsuid());
+        // only the deleted TS is removed from the database, and the dataset is kept
+        verify(mockedFacade).removeTSFromDataSet(removedTsuids, dataSetId);
+        verify(mockedMDM).deleteMetaData(removedTsuids);
+        verify(mockedMDM).deleteFunctionalIdentifier(removedTsuids);
+        verify(mockedFacade, never()).removeDataSet(dataSetId);
     }
 
     @Test
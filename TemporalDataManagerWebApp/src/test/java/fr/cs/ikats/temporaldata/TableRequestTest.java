@@ -326,6 +326,39 @@ public class TableRequestTest extends AbstractRequestTest {
 
     }
 
+    /**
+     * test of table read, with a selection of columns and rows
+     * case : nominal (http code 200 returned)
+     */
+    @Test
+    public void testReadTableSelection() throws Exception {
+        String testCaseName = "testReadTableSelection";
+
+        File file = getFileMatchingResource(testCaseName, "/data/test_import_table_nominal.csv");
+
+        String tableName = "testReadTableSelection";
+        String url = getAPIURL() + "/table";
+        doImport(url, file, "CSV", 200, "timestamp", tableName);
+
+        Client client = ClientBuilder.newBuilder().register(JacksonFeature.class).build();
+        Response response = client.target(getAPIURL() + "/table/json/" + tableName)
+                .queryParam("column", "value").queryParam("offset", 2).queryParam("limit", 3)
+                .request().get();
+        assertEquals(200, response.getStatus());
+
+        TableManager tableManager = new TableManager();
+        Table table = tableManager.initTable(tableManager.loadFromJson(response.readEntity(String.class)), false);
+
+        assertEquals(Arrays.asList("timestamp", "value"), table.getColumnsHeader().getItems(String.class));
+        assertEquals(Arrays.asList(null, "2015-12-10T14:55:31.5", "2015-12-10T14:55:32.0", "2015-12-10T14:55:23.512"),
+                table.getRowsHeader().getItems(String.class));
+        assertEquals(Arrays.asList("2", "5", "8"), table.getColumn(1, String.class));
+
+        response = client.target(getAPIURL() + "/table/json/" + tableName).queryParam("column", "unknown")
+                .request().get();
+        assertEquals(404, response.getStatus());
+    }
+
     /**
      * test of table creation from a csv file
      * case : nominal (http code 200 returned)
@@ -0,0 +1,245 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fr.cs.ikats.temporaldata.business.table;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.cs.ikats.temporaldata.business.table.TableInfo.DataLink;
+import fr.cs.ikats.temporaldata.exception.IkatsException;
+
+/**
+ * Tests the ColumnarTable: content stored by typed columns, converted from and to the TableInfo.
+ */
+public class ColumnarTableTest {
+
+    /**
+     * Sample with all headers, links, columns of each type, and undefined values
+     */
+    private static final String JSON_SAMPLE = "{\"table_desc\":{\"title\":\"Columnar\",\"desc\":\"test\"},"
+            + "\"headers\":{\"col\":{\"data\":[\"Id\",\"Name\",\"Value\",\"Count\",\"Big\",\"Flag\",\"Mixed\"]},"
+            + "\"row\":{\"data\":[null,\"R1\",\"R2\",\"R3\"],\"default_links\":{\"type\":\"ts_list\"},"
+            + "\"links\":[null,{\"val\":\"1\"},null,{\"val\":\"3\"}]}},"
+            + "\"content\":{\"cells\":[[\"a\",1.5,3,12345678901,true,\"x\"],[\"b\",null,-2,null,false,4],"
+            + "[\"a\",-0.0,null,7,null,2.5]],\"default_links\":{\"context\":\"ts\"},"
+            + "\"links\":[[{\"val\":\"L1\"},null,null,null,null,null],[null,null,null,null,null,null],"
+            + "[null,null,{\"type\":\"metadata\",\"val\":\"L3\"},null,null,null]]}}";
+
+    /**
+     * Tests the conversion from and to TableInfo: same JSON, same types of values
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testToTableInfo() throws Exception {
+        TableManager mng = new TableManager();
+        ObjectMapper mapper = new ObjectMapper();
+
+        TableInfo tableInfo = mng.loadFromJson(JSON_SAMPLE);
+        ColumnarTable table = mng.initColumnarTable(tableInfo);
+        TableInfo converted = table.toTableInfo();
+
+        assertEquals(mapper.writeValueAsString(tableInfo), mapper.writeValueAsString(converted));
+        for (int row = 0; row < tableInfo.content.cells.size(); row++) {
+            for (int col = 0; col < tableInfo.content.cells.get(row).size(); col++) {
+                Object value = tableInfo.content.cells.get(row).get(col);
+                Object convertedValue = converted.content.cells.get(row).get(col);
+                assertEquals(value == null ? null : value.getClass(),
+                        convertedValue == null ? null : convertedValue.getClass());
+            }
+        }
+
+        // the converted TableInfo is a copy
+        converted.headers.col.data.set(1, "Other");
+        assertEquals("Name", table.getColumnsHeader().data.get(1));
+    }
+
+    /**
+     * Tests the getters give the same results as the ones of Table
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetters() throws Exception {
+        TableManager mng = new TableManager();
+
+        Table table = mng.initTable(mng.loadFromJson(JSON_SAMPLE), false);
+        ColumnarTable columnarTable = mng.initColumnarTable(mng.loadFromJson(JSON_SAMPLE));
+
+        assertEquals(table.getRowCount(true), columnarTable.getRowCount(true));
+        assertEquals(table.getRowCount(false), columnarTable.getRowCount(false));
+        assertEquals(table.getColumnCount(true), columnarTable.getColumnCount(true));
+        assertEquals(table.getColumnCount(false), columnarTable.getColumnCount(false));
+        assertEquals(table.getIndexRowHeader("R3"), columnarTable.getIndexRowHeader("R3"));
+
+        for (String name : Arrays.asList("Id", "Name", "Value", "Count", "Big", "Flag", "Mixed")) {
+            assertEquals(table.getColumn(name), columnarTable.getColumn(name));
+            assertEquals(table.getColumn(name, Object.class), columnarTable.getColumn(name, Object.class));
+            assertEquals(table.getColumn(name, TableElement.class).toString(),
+                    columnarTable.getColumn(name, TableElement.class).toString());
+        }
+        for (String name : Arrays.asList("R1", "R2", "R3")) {
+            assertEquals(table.getRow(name), columnarTable.getRow(name));
+            assertEquals(table.getRow(name, Object.class), columnarTable.getRow(name, Object.class));
+        }
+        for (int index = 0; index < 4; index++) {
+            assertEquals(table.getRow(index, TableElement.class).toString(),
+                    columnarTable.getRow(index, TableElement.class).toString());
+        }
+        assertEquals(Arrays.asList(1.5, null, -0.0), columnarTable.getColumn("Value", Double.class));
+        assertEquals(Arrays.asList(3, -2, null), columnarTable.getColumn("Count", Integer.class));
+
+        try {
+            columnarTable.getColumn("Name", Double.class);
+            fail("Incorrect: class cast exception not detected !");
+        } catch (IkatsException e) {
+            // Good
+        }
+    }
+
+    /**
+     * Tests appendRow: the columns are converted when a value does not match their type, the links are checked.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testAppendRow() throws Exception {
+        ColumnarTable table = TableManager.initEmptyColumnarTable(true, true);
+        table.getColumnsHeader().addItems("Id", "Value", "Label");
+        table.getRowsHeader().addItem(null);
+
+        assertEquals(1, table.appendRow("R1", Arrays.asList(null, "a")));
+        assertEquals(2, table.appendRow("R2", Arrays.asList(1.5, "b")));
+        assertEquals(3, table.appendRow("R3", Arrays.asList(2, "a")));
+        assertEquals(4, table.appendRow("R4", Arrays.asList(new BigDecimal("2.5"), null)));
+
+        assertEquals(Arrays.asList(null, 1.5, 2, new BigDecimal("2.5")), table.getColumn("Value", Object.class));
+        assertEquals(Arrays.asList("a", "b", "a", null), table.getColumn("Label", Object.class));
+        assertEquals(Arrays.asList(2, "a"), table.getRow("R3", Object.class));
+
+        try {
+            table.appendRow("R5", Arrays.asList(new TableElement(1.0, DataLink.buildLink("ts", "id", null)), "c"));
+            fail("Incorrect: link appended to a table not managing the links !");
+        } catch (IkatsException e) {
+            // Good
+        }
+
+        table.enableLinks(false, null, false, null, true, null);
+        table.appendRow("R5", Arrays.asList(new TableElement(1.0, DataLink.buildLink("ts", "id", null)), "c"));
+        assertEquals("id", table.getColumn("Value", TableElement.class).get(4).link.val);
+        assertNull(table.getColumn("Label", TableElement.class).get(4).link);
+
+        TableInfo tableInfo = table.toTableInfo();
+        assertEquals(Arrays.asList(1.0, "c"), tableInfo.content.cells.get(4));
+        assertEquals(5, tableInfo.content.links.size());
+        assertEquals(Arrays.asList(null, "R1", "R2", "R3", "R4", "R5"), tableInfo.headers.row.data);
+    }
+
+    /**
+     * Tests the rows of different sizes and the null rows are kept
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRaggedRows() throws Exception {
+        TableInfo tableInfo = new TableInfo();
+        tableInfo.content = new TableInfo.TableContent();
+        tableInfo.content.cells = new ArrayList<>();
+        tableInfo.content.cells.add(Arrays.asList("a", 1));
+        tableInfo.content.cells.add(null);
+        tableInfo.content.cells.add(Arrays.asList("b", 2, 3.5));
+        tableInfo.content.cells.add(new ArrayList<>());
+        tableInfo.content.cells.add(Arrays.asList("c", 4, 5.5));
+
+        ColumnarTable table = new TableManager().initColumnarTable(tableInfo);
+
+        assertEquals(tableInfo.content.cells, table.toTableInfo().content.cells);
+        assertEquals(2, table.getColumnCount(false));
+        assertEquals(Arrays.asList("b", "2", "3.5"), table.getRow(2, String.class));
+    }
+
+    /**
+     * Tests gatherRows with getSortedRows: same table as the Table sorted in place, with the rows header, the links
+     * and the ragged rows
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGatherRows() throws Exception {
+        TableManager mng = new TableManager();
+        ObjectMapper mapper = new ObjectMapper();
+
+        for (int index = 0; index < 3; index++) {
+            Table table = mng.initTable(mng.loadFromJson(JSON_SAMPLE), false);
+            ColumnarTable columnarTable = mng.initColumnarTable(mng.loadFromJson(JSON_SAMPLE));
+
+            table.sortRowsByColumnValues(index, true);
+            int[] sortedRows = columnarTable.getSortedRows(index, true);
+            ColumnarTable sortedTable = columnarTable.gatherRows(sortedRows, 0, sortedRows.length);
+
+            assertEquals(mapper.writeValueAsString(table.getTableInfo()),
+                    mapper.writeValueAsString(sortedTable.toTableInfo()));
+        }
+
+        TableInfo tableInfo = new TableInfo();
+        tableInfo.content = new TableInfo.TableContent();
+        tableInfo.content.cells = new ArrayList<>();
+        tableInfo.content.cells.add(Arrays.asList("a", 1));
+        tableInfo.content.cells.add(null);
+        tableInfo.content.cells.add(Arrays.asList("b", 2, 3.5));
+        ColumnarTable table = mng.initColumnarTable(tableInfo);
+
+        ColumnarTable gathered = table.gatherRows(new int[]{0, 2, 1, 0}, 1, 3);
+        assertEquals(Arrays.asList(Arrays.asList("b", 2, 3.5), null), gathered.toTableInfo().content.cells);
+        assertEquals(Arrays.asList("a", 1), table.toTableInfo().content.cells.get(0));
+    }
+
+    /**
+     * Tests the table read from the database as ColumnarTable is the one read as TableInfo
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testReadColumnarFromDatabase() throws Exception {
+        TableManager mng = new TableManager();
+        ObjectMapper mapper = new ObjectMapper();
+
+        TableInfo tableInfo = mng.loadFromJson(JSON_SAMPLE);
+        tableInfo.table_desc.name = "TestColumnarTable";
+        mng.createInDatabase(tableInfo);
+        try {
+            TableInfo expected = mng.readFromDatabase("TestColumnarTable");
+            ColumnarTable table = mng.readColumnarFromDatabase("TestColumnarTable");
+
+            assertEquals(mapper.writeValueAsString(expected), mapper.writeValueAsString(table.toTableInfo()));
+            assertEquals(Arrays.asList(3, -2, null), table.getColumn("Count", Object.class));
+            assertEquals("L3", table.getColumn("Count", TableElement.class).get(2).link.val);
+            assertEquals("3", table.getRowsHeader().links.get(3).val);
+        } finally {
+            mng.deleteFromDatabase("TestColumnarTable");
+        }
+    }
+}
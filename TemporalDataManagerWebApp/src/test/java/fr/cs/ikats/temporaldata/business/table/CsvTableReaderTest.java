@@ -0,0 +1,163 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.temporaldata.business.table;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import fr.cs.ikats.temporaldata.exception.ImportException;
+
+/**
+ * Tests the CsvTableReader: streamed import of CSV tables into the storage format
+ */
+public class CsvTableReaderTest {
+
+    private static final Logger LOGGER = Logger.getLogger(CsvTableReaderTest.class);
+
+    private static List<List<Object>> read(String csv, String keyColumn) throws Exception {
+        TableStorageCodec codec = new TableStorageCodec(false, 2);
+        byte[] blob = new CsvTableReader(codec).read(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                "test.csv", keyColumn, null);
+        return codec.decodeValues(blob);
+    }
+
+    private static void assertImportError(String csv, String keyColumn, String expectedMessage) throws Exception {
+        try {
+            read(csv, keyColumn);
+            fail("Expected error: " + expectedMessage);
+        } catch (ImportException e) {
+            assertEquals(expectedMessage, e.getMessage());
+        }
+    }
+
+    /**
+     * Tests the raw values read: header with the top left corner, quoted fields, empty lines skipped
+     */
+    @Test
+    public void testRead() throws Exception {
+        List<List<Object>> rows = read("funcId,metric,label\nF1,M1,\"a,b\"\n\nF2,M2,\"say \"\"hi\"\"\"\r\nF3,M1,\"two\nlines\"\n",
+                "funcId");
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("funcId|", "metric", "label"),
+                Arrays.asList("F1", "M1", "a,b"),
+                Arrays.asList("F2", "M2", "say \"hi\""),
+                Arrays.asList("F3", "M1", "two\nlines")), rows);
+    }
+
+    /**
+     * Tests the errors: unknown key column, duplicate key, record not fitting the header
+     */
+    @Test
+    public void testErrors() throws Exception {
+        String csv = "funcId,metric\nF1,M1\nF2,M2\nF3,M1\n";
+        assertEquals(4, read(csv, "funcId").size());
+
+        assertImportError(csv, "unknown", "Row name not found in csv file header : unknown");
+        assertImportError("", "funcId", "Row name not found in csv file header : funcId");
+        assertImportError(csv, "metric", "Duplicate found in csv file: metric = M1");
+        assertImportError("funcId,metric\nF1,M1\n\nF2\n", "funcId",
+                "CSV line 4 : length does not fit headers size in file test.csv");
+    }
+
+    /**
+     * Tests the set of fingerprints
+     */
+    @Test
+    public void testFingerprintSet() {
+        CsvTableReader.FingerprintSet set = new CsvTableReader.FingerprintSet();
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(true, set.add(CsvTableReader.fingerprint("F" + i)));
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(false, set.add(CsvTableReader.fingerprint("F" + i)));
+        }
+    }
+
+    /**
+     * Benchmark of the import of a generated CSV of 1 GB (system property benchmark.csv.mb): run with a large heap,
+     * the encoded table is held in memory.
+     */
+    @Test
+    @Ignore("Benchmark: run manually")
+    public void benchmarkRead() throws Exception {
+        long size = Long.getLong("benchmark.csv.mb", 1024L) * 1024 * 1024;
+        for (boolean compressed : new boolean[]{false, true}) {
+            GeneratedCsv csv = new GeneratedCsv(size);
+            long start = System.currentTimeMillis();
+            byte[] blob = new CsvTableReader(new TableStorageCodec(compressed))
+                    .read(csv, "generated.csv", "funcId", null);
+            long duration = Math.max(1, System.currentTimeMillis() - start);
+            LOGGER.info("CsvTableReader(compressed=" + compressed + "): " + csv.rows + " rows, " + csv.read
+                    + " bytes read in " + duration + " ms: " + (csv.read / 1024 / 1024 * 1000 / duration) + " MB/s, "
+                    + blob.length + " bytes encoded");
+        }
+    }
+
+    /**
+     * CSV content generated line by line, with unique keys
+     */
+    private static class GeneratedCsv extends InputStream {
+
+        private final long size;
+        private long read;
+        private long rows;
+        private byte[] line = "funcId,metric,flight,min,max,mean,label\n".getBytes(StandardCharsets.UTF_8);
+        private int position;
+
+        GeneratedCsv(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position == line.length) {
+                if (read >= size) {
+                    return -1;
+                }
+                rows++;
+                line = ("FuncId_" + rows + ",M" + (rows % 20) + "," + (rows % 1000) + "," + (rows % 97) / 10.0 + ","
+                        + (rows % 1013) + "," + (rows * 31 % 10007) / 100.0 + ",\"label, " + (rows % 7) + "\"\n")
+                        .getBytes(StandardCharsets.UTF_8);
+                position = 0;
+            }
+            int count = Math.min(length, line.length - position);
+            System.arraycopy(line, position, buffer, offset, count);
+            position += count;
+            read += count;
+            return count;
+        }
+    }
+}
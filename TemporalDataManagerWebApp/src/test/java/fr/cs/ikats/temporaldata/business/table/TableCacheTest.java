@@ -0,0 +1,125 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.temporaldata.business.table;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Tests the TableCache: LRU cache of the decoded tables, bounded by their estimated size.
+ */
+public class TableCacheTest {
+
+    private static final String JSON_SAMPLE = "{\"table_desc\":{\"title\":\"Cached\",\"desc\":\"test\"},"
+            + "\"headers\":{\"col\":{\"data\":[\"Id\",\"Name\",\"Value\"]},\"row\":{\"data\":[null,\"R1\",\"R2\"]}},"
+            + "\"content\":{\"cells\":[[\"a\",1.5],[\"b\",-2.0]]}}";
+
+    private ColumnarTable sample() throws Exception {
+        return new ColumnarTable(new TableManager().loadFromJson(JSON_SAMPLE));
+    }
+
+    /**
+     * Tests the hits and misses: the table is served only with the same id and version
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGet() throws Exception {
+        TableCache cache = new TableCache(TableCache.DEFAULT_MAX_BYTES);
+        ColumnarTable table = sample();
+
+        assertNull(cache.get("T", 1, 0));
+        cache.put("T", 1, 0, table);
+        assertSame(table, cache.get("T", 1, 0));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(table.estimateByteSize(), cache.getByteSize());
+
+        // stored table changed: outdated entry removed
+        assertNull(cache.get("T", 1, 1));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getByteSize());
+
+        cache.put("T", 1, 0, table);
+        assertNull(cache.get("T", 2, 0));
+        assertEquals(3, cache.getMissCount());
+
+        cache.put("T", 1, 0, table);
+        cache.invalidate("T");
+        assertNull(cache.get("T", 1, 0));
+
+        cache.clear();
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    /**
+     * Tests the eviction of the least recently used tables, when the cache exceeds its size
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testEviction() throws Exception {
+        ColumnarTable table = sample();
+        long tableByteSize = table.estimateByteSize();
+        TableCache cache = new TableCache(2 * tableByteSize);
+
+        cache.put("T1", 1, 0, table);
+        cache.put("T2", 2, 0, sample());
+        assertSame(table, cache.get("T1", 1, 0));
+        cache.put("T3", 3, 0, sample());
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get("T2", 2, 0));
+        assertSame(table, cache.get("T1", 1, 0));
+
+        // larger than the cache: not cached
+        cache.setMaxBytes(tableByteSize - 1);
+        assertEquals(0, cache.size());
+        assertEquals(3, cache.getEvictionCount());
+        cache.put("T1", 1, 0, table);
+        assertEquals(0, cache.size());
+
+        // disabled
+        cache.setMaxBytes(0);
+        cache.put("T1", 1, 0, table);
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests the copy of a cached table: the modifications of the copy do not change the cached table
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCopy() throws Exception {
+        ColumnarTable table = sample();
+        String json = new TableManager().serializeToJson(table.toTableInfo());
+
+        ColumnarTable copy = table.copy();
+        copy.getRowsHeader().data.set(1, "changed");
+        TableInfo info = table.toTableInfo();
+        info.content.cells.get(0).set(0, "changed");
+        info.headers.row.data.add("R3");
+
+        assertEquals(json, new TableManager().serializeToJson(table.toTableInfo()));
+    }
+}
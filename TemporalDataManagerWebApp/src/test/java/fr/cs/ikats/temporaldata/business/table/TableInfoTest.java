@@ -18,6 +18,7 @@ package fr.cs.ikats.temporaldata.business.table;
 
 import junit.framework.TestCase;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -199,4 +200,44 @@ public class TableInfoTest extends TestCase {
         assertEquals(22, reloadedPojo.content.cells.get(1).get(1));
 
     }
+
+    /**
+     * Tests the search of header items: Header.indexOf() is kept consistent with the modifications of the header.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHeaderIndexOf() throws Exception {
+
+        Header header = new Header();
+        header.data = new ArrayList<>(Arrays.asList(null, "A", 2, "C", "A"));
+
+        assertEquals(1, header.indexOf("A"));
+        assertEquals(2, header.indexOf("2"));
+        assertEquals(-1, header.indexOf("D"));
+
+        // updated by addItem
+        header.addItem("D");
+        assertEquals(5, header.indexOf("D"));
+        header.addItem("C");
+        assertEquals(3, header.indexOf("C"));
+
+        // updated by insertItem: items after the inserted one are shifted
+        header.insertItem(1, new TableElement("E", null));
+        assertEquals(1, header.indexOf("E"));
+        assertEquals(2, header.indexOf("A"));
+        assertEquals(6, header.indexOf("D"));
+
+        // modified out of the Header methods
+        header.data.set(2, "F");
+        header.resetIndex();
+        assertEquals(2, header.indexOf("F"));
+        assertEquals(5, header.indexOf("A"));
+        header.data.remove(0);
+        assertEquals(0, header.indexOf("E"));
+        header.data = new ArrayList<>(Arrays.asList("X", "Y"));
+        assertEquals(1, header.indexOf("Y"));
+        assertEquals(-1, header.indexOf("A"));
+    }
+
 }
@@ -22,22 +22,32 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import fr.cs.ikats.operators.TablesMergeTest;
 
 import org.apache.log4j.Logger;
 import org.junit.BeforeClass;
+import org.junit.Ignore;
 import org.junit.Test;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.cs.ikats.common.dao.exception.IkatsDaoConflictException;
+import fr.cs.ikats.table.TableEntity;
 import fr.cs.ikats.table.TableEntitySummary;
 import fr.cs.ikats.temporaldata.business.table.TableInfo.DataLink;
 import fr.cs.ikats.temporaldata.exception.IkatsException;
+import fr.cs.ikats.temporaldata.exception.InvalidValueException;
 import fr.cs.ikats.temporaldata.exception.ResourceNotFoundException;
 
 /**
@@ -680,6 +690,39 @@ public class TableManagerTest {
 
     }
 
+    /**
+     * Tests sort on numeric values: sorted in numeric order, whereas their String conversions are not, in natural order.
+     * Descending order is tested here, with the links and the rows header reordered the same way.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSortRowsNumericDescending() throws Exception {
+
+        Table myTable = TableManager.initEmptyTable(true, true);
+        myTable.getColumnsHeader().addItems("TopLeft", "Name", "Value");
+        myTable.getRowsHeader().addItem(null);
+        myTable.enableLinks(false, null, true, new DataLink(), true, new DataLink());
+
+        myTable.appendRow(new TableElement("R1", DataLink.buildLink("t", "1", null)),
+                Arrays.asList("a", new TableElement(1.5, DataLink.buildLink("t", "a", null))));
+        myTable.appendRow("R2", Arrays.asList("b", -10));
+        myTable.appendRow("R3", Arrays.asList("c", 1.25));
+        myTable.appendRow("R4", Arrays.asList("d", null));
+        myTable.appendRow("R5", Arrays.asList("e", -5));
+        myTable.appendRow("R6", Arrays.asList("f", 1.25));
+
+        myTable.sortRowsByColumnValues("Value", true);
+
+        assertEquals(Arrays.asList(1.5, 1.25, 1.25, -5, -10, null), myTable.getColumn("Value", Object.class));
+        assertEquals(Arrays.asList("a", "c", "f", "e", "b", "d"), myTable.getColumn("Name"));
+        assertEquals(Arrays.asList(null, "R1", "R3", "R6", "R5", "R2", "R4"), myTable.getRowsHeader().getData());
+        assertEquals("1", myTable.getRowsHeader().links.get(1).val);
+        assertEquals("a", myTable.getColumn("Value", TableElement.class).get(0).link.val);
+        assertEquals(2, myTable.getIndexRowHeader("R3"));
+        assertEquals(6, myTable.getIndexRowHeader("R4"));
+    }
+
     /**
      * Test insertColumn with all headers activated
      *
@@ -709,6 +752,47 @@ public class TableManagerTest {
         assertEquals(Arrays.asList(true, false, "text", null, 3.14), myTable.getColumn("Bazar", Object.class));
     }
 
+    /**
+     * Test insertColumns: inserted before a column, or appended, in one pass
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testInsertColumns() throws Exception {
+
+        Table myTable = TableManager.initEmptyTable(true, true);
+        myTable.getColumnsHeader().addItems("TopLeft", "First", "Blabla");
+        myTable.getRowsHeader().addItem(null);
+        myTable.appendRow("R1", Arrays.asList("bla1", "BLAH1"));
+        myTable.appendRow("R2", Arrays.asList("bla2", "BLAH2"));
+
+        myTable.insertColumns("Blabla", Arrays.asList("C1", "C2"),
+                Arrays.asList(Arrays.asList(1, 2), Arrays.asList("x", null)));
+        myTable.insertColumns(null, Arrays.asList("Last"), Arrays.asList(Arrays.asList(true, false)));
+
+        assertEquals(Arrays.asList("TopLeft", "First", "C1", "C2", "Blabla", "Last"),
+                myTable.getColumnsHeader().getItems());
+        assertEquals(Arrays.asList("bla1", 1, "x", "BLAH1", true), myTable.getRow("R1", Object.class));
+        assertEquals(Arrays.asList("bla2", 2, null, "BLAH2", false), myTable.getRow("R2", Object.class));
+        assertEquals(Arrays.asList(1, 2), myTable.getColumn("C1", Object.class));
+    }
+
+    /**
+     * Test insertColumns() rejecting a column whose size differs from the number of rows
+     *
+     * @throws Exception
+     */
+    @Test(expected = IkatsException.class)
+    public void testInsertColumnsInconsistentSize() throws Exception {
+
+        Table myTable = TableManager.initEmptyTable(true, false);
+        myTable.getColumnsHeader().addItems("First");
+        myTable.appendRow(Arrays.asList("bla1"));
+        myTable.appendRow(Arrays.asList("bla2"));
+
+        myTable.insertColumns(null, Arrays.asList("C1"), Arrays.asList(Arrays.asList(1)));
+    }
+
     /**
      * Test insertColumn() with only the column header
      *
@@ -925,6 +1009,240 @@ public class TableManagerTest {
         assertEquals(resultBefore.size() - 1, resultAfter.size());
     }
 
+    /**
+     * Tests the catalog of the tables: written with the table, computed once for a table stored without catalog
+     */
+    @Test
+    public void testReadCatalog() throws Exception {
+
+        TableManager mng = new TableManager();
+        TableInfo tableInfo = mng.loadFromJson(JSON_CONTENT_SAMPLE_1);
+        tableInfo.table_desc.name = "TestCatalog";
+        mng.createInDatabase(tableInfo);
+        try {
+            TableEntitySummary catalog = mng.readCatalog("TestCatalog");
+            assertEquals(Integer.valueOf(4), catalog.getRowCount());
+            assertEquals(Integer.valueOf(6), catalog.getColumnCount());
+            assertEquals(Arrays.asList("funcId", "metric", "min_B1", "max_B1", "min_B2", "max_B2"),
+                    catalog.getColumnNames());
+            assertEquals(Arrays.asList("String", "String", "Double", "Double", "Double", "Double"),
+                    catalog.getColumnTypes());
+            TableEntity entity = mng.readRawFromDatabase("TestCatalog");
+            assertEquals(Long.valueOf(entity.getRawValues().length + entity.getRawDataLinks().length),
+                    catalog.getByteSize());
+            assertEquals(8, catalog.getChecksum().length());
+            assertTrue(mng.existsInDatabase("TestCatalog"));
+
+            // table stored before the catalog
+            entity.setRowCount(null);
+            entity.setColumnCount(null);
+            entity.setColumnNames(null);
+            entity.setColumnTypes(null);
+            entity.setByteSize(null);
+            entity.setChecksum(null);
+            mng.getDao().update(entity);
+            TableEntitySummary computed = mng.readCatalog("TestCatalog");
+            assertEquals(catalog.getRowCount(), computed.getRowCount());
+            assertEquals(catalog.getColumnNames(), computed.getColumnNames());
+            assertEquals(catalog.getColumnTypes(), computed.getColumnTypes());
+            assertEquals(catalog.getChecksum(), computed.getChecksum());
+            assertEquals(catalog.getChecksum(), mng.getDao().getSummaryByName("TestCatalog").getChecksum());
+        } finally {
+            mng.deleteFromDatabase("TestCatalog");
+        }
+        assertTrue(!mng.existsInDatabase("TestCatalog"));
+
+        // table imported from CSV
+        String csv = "Id,Name,Value\nA,x|y,1.5\nB,,2\n";
+        mng.createInDatabaseFromCsv("TestCatalogCsv", "catalog.csv",
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "Id");
+        try {
+            TableEntitySummary catalog = mng.readCatalog("TestCatalogCsv");
+            assertEquals(Integer.valueOf(2), catalog.getRowCount());
+            assertEquals(Arrays.asList("Id", "Name", "Value"), catalog.getColumnNames());
+            assertEquals(Arrays.asList("String", "String", "String"), catalog.getColumnTypes());
+        } finally {
+            mng.deleteFromDatabase("TestCatalogCsv");
+        }
+    }
+
+    /**
+     * Tests the cache of the decoded tables: repeated reads served by the cache, writes invalidating it
+     */
+    @Test
+    public void testTableCache() throws Exception {
+
+        TableManager mng = new TableManager();
+        TableInfo tableInfo = mng.loadFromJson(JSON_CONTENT_SAMPLE_1);
+        tableInfo.table_desc.name = "TestTableCache";
+        mng.createInDatabase(tableInfo);
+        try {
+            mng.clearTableCache();
+            String json = mng.serializeToJson(mng.readFromDatabase("TestTableCache"));
+            assertEquals(0, mng.getTableCacheHitCount());
+            assertEquals(1, mng.getTableCacheMissCount());
+            assertTrue(mng.getTableCacheByteSize() > 0);
+
+            // the modifications of the read tables do not change the cached table
+            TableInfo read = mng.readFromDatabase("TestTableCache");
+            read.content.cells.get(0).set(0, "changed");
+            read.headers.row.links.get(1).val = "changed";
+            mng.readColumnarFromDatabase("TestTableCache").getRowsHeader().data.set(1, "changed");
+            assertEquals(json, mng.serializeToJson(mng.readFromDatabase("TestTableCache")));
+            assertEquals(Arrays.asList("VIB2", "VIB3", "VIB4", "VIB5"),
+                    mng.getColumnFromTable("TestTableCache", "metric"));
+            assertEquals(4, mng.getTableCacheHitCount());
+            assertEquals(1, mng.getTableCacheMissCount());
+
+            // the appended rows are read: decoded again
+            mng.appendRows("TestTableCache", Collections.singletonList(
+                    Arrays.asList("Flid1_VIB6", "VIB6", 1.0, 2.0, 3.0, 4.0)));
+            assertEquals(5, mng.readColumnarFromDatabase("TestTableCache").getRowCount(false));
+            assertEquals(2, mng.getTableCacheMissCount());
+
+            mng.deleteFromDatabase("TestTableCache");
+            mng.createInDatabase(tableInfo);
+            assertEquals(json, mng.serializeToJson(mng.readFromDatabase("TestTableCache")));
+            assertEquals(3, mng.getTableCacheMissCount());
+        } finally {
+            mng.deleteFromDatabase("TestTableCache");
+            mng.clearTableCache();
+        }
+    }
+
+    /**
+     * Tests the rows appended to a table: stored in row groups, without rewriting the raw values of the table
+     */
+    @Test
+    public void testAppendRows() throws Exception {
+
+        TableManager mng = new TableManager();
+        TableInfo tableInfo = mng.loadFromJson(JSON_CONTENT_SAMPLE_1);
+        tableInfo.table_desc.name = "TestAppendRows";
+        mng.createInDatabase(tableInfo);
+        try {
+            TableEntity entity = mng.readRawFromDatabase("TestAppendRows");
+            byte[] rawValues = entity.getRawValues();
+            TableEntitySummary before = mng.readCatalog("TestAppendRows");
+
+            TableEntitySummary catalog = mng.appendRows("TestAppendRows", Arrays.asList(
+                    Arrays.asList("Flid1_VIB6", "VIB6", 1.0, 2.0, 3.0, 4.0),
+                    Arrays.asList("Flid1_VIB7", "VIB7", 5, 2.0, 3.0, 4.0)));
+            assertEquals(Integer.valueOf(6), catalog.getRowCount());
+            assertEquals(Integer.valueOf(2), catalog.getRowGroupCount());
+            assertEquals(Arrays.asList("String", "String", "Object", "Double", "Double", "Double"),
+                    catalog.getColumnTypes());
+            assertTrue(catalog.getByteSize() > before.getByteSize());
+            assertTrue(!catalog.getChecksum().equals(before.getChecksum()));
+            assertTrue(Arrays.equals(rawValues, mng.readRawFromDatabase("TestAppendRows").getRawValues()));
+
+            catalog = mng.appendRows("TestAppendRows", Collections.singletonList(
+                    Arrays.asList("Flid1_VIB8", "VIB8", 0.0, 2.0, 3.0, 4.0)));
+            assertEquals(Integer.valueOf(7), catalog.getRowCount());
+            assertEquals(Integer.valueOf(3), catalog.getRowGroupCount());
+            assertEquals(catalog.getChecksum(), mng.readCatalog("TestAppendRows").getChecksum());
+
+            // the appended rows are read after the stored ones
+            Table table = mng.initTable(mng.readFromDatabase("TestAppendRows"), false);
+            assertEquals(Arrays.asList(null, "Flid1_VIB2", "Flid1_VIB3", "Flid1_VIB4", "Flid1_VIB5", "Flid1_VIB6",
+                    "Flid1_VIB7", "Flid1_VIB8"), table.getRowsHeader().getItems());
+            assertEquals(Arrays.asList("VIB7", 5, 2.0, 3.0, 4.0), table.getRow("Flid1_VIB7", Object.class));
+            assertEquals("4", table.getRowsHeader().links.get(4).val);
+
+            Table rows = mng.initTable(mng.readRows("TestAppendRows", 3, 3), false);
+            assertEquals(Arrays.asList(null, "Flid1_VIB5", "Flid1_VIB6", "Flid1_VIB7"), rows.getRowsHeader().getItems());
+            Table columns = mng.initTable(mng.readColumns("TestAppendRows", Collections.singletonList("metric")), false);
+            assertEquals(Arrays.asList("VIB2", "VIB3", "VIB4", "VIB5", "VIB6", "VIB7", "VIB8"),
+                    columns.getColumn("metric"));
+            assertEquals(7, mng.readColumnarFromDatabase("TestAppendRows").getRowCount(false));
+
+            // catalog computed again: the row groups are included
+            entity = mng.readRawFromDatabase("TestAppendRows");
+            entity.setRowCount(null);
+            mng.getDao().update(entity);
+            TableEntitySummary computed = mng.readCatalog("TestAppendRows");
+            assertEquals(Integer.valueOf(7), computed.getRowCount());
+            assertEquals(catalog.getColumnTypes(), computed.getColumnTypes());
+            assertEquals(catalog.getByteSize(), computed.getByteSize());
+
+            try {
+                mng.appendRows("TestAppendRows", Collections.singletonList(
+                        Arrays.asList("Flid1_VIB9", "VIB9", 0.0, 2.0, 3.0, 4.0, 5.0)));
+                fail("row larger than the columns header");
+            } catch (InvalidValueException e) {
+                // expected
+            }
+            try {
+                mng.appendRows("TestAppendRows", new ArrayList<>());
+                fail("no row");
+            } catch (InvalidValueException e) {
+                // expected
+            }
+        } finally {
+            mng.deleteFromDatabase("TestAppendRows");
+        }
+    }
+
+    /**
+     * Tests the replacement of the rows of a row group: the first one, stored with the headers, and an appended one
+     */
+    @Test
+    public void testReplaceRowGroup() throws Exception {
+
+        TableManager mng = new TableManager();
+        TableInfo tableInfo = mng.loadFromJson(JSON_CONTENT_SAMPLE_1);
+        tableInfo.table_desc.name = "TestReplaceRowGroup";
+        mng.createInDatabase(tableInfo);
+        try {
+            mng.appendRows("TestReplaceRowGroup", Arrays.asList(
+                    Arrays.asList("Flid1_VIB6", "VIB6", 1.0, 2.0, 3.0, 4.0),
+                    Arrays.asList("Flid1_VIB7", "VIB7", 1.0, 2.0, 3.0, 4.0)));
+            mng.appendRows("TestReplaceRowGroup", Collections.singletonList(
+                    Arrays.asList("Flid1_VIB8", "VIB8", 1.0, 2.0, 3.0, 4.0)));
+
+            TableEntitySummary catalog = mng.replaceRowGroup("TestReplaceRowGroup", 1, Collections.singletonList(
+                    Arrays.asList("Flid2_VIB6", "VIB6", 9.0, 2.0, 3.0, 4.0)));
+            assertEquals(Integer.valueOf(6), catalog.getRowCount());
+            assertEquals(Integer.valueOf(3), catalog.getRowGroupCount());
+            Table table = mng.initTable(mng.readFromDatabase("TestReplaceRowGroup"), false);
+            assertEquals(Arrays.asList(null, "Flid1_VIB2", "Flid1_VIB3", "Flid1_VIB4", "Flid1_VIB5", "Flid2_VIB6",
+                    "Flid1_VIB8"), table.getRowsHeader().getItems());
+            assertEquals(Arrays.asList("VIB6", 9.0, 2.0, 3.0, 4.0), table.getRow("Flid2_VIB6", Object.class));
+
+            // first row group: the headers are kept
+            catalog = mng.replaceRowGroup("TestReplaceRowGroup", 0, Arrays.asList(
+                    Arrays.asList("Flid2_VIB2", "VIB2", 1.0, 2.0, 3.0, 4.0),
+                    Arrays.asList("Flid2_VIB3", "VIB3", 1.0, 2.0, 3.0, 4.0)));
+            assertEquals(Integer.valueOf(4), catalog.getRowCount());
+            assertEquals(catalog.getChecksum(), mng.readCatalog("TestReplaceRowGroup").getChecksum());
+            table = mng.initTable(mng.readFromDatabase("TestReplaceRowGroup"), false);
+            assertEquals(Arrays.asList("funcId", "metric", "min_B1", "max_B1", "min_B2", "max_B2"),
+                    table.getColumnsHeader().getItems());
+            assertEquals(Arrays.asList(null, "Flid2_VIB2", "Flid2_VIB3", "Flid2_VIB6", "Flid1_VIB8"),
+                    table.getRowsHeader().getItems());
+
+            // concurrent modification: the table read before the replacement is not written back
+            TableEntity stale = mng.readRawFromDatabase("TestReplaceRowGroup");
+            mng.replaceRowGroup("TestReplaceRowGroup", 2, Collections.singletonList(
+                    Arrays.asList("Flid2_VIB8", "VIB8", 1.0, 2.0, 3.0, 4.0)));
+            try {
+                mng.getDao().update(stale);
+                fail("table concurrently modified");
+            } catch (IkatsDaoConflictException e) {
+                // expected
+            }
+
+            try {
+                mng.replaceRowGroup("TestReplaceRowGroup", 3, new ArrayList<>());
+                fail("row group not found");
+            } catch (ResourceNotFoundException e) {
+                // expected
+            }
+        } finally {
+            mng.deleteFromDatabase("TestReplaceRowGroup");
+        }
+    }
+
     /**
      * Tests creation and retrieval of a table in db
      */
@@ -992,6 +1310,110 @@ public class TableManagerTest {
     }
 
 
+    /**
+     * Tests the reading of a selection of columns, and of a range of rows, with their links
+     */
+    @Test
+    public void testReadColumnsAndRows() throws Exception {
+
+        TableManager mng = new TableManager();
+        TableInfo tableInfo = mng.loadFromJson(JSON_CONTENT_SAMPLE_1);
+        tableInfo.table_desc.name = "TestReadSelection";
+        mng.createInDatabase(tableInfo);
+
+        try {
+            Table columns = mng.initTable(mng.readColumns("TestReadSelection", Arrays.asList("max_B1", "metric")), false);
+            assertEquals(Arrays.asList("funcId", "max_B1", "metric"), columns.getColumnsHeader().getItems());
+            assertEquals(Arrays.asList(null, "Flid1_VIB2", "Flid1_VIB3", "Flid1_VIB4", "Flid1_VIB5"), columns.getRowsHeader().getItems());
+            assertEquals(Arrays.asList(2.1, "VIB3"), columns.getRow("Flid1_VIB3", Object.class));
+            assertEquals("3", columns.getRowsHeader().links.get(3).val);
+
+            TableInfo rowsInfo = mng.readRows("TestReadSelection", 1, 2);
+            Table rows = mng.initTable(rowsInfo, false);
+            assertEquals(Arrays.asList("funcId", "metric", "min_B1", "max_B1", "min_B2", "max_B2"), rows.getColumnsHeader().getItems());
+            assertEquals(Arrays.asList(null, "Flid1_VIB3", "Flid1_VIB4"), rows.getRowsHeader().getItems());
+            assertEquals(Arrays.asList("VIB4", 0.0, 2.1, 12.0, 3.4), rows.getRow("Flid1_VIB4", Object.class));
+            assertEquals(2, rows.getContentData().size());
+            assertEquals("2", rowsInfo.headers.row.links.get(1).val);
+            assertEquals("processdata", rowsInfo.headers.row.default_links.context);
+
+            TableInfo selection = mng.readFromDatabase("TestReadSelection", Arrays.asList("min_B2"), 3, 10);
+            assertEquals(Arrays.asList(Arrays.asList((Object) 1.0)), selection.content.cells);
+
+            assertEquals(0, mng.readRows("TestReadSelection", 10, 5).content.cells.size());
+
+            try {
+                mng.readColumns("TestReadSelection", Arrays.asList("unknown"));
+                fail("unknown column");
+            } catch (ResourceNotFoundException e) {
+                // expected
+            }
+        } finally {
+            mng.deleteFromDatabase("TestReadSelection");
+        }
+    }
+
+    @Test
+    public void testJsonWriter() throws Exception {
+
+        TableManager mng = new TableManager();
+        TableInfo tableInfo = mng.loadFromJson(JSON_CONTENT_SAMPLE_1);
+        tableInfo.table_desc.name = "TestJsonWriter";
+        mng.createInDatabase(tableInfo);
+
+        try {
+            // same JSON as the serialization of the TableInfo
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            mng.getJsonWriter("TestJsonWriter", null, 0, Integer.MAX_VALUE, false).write(out);
+            assertEquals(mng.serializeToJson(mng.readFromDatabase("TestJsonWriter")), out.toString("UTF-8"));
+
+            out = new ByteArrayOutputStream();
+            mng.getJsonWriter("TestJsonWriter", Arrays.asList("max_B1", "metric"), 1, 2, false).write(out);
+            assertEquals(mng.serializeToJson(mng.readFromDatabase("TestJsonWriter", Arrays.asList("max_B1", "metric"), 1, 2)),
+                    out.toString("UTF-8"));
+
+            // the null values are written
+            out = new ByteArrayOutputStream();
+            mng.getJsonWriter("TestJsonWriter", null, 10, 5, true).write(out);
+            assertEquals(new ObjectMapper().writeValueAsString(mng.readRows("TestJsonWriter", 10, 5)), out.toString("UTF-8"));
+
+            try {
+                mng.getJsonWriter("TestJsonWriter", Arrays.asList("unknown"), 0, 1, true);
+                fail("unknown column");
+            } catch (ResourceNotFoundException e) {
+                // expected
+            }
+        } finally {
+            mng.deleteFromDatabase("TestJsonWriter");
+        }
+    }
+
+    /**
+     * Tests the CSV and JSON writers of a table imported from a CSV whose first header field is empty: the top left
+     * corner is "|"
+     */
+    @Test
+    public void testWritersEmptyTopLeftCorner() throws Exception {
+
+        TableManager mng = new TableManager();
+        String csv = ",a,b\r\nr1,x,1\r\nr2,y,2\r\n";
+        mng.createInDatabaseFromCsv("TestEmptyCorner", "corner.csv",
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "a");
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            mng.getCsvWriter("TestEmptyCorner", ',').write(out);
+            assertEquals(csv, out.toString("UTF-8"));
+
+            out = new ByteArrayOutputStream();
+            mng.getJsonWriter("TestEmptyCorner", null, 0, Integer.MAX_VALUE, false).write(out);
+            TableInfo tableInfo = mng.readFromDatabase("TestEmptyCorner");
+            assertEquals(mng.serializeToJson(tableInfo), out.toString("UTF-8"));
+            assertEquals(Arrays.asList("", "a", "b"), tableInfo.headers.col.data);
+        } finally {
+            mng.deleteFromDatabase("TestEmptyCorner");
+        }
+    }
+
     @Test
     public void testCreateTableOnlyRowHeader() throws Exception {
         TableManager mng = new TableManager();
@@ -1064,5 +1486,65 @@ public class TableManagerTest {
         mng.deleteFromDatabase("tableNoHeader");
     }
 
+    /**
+     * Benchmark of the searches by row header: ts2Feature-like and JoinTableWithTs-like loops doing one search per row,
+     * on a table of 100k rows. The linear scan of the header, used before the index of the headers, is measured on a
+     * sample of the searches.
+     */
+    @Test
+    @Ignore
+    public void benchmarkRowHeaderLookups() throws Exception {
+
+        int rowCount = 100000;
+        Table table = TableManager.initEmptyTable(true, true);
+        table.getColumnsHeader().addItems("funcId", "value");
+        table.getRowsHeader().addItem(null);
+        for (int i = 0; i < rowCount; i++) {
+            table.appendRow("FID_" + i, Arrays.asList(i));
+        }
+
+        // ts2Feature-like: reads each row by its name
+        long start = System.currentTimeMillis();
+        long sum = 0;
+        for (int i = rowCount - 1; i >= 0; i--) {
+            sum += table.getRow("FID_" + i, Integer.class).get(0);
+        }
+        long indexedDuration = System.currentTimeMillis() - start;
+        assertEquals((long) rowCount * (rowCount - 1) / 2, sum);
+
+        // JoinTableWithTs-like: searches in a table being completed
+        Table joined = TableManager.initEmptyTable(true, true);
+        joined.getColumnsHeader().addItems("funcId", "value");
+        joined.getRowsHeader().addItem(null);
+        start = System.currentTimeMillis();
+        for (int i = 0; i < rowCount; i++) {
+            String rowName = "FID_" + (i / 2);
+            if (joined.getIndexRowHeader(rowName) == -1) {
+                joined.appendRow(rowName, Arrays.asList(table.getIndexRowHeader(rowName)));
+            }
+        }
+        long joinDuration = System.currentTimeMillis() - start;
+        assertEquals(rowCount / 2, joined.getRowCount(false));
+
+        // previous implementation: linear scan
+        int sampleSize = 1000;
+        start = System.currentTimeMillis();
+        for (int i = 0; i < sampleSize; i++) {
+            String searched = "FID_" + (rowCount - 1 - i);
+            int position = 0;
+            for (Object headerValue : table.getRowsHeader().data) {
+                if (headerValue != null && headerValue.toString().equals(searched)) {
+                    break;
+                }
+                position++;
+            }
+            assertEquals(rowCount - i, position);
+        }
+        long scanDuration = (System.currentTimeMillis() - start) * rowCount / sampleSize;
+
+        logger.info("Searches of " + rowCount + " rows by name: " + indexedDuration + " ms, in a growing table: "
+                + joinDuration + " ms, estimated with linear scans: " + scanDuration + " ms");
+        assertTrue(indexedDuration < scanDuration);
+    }
 
 }
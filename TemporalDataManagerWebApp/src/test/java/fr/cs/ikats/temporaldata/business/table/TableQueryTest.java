@@ -0,0 +1,328 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.temporaldata.business.table;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.cs.ikats.temporaldata.business.table.TableQuery.Aggregate;
+import fr.cs.ikats.temporaldata.business.table.TableQuery.Condition;
+import fr.cs.ikats.temporaldata.business.table.TableQuery.Order;
+import fr.cs.ikats.temporaldata.exception.InvalidValueException;
+import fr.cs.ikats.temporaldata.exception.ResourceNotFoundException;
+
+/**
+ * Tests the TableQuery executed on the columns of a table
+ */
+public class TableQueryTest {
+
+    /**
+     * Sample with a rows header, columns of strings, doubles and integers, and undefined values
+     */
+    private static final String JSON_SAMPLE = "{\"table_desc\":{\"title\":\"Flights\",\"desc\":\"query test\"},"
+            + "\"headers\":{\"col\":{\"data\":[\"Id\",\"Aircraft\",\"Phase\",\"Altitude\",\"Count\"]},"
+            + "\"row\":{\"data\":[null,\"F1\",\"F2\",\"F3\",\"F4\",\"F5\",\"F6\"]}},"
+            + "\"content\":{\"cells\":[[\"A1\",\"climb\",1500.0,3],[\"A2\",\"cruise\",10000.0,5],"
+            + "[\"A1\",\"cruise\",9500.5,2],[\"A2\",\"climb\",null,7],[\"A1\",\"descent\",-0.0,null],"
+            + "[\"A3\",null,800.0,1]]}}";
+
+    private TableInfo query(TableQuery query) throws Exception {
+        TableManager mng = new TableManager();
+        ColumnarTable table = mng.initColumnarTable(mng.loadFromJson(JSON_SAMPLE));
+        return new TableQueryEngine(table).execute(query);
+    }
+
+    /**
+     * Tests the projection, with the rows header as first column, and the range of rows
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testProjection() throws Exception {
+        TableQuery query = new TableQuery();
+        query.setColumns(Arrays.asList("Id", "Altitude"));
+        query.setOffset(1);
+        query.setLimit(2);
+
+        TableInfo result = query(query);
+        assertEquals(Arrays.asList("Id", "Altitude"), result.headers.col.data);
+        assertEquals(null, result.headers.row);
+        assertEquals(Arrays.asList(Arrays.asList("F2", 10000.0), Arrays.asList("F3", 9500.5)), result.content.cells);
+        assertEquals("Flights", result.table_desc.title);
+
+        // all the columns by default
+        result = query(new TableQuery());
+        assertEquals(Arrays.asList("Id", "Aircraft", "Phase", "Altitude", "Count"), result.headers.col.data);
+        assertEquals(6, result.content.cells.size());
+        assertEquals(Arrays.asList("F4", "A2", "climb", null, 7), result.content.cells.get(3));
+    }
+
+    /**
+     * Tests the conditions on each type of column
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testWhere() throws Exception {
+        assertEquals(Arrays.asList("F2", "F3"), selectIds(new Condition("Altitude", ">", 5000)));
+        assertEquals(Arrays.asList("F1", "F5", "F6"), selectIds(new Condition("Altitude", "<=", 1500)));
+        // -0.0 equals 0, the undefined values are not selected
+        assertEquals(Arrays.asList("F5"), selectIds(new Condition("Altitude", "=", 0)));
+        assertEquals(Arrays.asList("F1", "F2", "F3", "F6"), selectIds(new Condition("Altitude", "!=", 0)));
+        // Integer column compared with a Double
+        assertEquals(Arrays.asList("F2", "F4"), selectIds(new Condition("Count", ">=", 4.5)));
+        assertEquals(Arrays.asList("F2", "F3"), selectIds(new Condition("Phase", "=", "cruise")));
+        assertEquals(Arrays.asList("F2", "F4", "F6"), selectIds(new Condition("Aircraft", "!=", "A1")));
+        // natural order of the strings
+        assertEquals(Arrays.asList("F1", "F3", "F5"), selectIds(new Condition("Aircraft", "<", "A2")));
+        assertEquals(Arrays.asList("F6"), selectIds(new Condition("Phase", "is_null", null)));
+        assertEquals(Arrays.asList("F1", "F2", "F3", "F4", "F6"), selectIds(new Condition("Count", "not_null", null)));
+        // rows header as first column
+        assertEquals(Arrays.asList("F4", "F5"), selectIds(new Condition("Id", ">=", "F4"),
+                new Condition("Id", "<", "F6")));
+
+        Condition in = new Condition("Phase", "in", null);
+        in.setValues(Arrays.asList("climb", "descent"));
+        assertEquals(Arrays.asList("F1", "F4", "F5"), selectIds(in));
+        Condition inNumbers = new Condition("Count", "IN", null);
+        inNumbers.setValues(Arrays.asList(1, 2.0, "3"));
+        assertEquals(Arrays.asList("F3", "F6"), selectIds(inNumbers));
+
+        // all the conditions are satisfied
+        assertEquals(Arrays.asList("F3"), selectIds(new Condition("Phase", "=", "cruise"),
+                new Condition("Aircraft", "=", "A1")));
+    }
+
+    private List<Object> selectIds(Condition... conditions) throws Exception {
+        TableQuery query = new TableQuery();
+        query.setColumns(Collections.singletonList("Id"));
+        query.setWhere(Arrays.asList(conditions));
+        List<Object> ids = new ArrayList<>();
+        for (List<Object> row : query(query).content.cells) {
+            ids.add(row.get(0));
+        }
+        return ids;
+    }
+
+    /**
+     * Tests the group-by with the aggregates, and the order of the groups
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGroupBy() throws Exception {
+        TableQuery query = new TableQuery();
+        query.setGroupBy(Collections.singletonList("Aircraft"));
+        Aggregate meanAltitude = new Aggregate("mean", "Altitude");
+        meanAltitude.setName("mean_alt");
+        query.setAggregates(Arrays.asList(new Aggregate("count", null), new Aggregate("count", "Count"),
+                new Aggregate("sum", "Count"), meanAltitude, new Aggregate("min", "Count"),
+                new Aggregate("max", "Altitude")));
+
+        TableInfo result = query(query);
+        assertEquals(Arrays.asList("Aircraft", "count", "count_Count", "sum_Count", "mean_alt", "min_Count",
+                "max_Altitude"), result.headers.col.data);
+        assertEquals(Arrays.asList(
+                Arrays.asList("A1", 3, 2, 5L, (1500.0 + 9500.5) / 3, 2, 9500.5),
+                Arrays.asList("A2", 2, 2, 12L, 10000.0, 5, 10000.0),
+                Arrays.asList("A3", 1, 1, 1L, 800.0, 1, 800.0)), result.content.cells);
+
+        // several group-by columns, ordered by an aggregate, with a condition
+        query = new TableQuery();
+        query.setWhere(Collections.singletonList(new Condition("Phase", "not_null", null)));
+        query.setGroupBy(Arrays.asList("Phase", "Aircraft"));
+        query.setAggregates(Collections.singletonList(new Aggregate("max", "Count")));
+        query.setOrderBy(Arrays.asList(new Order("Phase", false), new Order("max_Count", true)));
+        result = query(query);
+        assertEquals(Arrays.asList(
+                Arrays.asList("climb", "A2", 7),
+                Arrays.asList("climb", "A1", 3),
+                Arrays.asList("cruise", "A2", 5),
+                Arrays.asList("cruise", "A1", 2),
+                Arrays.asList("descent", "A1", null)), result.content.cells);
+
+        // aggregates without group-by: one row, even when no row is selected
+        query = new TableQuery();
+        query.setWhere(Collections.singletonList(new Condition("Count", ">", 100)));
+        query.setAggregates(Arrays.asList(new Aggregate("count", null), new Aggregate("sum", "Altitude")));
+        result = query(query);
+        assertEquals(Collections.singletonList(Arrays.asList(0, null)), result.content.cells);
+    }
+
+    /**
+     * Tests the order-by, with the range of rows applied after the sort
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testOrderBy() throws Exception {
+        TableQuery query = new TableQuery();
+        query.setColumns(Arrays.asList("Id", "Aircraft", "Altitude"));
+        query.setOrderBy(Arrays.asList(new Order("Aircraft", true), new Order("Altitude", false)));
+        query.setLimit(4);
+
+        TableInfo result = query(query);
+        assertEquals(Arrays.asList(
+                Arrays.asList("F6", "A3", 800.0),
+                Arrays.asList("F4", "A2", null),
+                Arrays.asList("F2", "A2", 10000.0),
+                Arrays.asList("F5", "A1", -0.0)), result.content.cells);
+
+        // sort by a column not projected
+        query = new TableQuery();
+        query.setColumns(Collections.singletonList("Id"));
+        query.setOrderBy(Collections.singletonList(new Order("Count", true)));
+        query.setOffset(4);
+        assertEquals(Arrays.asList(Arrays.asList("F6"), Arrays.asList("F5")), query(query).content.cells);
+    }
+
+    /**
+     * Tests the errors raised by the invalid queries
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testInvalidQueries() throws Exception {
+        TableQuery unknownColumn = new TableQuery();
+        unknownColumn.setWhere(Collections.singletonList(new Condition("Unknown", "=", 1)));
+        TableQuery unknownOperator = new TableQuery();
+        unknownOperator.setWhere(Collections.singletonList(new Condition("Count", "~", 1)));
+        TableQuery undefinedValue = new TableQuery();
+        undefinedValue.setWhere(Collections.singletonList(new Condition("Count", "<", null)));
+        TableQuery stringSum = new TableQuery();
+        stringSum.setAggregates(Collections.singletonList(new Aggregate("sum", "Phase")));
+        TableQuery unknownFunction = new TableQuery();
+        unknownFunction.setAggregates(Collections.singletonList(new Aggregate("median", "Count")));
+        TableQuery projectedGroups = new TableQuery();
+        projectedGroups.setColumns(Collections.singletonList("Phase"));
+        projectedGroups.setGroupBy(Collections.singletonList("Phase"));
+        TableQuery unknownOrder = new TableQuery();
+        unknownOrder.setGroupBy(Collections.singletonList("Phase"));
+        unknownOrder.setOrderBy(Collections.singletonList(new Order("Count", false)));
+
+        assertFails(unknownColumn, ResourceNotFoundException.class);
+        assertFails(unknownOperator, InvalidValueException.class);
+        assertFails(undefinedValue, InvalidValueException.class);
+        assertFails(stringSum, InvalidValueException.class);
+        assertFails(unknownFunction, InvalidValueException.class);
+        assertFails(projectedGroups, InvalidValueException.class);
+        assertFails(unknownOrder, ResourceNotFoundException.class);
+    }
+
+    private void assertFails(TableQuery query, Class<? extends Exception> expected) {
+        try {
+            query(query);
+            fail("Expected " + expected.getSimpleName());
+        } catch (Exception e) {
+            assertEquals(expected, e.getClass());
+        }
+    }
+
+    /**
+     * Tests the query of a table stored in database, from its JSON definition
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testQueryTable() throws Exception {
+        TableManager mng = new TableManager();
+        TableInfo tableInfo = mng.loadFromJson(JSON_SAMPLE);
+        tableInfo.table_desc.name = "TestQueryTable";
+        mng.createInDatabase(tableInfo);
+        try {
+            TableQuery query = new ObjectMapper().readValue("{\"columns\":[\"Id\",\"Count\"],"
+                    + "\"where\":[{\"column\":\"Phase\",\"operator\":\"in\",\"values\":[\"climb\",\"cruise\"]}],"
+                    + "\"orderBy\":[{\"column\":\"Count\",\"descending\":true}],\"limit\":2}", TableQuery.class);
+            TableInfo result = mng.queryTable("TestQueryTable", query);
+            assertEquals("TestQueryTable", result.table_desc.name);
+            assertEquals(Arrays.asList(Arrays.asList("F4", 7), Arrays.asList("F2", 5)), result.content.cells);
+
+            query.setOffset(-1);
+            try {
+                mng.queryTable("TestQueryTable", query);
+                fail("Expected InvalidValueException");
+            } catch (InvalidValueException e) {
+                // expected: negative offset
+            }
+        } finally {
+            mng.deleteFromDatabase("TestQueryTable");
+        }
+    }
+
+    /**
+     * Tests the query of a table imported from CSV: its cells are strings, read as numbers when compared with a
+     * number or aggregated
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testQueryTableFromCsv() throws Exception {
+        TableManager mng = new TableManager();
+        String csv = "Id,Aircraft,Altitude,Count\nF1,A1,1500.0,3\nF2,A2,10000,5\nF3,A1,9500.5,2\nF4,A2,,7\n"
+                + "F5,A1,unknown,1\n";
+        mng.createInDatabaseFromCsv("TestQueryTableCsv", "flights.csv",
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "Id");
+        try {
+            TableQuery query = new TableQuery();
+            query.setColumns(Collections.singletonList("Id"));
+            query.setWhere(Collections.singletonList(new Condition("Altitude", ">", 5000)));
+            assertEquals(Arrays.asList(Collections.singletonList("F2"), Collections.singletonList("F3")),
+                    mng.queryTable("TestQueryTableCsv", query).content.cells);
+
+            // the empty and unknown strings are not numbers: they only satisfy !=
+            query.setWhere(Collections.singletonList(new Condition("Altitude", "!=", 1500)));
+            assertEquals(Arrays.asList(Collections.singletonList("F2"), Collections.singletonList("F3"),
+                    Collections.singletonList("F4"), Collections.singletonList("F5")),
+                    mng.queryTable("TestQueryTableCsv", query).content.cells);
+
+            Condition in = new Condition("Count", "in", null);
+            in.setValues(Arrays.asList(2, 7.0));
+            query.setWhere(Collections.singletonList(in));
+            assertEquals(Arrays.asList(Collections.singletonList("F3"), Collections.singletonList("F4")),
+                    mng.queryTable("TestQueryTableCsv", query).content.cells);
+
+            query = new TableQuery();
+            query.setGroupBy(Collections.singletonList("Aircraft"));
+            query.setAggregates(Arrays.asList(new Aggregate("sum", "Count"), new Aggregate("max", "Count"),
+                    new Aggregate("mean", "Count")));
+            assertEquals(Arrays.asList(Arrays.asList("A1", 6L, 3L, 2.0), Arrays.asList("A2", 12L, 7L, 6.0)),
+                    mng.queryTable("TestQueryTableCsv", query).content.cells);
+
+            query.setAggregates(Collections.singletonList(new Aggregate("mean", "Altitude")));
+            try {
+                mng.queryTable("TestQueryTableCsv", query);
+                fail("Expected InvalidValueException");
+            } catch (InvalidValueException e) {
+                // expected: unknown is not a number
+            }
+        } finally {
+            mng.deleteFromDatabase("TestQueryTableCsv");
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.temporaldata.business.table;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import fr.cs.ikats.table.TableEntity;
+import fr.cs.ikats.temporaldata.business.table.TableInfo.DataLink;
+
+/**
+ * Tests the TableStorageCodec: binary format of the tables stored in database
+ */
+public class TableStorageCodecTest {
+
+    private static final Logger LOGGER = Logger.getLogger(TableStorageCodecTest.class);
+
+    /**
+     * Blob written in version 1 of the format, without compression
+     */
+    private static final String VERSION_1_BLOB = "SUtUQgEAVgQEAQEKSW5kZXh8Um93cwEFQ19vbmUBBUNfdHdvAQdDX3RocmVlAQABBVJfb25lAQVSX3R3bwEHUl90aHJlZQIBAgIOBwABMjsCBQEEAQE=";
+
+    /**
+     * Blob written in version 1 of the format, with Deflate compression
+     */
+    private static final String VERSION_1_DEFLATED_BLOB = "SUtUQgEBVngBY2FhZOTyzEtJragJyi8vZmR1js/PSwVRJeX5jOxAKqMoNZWRgZE1CCIRBJEAUiAJJkYmJj52BkYjayZWRqBRADgdElY=";
+
+    /**
+     * Rows with all the types of columns: String, Integer, Long, Double (decimal or not), Boolean, mixed, null values
+     * and rows of different sizes.
+     */
+    private static List<List<Object>> sampleRows() {
+        List<List<Object>> rows = new ArrayList<>();
+        rows.add(new ArrayList<>(Arrays.asList("Index|Rows", "int", "long", "decimal", "double", "bool", "mixed")));
+        rows.add(new ArrayList<>(Arrays.asList("R_one", 1, 2L, 1.5, 0.1, true, "x")));
+        rows.add(new ArrayList<>(Arrays.asList("R_two", null, -3L, -12.25, 1e300, false, 4)));
+        rows.add(new ArrayList<>(Arrays.asList("R_one", -7, null, null, -0.0, null, new BigDecimal("1.25"))));
+        rows.add(new ArrayList<>(Arrays.asList("R_three", Integer.MAX_VALUE, Long.MIN_VALUE)));
+        rows.add(new ArrayList<>(Arrays.asList(null, 0, 0L, 0.0, Double.NaN, true, Arrays.asList(1, "z"))));
+        return rows;
+    }
+
+    /**
+     * Tests the values are decoded with their types, with and without compression
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testValues() throws Exception {
+        for (boolean compressed : new boolean[]{false, true}) {
+            TableStorageCodec codec = new TableStorageCodec(compressed);
+            List<List<Object>> rows = sampleRows();
+
+            byte[] blob = codec.encodeValues(rows);
+            assertTrue(TableStorageCodec.isEncoded(blob));
+
+            List<List<Object>> decoded = codec.decodeValues(blob);
+            assertEquals(rows, decoded);
+            for (int row = 0; row < rows.size(); row++) {
+                for (int col = 0; col < rows.get(row).size(); col++) {
+                    Object value = rows.get(row).get(col);
+                    if (value != null && !(value instanceof List)) {
+                        assertEquals(value.getClass(), decoded.get(row).get(col).getClass());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests empty table and null rows
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testEmptyValues() throws Exception {
+        TableStorageCodec codec = new TableStorageCodec(false);
+        assertEquals(new ArrayList<>(), codec.decodeValues(codec.encodeValues(new ArrayList<>())));
+        assertEquals(0, codec.countRows(codec.encodeValues(new ArrayList<>())));
+
+        List<List<Object>> rows = new ArrayList<>();
+        rows.add(new ArrayList<>(Arrays.asList("A", "B")));
+        rows.add(null);
+        rows.add(new ArrayList<>());
+        assertEquals(rows, codec.decodeValues(codec.encodeValues(rows)));
+        assertEquals(3, codec.countRows(codec.encodeValues(rows)));
+    }
+
+    /**
+     * Tests the selection of columns and rows, on several row groups, against the selection of the fully decoded
+     * rows.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSelection() throws Exception {
+        for (boolean compressed : new boolean[]{false, true}) {
+            TableStorageCodec codec = new TableStorageCodec(compressed, 2);
+            List<List<Object>> rows = sampleRows();
+            byte[] blob = codec.encodeValues(rows);
+
+            assertEquals(rows, codec.decodeValues(blob));
+            assertEquals(rows.size(), codec.countRows(blob));
+
+            int[][] selectedColumns = {null, {0}, {3, 0}, {6, 9}, {}};
+            for (int[] columns : selectedColumns) {
+                for (int fromRow = 0; fromRow <= rows.size(); fromRow++) {
+                    for (int toRow = fromRow; toRow <= rows.size() + 1; toRow++) {
+                        assertEquals(TableStorageCodec.selectRows(rows, columns, fromRow, toRow),
+                                codec.decodeValues(blob, columns, fromRow, toRow));
+                    }
+                }
+            }
+        }
+
+        List<List<Object>> expected = new ArrayList<>();
+        expected.add(new ArrayList<>(Arrays.asList("R_two", -12.25)));
+        expected.add(new ArrayList<>(Arrays.asList("R_one", null)));
+        assertEquals(expected, new TableStorageCodec(false, 2).decodeValues(new TableStorageCodec(false, 2).encodeValues(sampleRows()), new int[]{0, 3}, 2, 4));
+    }
+
+    /**
+     * Tests that the blobs written in version 1 of the format, before the row groups, are still read.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testReadVersion1() throws Exception {
+        List<List<Object>> rows = new ArrayList<>();
+        rows.add(new ArrayList<>(Arrays.asList("Index|Rows", "C_one", "C_two", "C_three")));
+        rows.add(new ArrayList<>(Arrays.asList("R_one", 1, 2.5, true)));
+        rows.add(new ArrayList<>(Arrays.asList("R_two", null, -3.0, false)));
+        rows.add(new ArrayList<>(Arrays.asList("R_three", 7, 0.1, null)));
+
+        TableStorageCodec codec = new TableStorageCodec(false);
+        for (String encoded : new String[]{VERSION_1_BLOB, VERSION_1_DEFLATED_BLOB}) {
+            byte[] blob = Base64.getDecoder().decode(encoded);
+            assertTrue(TableStorageCodec.isEncoded(blob));
+            assertEquals(rows, codec.decodeValues(blob));
+            assertEquals(rows.size(), codec.countRows(blob));
+            assertEquals(TableStorageCodec.selectRows(rows, new int[]{0, 2}, 2, 4), codec.decodeValues(blob, new int[]{0, 2}, 2, 4));
+        }
+    }
+
+    /**
+     * Tests the links of cells and headers
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDataLinks() throws Exception {
+        for (boolean compressed : new boolean[]{false, true}) {
+            TableStorageCodec codec = new TableStorageCodec(compressed);
+            TableManager.DataLinksMatrix links = new TableManager.DataLinksMatrix();
+            links.setCellsDefaultDatalink(DataLink.buildLink("ts_list", null, "ts"));
+            links.setCellsDatalink(Arrays.asList(
+                    Arrays.asList(DataLink.buildLink("ts_list", Arrays.asList(Collections.singletonMap("tsuid", "T1")), "ts"), null),
+                    null));
+            links.setRowHeaderDefaultDatalink(DataLink.buildLink("ts_bucket", null, "processdata"));
+            links.setRowHeaderDatalink(Arrays.asList(null, DataLink.buildLink(null, "1", null)));
+
+            TableManager.DataLinksMatrix decoded = codec.decodeDataLinks(codec.encodeDataLinks(links));
+
+            assertEquals("ts", decoded.getCellsDefaultDatalink().context);
+            assertEquals(2, decoded.getCellsDatalink().size());
+            DataLink link = decoded.getCellsDatalink().get(0).get(0);
+            assertEquals("ts_list", link.type);
+            assertEquals("ts", link.context);
+            assertEquals(Arrays.asList(Collections.singletonMap("tsuid", "T1")), link.val);
+            assertNull(decoded.getCellsDatalink().get(0).get(1));
+            assertNull(decoded.getCellsDatalink().get(1));
+            assertEquals("processdata", decoded.getRowHeaderDefaultDatalink().context);
+            assertNull(decoded.getRowHeaderDatalink().get(0));
+            assertEquals("1", decoded.getRowHeaderDatalink().get(1).val);
+            assertNull(decoded.getColumnHeaderDefaultDatalink());
+            assertNull(decoded.getColumnHeaderDatalink());
+        }
+    }
+
+    /**
+     * Tests that the tables stored by ObjectOutputStream, before the codec, are still read.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testReadLegacyBlobs() throws Exception {
+        assertFalse(TableStorageCodec.isEncoded(serialize(sampleRows())));
+
+        TableManager mng = new TableManager();
+        TableEntity entity = new TableEntity();
+        entity.setName("legacy");
+        entity.setColHeader(true);
+        entity.setRowHeader(true);
+
+        List<List<Object>> rows = new ArrayList<>();
+        rows.add(new ArrayList<>(Arrays.asList("Index|Rows", "C_one", "C_two")));
+        rows.add(new ArrayList<>(Arrays.asList("R_one", 1, 2)));
+        rows.add(new ArrayList<>(Arrays.asList("R_two", 3, 4)));
+        entity.setRawValues(serialize(rows));
+        entity.setRawDataLinks(serialize(new TableManager.DataLinksMatrix()));
+
+        Table table = mng.initTable(mng.tableEntityToTableInfo(entity), false);
+
+        assertEquals(Arrays.asList("Index", "C_one", "C_two"), table.getColumnsHeader().getItems());
+        assertEquals(Arrays.asList("Rows", "R_one", "R_two"), table.getRowsHeader().getItems());
+        assertEquals(Arrays.asList(3, 4), table.getRow("R_two", Object.class));
+
+        // and the table written again is encoded by the codec
+        TableEntity rewritten = mng.tableInfoToTableEntity(mng.tableEntityToTableInfo(entity));
+        assertTrue(TableStorageCodec.isEncoded(rewritten.getRawValues()));
+        assertTrue(TableStorageCodec.isEncoded(rewritten.getRawDataLinks()));
+    }
+
+    /**
+     * Compares size and duration of the codec and of the ObjectOutputStream serialization on a table of 1M cells.
+     *
+     * @throws Exception
+     */
+    @Test
+    @Ignore("Benchmark: run manually")
+    public void benchmarkValues() throws Exception {
+        Random random = new Random(0);
+        List<List<Object>> rows = new ArrayList<>();
+        List<Object> header = new ArrayList<>();
+        for (int col = 0; col < 10; col++) {
+            header.add("C_" + col);
+        }
+        rows.add(header);
+        for (int row = 0; row < 100000; row++) {
+            List<Object> values = new ArrayList<>();
+            values.add("FuncId_" + (row % 500));
+            for (int col = 1; col < 10; col++) {
+                values.add(col % 3 == 0 ? (Object) random.nextInt(1000) : (Object) (random.nextInt(100000) / 100.0));
+            }
+            rows.add(values);
+        }
+
+        for (int iteration = 0; iteration < 5; iteration++) {
+            long start = System.currentTimeMillis();
+            byte[] legacy = serialize(rows);
+            long legacyEncoded = System.currentTimeMillis();
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(legacy))) {
+                ois.readObject();
+            }
+            long legacyDecoded = System.currentTimeMillis();
+            LOGGER.info("ObjectOutputStream: " + legacy.length + " bytes, encoded in " + (legacyEncoded - start)
+                    + " ms, decoded in " + (legacyDecoded - legacyEncoded) + " ms");
+
+            for (boolean compressed : new boolean[]{false, true}) {
+                TableStorageCodec codec = new TableStorageCodec(compressed);
+                start = System.currentTimeMillis();
+                byte[] blob = codec.encodeValues(rows);
+                long encoded = System.currentTimeMillis();
+                codec.decodeValues(blob);
+                long decoded = System.currentTimeMillis();
+                LOGGER.info("TableStorageCodec(compressed=" + compressed + "): " + blob.length + " bytes, encoded in "
+                        + (encoded - start) + " ms, decoded in " + (decoded - encoded) + " ms");
+            }
+        }
+    }
+
+    private static byte[] serialize(Object object) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(object);
+        }
+        return bos.toByteArray();
+    }
+}
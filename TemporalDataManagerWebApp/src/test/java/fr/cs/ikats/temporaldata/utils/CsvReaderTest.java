@@ -0,0 +1,79 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.temporaldata.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Tests the CsvReader: RFC-4180 tokenizer
+ */
+public class CsvReaderTest {
+
+    /**
+     * Tests the fields: quoted or not, empty, with separators, quotes and line breaks, and the line numbers
+     */
+    @Test
+    public void testReadRecord() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,b,c\r\n\"x,y\",\"\"\"q\"\"\",\n\n\"1\r\n2\";last\r3,,"), ',');
+
+        assertEquals(Arrays.asList("a", "b", "c"), reader.readRecord());
+        assertEquals(1, reader.getLineNumber());
+        assertEquals(Arrays.asList("x,y", "\"q\"", ""), reader.readRecord());
+        assertEquals(2, reader.getLineNumber());
+        assertEquals(Collections.emptyList(), reader.readRecord());
+        assertEquals(Arrays.asList("1\r\n2;last"), reader.readRecord());
+        assertEquals(4, reader.getLineNumber());
+        assertEquals(Arrays.asList("3", "", ""), reader.readRecord());
+        assertEquals(6, reader.getLineNumber());
+        assertNull(reader.readRecord());
+    }
+
+    /**
+     * Tests another separator
+     */
+    @Test
+    public void testSeparator() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a;\"b;c\",d\n"), ';');
+        assertEquals(Arrays.asList("a", "b;c,d"), reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+
+    /**
+     * Tests the error raised by a quoted field not closed
+     */
+    @Test
+    public void testQuoteNotClosed() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,b\n\"c,d\n"), ',');
+        reader.readRecord();
+        try {
+            reader.readRecord();
+            fail("quoted field not closed");
+        } catch (IOException e) {
+            assertEquals("CSV: quoted field not closed, from line 2", e.getMessage());
+        }
+    }
+}
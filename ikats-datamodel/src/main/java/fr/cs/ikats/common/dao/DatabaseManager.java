@@ -27,6 +27,7 @@ import fr.cs.ikats.metadata.model.MetaData;
 import fr.cs.ikats.process.data.model.ProcessData;
 import fr.cs.ikats.table.TableEntity;
 import fr.cs.ikats.table.TableEntitySummary;
+import fr.cs.ikats.table.TableSegmentEntity;
 import fr.cs.ikats.ts.dataset.model.DataSet;
 import fr.cs.ikats.ts.dataset.model.LinkDatasetTimeSeries;
 import fr.cs.ikats.workflow.Workflow;
@@ -79,6 +80,7 @@ public class DatabaseManager {
         configuration.addPackage("fr.cs.ikats.table");
         configuration.addAnnotatedClass(TableEntity.class);
         configuration.addAnnotatedClass(TableEntitySummary.class);
+        configuration.addAnnotatedClass(TableSegmentEntity.class);
 
         sessionFactory = configuration.buildSessionFactory();
     }
@@ -16,6 +16,8 @@
 
 package fr.cs.ikats.common.expr;
 
+import fr.cs.ikats.common.dao.exception.IkatsDaoException;
+
 /**
  * le premier but des Expression: donnee definie de maniere reccursive
  */
@@ -29,4 +31,13 @@ public class Atom<T> extends Expression {
     public void setAtomicTerm(T atomicTerm) {
         this.atomicTerm = atomicTerm;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <U, R> R evaluate(ExpressionVisitor<U, R> visitor) throws IkatsDaoException {
+        return visitor.visitAtom((U) atomicTerm);
+    }
 }
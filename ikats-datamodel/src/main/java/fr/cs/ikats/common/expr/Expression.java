@@ -16,12 +16,28 @@
 
 package fr.cs.ikats.common.expr;
 
+import fr.cs.ikats.common.dao.exception.IkatsDaoException;
+
 /**
  * le premier but des Expression: donnee definie de maniere reccursive
  */
 public abstract class Expression {
 
+    /**
+     * Connectors of a Group: NOT is the negation of the conjunction of the terms of the group
+     */
     public enum ConnectorExpression {
-        AND, OR
+        AND, OR, NOT
     }
+
+    /**
+     * Evaluate this expression, recursively
+     *
+     * @param visitor the evaluation of the atomic terms and of the groups
+     * @param <T>     type of the atomic terms
+     * @param <R>     type of the evaluated terms
+     * @return the evaluated expression
+     * @throws IkatsDaoException the expression cannot be evaluated
+     */
+    public abstract <T, R> R evaluate(ExpressionVisitor<T, R> visitor) throws IkatsDaoException;
 }
@@ -0,0 +1,49 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fr.cs.ikats.common.expr;
+
+import java.util.List;
+
+import fr.cs.ikats.common.dao.exception.IkatsDaoException;
+
+/**
+ * Evaluation of an Expression tree, from the leaves to the root: see {@link Expression#evaluate(ExpressionVisitor)}
+ *
+ * @param <T> type of the atomic terms
+ * @param <R> type of the evaluated terms
+ */
+public interface ExpressionVisitor<T, R> {
+
+    /**
+     * Evaluate an atomic term
+     *
+     * @param atomicTerm the atomic term
+     * @return the evaluated term
+     * @throws IkatsDaoException the term cannot be evaluated
+     */
+    R visitAtom(T atomicTerm) throws IkatsDaoException;
+
+    /**
+     * Combine the evaluated terms of a group
+     *
+     * @param connector      the connector of the group
+     * @param evaluatedTerms the evaluated terms, in the order of the group
+     * @return the evaluated group
+     * @throws IkatsDaoException the group cannot be evaluated
+     */
+    R visitGroup(Expression.ConnectorExpression connector, List<R> evaluatedTerms) throws IkatsDaoException;
+}
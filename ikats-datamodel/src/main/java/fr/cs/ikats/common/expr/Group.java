@@ -16,8 +16,12 @@
 
 package fr.cs.ikats.common.expr;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import fr.cs.ikats.common.dao.exception.IkatsDaoException;
+import fr.cs.ikats.common.dao.exception.IkatsDaoInvalidValueException;
+
 /**
  * le premier but des Expression: donnee definie de maniere reccursive
  */
@@ -42,4 +46,25 @@ public class Group extends Expression {
         this.connector = connector;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IkatsDaoInvalidValueException the connector is undefined, or a NOT group has no term
+     */
+    @Override
+    public <T, R> R evaluate(ExpressionVisitor<T, R> visitor) throws IkatsDaoException {
+        if (connector == null) {
+            throw new IkatsDaoInvalidValueException("Undefined connector of group");
+        }
+        List<Expression> groupTerms = terms == null ? new ArrayList<Expression>() : terms;
+        if (connector == ConnectorExpression.NOT && groupTerms.isEmpty()) {
+            throw new IkatsDaoInvalidValueException("Connector NOT expects at least one term");
+        }
+        List<R> evaluatedTerms = new ArrayList<>();
+        for (Expression term : groupTerms) {
+            evaluatedTerms.add(term.evaluate(visitor));
+        }
+        return visitor.visitGroup(connector, evaluatedTerms);
+    }
+
 }
@@ -0,0 +1,179 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.metadata;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import fr.cs.ikats.metadata.model.FunctionalIdentifier;
+
+/**
+ * Bounded bidirectional cache of the FunctionalIdentifier pairs (tsuid, funcId), used by {@link MetaDataFacade}.
+ * <p>
+ * The pairs are evicted in LRU order once the capacity is reached: a lookup by funcId also refreshes the pair. Only the
+ * pairs read from the database are cached; a write on a tsuid or on a funcId invalidates the matching pairs.
+ */
+class FunctionalIdentifierCache {
+
+    /**
+     * default maximum number of cached pairs
+     */
+    static final int DEFAULT_CAPACITY = 100000;
+
+    /**
+     * tsuid => funcId, in access order
+     */
+    private final LinkedHashMap<String, String> funcIdByTsuid;
+
+    /**
+     * funcId => tsuid
+     */
+    private final Map<String, String> tsuidByFuncId = new HashMap<>();
+
+    private long hitCount = 0;
+
+    private long missCount = 0;
+
+    /**
+     * @param capacity maximum number of cached pairs
+     */
+    FunctionalIdentifierCache(final int capacity) {
+        funcIdByTsuid = new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                if (size() > capacity) {
+                    tsuidByFuncId.remove(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param tsuid the tsuid
+     * @return the cached pair, or null when the tsuid is not cached
+     */
+    synchronized FunctionalIdentifier getByTsuid(String tsuid) {
+        String funcId = funcIdByTsuid.get(tsuid);
+        if (funcId == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return new FunctionalIdentifier(tsuid, funcId);
+    }
+
+    /**
+     * @param funcId the functional identifier
+     * @return the cached pair, or null when the funcId is not cached
+     */
+    synchronized FunctionalIdentifier getByFuncId(String funcId) {
+        String tsuid = tsuidByFuncId.get(funcId);
+        if (tsuid == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        // refresh the LRU order
+        funcIdByTsuid.get(tsuid);
+        return new FunctionalIdentifier(tsuid, funcId);
+    }
+
+    /**
+     * Cache a pair read from the database
+     *
+     * @param fi the pair
+     */
+    synchronized void put(FunctionalIdentifier fi) {
+        if (fi == null || fi.getTsuid() == null || fi.getFuncId() == null) {
+            return;
+        }
+        invalidate(fi.getTsuid(), fi.getFuncId());
+        funcIdByTsuid.put(fi.getTsuid(), fi.getFuncId());
+        tsuidByFuncId.put(fi.getFuncId(), fi.getTsuid());
+    }
+
+    /**
+     * Remove the pairs defined on the tsuid or on the funcId
+     *
+     * @param tsuid  the tsuid, or null
+     * @param funcId the functional identifier, or null
+     */
+    synchronized void invalidate(String tsuid, String funcId) {
+        if (tsuid != null) {
+            String cachedFuncId = funcIdByTsuid.remove(tsuid);
+            if (cachedFuncId != null) {
+                tsuidByFuncId.remove(cachedFuncId);
+            }
+        }
+        if (funcId != null) {
+            String cachedTsuid = tsuidByFuncId.remove(funcId);
+            if (cachedTsuid != null) {
+                funcIdByTsuid.remove(cachedTsuid);
+            }
+        }
+    }
+
+    /**
+     * Remove the pairs defined on the tsuids
+     *
+     * @param tsuids the tsuids
+     */
+    synchronized void invalidateTsuids(Collection<String> tsuids) {
+        for (String tsuid : tsuids) {
+            invalidate(tsuid, null);
+        }
+    }
+
+    /**
+     * Remove all the pairs, and reset the counters
+     */
+    synchronized void clear() {
+        funcIdByTsuid.clear();
+        tsuidByFuncId.clear();
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    /**
+     * @return the number of cached pairs
+     */
+    synchronized int size() {
+        return funcIdByTsuid.size();
+    }
+
+    /**
+     * @return the number of lookups served by the cache
+     */
+    synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of lookups not served by the cache
+     */
+    synchronized long getMissCount() {
+        return missCount;
+    }
+}
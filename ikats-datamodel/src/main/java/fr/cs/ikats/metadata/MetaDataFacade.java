@@ -21,9 +21,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 
 import javax.annotation.PreDestroy;
@@ -39,6 +43,7 @@ import fr.cs.ikats.common.dao.exception.IkatsDaoMissingResource;
 import fr.cs.ikats.common.expr.Group;
 import fr.cs.ikats.metadata.dao.FunctionalIdentifierDAO;
 import fr.cs.ikats.metadata.dao.MetaDataDAO;
+import fr.cs.ikats.metadata.dao.MetaDataIndex;
 import fr.cs.ikats.metadata.model.FunctionalIdentifier;
 import fr.cs.ikats.metadata.model.MetaData;
 import fr.cs.ikats.metadata.model.MetaData.MetaType;
@@ -63,6 +68,11 @@ public class MetaDataFacade {
 
     private FunctionalIdentifierDAO idDao = new FunctionalIdentifierDAO();
 
+    /**
+     * cache of the pairs (tsuid, funcId): shared by all the instances of the facade, which all write through it
+     */
+    private static final FunctionalIdentifierCache FUNC_ID_CACHE = new FunctionalIdentifierCache(FunctionalIdentifierCache.DEFAULT_CAPACITY);
+
     /**
      * Create MetaData in database for a given tsuid, name and value, with default dtype == MetaType.string
      *
@@ -199,6 +209,71 @@ public class MetaDataFacade {
         return dao.listForTS(tsuid);
     }
 
+    /**
+     * get Meta Data for several TS, grouped by tsuid
+     *
+     * @param tsuids the tsuids
+     * @return the map of MetaData lists, by tsuid: a tsuid without metadata has no entry
+     * @throws IkatsDaoException any error raised by DAO layer.
+     */
+    public Map<String, List<MetaData>> getMetaDataForTsuids(Collection<String> tsuids) throws IkatsDaoException {
+        return dao.listForTsuids(tsuids);
+    }
+
+    /**
+     * get the values of some Meta Data for several TS
+     *
+     * @param tsuids the tsuids
+     * @param names  the names of the searched Meta Data
+     * @return the map of values by name, by tsuid: a tsuid without any of the searched Meta Data has no entry
+     * @throws IkatsDaoException any error raised by DAO layer.
+     */
+    public Map<String, Map<String, String>> getMetaDataValues(Collection<String> tsuids, Collection<String> names)
+            throws IkatsDaoException {
+        return dao.listValuesForTsuids(tsuids, names);
+    }
+
+    /**
+     * get the tsuids having at least one Meta Data
+     *
+     * @param tsuids the searched tsuids, or null to get all the tsuids having metadata
+     * @return the distinct tsuids found
+     * @throws IkatsDaoException any error raised by DAO layer.
+     */
+    public List<String> getTsuidsWithMetaData(Collection<String> tsuids) throws IkatsDaoException {
+        return dao.listTsuidsWithMetadata(tsuids);
+    }
+
+    /**
+     * get the distinct Meta Data names defined on the tsuids
+     *
+     * @param tsuids the tsuids, or null to get the names of all the Meta Data
+     * @return the set of names
+     * @throws IkatsDaoException any error raised by DAO layer.
+     */
+    public Set<String> getMetaDataNamesForTsuids(List<String> tsuids) throws IkatsDaoException {
+        return dao.listNamesForTsuids(tsuids);
+    }
+
+    /**
+     * read the Meta Data of the tsuids with server-side cursors: see
+     * {@link MetaDataDAO#scrollForTsuids(List, MetaDataDAO.TsuidMetadataHandler)}, and
+     * {@link MetaDataDAO#scrollAll(MetaDataDAO.TsuidMetadataHandler)} for all the Meta Data.
+     *
+     * @param tsuids  the tsuids, or null to read all the Meta Data
+     * @param handler the handler called once per tsuid having metadata
+     * @throws IOException       error raised by the handler
+     * @throws IkatsDaoException any error raised by DAO layer.
+     */
+    public void scrollMetaDataForTsuids(List<String> tsuids, MetaDataDAO.TsuidMetadataHandler handler)
+            throws IOException, IkatsDaoException {
+        if (tsuids == null) {
+            dao.scrollAll(handler);
+        } else {
+            dao.scrollForTsuids(tsuids, handler);
+        }
+    }
+
     /**
      * get all Meta Data types
      *
@@ -232,6 +307,17 @@ public class MetaDataFacade {
         return dao.remove(tsuid);
     }
 
+    /**
+     * remove the MetaData of a list of tsuids from database, by bulk deletes.
+     *
+     * @param tsuids identifiers of ts
+     * @return number of removals
+     * @throws IkatsDaoException error deleting the MetaData ressources
+     */
+    public int removeMetaDataForTS(List<String> tsuids) throws IkatsDaoException {
+        return dao.remove(tsuids);
+    }
+
     /**
      * remove one MetaData for a tsuid from database.
      *
@@ -551,6 +637,8 @@ public class MetaDataFacade {
             } catch (Exception e) {
                 logger.error("Unable to insert functional identifier " + id.getFuncId(), e);
                 throw new IkatsDaoException(e);
+            } finally {
+                FUNC_ID_CACHE.invalidate(id.getTsuid(), id.getFuncId());
             }
         }
         return count;
@@ -570,7 +658,11 @@ public class MetaDataFacade {
 
         int count = 0;
         FunctionalIdentifier id = new FunctionalIdentifier(tsuid, funcid);
-        count = idDao.persist(id);
+        try {
+            count = idDao.persist(id);
+        } finally {
+            FUNC_ID_CACHE.invalidate(tsuid, funcid);
+        }
         if (count == 0) {
             throw new IkatsDaoException("Unable to create FunctionalIdentifier tsduid=" + tsuid + " funcId=" + funcid);
         }
@@ -601,7 +693,11 @@ public class MetaDataFacade {
      */
     public int removeFunctionalIdentifier(List<String> tsuids)
             throws IkatsDaoException {
-        return idDao.remove(tsuids);
+        try {
+            return idDao.remove(tsuids);
+        } finally {
+            FUNC_ID_CACHE.invalidateTsuids(tsuids);
+        }
     }
 
     /**
@@ -612,12 +708,16 @@ public class MetaDataFacade {
      */
     public FunctionalIdentifier getFunctionalIdentifierByTsuid(String tsuid)
             throws IkatsDaoException {
+        FunctionalIdentifier result = FUNC_ID_CACHE.getByTsuid(tsuid);
+        if (result != null) {
+            return result;
+        }
         List<String> tsuids = new ArrayList<String>();
         tsuids.add(tsuid);
-        FunctionalIdentifier result = null;
         List<FunctionalIdentifier> results = idDao.list(tsuids);
         if ((results != null) && (!results.isEmpty())) {
             result = results.get(0);
+            FUNC_ID_CACHE.put(result);
         } else {
             result = null;
         }
@@ -631,7 +731,12 @@ public class MetaDataFacade {
      */
     public FunctionalIdentifier getFunctionalIdentifierByFuncId(String funcId)
             throws IkatsDaoException {
-        return idDao.getFromFuncId(funcId);
+        FunctionalIdentifier result = FUNC_ID_CACHE.getByFuncId(funcId);
+        if (result == null) {
+            result = idDao.getFromFuncId(funcId);
+            FUNC_ID_CACHE.put(result);
+        }
+        return result;
     }
 
     /**
@@ -644,32 +749,93 @@ public class MetaDataFacade {
             throws IkatsDaoException {
 
         List<FunctionalIdentifier> results = idDao.listFromDataset(datasetName);
+        if (results != null) {
+            for (FunctionalIdentifier result : results) {
+                FUNC_ID_CACHE.put(result);
+            }
+        }
         return results;
     }
 
     /**
-     * Get the functional identifier list matching the list of tsuid values
+     * Get the functional identifier list matching the list of tsuid values. Only the tsuids missing from the cache are
+     * read from the database.
      *
      * @param tsuids list of search criteria: tsuid values
-     * @return a list of FunctionalIdentifier, or null if nothing is found.
+     * @return a list of FunctionalIdentifier, empty if nothing is found.
      */
     public List<FunctionalIdentifier> getFunctionalIdentifierByTsuidList(List<String> tsuids)
             throws IkatsDaoException {
 
-        List<FunctionalIdentifier> results = idDao.list(tsuids);
+        if (tsuids == null) {
+            return idDao.list(tsuids);
+        }
+
+        // tsuid => pair, in the order of the request
+        Map<String, FunctionalIdentifier> found = new LinkedHashMap<>();
+        List<String> missingTsuids = new ArrayList<>();
+        for (String tsuid : new LinkedHashSet<>(tsuids)) {
+            FunctionalIdentifier cached = FUNC_ID_CACHE.getByTsuid(tsuid);
+            found.put(tsuid, cached);
+            if (cached == null) {
+                missingTsuids.add(tsuid);
+            }
+        }
+
+        if (!missingTsuids.isEmpty()) {
+            for (FunctionalIdentifier loaded : idDao.list(missingTsuids)) {
+                FUNC_ID_CACHE.put(loaded);
+                found.put(loaded.getTsuid(), loaded);
+            }
+        }
+
+        List<FunctionalIdentifier> results = new ArrayList<>(found.size());
+        for (FunctionalIdentifier fi : found.values()) {
+            if (fi != null) {
+                results.add(fi);
+            }
+        }
         return results;
     }
 
     /**
-     * Get the functional identifier list matching the list of functional id values
+     * Get the functional identifier list matching the list of functional id values. Only the funcIds missing from the
+     * cache are read from the database.
      *
      * @param funcIds list of search criteria: functional ID values
-     * @return a list of FunctionalIdentifier, or null if nothing is found.
+     * @return a list of FunctionalIdentifier, empty if nothing is found.
      */
     public List<FunctionalIdentifier> getFunctionalIdentifierByFuncIdList(List<String> funcIds)
             throws IkatsDaoException {
 
-        List<FunctionalIdentifier> results = idDao.listByFuncIds(funcIds);
+        if (funcIds == null) {
+            return idDao.listByFuncIds(funcIds);
+        }
+
+        // funcId => pair, in the order of the request
+        Map<String, FunctionalIdentifier> found = new LinkedHashMap<>();
+        List<String> missingFuncIds = new ArrayList<>();
+        for (String funcId : new LinkedHashSet<>(funcIds)) {
+            FunctionalIdentifier cached = FUNC_ID_CACHE.getByFuncId(funcId);
+            found.put(funcId, cached);
+            if (cached == null) {
+                missingFuncIds.add(funcId);
+            }
+        }
+
+        if (!missingFuncIds.isEmpty()) {
+            for (FunctionalIdentifier loaded : idDao.listByFuncIds(missingFuncIds)) {
+                FUNC_ID_CACHE.put(loaded);
+                found.put(loaded.getFuncId(), loaded);
+            }
+        }
+
+        List<FunctionalIdentifier> results = new ArrayList<>(found.size());
+        for (FunctionalIdentifier fi : found.values()) {
+            if (fi != null) {
+                results.add(fi);
+            }
+        }
         return results;
     }
 
@@ -685,6 +851,27 @@ public class MetaDataFacade {
         return results;
     }
 
+    /**
+     * @return the number of FunctionalIdentifier lookups served by the cache
+     */
+    public long getFunctionalIdentifierCacheHitCount() {
+        return FUNC_ID_CACHE.getHitCount();
+    }
+
+    /**
+     * @return the number of FunctionalIdentifier lookups read from the database
+     */
+    public long getFunctionalIdentifierCacheMissCount() {
+        return FUNC_ID_CACHE.getMissCount();
+    }
+
+    /**
+     * Empty the FunctionalIdentifier cache, and reset its counters: required after a write bypassing this facade.
+     */
+    public void clearFunctionalIdentifierCache() {
+        FUNC_ID_CACHE.clear();
+    }
+
     /**
      * destroy the facade
      */
@@ -695,6 +882,38 @@ public class MetaDataFacade {
         idDao.stop();
     }
 
+    /**
+     * Loads all the metadata in the in-memory index used by {@link #searchFuncId(List, Group)} and
+     * {@link #searchFuncId(String, List)}, and enables it. The index is then kept up to date by the metadata services
+     * of this facade.
+     *
+     * @throws IkatsDaoException error raised by DAO layer
+     */
+    public void enableSearchIndex() throws IkatsDaoException {
+        logger.info("Building the in-memory metadata index");
+        dao.rebuildIndex();
+    }
+
+    /**
+     * Migration task: computes the numeric value of the metadata written before the numeric_value column existed, or
+     * before it was computed for the string dtype, so that the range filters of {@link #searchFuncId(List, Group)}
+     * match them.
+     *
+     * @return the number of metadata updated
+     * @throws IkatsDaoException error raised by DAO layer
+     */
+    public int backfillNumericValues() throws IkatsDaoException {
+        logger.info("Computing the missing numeric values of the metadata");
+        return dao.backfillNumericValues();
+    }
+
+    /**
+     * Disables the in-memory metadata index: the searches are evaluated by the database.
+     */
+    public void disableSearchIndex() {
+        MetaDataIndex.getInstance().disable();
+    }
+
     /**
      * Searches the ts identifiers matched by the metadata criteria formula. Facade delegates the searching request to
      * the metadata dao.
@@ -17,6 +17,7 @@
 package fr.cs.ikats.metadata.dao;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 import org.apache.log4j.Logger;
@@ -46,8 +47,9 @@ public class FunctionalIdentifierDAO extends DataBaseDAO {
 
     /**
      * Maximum limit of the SQL 'IN' clause, that cause JDBC driver to hang.
+     * Shared with the other DAOs of the package.
      */
-    private static final int MAX_SQL_IN_CLAUSE_LIMIT = 20000;
+    static final int MAX_SQL_IN_CLAUSE_LIMIT = 20000;
 
     /**
      * persist FunctionalIdentifier into database
@@ -98,7 +100,8 @@ public class FunctionalIdentifierDAO extends DataBaseDAO {
     }
 
     /**
-     * remove FunctionalIdentifier from database.
+     * remove FunctionalIdentifier from database: one bulk delete per chunk of {@link #MAX_SQL_IN_CLAUSE_LIMIT} tsuids,
+     * within one transaction.
      *
      * @param tsuidList
      *            the list of identifiers
@@ -109,25 +112,29 @@ public class FunctionalIdentifierDAO extends DataBaseDAO {
         Session session = getSession();
         Transaction tx = null;
         int result = 0;
-        String currentTsuid = null;
+        // bounds of the current chunk, for the error messages
+        int from = 0;
+        int to = 0;
         try {
             tx = session.beginTransaction();
-            for (String tsuid : tsuidList) {
-                currentTsuid = tsuid;
-                String hql = "delete from FunctionalIdentifier where tsuid= :uid";
+            String hql = "delete from FunctionalIdentifier where tsuid in (:uids)";
+            for (from = 0; from < tsuidList.size(); from = to) {
+                to = Math.min(from + MAX_SQL_IN_CLAUSE_LIMIT, tsuidList.size());
                 Query query = session.createQuery(hql);
-                query.setString("uid", tsuid);
-                result = query.executeUpdate();
+                query.setParameterList("uids", tsuidList.subList(from, to));
+                result += query.executeUpdate();
             }
             tx.commit();
         } catch (ConstraintViolationException e) {
-            String msg = "Removing FunctionalIdentifier for tsuid=" + currentTsuid + "failed : constraint violation";
+            String msg = "Removing FunctionalIdentifier for tsuids[" + from + ".." + to + "[ of " + tsuidList.size()
+                    + " failed : constraint violation";
             LOGGER.warn(msg);
 
             // Re-raise the original exception
             rollbackAndThrowException(tx, new IkatsDaoConflictException(msg, e));
         } catch (HibernateException e) {
-            String msg = "Removing FunctionalIdentifier for tsuid=" + currentTsuid + "failed : does not exist";
+            String msg = "Removing FunctionalIdentifier for tsuids[" + from + ".." + to + "[ of " + tsuidList.size()
+                    + " failed : does not exist";
             LOGGER.error(msg, e);
 
             // Re-raise the original exception
@@ -146,7 +153,7 @@ public class FunctionalIdentifierDAO extends DataBaseDAO {
      * @param tsuids
      *            the criterion list.
      *
-     * @return null if nothing is found, or error occured.
+     * @return the matching pairs, empty if nothing is found.
      */
     @SuppressWarnings("unchecked")
     public List<FunctionalIdentifier> list(List<String> tsuids) throws IkatsDaoException {
@@ -250,25 +257,34 @@ public class FunctionalIdentifierDAO extends DataBaseDAO {
 
     /**
      * Get the list of each FunctionalIdentifier matching the funcIds list. See FunctionalIdentifier: stands for a pair
-     * (tsuid, functional ID).
+     * (tsuid, functional ID). The distinct funcIds are requested by chunks of {@link #MAX_SQL_IN_CLAUSE_LIMIT}, in one
+     * session.
      *
      * @param funcIds
      *            the criterion list
      *
-     * @return null if nothing is found, or error occured.
+     * @return the matching pairs, empty if nothing is found.
      */
     public List<FunctionalIdentifier> listByFuncIds(List<String> funcIds) throws IkatsDaoException {
 
-        List<FunctionalIdentifier> result = null;
+        List<FunctionalIdentifier> result = new ArrayList<>();
+        if (funcIds == null || funcIds.isEmpty()) {
+            return result;
+        }
+        List<String> allFuncIds = new ArrayList<>(new LinkedHashSet<>(funcIds));
 
         Session session = getSession();
         Transaction tx = null;
         try {
             tx = session.beginTransaction();
 
-            Criteria criteria = session.createCriteria(FunctionalIdentifier.class);
-            criteria.add(Restrictions.in("funcId", funcIds));
-            result = criteria.list();
+            for (int from = 0; from < allFuncIds.size(); from += MAX_SQL_IN_CLAUSE_LIMIT) {
+                int to = Math.min(from + MAX_SQL_IN_CLAUSE_LIMIT, allFuncIds.size());
+
+                Criteria criteria = session.createCriteria(FunctionalIdentifier.class);
+                criteria.add(Restrictions.in("funcId", allFuncIds.subList(from, to)));
+                result.addAll(criteria.list());
+            }
 
             tx.commit();
         } catch (RuntimeException e) {
@@ -16,26 +16,26 @@
 
 package fr.cs.ikats.metadata.dao;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.hibernate.Criteria;
 import org.hibernate.NonUniqueResultException;
 import org.hibernate.Query;
+import org.hibernate.SQLQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
-import org.hibernate.criterion.Conjunction;
-import org.hibernate.criterion.Junction;
-import org.hibernate.criterion.Order;
-import org.hibernate.criterion.Projections;
-import org.hibernate.criterion.Restrictions;
 import org.hibernate.exception.ConstraintViolationException;
 
 import fr.cs.ikats.common.dao.DataBaseDAO;
@@ -47,7 +47,6 @@ import fr.cs.ikats.common.expr.Atom;
 import fr.cs.ikats.common.expr.Expression;
 import fr.cs.ikats.common.expr.Expression.ConnectorExpression;
 import fr.cs.ikats.common.expr.Group;
-import fr.cs.ikats.common.expr.SingleValueComparator;
 import fr.cs.ikats.metadata.model.FunctionalIdentifier;
 import fr.cs.ikats.metadata.model.MetaData;
 import fr.cs.ikats.metadata.model.MetaData.MetaType;
@@ -58,6 +57,22 @@ import fr.cs.ikats.metadata.model.MetadataCriterion;
  */
 public class MetaDataDAO extends DataBaseDAO {
 
+    /**
+     * Handler of the metadata of one tsuid, read by {@link MetaDataDAO#scrollForTsuids(List, TsuidMetadataHandler)}
+     */
+    public interface TsuidMetadataHandler {
+
+        /**
+         * Handle the metadata of one tsuid
+         *
+         * @param tsuid  the tsuid
+         * @param funcId the functional identifier of the tsuid, or null if undefined
+         * @param values the metadata values by metadata name
+         * @throws IOException error raised while handling the values
+         */
+        void handle(String tsuid, String funcId, Map<String, String> values) throws IOException;
+    }
+
     private static final Logger LOGGER = Logger.getLogger(MetaDataDAO.class);
 
     /**
@@ -78,6 +93,84 @@ public class MetaDataDAO extends DataBaseDAO {
      */
     private final static List<MetaType> PATTERN_EVALUATED_DTYPES;
 
+    /**
+     * Number of rows written before the session is flushed and cleared, during the bulk import.
+     * Should match the hibernate.jdbc.batch_size property.
+     */
+    static final int JDBC_BATCH_SIZE = 50;
+
+    /**
+     * HQL request for the metadata defined on a list of tsuids, grouped by tsuid
+     */
+    private static final String LIST_ALL_FOR_TSUIDS = "select md from MetaData md where md.tsuid in (:tsuids) order by md.tsuid, md.id";
+
+    /**
+     * HQL request for all the tsuids having metadata
+     */
+    private static final String LIST_ALL_TSUIDS_WITH_METADATA = "select distinct md.tsuid from MetaData md";
+
+    /**
+     * HQL request for the tsuids having metadata, among a list of tsuids
+     */
+    private static final String LIST_TSUIDS_WITH_METADATA = "select distinct md.tsuid from MetaData md where md.tsuid in (:tsuids)";
+
+    /**
+     * HQL request for the names of the metadata defined on a list of tsuids
+     */
+    private static final String LIST_NAMES_FOR_TSUIDS = "select distinct md.name from MetaData md where md.tsuid in (:tsuids)";
+
+    /**
+     * HQL request for the names of all the metadata
+     */
+    private static final String LIST_ALL_NAMES = "select distinct md.name from MetaData md";
+
+    /**
+     * SQL request for the functional identifiers of the timeseries of a dataset
+     */
+    private static final String LIST_FUNC_IDS_OF_DATASET = "select fi.* from TSFunctionalIdentifier fi where fi.tsuid in "
+            + "(select tsds.tsuid from TimeSeries_Dataset tsds where tsds.dataset_name = :dataset)";
+
+    /**
+     * HQL request for the values of some metadata names, defined on a list of tsuids
+     */
+    private static final String LIST_VALUES_FOR_TSUIDS = "select md.tsuid, md.name, md.value from MetaData md where md.tsuid in (:tsuids) and md.name in (:names)";
+
+    /**
+     * HQL request for the metadata values of a list of tsuids, read with a cursor
+     */
+    private static final String SCROLL_VALUES_FOR_TSUIDS = "select md.tsuid, md.name, md.value from MetaData md where md.tsuid in (:tsuids) order by md.tsuid";
+
+    /**
+     * HQL request for the functional identifiers of a list of tsuids, read with a cursor
+     */
+    private static final String SCROLL_FUNC_IDS_FOR_TSUIDS = "select fi.tsuid, fi.funcId from FunctionalIdentifier fi where fi.tsuid in (:tsuids)";
+
+    /**
+     * SQL request for all the metadata values with the functional identifier of their tsuid, read with a cursor
+     */
+    private static final String SCROLL_ALL_VALUES_WITH_FUNC_IDS = "select md.tsuid, md.name, md.value, fi.FuncId from TSMetadata md "
+            + "left outer join TSFunctionalIdentifier fi on fi.tsuid = md.tsuid order by md.tsuid";
+
+    /**
+     * HQL request for all the metadata values, read with a cursor
+     */
+    private static final String SCROLL_ALL_VALUES = "select md.tsuid, md.name, md.value from MetaData md";
+
+    /**
+     * HQL request for the metadata whose numeric value is not computed yet
+     */
+    private static final String SCROLL_MISSING_NUMERIC_VALUES = "select md from MetaData md where md.numericValue is null";
+
+    /**
+     * Fetch size of the server-side cursors
+     */
+    static final int SCROLL_FETCH_SIZE = 1000;
+
+    /**
+     * HQL request for the ids of the metadata defined on a list of tsuids
+     */
+    private static final String LIST_IDS_FOR_TSUIDS = "select md.id, md.tsuid, md.name from MetaData md where md.tsuid in (:tsuids)";
+
     static {
         EQ_COMPARABLE_DTYPES = new ArrayList<MetaType>();
         EQ_COMPARABLE_DTYPES.add(MetaType.string);
@@ -118,6 +211,7 @@ public class MetaDataDAO extends DataBaseDAO {
             LOGGER.debug("Created " + mdInfo + " with value=" + md.getValue());
 
             tx.commit();
+            indexPut(md);
         } catch (ConstraintViolationException e) {
 
             String msg = "Creating: " + mdInfo + ": already exists in base for same (TSUID, name)";
@@ -141,6 +235,15 @@ public class MetaDataDAO extends DataBaseDAO {
      * persist a list of metadata into database metadata are created or
      * created/updated, according to optional boolean 'update' a list of
      * database identifiers is returned
+     * <p>
+     * When update is true, the identifiers of the already existing (tsuid, name) pairs are loaded
+     * once, by chunks of tsuids, instead of one query per row. The rows are then written in JDBC
+     * batches: the session is flushed and cleared every {@link #JDBC_BATCH_SIZE} rows, which should
+     * match the property hibernate.jdbc.batch_size of the hibernate configuration.
+     * <p>
+     * Each created row still costs one round trip to fetch its identifier: the sequence tsmetadata_id_seq is
+     * mapped with allocationSize = 1, see {@link MetaData#getId()}. Pooling the identifiers would require the
+     * matching INCREMENT BY on the existing sequence, which hbm2ddl does not alter.
      *
      * @param mdList list of metadata to persist in database
      * @param update if true, already existing metadata is updated otherwise no
@@ -160,36 +263,50 @@ public class MetaDataDAO extends DataBaseDAO {
         try {
             tx = session.beginTransaction();
             LOGGER.debug("MetaDataDAO::persist(Lis<MetaData>): started transaction [" + date + "] ...");
+
+            // (tsuid, name) key => id of the metadata already in database
+            Map<String, Integer> existingIds = update ? loadExistingIds(session, mdList) : new HashMap<String, Integer>();
+            // keys already written in the current transaction
+            Set<String> writtenKeys = new HashSet<String>();
+
+            int count = 0;
             for (Iterator<MetaData> iterator = mdList.iterator(); iterator.hasNext(); ) {
                 currentRow = iterator.next();
-                if (update) {
-                    // check if metadata already exists
-                    String queryStr = "select id from tsmetadata where name = '" + currentRow.getName() + "' and tsuid ='" + currentRow.getTsuid()
-                            + "'";
-                    List<?> result = session.createSQLQuery(queryStr).list();
-                    if (result.size() == 0) {
-                        // creation of metadata
-                        mdId = (Integer) session.save(currentRow);
-                        LOGGER.trace("- ... created metadata id=" + mdId);
-                    } else {
-                        // update of metadata
-                        mdId = (Integer) result.get(0);
-                        MetaData meta = (MetaData) session.get(MetaData.class, mdId);
-                        meta.setDType(currentRow.getDType());
-                        meta.setValue(currentRow.getValue());
-                        session.update(meta);
-                        LOGGER.trace("- ... updated metadata id=" + mdId);
-                    }
-                } else {
+                String key = buildKey(currentRow.getTsuid(), currentRow.getName());
+                Integer existingId = update ? existingIds.get(key) : null;
+                if (existingId == null) {
                     // creation of metadata
                     mdId = (Integer) session.save(currentRow);
+                    existingIds.put(key, mdId);
                     LOGGER.trace("- ... created metadata id=" + mdId);
+                } else {
+                    // update of metadata
+                    mdId = existingId;
+                    currentRow.setId(mdId);
+                    if (writtenKeys.contains(key)) {
+                        // same (tsuid, name) already handled in this transaction: the instance may still be
+                        // attached to the session
+                        session.merge(currentRow);
+                    } else {
+                        session.update(currentRow);
+                    }
+                    LOGGER.trace("- ... updated metadata id=" + mdId);
                 }
+                writtenKeys.add(key);
                 lProcessedIds.add(mdId);
+
+                if (++count % JDBC_BATCH_SIZE == 0) {
+                    // sends the current JDBC batch and releases the memory of the session
+                    session.flush();
+                    session.clear();
+                }
             }
             LOGGER.debug("MetaDataDAO::persist(List<MetaData>) has successfully imported " + mdList.size() + " metadata rows");
             tx.commit();
             LOGGER.trace("MetaDataDAO::persist(List<MetaData>): committed transaction [" + date + "]");
+            for (MetaData md : mdList) {
+                indexPut(md);
+            }
         } catch (ConstraintViolationException e) {
             mdInfo = (currentRow != null) ? currentRow.toString() : "null";
             String msg = "Importing: " + mdInfo + ": ConstraintViolationException occurred: see the full error stack in the logs for further details";
@@ -209,6 +326,162 @@ public class MetaDataDAO extends DataBaseDAO {
         return lProcessedIds;
     }
 
+    /**
+     * Load the identifiers of the metadata already defined in database for the tsuids of mdList.
+     * <br/>
+     * The tsuids are queried by chunks of {@link FunctionalIdentifierDAO#MAX_SQL_IN_CLAUSE_LIMIT}.
+     *
+     * @param session the opened session
+     * @param mdList  the list of metadata to be persisted
+     * @return the map with key built by {@link #buildKey(String, String)} and value the metadata id
+     */
+    private Map<String, Integer> loadExistingIds(Session session, List<MetaData> mdList) {
+
+        Set<String> tsuids = new HashSet<String>();
+        for (MetaData md : mdList) {
+            tsuids.add(md.getTsuid());
+        }
+        List<String> allTsuids = new ArrayList<String>(tsuids);
+
+        Map<String, Integer> existingIds = new HashMap<String, Integer>();
+        for (int from = 0; from < allTsuids.size(); from += FunctionalIdentifierDAO.MAX_SQL_IN_CLAUSE_LIMIT) {
+            int to = Math.min(from + FunctionalIdentifierDAO.MAX_SQL_IN_CLAUSE_LIMIT, allTsuids.size());
+
+            Query query = session.createQuery(LIST_IDS_FOR_TSUIDS);
+            query.setParameterList("tsuids", allTsuids.subList(from, to));
+            for (Object row : query.list()) {
+                Object[] columns = (Object[]) row;
+                existingIds.put(buildKey((String) columns[1], (String) columns[2]), (Integer) columns[0]);
+            }
+        }
+        LOGGER.debug("MetaDataDAO::loadExistingIds: found " + existingIds.size() + " existing metadata for " + allTsuids.size() + " tsuids");
+
+        return existingIds;
+    }
+
+    /**
+     * Report a created or updated metadata to the index, when enabled
+     *
+     * @param md the committed metadata
+     */
+    private static void indexPut(MetaData md) {
+        if (MetaDataIndex.getInstance().isEnabled()) {
+            MetaDataIndex.getInstance().put(md.getTsuid(), md.getName(), md.getValue());
+        }
+    }
+
+    /**
+     * Load the whole TSMetadata table into the {@link MetaDataIndex} with a server-side cursor, and enable the index:
+     * the filters of {@link #searchFuncId(List, Group)} are then evaluated in memory.
+     *
+     * @throws IkatsDaoException error raised by DAO layer
+     */
+    public void rebuildIndex() throws IkatsDaoException {
+
+        MetaDataIndex loaded = new MetaDataIndex();
+        int count = 0;
+
+        Session session = getSession();
+        Transaction tx = null;
+        ScrollableResults cursor = null;
+        try {
+            tx = session.beginTransaction();
+
+            Query q = session.createQuery(SCROLL_ALL_VALUES);
+            q.setFetchSize(SCROLL_FETCH_SIZE);
+            cursor = q.scroll(ScrollMode.FORWARD_ONLY);
+            while (cursor.next()) {
+                loaded.put(cursor.getString(0), cursor.getString(1), cursor.getString(2));
+                count++;
+            }
+            cursor.close();
+            cursor = null;
+
+            tx.commit();
+        } catch (RuntimeException e) {
+            if (tx != null)
+                tx.rollback();
+            throw e;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            // end the session
+            session.close();
+        }
+
+        MetaDataIndex.getInstance().replaceContent(loaded);
+        LOGGER.info("MetaDataDAO::rebuildIndex: loaded " + count + " metadata");
+    }
+
+    /**
+     * Migration task: compute the numeric value of the metadata written before the numeric_value column existed, or
+     * before it was computed for the string dtype. The rows are read with a server-side cursor and updated by JDBC
+     * batches.
+     * <p>
+     * The values which are not numbers keep a null numeric value, and are read again on the next call: this task is
+     * meant to be run once, after the upgrade.
+     *
+     * @return the number of metadata updated
+     * @throws IkatsDaoException error raised by DAO layer
+     */
+    public int backfillNumericValues() throws IkatsDaoException {
+
+        int read = 0;
+        int count = 0;
+
+        Session session = getSession();
+        Transaction tx = null;
+        ScrollableResults cursor = null;
+        try {
+            tx = session.beginTransaction();
+
+            Query q = session.createQuery(SCROLL_MISSING_NUMERIC_VALUES);
+            q.setFetchSize(SCROLL_FETCH_SIZE);
+            cursor = q.scroll(ScrollMode.FORWARD_ONLY);
+            while (cursor.next()) {
+                MetaData md = (MetaData) cursor.get(0);
+                // the setter computes the numeric value
+                md.setValue(md.getValue());
+                if (md.getNumericValue() != null) {
+                    count++;
+                }
+                if (++read % JDBC_BATCH_SIZE == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            cursor.close();
+            cursor = null;
+
+            tx.commit();
+        } catch (RuntimeException e) {
+            if (tx != null)
+                tx.rollback();
+            throw e;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            // end the session
+            session.close();
+        }
+
+        LOGGER.info("MetaDataDAO::backfillNumericValues: updated " + count + " metadata");
+        return count;
+    }
+
+    /**
+     * Build the key identifying a metadata by the unique pair (tsuid, name)
+     *
+     * @param tsuid the tsuid
+     * @param name  the metadata name
+     * @return the key
+     */
+    private static String buildKey(String tsuid, String name) {
+        return tsuid + '\n' + name;
+    }
+
     /**
      * update an existing metadata into database
      *
@@ -233,6 +506,7 @@ public class MetaDataDAO extends DataBaseDAO {
             LOGGER.debug("Updated:" + mdInfo + " with value=" + md.getValue());
 
             tx.commit();
+            indexPut(md);
         } catch (ConstraintViolationException e) {
 
             String msg = "Updating: " + mdInfo + ": already exists in base for same (TSUID, name)";
@@ -273,6 +547,52 @@ public class MetaDataDAO extends DataBaseDAO {
             result = query.executeUpdate();
 
             tx.commit();
+            if (MetaDataIndex.getInstance().isEnabled()) {
+                MetaDataIndex.getInstance().remove(tsuid);
+            }
+        } catch (RuntimeException e) {
+            // try to rollback
+            if (tx != null) tx.rollback();
+            // Re-raise the original exception
+            throw e;
+        } finally {
+            // end the session
+            session.close();
+        }
+
+        return result;
+    }
+
+    /**
+     * remove the Metadata of a list of tsuids from database: one bulk delete per chunk of
+     * {@link FunctionalIdentifierDAO#MAX_SQL_IN_CLAUSE_LIMIT} tsuids, within one transaction.
+     *
+     * @param tsuids identifiers of the timeseries
+     * @return number of removals
+     * @throws IkatsDaoException error deleting the resources
+     */
+    public int remove(List<String> tsuids) throws IkatsDaoException {
+        int result = 0;
+
+        Session session = getSession();
+        Transaction tx = null;
+        try {
+            tx = session.beginTransaction();
+
+            String hql = "delete from MetaData where tsuid in (:uids)";
+            for (int from = 0; from < tsuids.size(); from += FunctionalIdentifierDAO.MAX_SQL_IN_CLAUSE_LIMIT) {
+                int to = Math.min(from + FunctionalIdentifierDAO.MAX_SQL_IN_CLAUSE_LIMIT, tsuids.size());
+                Query query = session.createQuery(hql);
+                query.setParameterList("uids", tsuids.subList(from, to));
+                result += query.executeUpdate();
+            }
+
+            tx.commit();
+            if (MetaDataIndex.getInstance().isEnabled()) {
+                for (String tsuid : tsuids) {
+                    MetaDataIndex.getInstance().remove(tsuid);
+                }
+            }
         } catch (RuntimeException e) {
             // try to rollback
             if (tx != null) tx.rollback();
@@ -283,6 +603,7 @@ public class MetaDataDAO extends DataBaseDAO {
             session.close();
         }
 
+        LOGGER.debug("MetaDataDAO::remove: removed " + result + " metadata for " + tsuids.size() + " tsuids");
         return result;
     }
 
@@ -309,6 +630,9 @@ public class MetaDataDAO extends DataBaseDAO {
             result = query.executeUpdate();
 
             tx.commit();
+            if (MetaDataIndex.getInstance().isEnabled()) {
+                MetaDataIndex.getInstance().remove(tsuid, name);
+            }
         } catch (RuntimeException e) {
             // try to rollback
             if (tx != null) tx.rollback();
@@ -369,6 +693,329 @@ public class MetaDataDAO extends DataBaseDAO {
         return result;
     }
 
+    /**
+     * Get the metadata of several tsuids, grouped by tsuid, within one session.
+     * <br/>
+     * The tsuids are queried by chunks of {@link FunctionalIdentifierDAO#MAX_SQL_IN_CLAUSE_LIMIT}, each chunk being
+     * read ordered by tsuid so that the groups are filled row after row.
+     *
+     * @param tsuids the tsuids
+     * @return the map: key is the tsuid, value is the list of its metadata. A tsuid without any metadata has no entry
+     * in the map.
+     * @throws IkatsDaoException error raised by DAO layer
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, List<MetaData>> listForTsuids(Collection<String> tsuids) throws IkatsDaoException {
+
+        Map<String, List<MetaData>> result = new HashMap<String, List<MetaData>>();
+        if (tsuids == null || tsuids.isEmpty()) {
+            return result;
+        }
+        List<String> allTsuids = new ArrayList<String>(new HashSet<String>(tsuids));
+
+        Session session = getSession();
+        Transaction tx = null;
+        try {
+            tx = session.beginTransaction();
+
+            for (int from = 0; from < allTsuids.size(); from += FunctionalIdentifierDAO.MAX_SQL_IN_CLAUSE_LIMIT) {
+                int to = Math.min(from + FunctionalIdentifierDAO.MAX_SQL_IN_CLAUSE_LIMIT, allTsuids.size());
+
+                Query q = session.createQuery(LIST_ALL_FOR_TSUIDS);
+                q.setParameterList("tsuids", allTsuids.subList(from, to));
+
+                String currentTsuid = null;
+                List<MetaData> currentGroup = null;
+                for (MetaData md : (List<MetaData>) q.list()) {
+                    if (!md.getTsuid().equals(currentTsuid)) {
+                        currentTsuid = md.getTsuid();
+                        currentGroup = new ArrayList<MetaData>();
+                        result.put(currentTsuid, currentGroup);
+                    }
+                    currentGroup.add(md);
+                }
+            }
+            tx.commit();
+        } catch (RuntimeException e) {
+            if (tx != null)
+                tx.rollback();
+            throw e;
+        } finally {
+
+            // end the session
+            session.close();
+        }
+
+        LOGGER.debug("MetaDataDAO::listForTsuids: found metadata for " + result.size() + " of " + allTsuids.size() + " tsuids");
+        return result;
+    }
+
+    /**
+     * Get the values of some metadata names, for a list of tsuids: one request per chunk of
+     * {@link FunctionalIdentifierDAO#MAX_SQL_IN_CLAUSE_LIMIT} tsuids, in one session.
+     *
+     * @param tsuids the tsuids
+     * @param names  the searched metadata names
+     * @return the values by name, by tsuid: a tsuid without any of the searched metadata has no entry
+     * @throws IkatsDaoException error raised by DAO layer
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<String, String>> listValuesForTsuids(Collection<String> tsuids, Collection<String> names)
+            throws IkatsDaoException {
+
+        Map<String, Map<String, String>> result = new HashMap<String, Map<String, String>>();
+        if (tsuids == null || tsuids.isEmpty() || names == null || names.isEmpty()) {
+            return result;
+        }
+        List<String> allTsuids = new ArrayList<String>(new HashSet<String>(tsuids));
+        List<String> allNames = new ArrayList<String>(new HashSet<String>(names));
+
+        Session session = getSession();
+        Transaction tx = null;
+        try {
+            tx = session.beginTransaction();
+
+            for (int from = 0; from < allTsuids.size(); from += FunctionalIdentifierDAO.MAX_SQL_IN_CLAUSE_LIMIT) {
+                int to = Math.min(from + FunctionalIdentifierDAO.MAX_SQL_IN_CLAUSE_LIMIT, allTsuids.size());
+
+                Query q = session.createQuery(LIST_VALUES_FOR_TSUIDS);
+                q.setParameterList("tsuids", allTsuids.subList(from, to));
+                q.setParameterList("names", allNames);
+
+                for (Object[] row : (List<Object[]>) q.list()) {
+                    String tsuid = (String) row[0];
+                    Map<String, String> values = result.get(tsuid);
+                    if (values == null) {
+                        values = new HashMap<String, String>();
+                        result.put(tsuid, values);
+                    }
+                    values.put((String) row[1], (String) row[2]);
+                }
+            }
+            tx.commit();
+        } catch (RuntimeException e) {
+            if (tx != null)
+                tx.rollback();
+            throw e;
+        } finally {
+
+            // end the session
+            session.close();
+        }
+
+        LOGGER.debug("MetaDataDAO::listValuesForTsuids: found values for " + result.size() + " of " + allTsuids.size() + " tsuids");
+        return result;
+    }
+
+    /**
+     * Get the tsuids having at least one metadata.
+     *
+     * @param tsuids the searched tsuids, or null to get all the tsuids having metadata
+     * @return the distinct tsuids found
+     * @throws IkatsDaoException error raised by DAO layer
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> listTsuidsWithMetadata(Collection<String> tsuids) throws IkatsDaoException {
+
+        List<String> result = new ArrayList<String>();
+
+        Session session = getSession();
+        Transaction tx = null;
+        try {
+            tx = session.beginTransaction();
+
+            if (tsuids == null) {
+                result.addAll(session.createQuery(LIST_ALL_TSUIDS_WITH_METADATA).list());
+            } else {
+                List<String> allTsuids = new ArrayList<String>(new HashSet<String>(tsuids));
+                for (int from = 0; from < allTsuids.size(); from += FunctionalIdentifierDAO.MAX_SQL_IN_CLAUSE_LIMIT) {
+                    int to = Math.min(from + FunctionalIdentifierDAO.MAX_SQL_IN_CLAUSE_LIMIT, allTsuids.size());
+
+                    Query q = session.createQuery(LIST_TSUIDS_WITH_METADATA);
+                    q.setParameterList("tsuids", allTsuids.subList(from, to));
+                    result.addAll(q.list());
+                }
+            }
+            tx.commit();
+        } catch (RuntimeException e) {
+            if (tx != null)
+                tx.rollback();
+            throw e;
+        } finally {
+
+            // end the session
+            session.close();
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the distinct names of the metadata defined on a list of tsuids
+     *
+     * @param tsuids the tsuids, or null to get the names of all the metadata
+     * @return the set of metadata names
+     * @throws IkatsDaoException error raised by DAO layer
+     */
+    @SuppressWarnings("unchecked")
+    public Set<String> listNamesForTsuids(List<String> tsuids) throws IkatsDaoException {
+
+        Set<String> result = new HashSet<String>();
+
+        Session session = getSession();
+        Transaction tx = null;
+        try {
+            tx = session.beginTransaction();
+
+            if (tsuids == null) {
+                result.addAll(session.createQuery(LIST_ALL_NAMES).list());
+            } else {
+                for (int from = 0; from < tsuids.size(); from += FunctionalIdentifierDAO.MAX_SQL_IN_CLAUSE_LIMIT) {
+                    int to = Math.min(from + FunctionalIdentifierDAO.MAX_SQL_IN_CLAUSE_LIMIT, tsuids.size());
+
+                    Query q = session.createQuery(LIST_NAMES_FOR_TSUIDS);
+                    q.setParameterList("tsuids", tsuids.subList(from, to));
+                    result.addAll(q.list());
+                }
+            }
+            tx.commit();
+        } catch (RuntimeException e) {
+            if (tx != null)
+                tx.rollback();
+            throw e;
+        } finally {
+
+            // end the session
+            session.close();
+        }
+
+        return result;
+    }
+
+    /**
+     * Read the metadata of a list of tsuids with server-side cursors, and give them to the handler tsuid after tsuid,
+     * without loading the whole result in memory.
+     * <br/>
+     * For each chunk of {@link FunctionalIdentifierDAO#MAX_SQL_IN_CLAUSE_LIMIT} tsuids, a first cursor reads the
+     * functional identifiers of the chunk, and a second one reads the metadata ordered by tsuid. Both are read with a
+     * fetch size of {@link #SCROLL_FETCH_SIZE} rows.
+     *
+     * @param tsuids  the tsuids: the ones without metadata are ignored
+     * @param handler the handler called once per tsuid having metadata
+     * @throws IOException       error raised by the handler
+     * @throws IkatsDaoException error raised by DAO layer
+     */
+    public void scrollForTsuids(List<String> tsuids, TsuidMetadataHandler handler) throws IOException, IkatsDaoException {
+
+        Session session = getSession();
+        Transaction tx = null;
+        ScrollableResults cursor = null;
+        try {
+            tx = session.beginTransaction();
+
+            for (int from = 0; from < tsuids.size(); from += FunctionalIdentifierDAO.MAX_SQL_IN_CLAUSE_LIMIT) {
+                int to = Math.min(from + FunctionalIdentifierDAO.MAX_SQL_IN_CLAUSE_LIMIT, tsuids.size());
+                List<String> chunk = tsuids.subList(from, to);
+
+                // functional identifiers of the chunk
+                Map<String, String> funcIds = new HashMap<String, String>();
+                Query funcIdQuery = session.createQuery(SCROLL_FUNC_IDS_FOR_TSUIDS);
+                funcIdQuery.setParameterList("tsuids", chunk);
+                funcIdQuery.setFetchSize(SCROLL_FETCH_SIZE);
+                cursor = funcIdQuery.scroll(ScrollMode.FORWARD_ONLY);
+                while (cursor.next()) {
+                    funcIds.put(cursor.getString(0), cursor.getString(1));
+                }
+                cursor.close();
+                cursor = null;
+
+                // metadata of the chunk, grouped by tsuid
+                Query metadataQuery = session.createQuery(SCROLL_VALUES_FOR_TSUIDS);
+                metadataQuery.setParameterList("tsuids", chunk);
+                metadataQuery.setFetchSize(SCROLL_FETCH_SIZE);
+                cursor = metadataQuery.scroll(ScrollMode.FORWARD_ONLY);
+                scrollGroupedByTsuid(cursor, funcIds, handler);
+                cursor.close();
+                cursor = null;
+            }
+            tx.commit();
+        } catch (IOException | RuntimeException e) {
+            if (tx != null)
+                tx.rollback();
+            throw e;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            // end the session
+            session.close();
+        }
+    }
+
+    /**
+     * Read all the metadata with a single server-side cursor, joined with the functional identifiers, and give them to
+     * the handler tsuid after tsuid: unlike {@link #scrollForTsuids(List, TsuidMetadataHandler)}, the tsuids are not
+     * listed beforehand.
+     *
+     * @param handler the handler called once per tsuid having metadata
+     * @throws IOException       error raised by the handler
+     * @throws IkatsDaoException error raised by DAO layer
+     */
+    public void scrollAll(TsuidMetadataHandler handler) throws IOException, IkatsDaoException {
+
+        Session session = getSession();
+        Transaction tx = null;
+        ScrollableResults cursor = null;
+        try {
+            tx = session.beginTransaction();
+
+            SQLQuery query = session.createSQLQuery(SCROLL_ALL_VALUES_WITH_FUNC_IDS);
+            query.setFetchSize(SCROLL_FETCH_SIZE);
+            cursor = query.scroll(ScrollMode.FORWARD_ONLY);
+            scrollGroupedByTsuid(cursor, null, handler);
+
+            tx.commit();
+        } catch (IOException | RuntimeException e) {
+            if (tx != null)
+                tx.rollback();
+            throw e;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            // end the session
+            session.close();
+        }
+    }
+
+    /**
+     * Give the rows (tsuid, name, value[, funcId]) of a cursor ordered by tsuid to the handler, tsuid after tsuid
+     *
+     * @param cursor  the cursor
+     * @param funcIds the functional identifiers by tsuid, or null when read in the fourth column of the cursor
+     * @param handler the handler called once per tsuid
+     * @throws IOException error raised by the handler
+     */
+    private void scrollGroupedByTsuid(ScrollableResults cursor, Map<String, String> funcIds, TsuidMetadataHandler handler)
+            throws IOException {
+        String currentTsuid = null;
+        String currentFuncId = null;
+        Map<String, String> currentValues = new HashMap<String, String>();
+        while (cursor.next()) {
+            String tsuid = cursor.getString(0);
+            if (currentTsuid != null && !currentTsuid.equals(tsuid)) {
+                handler.handle(currentTsuid, currentFuncId, currentValues);
+                currentValues = new HashMap<String, String>();
+            }
+            currentTsuid = tsuid;
+            currentFuncId = funcIds == null ? cursor.getString(3) : funcIds.get(tsuid);
+            currentValues.put(cursor.getString(1), cursor.getString(2));
+        }
+        if (currentTsuid != null) {
+            handler.handle(currentTsuid, currentFuncId, currentValues);
+        }
+    }
+
     /**
      * get list of metadata/type couples.
      *
@@ -450,32 +1097,25 @@ public class MetaDataDAO extends DataBaseDAO {
     }
 
     /**
-     * Filter: criterion connected by AND operator: solving the front-end
-     * request: {MetadataCriterion 1} and {MetadataCriterion 2} and ... and
-     * {MetadataCriterion M} The <MetadataCriterion> are grouped by name of
-     * metadata before being processed
+     * Filter: logical expression of metadata criteria, with nested groups connected by AND, OR or NOT operators. For
+     * example, solving the front-end request: {MetadataCriterion 1} and ( {MetadataCriterion 2} or not (
+     * {MetadataCriterion 3} ) )
+     * <p>
+     * The formula is compiled into one SQL statement per chunk of scope: see {@link MetaDataFormulaSql}. When the
+     * {@link MetaDataIndex} is enabled, a formula made of criteria connected by AND is evaluated in memory.
+     * <p>
+     * Note: a timeseries without any metadata is never accepted by a formula with criteria.
      *
      * @param scope:   subset where is applied the filter
      * @param formula: the logical expression with metadata criteria defining the
      *                 filter
-     * @return the result is the subset accepted by the filter
+     * @return the result is the subset accepted by the filter, ordered by tsuid
      * @throws IkatsDaoException
      */
     public List<FunctionalIdentifier> searchFuncId(List<FunctionalIdentifier> scope, Group formula)
             throws IkatsDaoException {
 
-        // only AND connector allowed
-        if (ConnectorExpression.AND != formula.getConnector()) {
-            throw new IkatsDaoInvalidValueException(
-                    "searchFuncId expects ConnectorExpression.AND: not yet implemented connector "
-                            + formula.getConnector());
-        }
-
-        // step 1:
-        // Group <MetadataCriterion> by metadata having same name
-        Map<String, List<MetadataCriterion>> groupByMetadataName = initMapGroupingSameMetadataName(formula);
-
-        // step2:
+        // step1:
         // prepare initial scope: tsuid list
         List<String> tsuidsInScope = new ArrayList<>();
         Map<String, FunctionalIdentifier> mapFunctionalIdentifier = new HashMap<>();
@@ -485,19 +1125,28 @@ public class MetaDataDAO extends DataBaseDAO {
             mapFunctionalIdentifier.put(tsuid, tsId);
         }
 
-        // step3:
-        // compute the intersection of TSUIDS of all requests <i> on each
-        // different metadata <name i>
-        for (Map.Entry<String, List<MetadataCriterion>> mapEntry : groupByMetadataName.entrySet()) {
-
-            // new tsuidsInScope is a subset of previous tsuidsInScope
-            if (!tsuidsInScope.isEmpty()) {
-                List<MetadataCriterion> criteria = mapEntry.getValue();
-                tsuidsInScope = searchFuncIdForMetadataNamed(tsuidsInScope, criteria);
+        // step2:
+        // evaluate the formula on the scope
+        List<MetadataCriterion> conjunction = getConjunctionOfCriteria(formula);
+        if (conjunction != null && conjunction.isEmpty()) {
+            // no criterion: the whole scope is accepted
+            return new ArrayList<>(scope);
+        }
+        try {
+            MetaDataIndex index = MetaDataIndex.getInstance();
+            if (conjunction != null && index.isEnabled()) {
+                // evaluated in memory
+                tsuidsInScope = index.search(tsuidsInScope, conjunction);
+            } else {
+                tsuidsInScope = searchTsuids(tsuidsInScope, formula);
             }
+        } catch (IkatsDaoInvalidValueException invalidCriterionException) {
+            String msg = "Resource Not found, searching functional identifiers matched by metadata criteria";
+            LOGGER.error("NOT FOUND: " + msg);
+            throw new IkatsDaoMissingResource(msg, invalidCriterionException);
         }
 
-        // step4: encode the result
+        // step3: encode the result
         //
         List<FunctionalIdentifier> included = new ArrayList<>();
         for (String includedTsuid : tsuidsInScope) {
@@ -507,60 +1156,44 @@ public class MetaDataDAO extends DataBaseDAO {
     }
 
     /**
-     * Reduce a tsuid list (scope) according to criteria : expecting list of
-     * criterion for one only metadata name
+     * Reduce a tsuid list (scope) according to the formula: one SQL statement per chunk of
+     * {@link FunctionalIdentifierDAO#MAX_SQL_IN_CLAUSE_LIMIT} tsuids.
      *
-     * @param tsuidsInScope
-     * @param criteria
-     * @return
+     * @param tsuidsInScope the scope
+     * @param formula       the formula
+     * @return the tsuids accepted by the formula, ordered by tsuid
+     * @throws IkatsDaoInvalidValueException invalid formula
+     * @throws IkatsDaoException             error raised by DAO layer
      */
-    private List<String> searchFuncIdForMetadataNamed(List<String> tsuidsInScope,
-                                                      List<MetadataCriterion> criteria)
-            throws IkatsDaoException {
+    @SuppressWarnings("unchecked")
+    private List<String> searchTsuids(List<String> tsuidsInScope, Group formula) throws IkatsDaoException {
 
-        if ((tsuidsInScope == null) || (tsuidsInScope.isEmpty())) {
-            return tsuidsInScope;
+        List<String> result = new ArrayList<>();
+        if (tsuidsInScope.isEmpty()) {
+            return result;
         }
 
-        List<String> result = new ArrayList<>();
-        ConnectorExpression lOperator = ConnectorExpression.AND;
+        MetaDataFormulaSql compiler = new MetaDataFormulaSql();
+        String sql = "select distinct " + MetaDataFormulaSql.ROOT_ALIAS + ".tsuid from TSMetadata " + MetaDataFormulaSql.ROOT_ALIAS
+                + " where " + MetaDataFormulaSql.ROOT_ALIAS + ".tsuid in (:scope) and " + compiler.compile(formula)
+                + " order by " + MetaDataFormulaSql.ROOT_ALIAS + ".tsuid";
+        LOGGER.debug("MetaDataDAO::searchTsuids: " + sql);
 
         Session session = getSession();
         Transaction tx = null;
         try {
             tx = session.beginTransaction();
 
-            Criteria sessionCriteria = session.createCriteria(MetaData.class);
-            Junction lGroupJunction;
-
-            if (lOperator == ConnectorExpression.AND) {
-                lGroupJunction = Restrictions.conjunction();
-                lGroupJunction.add(Restrictions.in("tsuid", tsuidsInScope));
-                sessionCriteria.add(lGroupJunction);
+            for (int from = 0; from < tsuidsInScope.size(); from += FunctionalIdentifierDAO.MAX_SQL_IN_CLAUSE_LIMIT) {
+                int to = Math.min(from + FunctionalIdentifierDAO.MAX_SQL_IN_CLAUSE_LIMIT, tsuidsInScope.size());
 
-                // Create the subquery from the filters
-                Conjunction filtersCritQuery = prepareFiltersCritQuery(criteria);
-
-
-                sessionCriteria.add(filtersCritQuery);
-            } else {
-                // try to rollback
-                if (tx != null) tx.rollback();
-                throw new IkatsDaoException("Not yet implemented: operator OR grouping  expressions of metadata criterion");
+                SQLQuery query = session.createSQLQuery(sql);
+                compiler.bindParameters(query);
+                query.setParameterList("scope", tsuidsInScope.subList(from, to));
+                result.addAll(query.list());
             }
 
-            sessionCriteria.setProjection(Projections.projectionList().add(Projections.groupProperty("tsuid")));
-            sessionCriteria.addOrder(Order.asc("tsuid"));
-
-            result = (List<String>) sessionCriteria.list();
-
             tx.commit();
-        } catch (IkatsDaoInvalidValueException invalidCriterionException) {
-            // raised by prepareFiltersCritQuery ...
-            if (tx != null) tx.rollback();
-            String msg = "Resource Not found, searching functional identifiers matched by metadata criteria";
-            LOGGER.error("NOT FOUND: " + msg);
-            throw new IkatsDaoMissingResource(msg, invalidCriterionException);
         } catch (RuntimeException e) {
             if (tx != null) tx.rollback();
             throw e;
@@ -570,120 +1203,95 @@ public class MetaDataDAO extends DataBaseDAO {
             session.close();
         }
 
-        if (result == null) {
-            result = Collections.emptyList();
-        }
         return result;
     }
 
     /**
-     * Prepare the criteria depending on the list of metadata filters
+     * Filter: criterion connected by AND operator: solving the front-end
+     * request: {MetadataCriterion 1} and {MetadataCriterion 2} and ... and
+     * {MetadataCriterion M}
+     * <p>
+     * When the {@link MetaDataIndex} is enabled, the functional identifiers of the dataset are read, and the criteria
+     * are evaluated in memory.
      *
-     * @param criteria list of criterion to use for request build
-     * @return the SQL part (as criteria) containing the metadata filters
-     * @throws IkatsDaoInvalidValueException if a filter operand is not a number
-     * @throws IkatsDaoInvalidValueException if a comparator is unknown
+     * @param datasetName dataset scope where is applied the filter
+     * @param criteria    list of criterion
+     * @return the result list of tuple tsuid/funcid filtered
+     * @throws IkatsDaoException
      */
-    private Conjunction prepareFiltersCritQuery(List<MetadataCriterion> criteria)
-            throws IkatsDaoInvalidValueException {
+    @SuppressWarnings("unchecked")
+    public List<FunctionalIdentifier> searchFuncId(String datasetName, List<MetadataCriterion> criteria)
+            throws IkatsDaoException {
 
-        Conjunction restrictionToAdd = Restrictions.conjunction();
+        MetaDataIndex index = MetaDataIndex.getInstance();
+        if (index.isEnabled() && !criteria.isEmpty()) {
+            return searchFuncIdInIndex(index, datasetName, criteria);
+        }
+
+        List<FunctionalIdentifier> result = null;
 
-        // expecting criteria grouped by metadata name => one type of
-        // criterion per request ...
+        Group formula = new Group();
+        formula.setConnector(ConnectorExpression.AND);
+        formula.setTerms(new ArrayList<Expression>());
         for (MetadataCriterion criterion : criteria) {
+            Atom<MetadataCriterion> atom = new Atom<>();
+            atom.setAtomicTerm(criterion);
+            formula.getTerms().add(atom);
+        }
+        MetaDataFormulaSql compiler = new MetaDataFormulaSql();
+        String sql = "select fi.* from TSFunctionalIdentifier fi where fi.tsuid in (select " + MetaDataFormulaSql.ROOT_ALIAS
+                + ".tsuid from TSMetadata " + MetaDataFormulaSql.ROOT_ALIAS + " where " + MetaDataFormulaSql.ROOT_ALIAS
+                + ".tsuid in (select tsds.tsuid from TimeSeries_Dataset tsds where tsds.dataset_name = :dataset) and "
+                + compiler.compile(formula) + ")";
 
-            String metadataName = criterion.getMetadataName();
-            String criterionValue = criterion.getValue();
-            SingleValueComparator criterionOperator = criterion.getTypedComparator();
-            String sqlOperator = criterionOperator.getText();
-            SingleValueComparator comparator = SingleValueComparator.parseComparator(sqlOperator);
-
-            switch (comparator) {
-                case EQUAL:
-                case NEQUAL:
-                case GT:
-                case LT:
-                case GE:
-                case LE:
-                    // Date or number
-                    try {
-                        // this trick allow to verify the criterionValue can be casted to float number
-                        Float.parseFloat(criterionValue);
-
-                        restrictionToAdd
-                                .add(Restrictions.eq("name", metadataName))
-                                .add(Restrictions.sqlRestriction(
-                                        "cast( {alias}.value as float ) " + sqlOperator + " " + criterionValue));
-                    } catch (NumberFormatException e) {
-                        throw new IkatsDaoInvalidValueException("Operand is not a number; " + e.getMessage(), e);
-                    }
-                    break;
-                case IN: {
-                    // List of values separated by ";"
-                    List<String> splitValues = Arrays.asList(criterionValue.split("\\s*;\\s*"));
-                    restrictionToAdd
-                            .add(Restrictions.eq("name", metadataName))
-                            .add(Restrictions.in("value", splitValues));
-                }
-                break;
-                case NIN: {
-                    List<String> splitValues = Arrays.asList(criterionValue.split("\\s*;\\s*"));
-                    restrictionToAdd
-                            .add(Restrictions.eq("name", metadataName))
-                            .add(Restrictions.not(Restrictions.in("value", splitValues)));
-                }
-                break;
-                case LIKE:
-                case NLIKE:
-                    restrictionToAdd
-                            .add(Restrictions.eq("name", metadataName))
-                            .add(Restrictions.sqlRestriction("value " + sqlOperator + " '" + criterionValue + "'"));
-                    break;
-                default:
-                    // Unreachable
-                    throw new IkatsDaoInvalidValueException("Unknown comparator : " + comparator);
-            }
+        Session session = getSession();
+        Transaction tx = null;
+        try {
+            tx = session.beginTransaction();
+
+            SQLQuery query = session.createSQLQuery(sql);
+            query.addEntity(FunctionalIdentifier.class);
+            compiler.bindParameters(query);
+            query.setString("dataset", datasetName);
+            result = (List<FunctionalIdentifier>) query.list();
+
+            tx.commit();
+        } catch (RuntimeException e) {
+            if (tx != null) tx.rollback();
+            throw e;
+        } finally {
+
+            // end the session
+            session.close();
         }
 
-        return restrictionToAdd;
+        return result;
     }
 
     /**
-     * Filter: criterion connected by AND operator: solving the front-end
-     * request: {MetadataCriterion 1} and {MetadataCriterion 2} and ... and
-     * {MetadataCriterion M} The <MetadataCriterion> are grouped by name of
-     * metadata before being processed
+     * Evaluate in memory the criteria connected by AND operator, on the functional identifiers of the dataset: see
+     * {@link #searchFuncId(String, List)}
      *
+     * @param index       the enabled index
      * @param datasetName dataset scope where is applied the filter
      * @param criteria    list of criterion
-     * @return the result list of tuple tsuid/funcid filtered
+     * @return the result list of tuple tsuid/funcid filtered, ordered by tsuid
      * @throws IkatsDaoException
      */
-    public List<FunctionalIdentifier> searchFuncId(String datasetName, List<MetadataCriterion> criteria)
-            throws IkatsDaoException {
-
-        List<FunctionalIdentifier> result = null;
+    @SuppressWarnings("unchecked")
+    private List<FunctionalIdentifier> searchFuncIdInIndex(MetaDataIndex index, String datasetName,
+                                                           List<MetadataCriterion> criteria) throws IkatsDaoException {
 
+        List<FunctionalIdentifier> scope;
         Session session = getSession();
         Transaction tx = null;
         try {
             tx = session.beginTransaction();
 
-            Criteria critQuery = session.createCriteria(FunctionalIdentifier.class);
-
-            critQuery
-                    .createAlias("LinkDatasetTimeSeries", "tsds", Criteria.INNER_JOIN)
-                    .add(Restrictions.eqProperty("tsds.tsuid", "FunctionalIdentifier.tsuid"))
-                    .createAlias("MetaData", "md", Criteria.INNER_JOIN)
-                    .add(Restrictions.eq("md.tsuid", "tsds.tsuid"))
-                    .add(Restrictions.eq("tsds.dataset", datasetName));
-
-            // Loop over the criteria to eval metadata name with value
-            Conjunction filtersCritQuery = prepareFiltersCritQuery(criteria);
-            critQuery.add(filtersCritQuery);
-
-            result = (List<FunctionalIdentifier>) critQuery.list();
+            SQLQuery query = session.createSQLQuery(LIST_FUNC_IDS_OF_DATASET);
+            query.addEntity(FunctionalIdentifier.class);
+            query.setString("dataset", datasetName);
+            scope = (List<FunctionalIdentifier>) query.list();
 
             tx.commit();
         } catch (RuntimeException e) {
@@ -695,40 +1303,42 @@ public class MetaDataDAO extends DataBaseDAO {
             session.close();
         }
 
+        List<String> tsuidsInScope = new ArrayList<>();
+        Map<String, FunctionalIdentifier> mapFunctionalIdentifier = new HashMap<>();
+        for (FunctionalIdentifier tsId : scope) {
+            tsuidsInScope.add(tsId.getTsuid());
+            mapFunctionalIdentifier.put(tsId.getTsuid(), tsId);
+        }
+
+        List<FunctionalIdentifier> result = new ArrayList<>();
+        for (String includedTsuid : index.search(tsuidsInScope, criteria)) {
+            result.add(mapFunctionalIdentifier.get(includedTsuid));
+        }
         return result;
     }
 
-
     /**
-     * Create the map grouping the criteria with same metadata name
+     * Get the criteria of a formula made of criteria connected by AND operator
      *
-     * @param formula the formula is a simple group of atomic criteria connected
-     *                with AND operator
-     * @return
+     * @param formula the formula
+     * @return the list of criteria, or null if the formula has any other group than the top-level AND group
      */
     @SuppressWarnings("unchecked")
-    private Map<String, List<MetadataCriterion>> initMapGroupingSameMetadataName(Group formula)
-            throws IkatsDaoException {
+    private List<MetadataCriterion> getConjunctionOfCriteria(Group formula) {
 
-        Map<String, List<MetadataCriterion>> map = new HashMap<>();
-
-        for (Expression expression : formula.getTerms()) {
-            if (expression instanceof Atom<?>) {
-                Atom<MetadataCriterion> atomMetaCriterion = (Atom<MetadataCriterion>) expression;
-                MetadataCriterion metaCriterion = atomMetaCriterion.getAtomicTerm();
-                String criterionPropertyName = metaCriterion.getMetadataName();
-                List<MetadataCriterion> mapValue = map.get(criterionPropertyName);
-                if (mapValue == null) {
-                    mapValue = new ArrayList<>();
-                    map.put(criterionPropertyName, mapValue);
+        if (formula.getConnector() != ConnectorExpression.AND) {
+            return null;
+        }
+        List<MetadataCriterion> criteria = new ArrayList<>();
+        if (formula.getTerms() != null) {
+            for (Expression expression : formula.getTerms()) {
+                if (!(expression instanceof Atom<?>)) {
+                    return null;
                 }
-
-                mapValue.add(metaCriterion);
-            } else {
-                throw new IkatsDaoException("Not yet implemented: recursive expressions of metadata criterion");
+                criteria.add(((Atom<MetadataCriterion>) expression).getAtomicTerm());
             }
         }
-        return map;
+        return criteria;
     }
 
     /**
@@ -0,0 +1,160 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fr.cs.ikats.metadata.dao;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.SQLQuery;
+
+import fr.cs.ikats.common.dao.exception.IkatsDaoException;
+import fr.cs.ikats.common.dao.exception.IkatsDaoInvalidValueException;
+import fr.cs.ikats.common.expr.Expression;
+import fr.cs.ikats.common.expr.Expression.ConnectorExpression;
+import fr.cs.ikats.common.expr.ExpressionVisitor;
+import fr.cs.ikats.common.expr.SingleValueComparator;
+import fr.cs.ikats.metadata.model.MetadataCriterion;
+
+/**
+ * Compiles a formula of MetadataCriterion, with nested AND/OR/NOT groups, into one SQL condition on the tsuid column
+ * of the TSMetadata table aliased {@link #ROOT_ALIAS}.
+ * <p>
+ * Each criterion is an EXISTS subquery on the metadata row of same tsuid and same name, and the groups are the SQL
+ * boolean connectors. All the operands are bind parameters.
+ */
+class MetaDataFormulaSql implements ExpressionVisitor<MetadataCriterion, String> {
+
+    /**
+     * Alias of the TSMetadata table in the main query
+     */
+    static final String ROOT_ALIAS = "md0";
+
+    /**
+     * bind parameters: name => value
+     */
+    private final Map<String, Object> parameters = new HashMap<>();
+
+    /**
+     * bind parameters: name => list of values
+     */
+    private final Map<String, List<String>> parameterLists = new HashMap<>();
+
+    private int atomCount = 0;
+
+    /**
+     * Compile the formula
+     *
+     * @param formula the formula
+     * @return the SQL condition
+     * @throws IkatsDaoException an invalid criterion, or an invalid group
+     */
+    String compile(Expression formula) throws IkatsDaoException {
+        return formula.evaluate(this);
+    }
+
+    /**
+     * Set the bind parameters collected by the compilation
+     *
+     * @param query the query built with the compiled condition
+     */
+    void bindParameters(SQLQuery query) {
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            query.setParameter(parameter.getKey(), parameter.getValue());
+        }
+        for (Map.Entry<String, List<String>> parameter : parameterLists.entrySet()) {
+            query.setParameterList(parameter.getKey(), parameter.getValue());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String visitAtom(MetadataCriterion criterion) throws IkatsDaoException {
+        int atomIndex = atomCount++;
+        String alias = "md" + (atomIndex + 1);
+        String nameParameter = "name" + atomIndex;
+        String valueParameter = "value" + atomIndex;
+
+        String valueColumn = alias + ".value";
+        String condition;
+        SingleValueComparator comparator = criterion.getTypedComparator();
+        String criterionValue = criterion.getValue();
+        switch (comparator) {
+            case EQUAL:
+            case NEQUAL:
+            case GT:
+            case LT:
+            case GE:
+            case LE:
+                // Date or number
+                try {
+                    parameters.put(valueParameter, Double.parseDouble(criterionValue));
+                } catch (NumberFormatException | NullPointerException e) {
+                    throw new IkatsDaoInvalidValueException("Operand is not a number; " + e.getMessage(), e);
+                }
+                String sqlOperator = comparator == SingleValueComparator.NEQUAL ? "<>" : comparator.getText();
+                if (comparator == SingleValueComparator.EQUAL || comparator == SingleValueComparator.NEQUAL) {
+                    // also applied to the string values written as numbers
+                    condition = "cast( " + valueColumn + " as float ) " + sqlOperator + " :" + valueParameter;
+                } else {
+                    // range filters served by the index on (name, numeric_value)
+                    condition = alias + ".numeric_value " + sqlOperator + " :" + valueParameter;
+                }
+                break;
+            case IN:
+            case NIN:
+                // List of values separated by ";"
+                parameterLists.put(valueParameter, Arrays.asList(criterionValue.split("\\s*;\\s*")));
+                condition = valueColumn + " " + comparator.getText() + " (:" + valueParameter + ")";
+                break;
+            case LIKE:
+            case NLIKE:
+                parameters.put(valueParameter, criterionValue);
+                condition = valueColumn + " " + comparator.getText() + " :" + valueParameter;
+                break;
+            default:
+                throw new IkatsDaoInvalidValueException("Unexpected comparator : " + comparator);
+        }
+        parameters.put(nameParameter, criterion.getMetadataName());
+
+        return "exists (select 1 from TSMetadata " + alias + " where " + alias + ".tsuid = " + ROOT_ALIAS + ".tsuid and "
+                + alias + ".name = :" + nameParameter + " and " + condition + ")";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String visitGroup(ConnectorExpression connector, List<String> evaluatedTerms) throws IkatsDaoException {
+        if (evaluatedTerms.isEmpty()) {
+            // neutral element of the connector
+            return connector == ConnectorExpression.OR ? "1 = 0" : "1 = 1";
+        }
+        StringBuilder sql = new StringBuilder(connector == ConnectorExpression.NOT ? "not (" : "(");
+        String sqlConnector = connector == ConnectorExpression.OR ? " or " : " and ";
+        for (int i = 0; i < evaluatedTerms.size(); i++) {
+            if (i > 0) {
+                sql.append(sqlConnector);
+            }
+            sql.append(evaluatedTerms.get(i));
+        }
+        return sql.append(")").toString();
+    }
+}
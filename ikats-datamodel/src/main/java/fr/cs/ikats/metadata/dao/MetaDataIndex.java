@@ -0,0 +1,452 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fr.cs.ikats.metadata.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+
+import fr.cs.ikats.common.dao.exception.IkatsDaoInvalidValueException;
+import fr.cs.ikats.common.expr.SingleValueComparator;
+import fr.cs.ikats.metadata.model.MetaData;
+import fr.cs.ikats.metadata.model.MetadataCriterion;
+
+/**
+ * In-memory columnar index of the TSMetadata table, used to evaluate the metadata filters without querying the
+ * database.
+ * <p>
+ * Each TSUID is given a dense ordinal. Each metadata name is stored as a column indexed by this ordinal:
+ * <ul>
+ * <li>the values are dictionary-encoded: one int code per ordinal,</li>
+ * <li>the values readable as numbers are also stored in a double[], and the ones having a numeric value (see
+ * {@link MetaData#getNumericValue()}) are flagged for the range filters.</li>
+ * </ul>
+ * A criterion is evaluated into a BitSet of ordinals, and the criteria are combined with BitSet operations.
+ * <p>
+ * The index is optional: it is disabled until {@link MetaDataDAO#rebuildIndex()} is called. Once enabled, it is
+ * kept up to date by the write services of {@link MetaDataDAO}.
+ */
+public class MetaDataIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(MetaDataIndex.class);
+
+    /**
+     * code of an undefined value in a column
+     */
+    private static final int ABSENT = -1;
+
+    /**
+     * initial capacity of the columns
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final MetaDataIndex INSTANCE = new MetaDataIndex();
+
+    /**
+     * Get the index shared by the DAOs
+     *
+     * @return the singleton instance
+     */
+    public static MetaDataIndex getInstance() {
+        return INSTANCE;
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean enabled = false;
+
+    /**
+     * tsuid => dense ordinal
+     */
+    private Map<String, Integer> ordinals = new HashMap<>();
+
+    /**
+     * metadata name => column
+     */
+    private Map<String, Column> columns = new HashMap<>();
+
+    /**
+     * Create an empty and disabled index
+     */
+    public MetaDataIndex() {
+        super();
+    }
+
+    /**
+     * @return true if the index is enabled and can be used to evaluate the filters
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Disable the index and release its content
+     */
+    public void disable() {
+        lock.writeLock().lock();
+        try {
+            enabled = false;
+            ordinals = new HashMap<>();
+            columns = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the content of this index by the content of the loaded one, and enable this index.
+     *
+     * @param loaded the index loaded from the database
+     */
+    void replaceContent(MetaDataIndex loaded) {
+        lock.writeLock().lock();
+        try {
+            ordinals = loaded.ordinals;
+            columns = loaded.columns;
+            enabled = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("MetaDataIndex enabled: " + ordinals.size() + " TSUIDs, " + columns.size() + " metadata names");
+    }
+
+    /**
+     * Define or replace one metadata value
+     *
+     * @param tsuid the tsuid
+     * @param name  the metadata name
+     * @param value the metadata value
+     */
+    public void put(String tsuid, String name, String value) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(tsuid);
+            if (ordinal == null) {
+                ordinal = ordinals.size();
+                ordinals.put(tsuid, ordinal);
+            }
+            Column column = columns.get(name);
+            if (column == null) {
+                column = new Column();
+                columns.put(name, column);
+            }
+            column.set(ordinal, value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all the metadata of one tsuid
+     *
+     * @param tsuid the tsuid
+     */
+    public void remove(String tsuid) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(tsuid);
+            if (ordinal != null) {
+                for (Column column : columns.values()) {
+                    column.unset(ordinal);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove one metadata of one tsuid
+     *
+     * @param tsuid the tsuid
+     * @param name  the metadata name
+     */
+    public void remove(String tsuid, String name) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(tsuid);
+            Column column = columns.get(name);
+            if (ordinal != null && column != null) {
+                column.unset(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Filter the tsuids in scope with criteria connected by AND operator
+     *
+     * @param tsuidsInScope the scope
+     * @param criteria      the criteria
+     * @return the tsuids of the scope matching all the criteria, sorted when there is at least one criterion
+     * @throws IkatsDaoInvalidValueException a criterion is not valid
+     */
+    public List<String> search(List<String> tsuidsInScope, List<MetadataCriterion> criteria)
+            throws IkatsDaoInvalidValueException {
+
+        if (criteria.isEmpty()) {
+            return new ArrayList<>(tsuidsInScope);
+        }
+
+        List<String> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            BitSet matching = null;
+            for (MetadataCriterion criterion : criteria) {
+                Column column = columns.get(criterion.getMetadataName());
+                BitSet evaluated = column == null ? new BitSet() : column.evaluate(criterion);
+                if (matching == null) {
+                    matching = evaluated;
+                } else {
+                    matching.and(evaluated);
+                }
+            }
+
+            for (String tsuid : tsuidsInScope) {
+                Integer ordinal = ordinals.get(tsuid);
+                if (ordinal != null && matching.get(ordinal)) {
+                    result.add(tsuid);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * The column of one metadata name
+     */
+    private static class Column {
+
+        /**
+         * ordinal => dictionary code of the value, or ABSENT
+         */
+        private int[] codes = newCodes(INITIAL_CAPACITY, new int[0]);
+
+        /**
+         * ordinal => value as number, or NaN when the value is not a number. Allocated on the first numeric value.
+         */
+        private double[] numbers = null;
+
+        /**
+         * code => value
+         */
+        private final List<String> dictionary = new ArrayList<>();
+
+        /**
+         * value => code
+         */
+        private final Map<String, Integer> dictionaryCodes = new HashMap<>();
+
+        /**
+         * ordinals having a value
+         */
+        private final BitSet defined = new BitSet();
+
+        void set(int ordinal, String value) {
+            if (ordinal >= codes.length) {
+                int capacity = Math.max(ordinal + 1, codes.length * 2);
+                codes = newCodes(capacity, codes);
+                if (numbers != null) {
+                    numbers = newNumbers(capacity, numbers);
+                }
+            }
+
+            Integer code = dictionaryCodes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                dictionaryCodes.put(value, code);
+            }
+            codes[ordinal] = code;
+            defined.set(ordinal);
+
+            double number = parseNumber(value);
+            if (!Double.isNaN(number) && numbers == null) {
+                numbers = newNumbers(codes.length, new double[0]);
+            }
+            if (numbers != null) {
+                numbers[ordinal] = number;
+            }
+        }
+
+        void unset(int ordinal) {
+            if (ordinal < codes.length) {
+                codes[ordinal] = ABSENT;
+                if (numbers != null) {
+                    numbers[ordinal] = Double.NaN;
+                }
+                defined.clear(ordinal);
+            }
+        }
+
+        /**
+         * Evaluate the criterion on each defined value: same semantic than the SQL filters of
+         * {@link MetaDataDAO#searchFuncId(List, fr.cs.ikats.common.expr.Group)}
+         *
+         * @param criterion the criterion
+         * @return the ordinals matching the criterion
+         * @throws IkatsDaoInvalidValueException invalid criterion
+         */
+        BitSet evaluate(MetadataCriterion criterion) throws IkatsDaoInvalidValueException {
+            SingleValueComparator comparator = criterion.getTypedComparator();
+            String criterionValue = criterion.getValue();
+            BitSet result = new BitSet();
+
+            switch (comparator) {
+                case EQUAL:
+                case NEQUAL:
+                case GT:
+                case LT:
+                case GE:
+                case LE: {
+                    double operand;
+                    try {
+                        operand = Double.parseDouble(criterionValue);
+                    } catch (NumberFormatException e) {
+                        throw new IkatsDaoInvalidValueException("Operand is not a number; " + e.getMessage(), e);
+                    }
+                    // like the SQL filters: any value readable as a number is compared
+                    if (numbers != null) {
+                        for (int i = defined.nextSetBit(0); i >= 0; i = defined.nextSetBit(i + 1)) {
+                            if (compare(comparator, numbers[i], operand)) {
+                                result.set(i);
+                            }
+                        }
+                    }
+                }
+                break;
+                case IN:
+                case NIN: {
+                    BitSet listedCodes = new BitSet();
+                    for (String listed : criterionValue.split("\\s*;\\s*")) {
+                        Integer code = dictionaryCodes.get(listed);
+                        if (code != null) {
+                            listedCodes.set(code);
+                        }
+                    }
+                    boolean expected = comparator == SingleValueComparator.IN;
+                    for (int i = defined.nextSetBit(0); i >= 0; i = defined.nextSetBit(i + 1)) {
+                        if (listedCodes.get(codes[i]) == expected) {
+                            result.set(i);
+                        }
+                    }
+                }
+                break;
+                case LIKE:
+                case NLIKE: {
+                    // the pattern is evaluated once per distinct value
+                    Pattern pattern = likeToPattern(criterionValue);
+                    boolean expected = comparator == SingleValueComparator.LIKE;
+                    BitSet matchingCodes = new BitSet();
+                    for (int code = 0; code < dictionary.size(); code++) {
+                        if (pattern.matcher(dictionary.get(code)).matches() == expected) {
+                            matchingCodes.set(code);
+                        }
+                    }
+                    for (int i = defined.nextSetBit(0); i >= 0; i = defined.nextSetBit(i + 1)) {
+                        if (matchingCodes.get(codes[i])) {
+                            result.set(i);
+                        }
+                    }
+                }
+                break;
+                default:
+                    throw new IkatsDaoInvalidValueException("Unknown comparator : " + comparator);
+            }
+            return result;
+        }
+
+        private static boolean compare(SingleValueComparator comparator, double value, double operand) {
+            if (Double.isNaN(value)) {
+                return false;
+            }
+            switch (comparator) {
+                case EQUAL:
+                    return value == operand;
+                case NEQUAL:
+                    return value != operand;
+                case GT:
+                    return value > operand;
+                case LT:
+                    return value < operand;
+                case GE:
+                    return value >= operand;
+                case LE:
+                    return value <= operand;
+                default:
+                    return false;
+            }
+        }
+
+        private static double parseNumber(String value) {
+            Double number = MetaData.toNumericValue(value);
+            return number == null ? Double.NaN : number;
+        }
+
+        private static int[] newCodes(int capacity, int[] previous) {
+            int[] newCodes = Arrays.copyOf(previous, capacity);
+            Arrays.fill(newCodes, previous.length, capacity, ABSENT);
+            return newCodes;
+        }
+
+        private static double[] newNumbers(int capacity, double[] previous) {
+            double[] newNumbers = Arrays.copyOf(previous, capacity);
+            Arrays.fill(newNumbers, previous.length, capacity, Double.NaN);
+            return newNumbers;
+        }
+    }
+
+    /**
+     * Convert a SQL LIKE pattern into a regular expression: '%' matches any sequence, '_' matches one character.
+     *
+     * @param like the SQL pattern
+     * @return the compiled pattern
+     */
+    static Pattern likeToPattern(String like) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : like.toCharArray()) {
+            if (c == '%' || c == '_') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '%' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+}
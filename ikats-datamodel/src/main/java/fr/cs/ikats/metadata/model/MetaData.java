@@ -17,6 +17,7 @@
 package fr.cs.ikats.metadata.model;
 
 import java.util.Objects;
+import java.util.regex.Pattern;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -29,12 +30,18 @@ import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 
+import org.hibernate.annotations.Index;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 /**
  * model class for MetaData.
  *
  */
 @Entity
 @Table(name = "TSMetadata", uniqueConstraints = @UniqueConstraint(columnNames = {"tsuid", "name"}))
+@org.hibernate.annotations.Table(appliesTo = "TSMetadata", indexes = {
+        @Index(name = "tsmetadata_name_numeric_value_idx", columnNames = {"name", "numeric_value"})})
 public class MetaData {
 
     /**
@@ -69,6 +76,11 @@ public class MetaData {
      */
     public final static String GET_MD = "select md from MetaData md where md.tsuid = :tsuid and  md.name = :name";
 
+    /**
+     * Decimal numbers having a numeric value: no hexadecimal, no Java type suffix
+     */
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+
     /**
      * default constructor
      */
@@ -95,6 +107,12 @@ public class MetaData {
     @Enumerated(EnumType.STRING)
     private MetaType dtype;
 
+    /**
+     * Shadow of value when it is a number, used by the range filters. Computed by the setters.
+     */
+    @Column(name = "numeric_value")
+    private Double numericValue;
+
     /**
      * @return the id
      */
@@ -155,6 +173,15 @@ public class MetaData {
      */
     public void setValue(String value) {
         this.value = value;
+        this.numericValue = toNumericValue(value);
+    }
+
+    /**
+     * @return the value as a number, whatever the dtype, null when the value is not a number
+     */
+    @JsonIgnore
+    public Double getNumericValue() {
+        return numericValue;
     }
 
     /**
@@ -211,6 +238,25 @@ public class MetaData {
         this.dtype = value;
     }
 
+    /**
+     * Compute the numeric shadow of a metadata value. It is computed whatever the dtype, like the cast of the value
+     * evaluated by the range filters before this column existed: the numbers imported with the default string dtype
+     * are matched too.
+     *
+     * @param value the metadata value
+     * @return the value as a number, null when the value is not a decimal number
+     */
+    public static Double toNumericValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        if (!NUMBER_PATTERN.matcher(trimmed).matches()) {
+            return null;
+        }
+        return Double.valueOf(trimmed);
+    }
+
 
     /**
      * Tests the entity equality between this and obj: database identity
@@ -16,7 +16,9 @@
 
 package fr.cs.ikats.table;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import javax.persistence.Column;
 import javax.persistence.GeneratedValue;
@@ -24,13 +26,26 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.MappedSuperclass;
 import javax.persistence.SequenceGenerator;
+import javax.persistence.Version;
 
 /**
  * Superclass allowing to get a light {@link TableEntitySummary} and a full entity {@link TableEntity}
+ * <p>
+ * The catalog properties (row count, column count, column names and types, byte size and checksum) describe the
+ * stored raw values: they are written with them, so that they are read from the summary without loading the raw
+ * values. They are undefined for the tables stored before the catalog.
+ * <p>
+ * The content of a table is stored in row groups: the first one is stored by the {@link TableEntity} with the headers,
+ * the following ones are the rows appended later, each stored by one {@link TableSegmentEntity}.
  */
 @MappedSuperclass
 public abstract class AbstractTableEntity {
 
+    /**
+     * Maximum length of the encoded lists of the catalog
+     */
+    private static final int MAX_CATALOG_LIST_LENGTH = 1048576;
+
     /**
      * Unique identifier allowing to query any table
      */
@@ -77,6 +92,57 @@ public abstract class AbstractTableEntity {
     @Column(name = "created")
     private Date created;
 
+    /**
+     * Catalog: number of rows of the content, the columns header excluded
+     */
+    @Column(name = "rowCount")
+    private Integer rowCount;
+
+    /**
+     * Catalog: number of columns, the rows header included
+     */
+    @Column(name = "columnCount")
+    private Integer columnCount;
+
+    /**
+     * Catalog: names of the columns, in the columns header, encoded by {@link #encodeList(List)}
+     */
+    @Column(name = "columnNames", length = MAX_CATALOG_LIST_LENGTH)
+    private String columnNames;
+
+    /**
+     * Catalog: types of the values of the columns, encoded by {@link #encodeList(List)}
+     */
+    @Column(name = "columnTypes", length = MAX_CATALOG_LIST_LENGTH)
+    private String columnTypes;
+
+    /**
+     * Catalog: size in bytes of the raw values and the raw datalinks, including the appended row groups
+     */
+    @Column(name = "byteSize")
+    private Long byteSize;
+
+    /**
+     * Catalog: checksum of the raw values and the raw datalinks, chained with the appended row groups
+     */
+    @Column(name = "checksum", length = 32)
+    private String checksum;
+
+    /**
+     * Number of row groups of the content: the raw values of the {@link TableEntity}, then the appended
+     * {@link TableSegmentEntity}. Undefined for the tables never appended, having one single row group.
+     */
+    @Column(name = "rowGroupCount")
+    private Integer rowGroupCount;
+
+    /**
+     * Version of the stored table, incremented by each update: the update of an entity read before another update is
+     * rejected. Identifies the stored content, for the {@link TableCache}.
+     */
+    @Version
+    @Column(name = "version", columnDefinition = "integer default 0 not null")
+    private int version;
+
 
     /**
      * Getter for the id
@@ -206,4 +272,205 @@ public abstract class AbstractTableEntity {
         this.created = created;
     }
 
+    /**
+     * Getter for the number of rows of the content
+     *
+     * @return the row count, null when the catalog is undefined
+     */
+    public Integer getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Setter for the number of rows of the content
+     *
+     * @param rowCount the row count to set
+     */
+    public void setRowCount(Integer rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Getter for the number of columns, the rows header included
+     *
+     * @return the column count, null when the catalog is undefined
+     */
+    public Integer getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Setter for the number of columns
+     *
+     * @param columnCount the column count to set
+     */
+    public void setColumnCount(Integer columnCount) {
+        this.columnCount = columnCount;
+    }
+
+    /**
+     * Getter for the names of the columns
+     *
+     * @return the names in the columns header, empty without columns header, null when the catalog is undefined
+     */
+    public List<String> getColumnNames() {
+        return decodeList(columnNames);
+    }
+
+    /**
+     * Setter for the names of the columns
+     *
+     * @param columnNames the names to set
+     */
+    public void setColumnNames(List<String> columnNames) {
+        this.columnNames = encodeList(columnNames);
+    }
+
+    /**
+     * Getter for the types of the columns
+     *
+     * @return the simple class name of the values of each column: Object for mixed types, null for a column without
+     * value. null when the catalog is undefined.
+     */
+    public List<String> getColumnTypes() {
+        return decodeList(columnTypes);
+    }
+
+    /**
+     * Setter for the types of the columns
+     *
+     * @param columnTypes the types to set
+     */
+    public void setColumnTypes(List<String> columnTypes) {
+        this.columnTypes = encodeList(columnTypes);
+    }
+
+    /**
+     * Getter for the size in bytes of the stored raw data
+     *
+     * @return the byte size, null when the catalog is undefined
+     */
+    public Long getByteSize() {
+        return byteSize;
+    }
+
+    /**
+     * Setter for the size in bytes of the stored raw data
+     *
+     * @param byteSize the byte size to set
+     */
+    public void setByteSize(Long byteSize) {
+        this.byteSize = byteSize;
+    }
+
+    /**
+     * Getter for the checksum of the stored raw data
+     *
+     * @return the checksum, null when the catalog is undefined
+     */
+    public String getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * Setter for the checksum of the stored raw data
+     *
+     * @param checksum the checksum to set
+     */
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    /**
+     * Getter for the number of row groups
+     *
+     * @return the row group count, null for a table never appended
+     */
+    public Integer getRowGroupCount() {
+        return rowGroupCount;
+    }
+
+    /**
+     * Setter for the number of row groups
+     *
+     * @param rowGroupCount the row group count to set
+     */
+    public void setRowGroupCount(Integer rowGroupCount) {
+        this.rowGroupCount = rowGroupCount;
+    }
+
+    /**
+     * Getter for the version
+     *
+     * @return the version of the stored table
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Setter for the version
+     *
+     * @param version the version to set
+     */
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    /**
+     * Encodes a list of strings into one string: each item is followed by a line feed, the backslash and the line
+     * feed of the items are escaped, and a null item is written "\\0".
+     *
+     * @param items the items
+     * @return the encoded list, null for a null list
+     */
+    static String encodeList(List<String> items) {
+        if (items == null) {
+            return null;
+        }
+        StringBuilder encoded = new StringBuilder();
+        for (String item : items) {
+            if (item == null) {
+                encoded.append("\\0");
+            } else {
+                encoded.append(item.replace("\\", "\\\\").replace("\n", "\\n"));
+            }
+            encoded.append('\n');
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * Decodes a list of strings encoded by {@link #encodeList(List)}
+     *
+     * @param encoded the encoded list
+     * @return the items, null for a null encoded list
+     */
+    static List<String> decodeList(String encoded) {
+        if (encoded == null) {
+            return null;
+        }
+        List<String> items = new ArrayList<>();
+        StringBuilder item = new StringBuilder();
+        boolean undefined = false;
+        for (int i = 0; i < encoded.length(); i++) {
+            char c = encoded.charAt(i);
+            if (c == '\n') {
+                items.add(undefined ? null : item.toString());
+                item.setLength(0);
+                undefined = false;
+            } else if (c == '\\' && i + 1 < encoded.length()) {
+                char escaped = encoded.charAt(++i);
+                if (escaped == '0') {
+                    undefined = true;
+                } else {
+                    item.append(escaped == 'n' ? '\n' : escaped);
+                }
+            } else {
+                item.append(c);
+            }
+        }
+        return items;
+    }
+
 }
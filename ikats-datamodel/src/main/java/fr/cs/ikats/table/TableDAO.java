@@ -23,8 +23,11 @@ import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
 import org.hibernate.Query;
 import org.hibernate.Session;
+import org.hibernate.StaleObjectStateException;
 import org.hibernate.StaleStateException;
 import org.hibernate.Transaction;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.exception.ConstraintViolationException;
 
@@ -121,6 +124,86 @@ public class TableDAO extends DataBaseDAO {
     }
 
 
+    /**
+     * Get the summary of a table by providing its name (which is unique): the catalog properties are read, without
+     * loading the raw values and the raw datalinks.
+     *
+     * @param name unique name of the table
+     *
+     * @return The TableEntitySummary matching this name
+     *
+     * @throws IkatsDaoMissingResource if there is no table matching the name
+     */
+    public TableEntitySummary getSummaryByName(String name) throws IkatsDaoMissingResource {
+        TableEntitySummary result = null;
+
+        Session session = getSession();
+        Transaction tx = null;
+        try {
+            tx = session.beginTransaction();
+
+            Criteria criteria = session.createCriteria(TableEntitySummary.class);
+            criteria.add(Restrictions.eq("name", name));
+            result = (TableEntitySummary) criteria.uniqueResult();
+
+            if (result == null) {
+                String msg = "Table " + name + " not found";
+                LOGGER.error(msg);
+                tx.rollback();
+                throw new IkatsDaoMissingResource(msg);
+            } else {
+                tx.commit();
+            }
+
+        } catch (RuntimeException e) {
+            if (tx != null) {
+                tx.rollback();
+            }
+            // Re-raise the original exception
+            throw e;
+        } finally {
+            session.close();
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks if a table exists, by counting the tables with its name: no entity is loaded
+     *
+     * @param name unique name of the table
+     *
+     * @return true if the table exists
+     *
+     * @throws HibernateException if the table couldn't be counted
+     */
+    public boolean exists(String name) {
+        long count;
+
+        Session session = getSession();
+        Transaction tx = null;
+        try {
+            tx = session.beginTransaction();
+
+            Criteria criteria = session.createCriteria(TableEntitySummary.class);
+            criteria.add(Restrictions.eq("name", name));
+            criteria.setProjection(Projections.rowCount());
+            count = ((Number) criteria.uniqueResult()).longValue();
+
+            tx.commit();
+        } catch (HibernateException e) {
+            if (tx != null) {
+                tx.rollback();
+            }
+            // Re-raise the original exception
+            throw e;
+        } finally {
+            session.close();
+        }
+
+        return count > 0;
+    }
+
     /**
      * Get a TableEntity by providing its id (which is unique)
      *
@@ -259,7 +342,7 @@ public class TableDAO extends DataBaseDAO {
      *
      * @return true if the table update is successful
      *
-     * @throws IkatsDaoConflictException if the table to update does not exist
+     * @throws IkatsDaoConflictException if the table has been concurrently updated or removed since it was read
      * @throws IkatsDaoException         if any other exception occurs
      */
     public boolean update(TableEntity tableEntity) throws IkatsDaoException {
@@ -274,6 +357,11 @@ public class TableDAO extends DataBaseDAO {
             session.update(tableEntity);
             tx.commit();
             updated = true;
+        } catch (StaleObjectStateException e) {
+
+            String msg = "TableEntity with id:" + tableEntity.getId() + " has been concurrently modified or removed";
+            LOGGER.error(msg, e);
+            rollbackAndThrowException(tx, new IkatsDaoConflictException(msg, e));
         } catch (StaleStateException e) {
 
             String msg = "No match for TableEntity with id:" + tableEntity.getId();
@@ -294,6 +382,138 @@ public class TableDAO extends DataBaseDAO {
         return updated;
     }
 
+    /**
+     * List the row groups appended to a table, with their raw values
+     *
+     * @param tableId identifier of the table
+     *
+     * @return the segments of the table, ordered by row group. Empty for a table never appended.
+     *
+     * @throws HibernateException if the segments couldn't be read
+     */
+    @SuppressWarnings("unchecked")
+    public List<TableSegmentEntity> listSegments(int tableId) {
+        List<TableSegmentEntity> result = null;
+
+        Session session = getSession();
+        Transaction tx = null;
+        try {
+            tx = session.beginTransaction();
+
+            Criteria criteria = session.createCriteria(TableSegmentEntity.class);
+            criteria.add(Restrictions.eq("tableId", tableId));
+            criteria.addOrder(Order.asc("rowGroup"));
+            result = criteria.list();
+
+            tx.commit();
+        } catch (HibernateException e) {
+            if (tx != null) {
+                tx.rollback();
+            }
+            // Re-raise the original exception
+            throw e;
+        } finally {
+            session.close();
+        }
+
+        return result;
+    }
+
+    /**
+     * Get one row group appended to a table
+     *
+     * @param tableId  identifier of the table
+     * @param rowGroup index of the row group, from 1
+     *
+     * @return the segment of the row group
+     *
+     * @throws IkatsDaoMissingResource if the table has no such row group
+     */
+    public TableSegmentEntity getSegment(int tableId, int rowGroup) throws IkatsDaoMissingResource {
+        TableSegmentEntity result = null;
+
+        Session session = getSession();
+        Transaction tx = null;
+        try {
+            tx = session.beginTransaction();
+
+            Criteria criteria = session.createCriteria(TableSegmentEntity.class);
+            criteria.add(Restrictions.eq("tableId", tableId));
+            criteria.add(Restrictions.eq("rowGroup", rowGroup));
+            result = (TableSegmentEntity) criteria.uniqueResult();
+
+            if (result == null) {
+                String msg = "Row group " + rowGroup + " of table " + tableId + " not found";
+                LOGGER.error(msg);
+                tx.rollback();
+                throw new IkatsDaoMissingResource(msg);
+            } else {
+                tx.commit();
+            }
+
+        } catch (RuntimeException e) {
+            if (tx != null) {
+                tx.rollback();
+            }
+            // Re-raise the original exception
+            throw e;
+        } finally {
+            session.close();
+        }
+
+        return result;
+    }
+
+    /**
+     * Save a row group of a table, appended or replaced, and the summary of the table in the same transaction: the
+     * raw values of the {@link TableEntity} are not written.
+     *
+     * @param summary the summary of the table, with its updated catalog and row group count
+     * @param segment the segment of the row group: created when its id is undefined, updated otherwise
+     *
+     * @throws IkatsDaoConflictException if the row group has been concurrently appended, or the table concurrently
+     *                                   modified or removed since the summary was read
+     * @throws IkatsDaoException         if the segment does not exist any more
+     */
+    public void saveSegment(TableEntitySummary summary, TableSegmentEntity segment) throws IkatsDaoException {
+
+        Session session = getSession();
+        Transaction tx = null;
+        try {
+            LOGGER.debug("Saving row group " + segment.getRowGroup() + " of " + summary.getName());
+            tx = session.beginTransaction();
+
+            session.saveOrUpdate(segment);
+            session.update(summary);
+            tx.commit();
+        } catch (ConstraintViolationException e) {
+            if (tx != null) {
+                tx.rollback();
+            }
+            throw new IkatsDaoConflictException(e);
+        } catch (StaleObjectStateException e) {
+
+            String msg = e.getEntityName() + " with id:" + e.getIdentifier() + " has been concurrently modified or removed";
+            LOGGER.error(msg, e);
+            rollbackAndThrowException(tx, new IkatsDaoConflictException(msg, e));
+        } catch (StaleStateException e) {
+
+            String msg = "No match for row group " + segment.getRowGroup() + " of TableEntity with id:" + summary.getId();
+            LOGGER.error(msg, e);
+            rollbackAndThrowException(tx, new IkatsDaoMissingResource(msg, e));
+        } catch (RuntimeException e) {
+            // try to rollback
+            if (tx != null) {
+                tx.rollback();
+            }
+            // Re-raise the original exception
+            throw e;
+        } finally {
+            // end the session
+            session.close();
+        }
+    }
+
     /**
      * Delete a Table identified by its id
      *
@@ -309,6 +529,10 @@ public class TableDAO extends DataBaseDAO {
             LOGGER.debug("Deleting TableEntity rows matching id=" + id);
             tx = session.beginTransaction();
 
+            Query deleteSegments = session.createQuery("delete from TableSegmentEntity where tableId = :tableId");
+            deleteSegments.setInteger("tableId", id);
+            deleteSegments.executeUpdate();
+
             TableEntity tableEntity = new TableEntity();
             tableEntity.setId(id);
             session.delete(tableEntity);
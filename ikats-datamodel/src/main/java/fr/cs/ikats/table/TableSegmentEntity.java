@@ -0,0 +1,162 @@
+/**
+ * Copyright 2018-2019 CS Systèmes d'Information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package fr.cs.ikats.table;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * One row group appended to the content of a table: see {@link AbstractTableEntity#getRowGroupCount()}. The row
+ * groups are stored apart from the {@link TableEntity}, so that appending or replacing one of them does not write the
+ * raw values of the whole table.
+ */
+@Entity
+@Table(name = "TableSegment", uniqueConstraints = @UniqueConstraint(columnNames = { "tableId", "rowGroup" }))
+public class TableSegmentEntity {
+
+    /**
+     * Unique identifier of the segment
+     */
+    @Id
+    @SequenceGenerator(name = "table_segment_id_seq", sequenceName = "table_segment_id_seq", allocationSize = 1)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "table_segment_id_seq")
+    @Column(name = "id", updatable = false)
+    private Integer id;
+
+    /**
+     * Identifier of the table
+     */
+    @Column(name = "tableId", nullable = false, updatable = false)
+    private int tableId;
+
+    /**
+     * Index of the row group in the table: 0 is the row group stored by the {@link TableEntity}
+     */
+    @Column(name = "rowGroup", nullable = false, updatable = false)
+    private int rowGroup;
+
+    /**
+     * Number of rows of the row group
+     */
+    @Column(name = "rowCount", nullable = false)
+    private int rowCount;
+
+    /**
+     * Opaque data containing the rows of the row group, without headers
+     */
+    @Lob
+    @Column(name = "rawValues")
+    private byte[] rawValues;
+
+    /**
+     * Getter for the id
+     *
+     * @return the id to get, null before the segment is saved
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * Setter for the id
+     *
+     * @param id the id to set
+     */
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    /**
+     * Getter for the id of the table
+     *
+     * @return the tableId to get
+     */
+    public int getTableId() {
+        return tableId;
+    }
+
+    /**
+     * Setter for the id of the table
+     *
+     * @param tableId the tableId to set
+     */
+    public void setTableId(int tableId) {
+        this.tableId = tableId;
+    }
+
+    /**
+     * Getter for the index of the row group
+     *
+     * @return the rowGroup to get
+     */
+    public int getRowGroup() {
+        return rowGroup;
+    }
+
+    /**
+     * Setter for the index of the row group
+     *
+     * @param rowGroup the rowGroup to set
+     */
+    public void setRowGroup(int rowGroup) {
+        this.rowGroup = rowGroup;
+    }
+
+    /**
+     * Getter for the number of rows
+     *
+     * @return the rowCount to get
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Setter for the number of rows
+     *
+     * @param rowCount the rowCount to set
+     */
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Getter for the rawValues
+     *
+     * @return the rawValues to get
+     */
+    public byte[] getRawValues() {
+        return rawValues;
+    }
+
+    /**
+     * Setter for the rawValues
+     *
+     * @param rawValues the rawValues to set
+     */
+    public void setRawValues(byte[] rawValues) {
+        this.rawValues = rawValues;
+    }
+}
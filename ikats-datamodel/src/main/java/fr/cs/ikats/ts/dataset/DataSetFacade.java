@@ -18,6 +18,7 @@ package fr.cs.ikats.ts.dataset;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.PreDestroy;
 
@@ -143,6 +144,45 @@ public class DataSetFacade {
         dao.removeTSFromDataSet(tsuid, datasetName);
     }
 
+    /**
+     * For each TS of a dataset, list the other datasets including it
+     *
+     * @param datasetName the dataset
+     * @return the map tsuid => names of the other datasets including the TS, empty when the TS only belongs to the
+     * dataset
+     * @throws IkatsDaoException
+     */
+    public Map<String, List<String>> getOtherDataSetNamesByTsuid(String datasetName) throws IkatsDaoException {
+        return dao.getOtherDataSetNamesByTsuid(datasetName);
+    }
+
+    /**
+     * For each TS of a dataset having one of the metrics, get its functional identifier grouped by the value of a join
+     * metadata and by metric, with one query
+     *
+     * @param datasetName  the dataset
+     * @param metrics      the searched values of the metadata "metric"
+     * @param joinMetaName the name of the join metadata
+     * @return the map join value => metric => functional identifier
+     * @throws IkatsDaoException
+     */
+    public Map<String, Map<String, FunctionalIdentifier>> getMetricTsByJoinValue(String datasetName, List<String> metrics,
+                                                                                String joinMetaName) throws IkatsDaoException {
+        return dao.getMetricTsByJoinValue(datasetName, metrics, joinMetaName);
+    }
+
+    /**
+     * delete the links between a list of tsuids and datasetName, by bulk deletes
+     *
+     * @param tsuids      the tsuids to detach from dataset
+     * @param datasetName the dataset
+     * @return the number of deleted links
+     * @throws IkatsDaoException
+     */
+    public int removeTSFromDataSet(List<String> tsuids, String datasetName) throws IkatsDaoException {
+        return dao.removeTSFromDataSet(tsuids, datasetName);
+    }
+
     /**
      * Delete the dataset links Timeserie matched by the tsuidList, for the specified dataset name
      *
@@ -16,13 +16,18 @@
 
 package fr.cs.ikats.ts.dataset.dao;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.hibernate.Hibernate;
 import org.hibernate.HibernateException;
 import org.hibernate.Query;
+import org.hibernate.SQLQuery;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 import org.hibernate.transform.Transformers;
@@ -30,6 +35,7 @@ import org.hibernate.transform.Transformers;
 import fr.cs.ikats.common.dao.DataBaseDAO;
 import fr.cs.ikats.common.dao.exception.IkatsDaoException;
 import fr.cs.ikats.common.dao.exception.IkatsDaoMissingResource;
+import fr.cs.ikats.metadata.model.FunctionalIdentifier;
 import fr.cs.ikats.ts.dataset.model.DataSet;
 import fr.cs.ikats.ts.dataset.model.LinkDatasetTimeSeries;
 
@@ -40,6 +46,11 @@ import fr.cs.ikats.ts.dataset.model.LinkDatasetTimeSeries;
 public class DataSetDAO extends DataBaseDAO {
 
     private static final Logger LOGGER = Logger.getLogger(DataSetDAO.class);
+
+    /**
+     * Maximum number of tsuids bound to one IN clause
+     */
+    private static final int MAX_SQL_IN_CLAUSE_LIMIT = 20000;
 	
 	/**
      * persist the dataset
@@ -273,11 +284,13 @@ public class DataSetDAO extends DataBaseDAO {
         DataSet ds;
         try {
             tx = session.beginTransaction();
+            // the links are removed by one bulk delete, before loading the dataset
+            Query deleteLinks = session.createQuery(LinkDatasetTimeSeries.DELETE_ALL_TS_LINKS_FROM_DATASET);
+            deleteLinks.setString("dataset", name);
+            deleteLinks.executeUpdate();
+
             ds = (DataSet) session.get(DataSet.class, name);
             if (ds != null) {
-                for (LinkDatasetTimeSeries ts : ds.getLinksToTimeSeries()) {
-                    session.delete(ts);
-                }
                 session.delete(ds);
             } else {
                 throw new IkatsDaoMissingResource("Dataset not found in database: " + name);
@@ -363,6 +376,131 @@ public class DataSetDAO extends DataBaseDAO {
         return result;
     }
 
+    /**
+     * For each TS of a dataset, list the other datasets including it, with one query.
+     *
+     * @param datasetName the dataset
+     * @return the map tsuid => names of the other datasets including the TS, empty when the TS only belongs to the
+     * dataset. Sorted by tsuid.
+     * @throws IkatsDaoException error raised by DAO layer
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, List<String>> getOtherDataSetNamesByTsuid(String datasetName) throws IkatsDaoException {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        Session session = getSession();
+        Transaction tx = null;
+        try {
+            tx = session.beginTransaction();
+
+            SQLQuery q = session.createSQLQuery(LinkDatasetTimeSeries.LIST_OTHER_DATASET_NAMES_FOR_DATASET);
+            q.addScalar("tsuid", Hibernate.STRING);
+            q.addScalar("dataset_name", Hibernate.STRING);
+            q.setString("dataset", datasetName);
+            for (Object[] row : (List<Object[]>) q.list()) {
+                String tsuid = (String) row[0];
+                List<String> otherNames = result.get(tsuid);
+                if (otherNames == null) {
+                    otherNames = new ArrayList<>();
+                    result.put(tsuid, otherNames);
+                }
+                if (row[1] != null) {
+                    otherNames.add((String) row[1]);
+                }
+            }
+            tx.commit();
+        } catch (RuntimeException e) {
+            if (tx != null) tx.rollback();
+            throw new IkatsDaoException("Hibernate error: Get the other datasets of the TS of dataset=" + datasetName, e);
+        } finally {
+            session.close();
+        }
+        return result;
+    }
+
+    /**
+     * For each TS of a dataset having one of the metrics, get its functional identifier grouped by the value of a join
+     * metadata and by metric, with one query joining the dataset links, the functional identifiers and the metadata.
+     *
+     * @param datasetName  the dataset
+     * @param metrics      the searched values of the metadata "metric"
+     * @param joinMetaName the name of the join metadata
+     * @return the map join value => metric => functional identifier. When several TS match the same join value and
+     * metric, only one is kept.
+     * @throws IkatsDaoException error raised by DAO layer
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<String, FunctionalIdentifier>> getMetricTsByJoinValue(String datasetName, List<String> metrics,
+                                                                                String joinMetaName) throws IkatsDaoException {
+        Map<String, Map<String, FunctionalIdentifier>> result = new HashMap<>();
+        if (metrics == null || metrics.isEmpty()) {
+            return result;
+        }
+        Session session = getSession();
+        Transaction tx = null;
+        try {
+            tx = session.beginTransaction();
+
+            SQLQuery q = session.createSQLQuery(LinkDatasetTimeSeries.LIST_METRIC_TS_FOR_DATASET);
+            q.addScalar("tsuid", Hibernate.STRING);
+            q.addScalar("funcid", Hibernate.STRING);
+            q.addScalar("metric", Hibernate.STRING);
+            q.addScalar("joinvalue", Hibernate.STRING);
+            q.setString("dataset", datasetName);
+            q.setString("joinMeta", joinMetaName);
+            q.setParameterList("metrics", metrics);
+            for (Object[] row : (List<Object[]>) q.list()) {
+                String joinValue = (String) row[3];
+                Map<String, FunctionalIdentifier> byMetric = result.get(joinValue);
+                if (byMetric == null) {
+                    byMetric = new HashMap<>();
+                    result.put(joinValue, byMetric);
+                }
+                byMetric.put((String) row[2], new FunctionalIdentifier((String) row[0], (String) row[1]));
+            }
+            tx.commit();
+        } catch (RuntimeException e) {
+            if (tx != null) tx.rollback();
+            throw new IkatsDaoException("Hibernate error: Get the TS of metrics=" + metrics + " by " + joinMetaName
+                    + " in dataset=" + datasetName, e);
+        } finally {
+            session.close();
+        }
+        return result;
+    }
+
+    /**
+     * delete the links between a list of tsuids and datasetName: one bulk delete per chunk of tsuids, within one
+     * transaction.
+     *
+     * @param tsuids      the tsuids to detach from dataset
+     * @param datasetName the dataset
+     * @return the number of deleted links
+     * @throws IkatsDaoException error raised by DAO layer
+     */
+    public int removeTSFromDataSet(List<String> tsuids, String datasetName) throws IkatsDaoException {
+        int count = 0;
+        Session session = getSession();
+        Transaction tx = null;
+
+        try {
+            tx = session.beginTransaction();
+            for (int from = 0; from < tsuids.size(); from += MAX_SQL_IN_CLAUSE_LIMIT) {
+                int to = Math.min(from + MAX_SQL_IN_CLAUSE_LIMIT, tsuids.size());
+                Query q = session.createQuery(LinkDatasetTimeSeries.DELETE_TSUIDS_FROM_DATASET);
+                q.setString("dataset", datasetName);
+                q.setParameterList("tsuids", tsuids.subList(from, to));
+                count += q.executeUpdate();
+            }
+            tx.commit();
+        } catch (RuntimeException e) {
+            IkatsDaoException error = new IkatsDaoException("RuntimeException occured => failed to delete TS links from dataset with name=" + datasetName, e);
+            rollbackAndThrowException(tx, error);
+        } finally {
+            session.close();
+        }
+        return count;
+    }
+
     /**
      * delete the link between tsuid and datasetName
      *
@@ -77,6 +77,29 @@ public class LinkDatasetTimeSeries {
      */
     public transient final static String DELETE_ALL_TS_LINKS_FROM_DATASET = "delete LinkDatasetTimeSeries T where T.dataset.name = :dataset";
 
+    /**
+     * HQL request: remove the links from a dataset to a list of TS.
+     */
+    public transient final static String DELETE_TSUIDS_FROM_DATASET = "delete LinkDatasetTimeSeries T where T.funcIdentifier.tsuid in (:tsuids) and T.dataset.name = :dataset";
+
+    /**
+     * SQL request: for each TS of a dataset, the names of the other datasets including it (null when none).
+     */
+    public transient final static String LIST_OTHER_DATASET_NAMES_FOR_DATASET = "select ds.tsuid, other.dataset_name from TimeSeries_Dataset ds "
+            + "left outer join TimeSeries_Dataset other on other.tsuid = ds.tsuid and other.dataset_name <> ds.dataset_name "
+            + "where ds.dataset_name = :dataset order by ds.tsuid";
+
+    /**
+     * SQL request: for each TS of a dataset whose metadata "metric" is in a list, its functional identifier, its metric
+     * and the value of its join metadata. The TS without the join metadata are ignored.
+     */
+    public transient final static String LIST_METRIC_TS_FOR_DATASET = "select fi.tsuid, fi.FuncId as funcid, md_metric.value as metric, md_join.value as joinvalue "
+            + "from TimeSeries_Dataset ds "
+            + "join TSFunctionalIdentifier fi on fi.tsuid = ds.tsuid "
+            + "join TSMetadata md_metric on md_metric.tsuid = ds.tsuid and md_metric.name = 'metric' "
+            + "join TSMetadata md_join on md_join.tsuid = ds.tsuid and md_join.name = :joinMeta "
+            + "where ds.dataset_name = :dataset and md_metric.value in (:metrics)";
+
 
     /**
      * default constructor
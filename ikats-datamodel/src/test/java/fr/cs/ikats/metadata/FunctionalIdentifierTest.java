@@ -120,6 +120,31 @@ public class FunctionalIdentifierTest extends CommonTest {
         assertEquals(2, added);
     }
 
+    /**
+     * Test the bulk removal: total count over all the tsuids
+     *
+     * @throws IkatsDaoException
+     */
+    @Test
+    public void testRemoveList() throws IkatsDaoException {
+
+        MetaDataFacade facade = new MetaDataFacade();
+
+        Map<String, String> values = new HashMap<String, String>();
+        values.put("tsuidR1", "mon_id_fonctionelR1");
+        values.put("tsuidR2", "mon_id_fonctionelR2");
+        values.put("tsuidR3", "mon_id_fonctionelR3");
+        facade.persistFunctionalIdentifier(values);
+
+        List<String> tsuids = new ArrayList<String>();
+        tsuids.add("tsuidR1");
+        tsuids.add("tsuidR2");
+        tsuids.add("tsuidUnknown");
+        assertEquals(2, facade.removeFunctionalIdentifier(tsuids));
+        assertTrue(facade.getFunctionalIdentifierByTsuidList(tsuids).isEmpty());
+        assertEquals("mon_id_fonctionelR3", facade.getFunctionalIdentifierByTsuid("tsuidR3").getFuncId());
+    }
+
     /**
      * Test method for {@link fr.cs.ikats.metadata.MetaDataFacade#getMetaDataForTS(java.lang.String)} .
      * @throws IkatsDaoException
@@ -225,6 +250,68 @@ public class FunctionalIdentifierTest extends CommonTest {
         assertEquals(4, result.size());
     }
 
+    /**
+     * Test the cache of the lookups by tsuid and by funcId: served without database after the first read, and
+     * invalidated by the removal
+     *
+     * @throws IkatsDaoException
+     */
+    @Test
+    public void testCache() throws IkatsDaoException {
+        MetaDataFacade facade = new MetaDataFacade();
+        facade.persistFunctionalIdentifier("tsuidC1", "mon_id_fonctionelC1");
+        facade.persistFunctionalIdentifier("tsuidC2", "mon_id_fonctionelC2");
+
+        long hits = facade.getFunctionalIdentifierCacheHitCount();
+        long misses = facade.getFunctionalIdentifierCacheMissCount();
+
+        assertEquals("mon_id_fonctionelC1", facade.getFunctionalIdentifierByTsuid("tsuidC1").getFuncId());
+        assertEquals(misses + 1, facade.getFunctionalIdentifierCacheMissCount());
+
+        // both directions are cached
+        assertEquals("mon_id_fonctionelC1", facade.getFunctionalIdentifierByTsuid("tsuidC1").getFuncId());
+        assertEquals("tsuidC1", facade.getFunctionalIdentifierByFuncId("mon_id_fonctionelC1").getTsuid());
+        assertEquals(hits + 2, facade.getFunctionalIdentifierCacheHitCount());
+
+        // only the missing tsuid is read from database
+        List<String> tsuids = new ArrayList<String>();
+        tsuids.add("tsuidC2");
+        tsuids.add("tsuidC1");
+        List<FunctionalIdentifier> result = facade.getFunctionalIdentifierByTsuidList(tsuids);
+        assertEquals(2, result.size());
+        assertEquals(new FunctionalIdentifier("tsuidC2", "mon_id_fonctionelC2"), result.get(0));
+        assertEquals(new FunctionalIdentifier("tsuidC1", "mon_id_fonctionelC1"), result.get(1));
+        assertEquals(hits + 3, facade.getFunctionalIdentifierCacheHitCount());
+        assertEquals(misses + 2, facade.getFunctionalIdentifierCacheMissCount());
+
+        // invalidated by the removal
+        facade.removeFunctionalIdentifier(tsuids);
+        assertNull(facade.getFunctionalIdentifierByTsuid("tsuidC1"));
+        assertTrue(facade.getFunctionalIdentifierByTsuidList(tsuids).isEmpty());
+    }
+
+    /**
+     * Test the LRU eviction of the cache, consistent in both directions
+     */
+    @Test
+    public void testCacheEviction() {
+        FunctionalIdentifierCache cache = new FunctionalIdentifierCache(2);
+        cache.put(new FunctionalIdentifier("tsuidE1", "funcIdE1"));
+        cache.put(new FunctionalIdentifier("tsuidE2", "funcIdE2"));
+
+        // refresh tsuidE1, then evict tsuidE2
+        assertNotNull(cache.getByFuncId("funcIdE1"));
+        cache.put(new FunctionalIdentifier("tsuidE3", "funcIdE3"));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.getByTsuid("tsuidE2"));
+        assertNull(cache.getByFuncId("funcIdE2"));
+        assertNotNull(cache.getByTsuid("tsuidE1"));
+        assertNotNull(cache.getByFuncId("funcIdE3"));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
     /**
      * Tests that implemented equals, hashcode are exact or/and robust to null values.
      */
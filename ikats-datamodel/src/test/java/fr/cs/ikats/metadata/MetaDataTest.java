@@ -19,19 +19,24 @@ package fr.cs.ikats.metadata;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.log4j.Logger;
 import org.hibernate.HibernateException;
 import org.hibernate.Query;
+import org.hibernate.SQLQuery;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import fr.cs.ikats.common.dao.exception.IkatsDaoConflictException;
@@ -46,6 +51,7 @@ import fr.cs.ikats.metadata.model.FunctionalIdentifier;
 import fr.cs.ikats.metadata.model.MetaData;
 import fr.cs.ikats.metadata.model.MetaData.MetaType;
 import fr.cs.ikats.metadata.model.MetadataCriterion;
+import fr.cs.ikats.ts.dataset.DataSetFacade;
 
 
 /**
@@ -159,6 +165,48 @@ public class MetaDataTest {
 
     }
 
+    /**
+     * Test method for
+     * {@link fr.cs.ikats.metadata.MetaDataFacade#persist(List, Boolean)} with update=true:
+     * the bulk import creates the missing metadata and updates the existing ones, over several JDBC batches.
+     *
+     * @throws IkatsDaoException
+     */
+    @Test
+    public void testPersistListWithUpdate() throws IkatsDaoException {
+        MetaDataFacade facade = new MetaDataFacade();
+        Integer existingId = facade.persistMetaData("tsuidU01", "MDName0", "old", MetaType.string);
+
+        List<MetaData> mdList = new ArrayList<MetaData>();
+        for (int i = 0; i < 120; i++) {
+            MetaData md = new MetaData();
+            md.setTsuid("tsuidU0" + (1 + i % 3));
+            md.setName("MDName" + (i / 3));
+            md.setValue("value" + i);
+            md.setDType(MetaType.number);
+            mdList.add(md);
+        }
+        // same (tsuid, name) twice in the imported list: the last value is kept
+        MetaData duplicate = new MetaData();
+        duplicate.setTsuid("tsuidU01");
+        duplicate.setName("MDName0");
+        duplicate.setValue("last");
+        duplicate.setDType(MetaType.string);
+        mdList.add(duplicate);
+
+        List<Integer> ids = facade.persist(mdList, true);
+        assertEquals(121, ids.size());
+        assertEquals(existingId, ids.get(0));
+        assertEquals(existingId, ids.get(120));
+
+        assertEquals(40, facade.getMetaDataForTS("tsuidU01").size());
+        assertEquals(40, facade.getMetaDataForTS("tsuidU03").size());
+        MetaData updated = facade.getMetaData("tsuidU01", "MDName0");
+        assertEquals("last", updated.getValue());
+        assertEquals(MetaType.string, updated.getDType());
+        assertEquals("value119", facade.getMetaData("tsuidU03", "MDName39").getValue());
+    }
+
     /**
      * @throws IkatsDaoException
      * @throws IkatsDaoMissingResource
@@ -170,6 +218,128 @@ public class MetaDataTest {
         fail("IkatsDaoMissingResource should be raised");
     }
 
+    /**
+     * Test method for
+     * {@link fr.cs.ikats.metadata.MetaDataFacade#getMetaDataForTsuids(java.util.Collection)}
+     *
+     * @throws IkatsDaoException
+     */
+    @Test
+    public void testGetMetaDataForTsuids() throws IkatsDaoException {
+        MetaDataFacade facade = new MetaDataFacade();
+        facade.persistMetaData("tsuidG01", "MDName1", "v1");
+        facade.persistMetaData("tsuidG01", "MDName2", "v2");
+        facade.persistMetaData("tsuidG02", "MDName1", "v3");
+
+        List<String> tsuids = new ArrayList<String>();
+        tsuids.add("tsuidG01");
+        tsuids.add("tsuidG02");
+        tsuids.add("tsuidG03");
+        Map<String, List<MetaData>> grouped = facade.getMetaDataForTsuids(tsuids);
+
+        assertEquals(2, grouped.size());
+        assertEquals(2, grouped.get("tsuidG01").size());
+        assertEquals(1, grouped.get("tsuidG02").size());
+        assertEquals("v3", grouped.get("tsuidG02").get(0).getValue());
+        assertFalse(grouped.containsKey("tsuidG03"));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.cs.ikats.metadata.MetaDataFacade#getMetaDataValues(java.util.Collection, java.util.Collection)}
+     * and {@link fr.cs.ikats.metadata.MetaDataFacade#getFunctionalIdentifierByFuncIdList(List)}
+     *
+     * @throws IkatsDaoException
+     */
+    @Test
+    public void testGetMetaDataValues() throws IkatsDaoException {
+        MetaDataFacade facade = new MetaDataFacade();
+        facade.persistMetaData("tsuidV01", "MDName1", "v1");
+        facade.persistMetaData("tsuidV01", "MDName2", "v2");
+        facade.persistMetaData("tsuidV01", "MDName3", "v3");
+        facade.persistMetaData("tsuidV02", "MDName1", "v4");
+        facade.persistFunctionalIdentifier("tsuidV01", "funcIdV01");
+        facade.persistFunctionalIdentifier("tsuidV02", "funcIdV02");
+
+        List<String> funcIds = new ArrayList<String>();
+        funcIds.add("funcIdV02");
+        funcIds.add("funcIdV01");
+        funcIds.add("funcIdV02");
+        funcIds.add("funcIdV03");
+        List<FunctionalIdentifier> pairs = facade.getFunctionalIdentifierByFuncIdList(funcIds);
+        assertEquals(2, pairs.size());
+        assertEquals("tsuidV02", pairs.get(0).getTsuid());
+        assertEquals("tsuidV01", pairs.get(1).getTsuid());
+
+        List<String> tsuids = new ArrayList<String>();
+        tsuids.add("tsuidV01");
+        tsuids.add("tsuidV02");
+        tsuids.add("tsuidV03");
+        List<String> names = new ArrayList<String>();
+        names.add("MDName1");
+        names.add("MDName2");
+        Map<String, Map<String, String>> values = facade.getMetaDataValues(tsuids, names);
+
+        assertEquals(2, values.size());
+        assertEquals(2, values.get("tsuidV01").size());
+        assertEquals("v2", values.get("tsuidV01").get("MDName2"));
+        assertFalse(values.get("tsuidV01").containsKey("MDName3"));
+        assertEquals(1, values.get("tsuidV02").size());
+        assertEquals("v4", values.get("tsuidV02").get("MDName1"));
+    }
+
+    /**
+     * Test method for
+     * {@link fr.cs.ikats.metadata.MetaDataFacade#scrollMetaDataForTsuids(List, MetaDataDAO.TsuidMetadataHandler)}
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testScrollMetaDataForTsuids() throws Exception {
+        MetaDataFacade facade = new MetaDataFacade();
+        facade.persistMetaData("tsuidS01", "MDName1", "v1");
+        facade.persistMetaData("tsuidS01", "MDName2", "v2");
+        facade.persistMetaData("tsuidS02", "MDName1", "v3");
+        facade.persistFunctionalIdentifier("tsuidS01", "funcIdS01");
+
+        List<String> tsuids = new ArrayList<String>();
+        tsuids.add("tsuidS02");
+        tsuids.add("tsuidS01");
+        tsuids.add("tsuidS03");
+        assertEquals(2, facade.getTsuidsWithMetaData(tsuids).size());
+        assertEquals(2, facade.getMetaDataNamesForTsuids(tsuids).size());
+
+        final Map<String, Map<String, String>> read = new HashMap<String, Map<String, String>>();
+        final Map<String, String> readFuncIds = new HashMap<String, String>();
+        facade.scrollMetaDataForTsuids(tsuids, (tsuid, funcId, values) -> {
+            assertFalse(read.containsKey(tsuid));
+            read.put(tsuid, values);
+            readFuncIds.put(tsuid, funcId);
+        });
+
+        assertEquals(2, read.size());
+        assertEquals("v2", read.get("tsuidS01").get("MDName2"));
+        assertEquals("v3", read.get("tsuidS02").get("MDName1"));
+        assertEquals("funcIdS01", readFuncIds.get("tsuidS01"));
+        assertEquals(null, readFuncIds.get("tsuidS02"));
+
+        // all the metadata: read by a single cursor, joined with the functional identifiers
+        read.clear();
+        readFuncIds.clear();
+        facade.scrollMetaDataForTsuids(null, (tsuid, funcId, values) -> {
+            assertFalse(read.containsKey(tsuid));
+            read.put(tsuid, values);
+            readFuncIds.put(tsuid, funcId);
+        });
+        assertEquals(2, read.get("tsuidS01").size());
+        assertEquals("v3", read.get("tsuidS02").get("MDName1"));
+        assertEquals("funcIdS01", readFuncIds.get("tsuidS01"));
+        assertEquals(null, readFuncIds.get("tsuidS02"));
+        assertTrue(facade.getMetaDataNamesForTsuids(null).contains("MDName2"));
+
+        facade.removeFunctionalIdentifier(tsuids);
+    }
+
     /**
      * Test the failures of searchs by TSUIDs
      *
@@ -230,6 +400,31 @@ public class MetaDataTest {
         facade.getMetaDataForTS("tsuidC4");
     }
 
+    /**
+     * Test the bulk removal of the metadata of a list of tsuids
+     *
+     * @throws IkatsDaoException
+     */
+    @Test
+    public void testRemoveMetaDataForTsuidList() throws IkatsDaoException {
+        MetaDataFacade facade = new MetaDataFacade();
+
+        facade.persistMetaData("tsuidR1", "MDName1", "value1");
+        facade.persistMetaData("tsuidR1", "MDName2", "value1");
+        facade.persistMetaData("tsuidR2", "MDName1", "value2");
+        facade.persistMetaData("tsuidR3", "MDName1", "value3");
+
+        List<String> tsuids = new ArrayList<String>();
+        tsuids.add("tsuidR1");
+        tsuids.add("tsuidR2");
+        tsuids.add("tsuidUnknown");
+        assertEquals(3, facade.removeMetaDataForTS(tsuids));
+        assertTrue(facade.getTsuidsWithMetaData(tsuids).isEmpty());
+        assertEquals(1, facade.getMetaDataForTS("tsuidR3").size());
+
+        facade.removeMetaDataForTS("tsuidR3");
+    }
+
     /**
      * Test method for
      * {@link fr.cs.ikats.metadata.MetaDataFacade#getMetaDataForTS(java.lang.String)}
@@ -498,6 +693,163 @@ public class MetaDataTest {
         facade.removeMetaDataForTS("TS8");
     }
 
+    /**
+     * Test the metadata filtering based on a nested formula: MD1 in (A) or ( MD2 > 10 and not ( MD1 like 'C%' ) )
+     *
+     * @throws IkatsDaoException
+     */
+    @Test
+    public void testSearchFuncId_nested_or_not() throws IkatsDaoException {
+        MetaDataFacade facade = new MetaDataFacade();
+
+        // Create the test set
+        facade.persistMetaData("TSN1", "MD1", "A");
+        facade.persistMetaData("TSN1", "MD2", "1", MetaType.number);
+        facade.persistMetaData("TSN2", "MD1", "B");
+        facade.persistMetaData("TSN2", "MD2", "12", MetaType.number);
+        facade.persistMetaData("TSN3", "MD1", "CB");
+        facade.persistMetaData("TSN3", "MD2", "20", MetaType.number);
+        facade.persistMetaData("TSN4", "MD1", "B");
+        facade.persistMetaData("TSN4", "MD2", "5", MetaType.number);
+
+        List<FunctionalIdentifier> scope = new ArrayList<FunctionalIdentifier>();
+        addToScope(scope, "TSN1", "FIDN1");
+        addToScope(scope, "TSN2", "FIDN2");
+        addToScope(scope, "TSN3", "FIDN3");
+        addToScope(scope, "TSN4", "FIDN4");
+
+        Group notLikeC = new Group();
+        notLikeC.setConnector(Expression.ConnectorExpression.NOT);
+        notLikeC.setTerms(new ArrayList<>());
+        addCrit(notLikeC, "MD1", "like", "C%");
+
+        Group and = new Group();
+        and.setConnector(Expression.ConnectorExpression.AND);
+        and.setTerms(new ArrayList<>());
+        addCrit(and, "MD2", ">", "10");
+        and.getTerms().add(notLikeC);
+
+        Group formula = new Group();
+        formula.setConnector(Expression.ConnectorExpression.OR);
+        formula.setTerms(new ArrayList<>());
+        addCrit(formula, "MD1", "in", "A");
+        formula.getTerms().add(and);
+
+        List<FunctionalIdentifier> expected = new ArrayList<>();
+        addToScope(expected, "TSN1", "FIDN1");
+        addToScope(expected, "TSN2", "FIDN2");
+
+        assertEquals(expected, facade.searchFuncId(scope, formula));
+
+        // Cleanup
+        facade.removeMetaDataForTS("TSN1");
+        facade.removeMetaDataForTS("TSN2");
+        facade.removeMetaDataForTS("TSN3");
+        facade.removeMetaDataForTS("TSN4");
+    }
+
+    /**
+     * Test the metadata filtering evaluated by the in-memory index: same results than the database, and index kept up
+     * to date by the updates and removals
+     *
+     * @throws IkatsDaoException
+     */
+    @Test
+    public void testSearchFuncId_index() throws IkatsDaoException {
+        MetaDataFacade facade = new MetaDataFacade();
+
+        // Create the test set
+        facade.persistMetaData("TSI1", "MD1", "A");
+        facade.persistMetaData("TSI1", "MD2", "12", MetaType.number);
+        facade.persistMetaData("TSI2", "MD1", "B");
+        facade.persistMetaData("TSI2", "MD2", "3.5", MetaType.number);
+        facade.persistMetaData("TSI3", "MD1", "AB");
+        facade.persistMetaData("TSI3", "MD2", "20", MetaType.number);
+        facade.persistMetaData("TSI4", "MD1", "C");
+
+        List<FunctionalIdentifier> scope = new ArrayList<FunctionalIdentifier>();
+        addToScope(scope, "TSI1", "FIDI1");
+        addToScope(scope, "TSI2", "FIDI2");
+        addToScope(scope, "TSI3", "FIDI3");
+        addToScope(scope, "TSI4", "FIDI4");
+
+        Group formula = new Group();
+        formula.setConnector(Expression.ConnectorExpression.AND);
+        formula.setTerms(new ArrayList<>());
+        addCrit(formula, "MD1", "like", "A%");
+        addCrit(formula, "MD2", ">", "10");
+
+        List<FunctionalIdentifier> fromDatabase = facade.searchFuncId(scope, formula);
+        try {
+            facade.enableSearchIndex();
+            List<FunctionalIdentifier> fromIndex = facade.searchFuncId(scope, formula);
+            assertEquals(fromDatabase, fromIndex);
+            assertEquals(2, fromIndex.size());
+
+            // the index follows the updates and removals
+            facade.updateMetaData("TSI3", "MD2", "5");
+            facade.removeMetaDataForTS("TSI1");
+            assertTrue(facade.searchFuncId(scope, formula).isEmpty());
+
+            facade.persistMetaData("TSI4", "MD2", "11", MetaType.number);
+            formula.setTerms(new ArrayList<>());
+            addCrit(formula, "MD1", "in", "B;C");
+            addCrit(formula, "MD2", ">=", "3.5");
+            List<FunctionalIdentifier> expected = new ArrayList<>();
+            addToScope(expected, "TSI2", "FIDI2");
+            addToScope(expected, "TSI4", "FIDI4");
+            assertEquals(expected, facade.searchFuncId(scope, formula));
+        } finally {
+            facade.disableSearchIndex();
+        }
+
+        // Cleanup
+        facade.removeMetaDataForTS("TSI2");
+        facade.removeMetaDataForTS("TSI3");
+        facade.removeMetaDataForTS("TSI4");
+    }
+
+    /**
+     * Test the dataset-scoped metadata filtering evaluated by the in-memory index: same results than the database
+     *
+     * @throws IkatsDaoException
+     */
+    @Test
+    public void testSearchFuncId_dataset_index() throws IkatsDaoException {
+        MetaDataFacade facade = new MetaDataFacade();
+        DataSetFacade datasetFacade = new DataSetFacade();
+
+        // Create the test set
+        List<String> tsuids = new ArrayList<String>();
+        for (int i = 1; i <= 3; i++) {
+            tsuids.add("TSDI" + i);
+            facade.persistFunctionalIdentifier("TSDI" + i, "FIDDI" + i);
+            facade.persistMetaData("TSDI" + i, "MD1", i == 2 ? "B" : "A");
+            facade.persistMetaData("TSDI" + i, "MD2", String.valueOf(10 * i), MetaType.number);
+        }
+        datasetFacade.persistDataSet("DatasetDI", "dataset of testSearchFuncId_dataset_index", tsuids.subList(0, 2));
+
+        List<MetadataCriterion> criteria = new ArrayList<MetadataCriterion>();
+        criteria.add(new MetadataCriterion("MD2", ">=", "10"));
+        criteria.add(new MetadataCriterion("MD1", "in", "A"));
+
+        try {
+            List<FunctionalIdentifier> fromDatabase = facade.searchFuncId("DatasetDI", criteria);
+            facade.enableSearchIndex();
+            List<FunctionalIdentifier> fromIndex = facade.searchFuncId("DatasetDI", criteria);
+            assertEquals(fromDatabase, fromIndex);
+            assertEquals(1, fromIndex.size());
+            assertEquals("FIDDI1", fromIndex.get(0).getFuncId());
+        } finally {
+            facade.disableSearchIndex();
+            datasetFacade.removeDataSet("DatasetDI");
+            facade.removeFunctionalIdentifier(tsuids);
+            for (String tsuid : tsuids) {
+                facade.removeMetaDataForTS(tsuid);
+            }
+        }
+    }
+
     /**
      * Test the metadata filtering based on "not in" operator with multiple items in operand list
      *
@@ -720,4 +1072,152 @@ public class MetaDataTest {
 
 
     }
+
+    /**
+     * Test the numeric value of the metadata: computed on write for the values written as numbers, whatever their
+     * dtype, and restored by the migration task
+     *
+     * @throws IkatsDaoException
+     */
+    @Test
+    public void testNumericValue() throws IkatsDaoException {
+        MetaDataFacade facade = new MetaDataFacade();
+
+        facade.persistMetaData("tsNum1", "MDNumber", "12.5", MetaType.number);
+        facade.persistMetaData("tsNum1", "MDDate", "1449755766000", MetaType.date);
+        facade.persistMetaData("tsNum1", "MDString", "12", MetaType.string);
+        facade.persistMetaData("tsNum1", "MDText", "7d", MetaType.string);
+        facade.persistMetaData("tsNum1", "MDNaN", "twelve", MetaType.number);
+
+        assertEquals(Double.valueOf(12.5), facade.getMetaData("tsNum1", "MDNumber").getNumericValue());
+        assertEquals(Double.valueOf(1449755766000d), facade.getMetaData("tsNum1", "MDDate").getNumericValue());
+        assertEquals(Double.valueOf(12), facade.getMetaData("tsNum1", "MDString").getNumericValue());
+        assertNull(facade.getMetaData("tsNum1", "MDText").getNumericValue());
+        assertNull(facade.getMetaData("tsNum1", "MDNaN").getNumericValue());
+
+        facade.updateMetaData("tsNum1", "MDNumber", "7");
+        assertEquals(Double.valueOf(7), facade.getMetaData("tsNum1", "MDNumber").getNumericValue());
+
+        // metadata written before the numeric_value column existed
+        Session session = dao.getSession();
+        Transaction tx = null;
+        try {
+            tx = session.beginTransaction();
+            session.createSQLQuery("update TSMetadata set numeric_value = null where tsuid = 'tsNum1'").executeUpdate();
+            tx.commit();
+        } catch (HibernateException e) {
+            if (tx != null) {
+                tx.rollback();
+            }
+            throw e;
+        } finally {
+            session.close();
+        }
+        assertNull(facade.getMetaData("tsNum1", "MDNumber").getNumericValue());
+
+        assertEquals(3, facade.backfillNumericValues());
+        assertEquals(Double.valueOf(7), facade.getMetaData("tsNum1", "MDNumber").getNumericValue());
+        assertEquals(Double.valueOf(1449755766000d), facade.getMetaData("tsNum1", "MDDate").getNumericValue());
+        assertEquals(Double.valueOf(12), facade.getMetaData("tsNum1", "MDString").getNumericValue());
+        assertNull(facade.getMetaData("tsNum1", "MDText").getNumericValue());
+        assertEquals(0, facade.backfillNumericValues());
+
+        facade.removeMetaDataForTS("tsNum1");
+    }
+
+    /**
+     * Test the range filters on numbers written with the default string dtype, as by the CSV import: matched by the
+     * database and by the in-memory index
+     *
+     * @throws IkatsDaoException
+     */
+    @Test
+    public void testSearchFuncId_range_stringDtype() throws IkatsDaoException {
+        MetaDataFacade facade = new MetaDataFacade();
+
+        facade.persistMetaData("TSR1", "MDRange", "12");
+        facade.persistMetaData("TSR2", "MDRange", "3.5");
+        facade.persistMetaData("TSR3", "MDRange", "high");
+
+        List<FunctionalIdentifier> scope = new ArrayList<FunctionalIdentifier>();
+        addToScope(scope, "TSR1", "FIDR1");
+        addToScope(scope, "TSR2", "FIDR2");
+        addToScope(scope, "TSR3", "FIDR3");
+
+        Group formula = new Group();
+        formula.setConnector(Expression.ConnectorExpression.AND);
+        formula.setTerms(new ArrayList<>());
+        addCrit(formula, "MDRange", ">", "10");
+
+        List<FunctionalIdentifier> expected = new ArrayList<>();
+        addToScope(expected, "TSR1", "FIDR1");
+        try {
+            assertEquals(expected, facade.searchFuncId(scope, formula));
+            facade.enableSearchIndex();
+            assertEquals(expected, facade.searchFuncId(scope, formula));
+        } finally {
+            facade.disableSearchIndex();
+            facade.removeMetaDataForTS("TSR1");
+            facade.removeMetaDataForTS("TSR2");
+            facade.removeMetaDataForTS("TSR3");
+        }
+    }
+
+    /**
+     * Benchmark of a range filter: cast of the text value versus the indexed numeric value.
+     * <p>
+     * Not run by default: the number of metadata is set by the system property ikats.benchmark.rows (default is
+     * 2000000)
+     *
+     * @throws IkatsDaoException
+     */
+    @Test
+    @Ignore
+    public void benchmarkRangeFilter() throws IkatsDaoException {
+        MetaDataFacade facade = new MetaDataFacade();
+        int rows = Integer.getInteger("ikats.benchmark.rows", 2000000);
+
+        List<MetaData> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            MetaData md = new MetaData();
+            md.setTsuid("tsBench" + i);
+            md.setName("MDBench");
+            md.setDType(MetaType.number);
+            md.setValue(Integer.toString(i % 1000));
+            batch.add(md);
+            if (batch.size() == 10000) {
+                facade.persist(batch, false);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            facade.persist(batch, false);
+        }
+
+        String castQuery = "select count(*) from TSMetadata md where md.name = 'MDBench' and cast( md.value as float ) > :value";
+        String indexedQuery = "select count(*) from TSMetadata md where md.name = 'MDBench' and md.numeric_value > :value";
+        Session session = dao.getSession();
+        try {
+            // warm up, then measure
+            for (int run = 0; run < 2; run++) {
+                long start = System.currentTimeMillis();
+                SQLQuery cast = session.createSQLQuery(castQuery);
+                cast.setDouble("value", 990);
+                long castCount = ((Number) cast.uniqueResult()).longValue();
+                long castDuration = System.currentTimeMillis() - start;
+
+                start = System.currentTimeMillis();
+                SQLQuery indexed = session.createSQLQuery(indexedQuery);
+                indexed.setDouble("value", 990);
+                long indexedCount = ((Number) indexed.uniqueResult()).longValue();
+                long indexedDuration = System.currentTimeMillis() - start;
+
+                assertEquals(castCount, indexedCount);
+                Logger.getLogger(MetaDataTest.class).info("benchmarkRangeFilter on " + rows + " metadata: cast=" + castDuration + "ms, numeric_value="
+                        + indexedDuration + "ms");
+            }
+        } finally {
+            session.close();
+        }
+    }
 }
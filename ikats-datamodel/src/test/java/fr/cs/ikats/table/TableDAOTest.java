@@ -18,6 +18,8 @@ package fr.cs.ikats.table;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.After;
@@ -26,6 +28,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import fr.cs.ikats.common.dao.exception.IkatsDaoConflictException;
+import fr.cs.ikats.common.dao.exception.IkatsDaoException;
 import fr.cs.ikats.common.dao.exception.IkatsDaoMissingResource;
 
 public class TableDAOTest extends TableDAO {
@@ -85,6 +88,120 @@ public class TableDAOTest extends TableDAO {
         assertArrayEquals(rawDataLinksStr.getBytes(), actualRawDataLinks);
     }
 
+    @Test
+    public final void testGetSummaryByName() throws IkatsDaoConflictException, IkatsDaoMissingResource {
+
+        // Create a table with its catalog
+        TableEntity tableEntity = new TableEntity();
+        tableEntity.setName("TEST CATALOG");
+        tableEntity.setRawValues("TestRawValuesStr".getBytes());
+        tableEntity.setRawDataLinks("TestDataLinksStr".getBytes());
+        tableEntity.setRowCount(2);
+        tableEntity.setColumnCount(3);
+        tableEntity.setColumnNames(Arrays.asList("Id", "Multi\nline", null));
+        tableEntity.setColumnTypes(Arrays.asList("String", "Double", null));
+        tableEntity.setByteSize(32L);
+        tableEntity.setChecksum("0123abcd");
+
+        assertFalse(dao.exists("TEST CATALOG"));
+        dao.persist(tableEntity);
+        assertTrue(dao.exists("TEST CATALOG"));
+
+        // The summary gets the catalog, without the raw properties
+        TableEntitySummary summary = dao.getSummaryByName("TEST CATALOG");
+        assertEquals(tableEntity.getId(), summary.getId());
+        assertEquals(Integer.valueOf(2), summary.getRowCount());
+        assertEquals(Integer.valueOf(3), summary.getColumnCount());
+        assertEquals(Arrays.asList("Id", "Multi\nline", null), summary.getColumnNames());
+        assertEquals(Arrays.asList("String", "Double", null), summary.getColumnTypes());
+        assertEquals(Long.valueOf(32L), summary.getByteSize());
+        assertEquals("0123abcd", summary.getChecksum());
+    }
+
+    @Test(expected = IkatsDaoMissingResource.class)
+    public final void testGetSummaryByNameMissing() throws IkatsDaoMissingResource {
+        dao.getSummaryByName("UNKNOWN TABLE");
+    }
+
+    @Test
+    public final void testCatalogListEncoding() {
+        List<String> items = Arrays.asList("a", "", null, "back\\slash", "line\nfeed", "\\0");
+        assertEquals(items, AbstractTableEntity.decodeList(AbstractTableEntity.encodeList(items)));
+        assertEquals(Collections.singletonList(""),
+                AbstractTableEntity.decodeList(AbstractTableEntity.encodeList(Collections.singletonList(""))));
+        assertEquals(Collections.emptyList(),
+                AbstractTableEntity.decodeList(AbstractTableEntity.encodeList(Collections.<String>emptyList())));
+        assertNull(AbstractTableEntity.decodeList(AbstractTableEntity.encodeList(null)));
+    }
+
+    @Test
+    public final void testSegments() throws IkatsDaoException {
+
+        // Create a table, then append two row groups in reverse order
+        TableEntity tableEntity = new TableEntity();
+        tableEntity.setName("TEST SEGMENTS");
+        tableEntity.setRawValues("TestRawValuesStr".getBytes());
+        tableEntity.setRawDataLinks("TestDataLinksStr".getBytes());
+        dao.persist(tableEntity);
+        int tableId = tableEntity.getId();
+
+        TableEntitySummary summary = dao.getSummaryByName("TEST SEGMENTS");
+        for (int rowGroup : new int[]{ 2, 1 }) {
+            TableSegmentEntity segment = new TableSegmentEntity();
+            segment.setTableId(tableId);
+            segment.setRowGroup(rowGroup);
+            segment.setRowCount(rowGroup * 10);
+            segment.setRawValues(("RowGroup" + rowGroup).getBytes());
+            summary.setRowGroupCount(summary.getRowGroupCount() == null ? 2 : summary.getRowGroupCount() + 1);
+            dao.saveSegment(summary, segment);
+        }
+        assertEquals(Integer.valueOf(3), dao.getSummaryByName("TEST SEGMENTS").getRowGroupCount());
+
+        // The segments are listed by row group
+        List<TableSegmentEntity> segments = dao.listSegments(tableId);
+        assertEquals(2, segments.size());
+        assertEquals(1, segments.get(0).getRowGroup());
+        assertEquals(2, segments.get(1).getRowGroup());
+        assertArrayEquals("RowGroup2".getBytes(), segments.get(1).getRawValues());
+
+        // Replace the first one
+        TableSegmentEntity segment = dao.getSegment(tableId, 1);
+        assertEquals(10, segment.getRowCount());
+        segment.setRowCount(5);
+        segment.setRawValues("Replaced".getBytes());
+        dao.saveSegment(summary, segment);
+        segment = dao.getSegment(tableId, 1);
+        assertEquals(5, segment.getRowCount());
+        assertArrayEquals("Replaced".getBytes(), segment.getRawValues());
+
+        // The same row group can not be appended twice
+        TableSegmentEntity duplicate = new TableSegmentEntity();
+        duplicate.setTableId(tableId);
+        duplicate.setRowGroup(2);
+        duplicate.setRawValues("Duplicate".getBytes());
+        try {
+            dao.saveSegment(summary, duplicate);
+            fail("Duplicate row group saved");
+        } catch (IkatsDaoConflictException e) {
+            // expected
+        }
+
+        // The segments are removed with the table
+        dao.removeById(tableId);
+        assertTrue(dao.listSegments(tableId).isEmpty());
+    }
+
+    @Test(expected = IkatsDaoMissingResource.class)
+    public final void testGetSegmentMissing() throws IkatsDaoConflictException, IkatsDaoMissingResource {
+        TableEntity tableEntity = new TableEntity();
+        tableEntity.setName("TEST NO SEGMENT");
+        tableEntity.setRawValues("TestRawValuesStr".getBytes());
+        tableEntity.setRawDataLinks("TestDataLinksStr".getBytes());
+        dao.persist(tableEntity);
+
+        dao.getSegment(tableEntity.getId(), 1);
+    }
+
     @Test(expected = IkatsDaoConflictException.class)
     public final void testPersist() throws IkatsDaoConflictException {
 